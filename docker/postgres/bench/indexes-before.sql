@@ -0,0 +1,8 @@
+-- 恢复调整前的索引集合（仅用于对比测试）
+DROP INDEX IF EXISTS idx_data_time_brin;
+DROP INDEX IF EXISTS idx_device_time_cover;
+
+CREATE INDEX IF NOT EXISTS idx_device_id_data ON tb_device_data(device_id);
+CREATE INDEX IF NOT EXISTS idx_data_time ON tb_device_data(data_time DESC);
+CREATE INDEX IF NOT EXISTS idx_device_time ON tb_device_data(device_id, data_time DESC);
+CREATE INDEX IF NOT EXISTS idx_create_time_data ON tb_device_data(create_time DESC);
@@ -0,0 +1,6 @@
+-- pgbench：单行插入（与批量写入器的多值INSERT相比更能体现每行的索引维护成本）
+\set dev random(0, :devices - 1)
+INSERT INTO tb_device_data (device_id, data_time, latitude, longitude, speed, direction, gps_valid,
+                            speed_rpm, fuel_level, engine_temp, mileage, signal_strength, data_status)
+VALUES ('BENCH_' || :dev, now(), 31.2304 + random() * 0.1, 121.4737 + random() * 0.1,
+        round((random() * 120)::NUMERIC, 2), 90, true, 2000, 50.00, 85, 12345.67, 80, 0);
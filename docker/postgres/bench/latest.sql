@@ -0,0 +1,6 @@
+-- pgbench：getLatestData的数据库回源查询
+\set dev random(0, :devices - 1)
+SELECT * FROM tb_device_data
+WHERE device_id = 'BENCH_' || :dev
+ORDER BY data_time DESC
+LIMIT 1;
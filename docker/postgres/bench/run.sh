@@ -0,0 +1,75 @@
+#!/bin/bash
+# IoT Vehicle Platform - tb_device_data 索引对比测试
+# Author: dongxiang.wu
+#
+# 用法: ./run.sh [设备数] [数据行数] [并发数] [每项持续秒数]
+# 连接参数使用标准的 PGHOST / PGPORT / PGUSER / PGPASSWORD / PGDATABASE 环境变量
+
+set -e
+
+DEVICES=${1:-10000}
+ROWS=${2:-5000000}
+CLIENTS=${3:-8}
+DURATION=${4:-60}
+DAYS=30
+
+export PGHOST=${PGHOST:-localhost}
+export PGPORT=${PGPORT:-5432}
+export PGUSER=${PGUSER:-postgres}
+export PGPASSWORD=${PGPASSWORD:-postgres}
+export PGDATABASE=${PGDATABASE:-iot_vehicle}
+
+DIR=$(cd "$(dirname "$0")" && pwd)
+INDEXES_AFTER="$DIR/../init/06-device-data-indexes.sql"
+
+index_sizes() {
+    psql -q -X -c "
+        SELECT i.indexrelid::regclass AS partition_index,
+               am.amname AS type,
+               pg_size_pretty(pg_relation_size(i.indexrelid)) AS size
+        FROM pg_index i
+        JOIN pg_class c ON c.oid = i.indexrelid
+        JOIN pg_am am ON am.oid = c.relam
+        WHERE i.indrelid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = 'tb_device_data'::regclass)
+        ORDER BY pg_relation_size(i.indexrelid) DESC
+        LIMIT 20;"
+}
+
+run_phase() {
+    local name=$1
+    local index_file=$2
+
+    echo ""
+    echo "=============== ${name} ==============="
+    psql -q -X -f "$index_file"
+    psql -q -X -c "VACUUM ANALYZE tb_device_data;"
+    index_sizes
+
+    echo "--- 插入吞吐 ---"
+    pgbench -n -r -c "$CLIENTS" -j "$CLIENTS" -T "$DURATION" -D devices="$DEVICES" -f "$DIR/insert.sql" \
+        | grep -E "tps|latency average"
+
+    psql -q -X -c "VACUUM ANALYZE tb_device_data;"
+
+    echo "--- getLatestData回源查询 ---"
+    pgbench -n -r -c "$CLIENTS" -j "$CLIENTS" -T "$DURATION" -D devices="$DEVICES" -f "$DIR/latest.sql" \
+        | grep -E "tps|latency average"
+
+    echo "--- 单设备轨迹查询 ---"
+    pgbench -n -r -c "$CLIENTS" -j "$CLIENTS" -T "$DURATION" -D devices="$DEVICES" -f "$DIR/track.sql" \
+        | grep -E "tps|latency average"
+
+    echo "--- 执行计划 ---"
+    psql -q -X -c "EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+        SELECT * FROM tb_device_data WHERE device_id = 'BENCH_1' ORDER BY data_time DESC LIMIT 1;"
+}
+
+echo "生成测试数据: devices=${DEVICES}, rows=${ROWS}, days=${DAYS}"
+psql -q -X -v devices="$DEVICES" -v rows="$ROWS" -v days="$DAYS" -f "$DIR/seed.sql"
+
+run_phase "调整前（4个B-tree索引）" "$DIR/indexes-before.sql"
+run_phase "调整后（BRIN + 覆盖索引）" "$INDEXES_AFTER"
+
+echo ""
+echo "清理测试数据"
+psql -q -X -c "DELETE FROM tb_device_data WHERE device_id LIKE 'BENCH\_%'; VACUUM ANALYZE tb_device_data;"
@@ -0,0 +1,45 @@
+-- 生成测试数据：:devices 个设备（BENCH_0 ~ BENCH_n），:rows 行，时间均匀分布在最近 :days 天
+-- 用法: psql -v devices=10000 -v rows=5000000 -v days=30 -f seed.sql
+
+SELECT set_config('bench.days', :'days', false);
+
+-- 补齐测试时间范围内缺少的按月分区
+DO $$
+DECLARE
+    v_month DATE := date_trunc('month', now() - (current_setting('bench.days') || ' days')::INTERVAL)::DATE;
+BEGIN
+    WHILE v_month <= date_trunc('month', now())::DATE LOOP
+        IF NOT EXISTS (
+            SELECT 1 FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'tb_device_data'::regclass
+              AND c.relname = 'tb_device_data_p' || to_char(v_month, 'YYYYMM')
+        ) THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF tb_device_data FOR VALUES FROM (%L) TO (%L)',
+                           'tb_device_data_p' || to_char(v_month, 'YYYYMM'),
+                           v_month, (v_month + INTERVAL '1 month')::DATE);
+        END IF;
+        v_month := (v_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+DELETE FROM tb_device_data WHERE device_id LIKE 'BENCH\_%';
+
+-- 按时间顺序插入，与线上追加写入的物理分布一致（BRIN依赖这一点）
+INSERT INTO tb_device_data (device_id, data_time, latitude, longitude, speed, direction, gps_valid,
+                            speed_rpm, fuel_level, engine_temp, mileage, signal_strength, data_status)
+SELECT 'BENCH_' || (g % :devices),
+       now() - (:days || ' days')::INTERVAL * (1 - g::DOUBLE PRECISION / :rows),
+       31.2304 + random() * 0.1,
+       121.4737 + random() * 0.1,
+       round((random() * 120)::NUMERIC, 2),
+       (random() * 359)::INT,
+       true,
+       800 + (random() * 4000)::INT,
+       round((random() * 100)::NUMERIC, 2),
+       60 + (random() * 40)::INT,
+       round((random() * 100000)::NUMERIC, 2),
+       (random() * 100)::INT,
+       0
+FROM generate_series(1, :rows) AS g;
+
+VACUUM ANALYZE tb_device_data;
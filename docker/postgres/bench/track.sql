@@ -0,0 +1,6 @@
+-- pgbench：单设备一天的轨迹点（只取覆盖索引中的列）
+\set dev random(0, :devices - 1)
+SELECT data_time, latitude, longitude, speed FROM tb_device_data
+WHERE device_id = 'BENCH_' || :dev
+  AND data_time >= now() - INTERVAL '1 day'
+ORDER BY data_time DESC;
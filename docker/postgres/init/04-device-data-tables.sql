@@ -59,9 +59,9 @@ CREATE INDEX idx_data_time ON tb_device_data(data_time DESC);
 CREATE INDEX idx_device_time ON tb_device_data(device_id, data_time DESC);
 CREATE INDEX idx_create_time_data ON tb_device_data(create_time DESC);
 
--- 创建分区（按月分区，提升查询性能）
+-- 创建分区（按data_time范围分区，提升查询性能）
 -- 注：PostgreSQL 10+支持声明式分区
--- 暂时不创建，第36周（分库分表）时再实现
+-- 见05-device-data-partitioning.sql，分区由服务端DevicePartitionManager维护
 
 -- 添加表注释
 COMMENT ON TABLE tb_device_data IS '设备实时数据表';
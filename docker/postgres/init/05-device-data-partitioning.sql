@@ -0,0 +1,127 @@
+-- IoT Vehicle Platform - Device Data Partitioning
+-- Author: dongxiang.wu
+-- Description: 将tb_device_data改为按data_time范围分区的分区表
+-- Version: 1.0.0
+
+-- ============================================
+-- 设备数据分区
+-- ============================================
+-- 分区命名：tb_device_data_pYYYYMM（按月）/ tb_device_data_pYYYYMMDD（按天）
+-- 本脚本只创建按月的初始分区，后续分区的预建、过期分区的分离和删除由服务端DevicePartitionManager负责。
+-- 已有数据的库执行本脚本时，旧表重命名为tb_device_data_legacy并把数据迁移到分区表，核对无误后手动删除旧表；
+-- 全新初始化时04脚本创建的是空的普通表，改名后直接删除，不留下空的旧表。
+-- 不创建DEFAULT分区：DEFAULT分区中有数据时无法再创建覆盖该范围的分区，也无法并发分离分区。
+-- 因此data_time超出已有分区范围的数据无法写入，服务端接入时按DevicePartitionManager记录的分区范围校验并拒绝。
+
+DO $$
+DECLARE
+    v_min_time TIMESTAMP;
+    v_month DATE;
+    v_last_month DATE;
+    v_legacy BOOLEAN;
+BEGIN
+    -- 已经是分区表则跳过
+    IF EXISTS (SELECT 1 FROM pg_class WHERE relname = 'tb_device_data' AND relkind = 'p') THEN
+        RAISE NOTICE 'tb_device_data is already partitioned, skipped';
+        RETURN;
+    END IF;
+
+    v_legacy := EXISTS (SELECT 1 FROM pg_class WHERE relname = 'tb_device_data' AND relkind = 'r');
+    IF v_legacy THEN
+        ALTER TABLE tb_device_data RENAME TO tb_device_data_legacy;
+        ALTER TABLE tb_device_data_legacy RENAME CONSTRAINT tb_device_data_pkey TO tb_device_data_legacy_pkey;
+        ALTER INDEX IF EXISTS idx_device_id_data RENAME TO idx_device_id_data_legacy;
+        ALTER INDEX IF EXISTS idx_data_time RENAME TO idx_data_time_legacy;
+        ALTER INDEX IF EXISTS idx_device_time RENAME TO idx_device_time_legacy;
+        ALTER INDEX IF EXISTS idx_create_time_data RENAME TO idx_create_time_data_legacy;
+        -- 序列保留给分区表继续使用，主键不回退
+        ALTER TABLE tb_device_data_legacy ALTER COLUMN id DROP DEFAULT;
+        ALTER SEQUENCE tb_device_data_id_seq OWNED BY NONE;
+        SELECT min(data_time) INTO v_min_time FROM tb_device_data_legacy;
+    ELSE
+        CREATE SEQUENCE IF NOT EXISTS tb_device_data_id_seq;
+    END IF;
+
+    -- 分区表的主键必须包含分区键
+    CREATE TABLE tb_device_data (
+        id BIGINT NOT NULL DEFAULT nextval('tb_device_data_id_seq'),
+        device_id VARCHAR(64) NOT NULL,
+        data_time TIMESTAMP NOT NULL,
+        latitude DECIMAL(10, 7),
+        longitude DECIMAL(10, 7),
+        altitude DECIMAL(8, 2),
+        speed DECIMAL(6, 2),
+        direction SMALLINT,
+        gps_valid BOOLEAN DEFAULT false,
+        satellite_count SMALLINT,
+        speed_rpm INT,
+        fuel_level DECIMAL(5, 2),
+        fuel_consumption DECIMAL(6, 2),
+        engine_temp SMALLINT,
+        battery_voltage DECIMAL(5, 2),
+        mileage DECIMAL(10, 2),
+        signal_strength SMALLINT,
+        data_status SMALLINT DEFAULT 0,
+        raw_data JSONB,
+        create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+        PRIMARY KEY (id, data_time)
+    ) PARTITION BY RANGE (data_time);
+    ALTER SEQUENCE tb_device_data_id_seq OWNED BY tb_device_data.id;
+
+    -- 分区表上的索引会自动在每个分区上创建
+    -- device_id单列索引是(device_id, data_time)的前缀，create_time没有查询使用，均不再创建
+    CREATE INDEX idx_device_time ON tb_device_data(device_id, data_time DESC);
+    CREATE INDEX idx_data_time ON tb_device_data(data_time DESC);
+
+    -- 从最早的数据所在月份（没有数据时为当前月）到当前月之后3个月，每月一个分区
+    v_month := date_trunc('month', COALESCE(v_min_time, CURRENT_TIMESTAMP))::DATE;
+    v_last_month := (date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months')::DATE;
+    WHILE v_month <= v_last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF tb_device_data FOR VALUES FROM (%L) TO (%L)',
+                       'tb_device_data_p' || to_char(v_month, 'YYYYMM'),
+                       v_month, (v_month + INTERVAL '1 month')::DATE);
+        v_month := (v_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+
+    IF v_legacy AND v_min_time IS NULL THEN
+        DROP TABLE tb_device_data_legacy;
+        RAISE NOTICE 'Empty tb_device_data_legacy dropped';
+    ELSIF v_legacy THEN
+        INSERT INTO tb_device_data SELECT * FROM tb_device_data_legacy;
+        RAISE NOTICE 'Rows migrated from tb_device_data_legacy, drop it after verification';
+    END IF;
+END $$;
+
+-- 添加列注释
+COMMENT ON COLUMN tb_device_data.id IS '主键ID';
+COMMENT ON COLUMN tb_device_data.device_id IS '设备ID';
+COMMENT ON COLUMN tb_device_data.data_time IS '数据时间（设备上报的时间，分区键）';
+COMMENT ON COLUMN tb_device_data.latitude IS '纬度';
+COMMENT ON COLUMN tb_device_data.longitude IS '经度';
+COMMENT ON COLUMN tb_device_data.altitude IS '海拔（米）';
+COMMENT ON COLUMN tb_device_data.speed IS '速度（km/h）';
+COMMENT ON COLUMN tb_device_data.direction IS '方向（0-360度）';
+COMMENT ON COLUMN tb_device_data.gps_valid IS 'GPS是否有效';
+COMMENT ON COLUMN tb_device_data.satellite_count IS '卫星数量';
+COMMENT ON COLUMN tb_device_data.speed_rpm IS '发动机转速（RPM）';
+COMMENT ON COLUMN tb_device_data.fuel_level IS '油量（%）';
+COMMENT ON COLUMN tb_device_data.fuel_consumption IS '瞬时油耗（L/100km）';
+COMMENT ON COLUMN tb_device_data.engine_temp IS '发动机温度（℃）';
+COMMENT ON COLUMN tb_device_data.battery_voltage IS '电池电压（V）';
+COMMENT ON COLUMN tb_device_data.mileage IS '里程（km）';
+COMMENT ON COLUMN tb_device_data.signal_strength IS '信号强度（0-100）';
+COMMENT ON COLUMN tb_device_data.data_status IS '数据状态：0-正常，1-异常，2-无效';
+COMMENT ON COLUMN tb_device_data.raw_data IS '原始数据（JSON格式，保留完整数据）';
+COMMENT ON COLUMN tb_device_data.create_time IS '记录创建时间';
+
+-- 添加表注释
+COMMENT ON TABLE tb_device_data IS '设备实时数据表（按data_time范围分区）';
+
+-- 输出初始化信息
+DO $$
+BEGIN
+    RAISE NOTICE 'Device Data Partitioning Applied Successfully!';
+    RAISE NOTICE 'Partitions: %', (SELECT count(*) FROM pg_inherits WHERE inhparent = 'tb_device_data'::regclass);
+    RAISE NOTICE 'Author: dongxiang.wu';
+    RAISE NOTICE 'Timestamp: %', CURRENT_TIMESTAMP;
+END $$;
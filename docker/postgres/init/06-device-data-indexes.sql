@@ -0,0 +1,39 @@
+-- IoT Vehicle Platform - Device Data Indexes
+-- Author: dongxiang.wu
+-- Description: 精简tb_device_data索引，降低写放大
+-- Version: 1.0.0
+
+-- ============================================
+-- 设备数据索引调整
+-- ============================================
+-- 调整前每次插入需要更新4个B-tree索引（另加主键），其中：
+--   idx_device_id_data  是 idx_device_time 的前缀，冗余
+--   idx_create_time_data 没有查询使用
+--   idx_data_time       B-tree按时间排序，数据按时间追加写入，BRIN即可完成范围过滤且体积只有几十KB
+-- 调整后：
+--   idx_data_time_brin    BRIN(data_time)，按时间范围扫描全部设备（统计、归档）
+--   idx_device_time_cover (device_id, data_time DESC) INCLUDE (latitude, longitude, speed)
+--                         单设备按时间倒序查询；轨迹类查询只取经纬度和速度时可以仅索引扫描
+--
+-- 在线执行（数据量大时）：分区表父表上不支持CREATE INDEX CONCURRENTLY，可先执行
+--   CREATE INDEX ... ON ONLY tb_device_data ...
+-- 再对每个分区CREATE INDEX CONCURRENTLY后ALTER INDEX ... ATTACH PARTITION，最后删除旧索引。
+
+DROP INDEX IF EXISTS idx_device_id_data;
+DROP INDEX IF EXISTS idx_create_time_data;
+
+CREATE INDEX IF NOT EXISTS idx_data_time_brin ON tb_device_data USING brin (data_time) WITH (pages_per_range = 32);
+DROP INDEX IF EXISTS idx_data_time;
+
+CREATE INDEX IF NOT EXISTS idx_device_time_cover ON tb_device_data (device_id, data_time DESC)
+    INCLUDE (latitude, longitude, speed);
+DROP INDEX IF EXISTS idx_device_time;
+
+-- 输出初始化信息
+DO $$
+BEGIN
+    RAISE NOTICE 'Device Data Indexes Updated Successfully!';
+    RAISE NOTICE 'Indexes: idx_data_time_brin (BRIN), idx_device_time_cover (covering B-tree)';
+    RAISE NOTICE 'Author: dongxiang.wu';
+    RAISE NOTICE 'Timestamp: %', CURRENT_TIMESTAMP;
+END $$;
@@ -0,0 +1,98 @@
+-- IoT Vehicle Platform - Device Data Rollup Tables
+-- Author: dongxiang.wu
+-- Description: 设备数据1分钟/1小时降采样汇总表
+-- Version: 1.0.0
+
+-- ============================================
+-- 设备数据汇总表
+-- ============================================
+-- 由服务端RollupAccumulator在接入时增量累加，RollupCatchUpJob定期用原始数据重算最近的时间窗口，修正迟到的数据。
+-- 只保存可合并的聚合量：平均速度 = speed_sum / speed_count，油耗/里程增量 = last - first，
+-- 因此1小时桶可以直接由1分钟桶合并得到，查询时也可以把多个桶再合并成更粗的粒度。
+-- 两张表都按bucket_time按月分区，分区的预建和过期由DevicePartitionManager负责。
+
+DO $$
+DECLARE
+    v_table TEXT;
+    v_month DATE;
+    v_last_month DATE;
+BEGIN
+    FOREACH v_table IN ARRAY ARRAY['tb_device_data_1m', 'tb_device_data_1h'] LOOP
+        EXECUTE format($ddl$
+            CREATE TABLE IF NOT EXISTS %I (
+                device_id VARCHAR(64) NOT NULL,
+                bucket_time TIMESTAMP NOT NULL,
+                sample_count INT NOT NULL DEFAULT 0,
+                speed_count INT NOT NULL DEFAULT 0,
+                speed_sum DECIMAL(14, 2),
+                speed_min DECIMAL(6, 2),
+                speed_max DECIMAL(6, 2),
+                rpm_max INT,
+                first_time TIMESTAMP,
+                last_time TIMESTAMP,
+                fuel_first DECIMAL(5, 2),
+                fuel_last DECIMAL(5, 2),
+                mileage_first DECIMAL(10, 2),
+                mileage_last DECIMAL(10, 2),
+                update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (device_id, bucket_time)
+            ) PARTITION BY RANGE (bucket_time)
+        $ddl$, v_table);
+
+        -- 当前月到之后3个月，每月一个分区
+        v_month := date_trunc('month', CURRENT_TIMESTAMP)::DATE;
+        v_last_month := (date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months')::DATE;
+        WHILE v_month <= v_last_month LOOP
+            EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           v_table || '_p' || to_char(v_month, 'YYYYMM'), v_table,
+                           v_month, (v_month + INTERVAL '1 month')::DATE);
+            v_month := (v_month + INTERVAL '1 month')::DATE;
+        END LOOP;
+    END LOOP;
+END $$;
+
+-- 添加列注释
+COMMENT ON COLUMN tb_device_data_1m.device_id IS '设备ID';
+COMMENT ON COLUMN tb_device_data_1m.bucket_time IS '时间桶起点（分钟，分区键）';
+COMMENT ON COLUMN tb_device_data_1m.sample_count IS '样本数';
+COMMENT ON COLUMN tb_device_data_1m.speed_count IS '有速度的样本数';
+COMMENT ON COLUMN tb_device_data_1m.speed_sum IS '速度之和（km/h）';
+COMMENT ON COLUMN tb_device_data_1m.speed_min IS '最小速度（km/h）';
+COMMENT ON COLUMN tb_device_data_1m.speed_max IS '最大速度（km/h）';
+COMMENT ON COLUMN tb_device_data_1m.rpm_max IS '最大转速（RPM）';
+COMMENT ON COLUMN tb_device_data_1m.first_time IS '桶内最早样本的数据时间';
+COMMENT ON COLUMN tb_device_data_1m.last_time IS '桶内最晚样本的数据时间';
+COMMENT ON COLUMN tb_device_data_1m.fuel_first IS '最早的油量（%）';
+COMMENT ON COLUMN tb_device_data_1m.fuel_last IS '最晚的油量（%）';
+COMMENT ON COLUMN tb_device_data_1m.mileage_first IS '最早的里程（km）';
+COMMENT ON COLUMN tb_device_data_1m.mileage_last IS '最晚的里程（km）';
+COMMENT ON COLUMN tb_device_data_1m.update_time IS '更新时间';
+
+COMMENT ON COLUMN tb_device_data_1h.device_id IS '设备ID';
+COMMENT ON COLUMN tb_device_data_1h.bucket_time IS '时间桶起点（小时，分区键）';
+COMMENT ON COLUMN tb_device_data_1h.sample_count IS '样本数';
+COMMENT ON COLUMN tb_device_data_1h.speed_count IS '有速度的样本数';
+COMMENT ON COLUMN tb_device_data_1h.speed_sum IS '速度之和（km/h）';
+COMMENT ON COLUMN tb_device_data_1h.speed_min IS '最小速度（km/h）';
+COMMENT ON COLUMN tb_device_data_1h.speed_max IS '最大速度（km/h）';
+COMMENT ON COLUMN tb_device_data_1h.rpm_max IS '最大转速（RPM）';
+COMMENT ON COLUMN tb_device_data_1h.first_time IS '桶内最早样本的数据时间';
+COMMENT ON COLUMN tb_device_data_1h.last_time IS '桶内最晚样本的数据时间';
+COMMENT ON COLUMN tb_device_data_1h.fuel_first IS '最早的油量（%）';
+COMMENT ON COLUMN tb_device_data_1h.fuel_last IS '最晚的油量（%）';
+COMMENT ON COLUMN tb_device_data_1h.mileage_first IS '最早的里程（km）';
+COMMENT ON COLUMN tb_device_data_1h.mileage_last IS '最晚的里程（km）';
+COMMENT ON COLUMN tb_device_data_1h.update_time IS '更新时间';
+
+-- 添加表注释
+COMMENT ON TABLE tb_device_data_1m IS '设备数据1分钟汇总表（按bucket_time范围分区）';
+COMMENT ON TABLE tb_device_data_1h IS '设备数据1小时汇总表（按bucket_time范围分区）';
+
+-- 输出初始化信息
+DO $$
+BEGIN
+    RAISE NOTICE 'Device Data Rollup Tables Created Successfully!';
+    RAISE NOTICE 'Tables: tb_device_data_1m, tb_device_data_1h';
+    RAISE NOTICE 'Author: dongxiang.wu';
+    RAISE NOTICE 'Timestamp: %', CURRENT_TIMESTAMP;
+END $$;
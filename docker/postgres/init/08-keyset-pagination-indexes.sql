@@ -0,0 +1,35 @@
+-- IoT Vehicle Platform - Keyset Pagination Indexes
+-- Author: dongxiang.wu
+-- Description: 游标分页（keyset分页）所需的排序索引
+-- Version: 1.0.0
+
+-- ============================================
+-- 设备列表
+-- ============================================
+-- 设备列表按(create_time DESC, id DESC)滚动加载，下一页条件为 (create_time, id) < (?, ?)，
+-- 组合索引可以直接定位到游标位置并按顺序读取，不需要OFFSET和排序。
+-- 行值比较遇到NULL时结果为NULL，create_time必须非空。
+-- 逻辑删除的设备不会出现在列表中，使用部分索引。
+-- 原idx_create_time_device(create_time)被新索引覆盖，一并删除。
+
+UPDATE tb_device SET create_time = CURRENT_TIMESTAMP WHERE create_time IS NULL;
+ALTER TABLE tb_device ALTER COLUMN create_time SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_device_create_time_id ON tb_device (create_time DESC, id DESC) WHERE deleted = 0;
+DROP INDEX IF EXISTS idx_create_time_device;
+
+-- ============================================
+-- 设备历史数据
+-- ============================================
+-- 历史数据按(data_time, id)升序滚动加载，条件为 device_id = ? AND (data_time, id) > (?, ?)，
+-- 由idx_device_time_cover (device_id, data_time DESC)反向扫描完成，同一时刻的多条数据很少，id只在索引扫描后过滤，
+-- 不再单独建索引，避免增加tb_device_data的写放大。
+
+-- 输出初始化信息
+DO $$
+BEGIN
+    RAISE NOTICE 'Keyset Pagination Indexes Created Successfully!';
+    RAISE NOTICE 'Indexes: idx_device_create_time_id';
+    RAISE NOTICE 'Author: dongxiang.wu';
+    RAISE NOTICE 'Timestamp: %', CURRENT_TIMESTAMP;
+END $$;
@@ -0,0 +1,27 @@
+package com.iot.vehicle.api.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 设备变更流消息视图对象
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class ChangeFeedMessageVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 消息ID（毫秒时间戳-序号），用于确认和重放
+     */
+    private String id;
+
+    /**
+     * 消息字段（t=类型S/ON/OFF，d=设备ID，ts=时间戳，其余为最新状态）
+     */
+    private Map<String, String> fields;
+}
@@ -0,0 +1,52 @@
+package com.iot.vehicle.api.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 设备数量统计视图对象
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class DeviceStatisticsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 分组ID（按分组统计时）
+     */
+    private Long groupId;
+
+    /**
+     * 所有者ID（按所有者统计时）
+     */
+    private Long ownerId;
+
+    /**
+     * 设备总数
+     */
+    private Long totalCount;
+
+    /**
+     * 在线设备数
+     */
+    private Long onlineCount;
+
+    /**
+     * 离线设备数
+     */
+    private Long offlineCount;
+
+    /**
+     * 在线率，如"85.00%"
+     */
+    private String onlineRate;
+
+    /**
+     * 各状态设备数（状态描述 -> 数量）
+     */
+    private Map<String, Long> statusCount;
+}
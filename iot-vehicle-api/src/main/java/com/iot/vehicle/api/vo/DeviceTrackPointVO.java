@@ -0,0 +1,42 @@
+package com.iot.vehicle.api.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 设备轨迹点视图对象
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class DeviceTrackPointVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 数据时间
+     */
+    private LocalDateTime dataTime;
+
+    /**
+     * 纬度
+     */
+    private Double latitude;
+
+    /**
+     * 经度
+     */
+    private Double longitude;
+
+    /**
+     * 速度（km/h）
+     */
+    private Double speed;
+
+    /**
+     * 方向（0-359度）
+     */
+    private Integer direction;
+}
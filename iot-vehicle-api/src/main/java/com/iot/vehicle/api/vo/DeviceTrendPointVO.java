@@ -0,0 +1,58 @@
+package com.iot.vehicle.api.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 设备数据趋势点视图对象
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class DeviceTrendPointVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 时间桶起点
+     */
+    private LocalDateTime bucketTime;
+
+    /**
+     * 样本数
+     */
+    private Long sampleCount;
+
+    /**
+     * 最小速度（km/h）
+     */
+    private BigDecimal speedMin;
+
+    /**
+     * 最大速度（km/h）
+     */
+    private BigDecimal speedMax;
+
+    /**
+     * 平均速度（km/h）
+     */
+    private BigDecimal speedAvg;
+
+    /**
+     * 最大转速（RPM）
+     */
+    private Integer rpmMax;
+
+    /**
+     * 油量变化（%，负数表示消耗）
+     */
+    private BigDecimal fuelDelta;
+
+    /**
+     * 行驶里程（km）
+     */
+    private BigDecimal mileageDelta;
+}
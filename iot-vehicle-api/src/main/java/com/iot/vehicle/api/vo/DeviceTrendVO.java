@@ -0,0 +1,37 @@
+package com.iot.vehicle.api.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 设备数据趋势视图对象
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class DeviceTrendVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 设备ID
+     */
+    private String deviceId;
+
+    /**
+     * 数据来源汇总表：tb_device_data_1m / tb_device_data_1h
+     */
+    private String source;
+
+    /**
+     * 每个点覆盖的秒数
+     */
+    private Long resolutionSeconds;
+
+    /**
+     * 趋势点（按时间升序，没有数据的时间桶不返回）
+     */
+    private List<DeviceTrendPointVO> points;
+}
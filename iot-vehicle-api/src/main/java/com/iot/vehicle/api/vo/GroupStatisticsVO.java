@@ -0,0 +1,94 @@
+package com.iot.vehicle.api.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分组统计视图对象（包含全部子分组的设备）
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class GroupStatisticsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 分组ID
+     */
+    private Long groupId;
+
+    /**
+     * 父分组ID（0表示顶级分组）
+     */
+    private Long parentId;
+
+    /**
+     * 分组名称
+     */
+    private String groupName;
+
+    /**
+     * 层级路径
+     */
+    private String levelPath;
+
+    /**
+     * 直接属于该分组的设备数（不含子分组）
+     */
+    private Long directCount;
+
+    /**
+     * 设备总数（含子分组）
+     */
+    private Long totalCount;
+
+    /**
+     * 在线设备数
+     */
+    private Long onlineCount;
+
+    /**
+     * 离线设备数
+     */
+    private Long offlineCount;
+
+    /**
+     * 在线率，如"85.00%"
+     */
+    private String onlineRate;
+
+    /**
+     * 各状态设备数（状态描述 -> 数量）
+     */
+    private Map<String, Long> statusCount;
+
+    /**
+     * 有最新数据的设备数
+     */
+    private Long reportedCount;
+
+    /**
+     * 最新数据中处于行驶状态的设备数
+     */
+    private Long movingCount;
+
+    /**
+     * 行驶设备的平均速度（km/h）
+     */
+    private Double avgSpeed;
+
+    /**
+     * 最近一条数据的时间
+     */
+    private LocalDateTime latestDataTime;
+
+    /**
+     * 子分组
+     */
+    private List<GroupStatisticsVO> children;
+}
@@ -85,6 +85,20 @@ public class MqttTopicConstants {
      */
     public static final String SUBSCRIBE_ALL_DEVICE_HEARTBEAT = "device/+/heartbeat";
 
+    /**
+     * 共享订阅主题前缀
+     * 格式：$share/{group}/{topic}
+     * 同一分组内的多个订阅者分摊消息，每条消息只投递给其中一个
+     */
+    public static final String SHARED_SUBSCRIPTION_PREFIX = "$share/";
+
+    /**
+     * 构建共享订阅主题
+     */
+    public static String buildSharedTopic(String group, String topic) {
+        return SHARED_SUBSCRIPTION_PREFIX + group + "/" + topic;
+    }
+
     /**
      * 构建设备数据上报主题
      */
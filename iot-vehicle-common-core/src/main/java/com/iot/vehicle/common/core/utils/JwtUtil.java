@@ -1,6 +1,7 @@
 package com.iot.vehicle.common.core.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
@@ -27,13 +28,33 @@ public class JwtUtil {
      */
     private static final long DEFAULT_EXPIRATION = 7 * 24 * 60 * 60 * 1000L;
 
+    /**
+     * 默认密钥和解析器只构建一次，JwtParser不可变、线程安全
+     */
+    private static final SecretKey DEFAULT_KEY = buildSecretKey(DEFAULT_SECRET);
+    private static final JwtParser DEFAULT_PARSER = Jwts.parser().verifyWith(DEFAULT_KEY).build();
+
     /**
      * 生成密钥
      */
-    private static SecretKey getSecretKey(String secret) {
+    private static SecretKey buildSecretKey(String secret) {
         return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * 获取密钥，默认密钥直接复用
+     */
+    private static SecretKey getSecretKey(String secret) {
+        return DEFAULT_SECRET.equals(secret) ? DEFAULT_KEY : buildSecretKey(secret);
+    }
+
+    /**
+     * 获取解析器，默认密钥直接复用
+     */
+    private static JwtParser getParser(String secret) {
+        return DEFAULT_SECRET.equals(secret) ? DEFAULT_PARSER : Jwts.parser().verifyWith(buildSecretKey(secret)).build();
+    }
+
     /**
      * 生成JWT Token
      *
@@ -108,9 +129,7 @@ public class JwtUtil {
      */
     public static Claims parseToken(String token, String secret) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSecretKey(secret))
-                    .build()
+            return getParser(secret)
                     .parseSignedClaims(token)
                     .getPayload();
         } catch (Exception e) {
@@ -119,6 +138,21 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * 校验并解析Token：签名和过期时间只解析一次，等价于validateToken + parseToken
+     *
+     * @param token Token字符串
+     * @return Claims对象，Token无效、未设置过期时间或已过期时返回null
+     */
+    public static Claims verifyToken(String token) {
+        Claims claims = parseToken(token);
+        if (claims == null) {
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.after(new Date()) ? claims : null;
+    }
+
     /**
      * 获取Token的主题（subject）
      *
@@ -81,6 +81,26 @@ class JwtUtilTest {
         assertFalse(JwtUtil.validateToken(null));
     }
 
+    @Test
+    void testVerifyToken() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("username", "testuser");
+        String token = JwtUtil.generateToken("123", claims);
+
+        Claims verified = JwtUtil.verifyToken(token);
+        assertNotNull(verified);
+        assertEquals("123", verified.getSubject());
+        assertEquals("testuser", verified.get("username"));
+
+        // 无效Token和其他密钥签发的Token
+        assertNull(JwtUtil.verifyToken("invalid-token"));
+        assertNull(JwtUtil.verifyToken(null));
+        String otherToken = JwtUtil.generateToken("123", claims, 60000,
+                "another-secret-key-for-jwt-test-at-least-256-bits-long");
+        assertNull(JwtUtil.verifyToken(otherToken));
+        assertNotNull(JwtUtil.parseToken(otherToken, "another-secret-key-for-jwt-test-at-least-256-bits-long"));
+    }
+
     @Test
     void testIsTokenExpired() {
         // 生成一个短期Token（1秒）
@@ -0,0 +1,92 @@
+package com.iot.vehicle.common.mybatis.result;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页返回结果
+ *
+ * 不返回页码，用上一页返回的nextCursor请求下一页；总数默认不统计，需要时可能是估算值。
+ *
+ * @param <T> 数据类型
+ * @author dongxiang.wu
+ */
+@Data
+public class CursorPageResult<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 数据列表
+     */
+    private List<T> records;
+
+    /**
+     * 每页大小
+     */
+    private Long size;
+
+    /**
+     * 下一页的游标，没有下一页时为null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否有下一页
+     */
+    private Boolean hasMore;
+
+    /**
+     * 总记录数，未统计时为null
+     */
+    private Long total;
+
+    /**
+     * 总记录数是否为估算值
+     */
+    private Boolean totalEstimated;
+
+    public CursorPageResult() {
+    }
+
+    public CursorPageResult(List<T> records, Long size, String nextCursor) {
+        this.records = records;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    /**
+     * 创建游标分页结果
+     *
+     * @param records    数据列表
+     * @param size       每页大小
+     * @param nextCursor 下一页的游标，没有下一页时为null
+     * @return 游标分页结果
+     */
+    public static <T> CursorPageResult<T> of(List<T> records, Long size, String nextCursor) {
+        return new CursorPageResult<>(records, size, nextCursor);
+    }
+
+    /**
+     * 设置总记录数
+     *
+     * @param total     总记录数
+     * @param estimated 是否为估算值
+     * @return 当前对象
+     */
+    public CursorPageResult<T> withTotal(Long total, boolean estimated) {
+        this.total = total;
+        this.totalEstimated = estimated;
+        return this;
+    }
+
+    /**
+     * 判断是否为空
+     */
+    public boolean isEmpty() {
+        return records == null || records.isEmpty();
+    }
+}
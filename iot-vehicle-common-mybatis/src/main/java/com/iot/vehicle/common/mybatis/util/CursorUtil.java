@@ -0,0 +1,89 @@
+package com.iot.vehicle.common.mybatis.util;
+
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.common.core.result.ResultCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页（keyset分页）工具类
+ *
+ * 游标记录上一页最后一行的排序键(时间, id)，下一页用 (time, id) &lt; (?, ?)（倒序）或 &gt;（正序）定位，
+ * 不需要OFFSET，也不需要COUNT，深翻页与第一页的代价相同。
+ * 游标对前端是不透明的字符串（URL安全的Base64），格式可以随时调整。
+ *
+ * @author dongxiang.wu
+ */
+public class CursorUtil {
+
+    /**
+     * 默认每页大小
+     */
+    private static final long DEFAULT_SIZE = 20L;
+
+    /**
+     * 最大每页大小（与分页插件的单页上限一致）
+     */
+    private static final long MAX_SIZE = 500L;
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 游标位置：上一页最后一行的排序键
+     *
+     * @param time 排序时间
+     * @param id   主键，时间相同时的次排序键
+     */
+    public record Position(LocalDateTime time, long id) {
+    }
+
+    /**
+     * 规范化每页大小
+     *
+     * @param size 每页大小
+     * @return 1到最大值之间的每页大小
+     */
+    public static long getSize(Long size) {
+        if (size == null || size < 1) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    /**
+     * 生成游标
+     *
+     * @param time 最后一行的排序时间
+     * @param id   最后一行的主键
+     * @return 游标字符串
+     */
+    public static String encode(LocalDateTime time, Long id) {
+        String raw = time.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标字符串
+     * @return 游标位置，cursor为空时返回null（第一页）
+     */
+    public static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            if (index < 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new Position(LocalDateTime.parse(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "分页游标无效");
+        }
+    }
+}
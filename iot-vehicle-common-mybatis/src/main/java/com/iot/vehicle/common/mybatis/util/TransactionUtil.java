@@ -0,0 +1,32 @@
+package com.iot.vehicle.common.mybatis.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ *
+ * @author dongxiang.wu
+ */
+public class TransactionUtil {
+
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行；事务回滚时不执行
+     *
+     * 用于缓存、过滤器、内存计数等数据库之外的状态，只有提交的修改才会影响它们
+     *
+     * @param action 提交后执行的操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
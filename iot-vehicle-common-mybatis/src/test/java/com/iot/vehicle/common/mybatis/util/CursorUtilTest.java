@@ -0,0 +1,49 @@
+package com.iot.vehicle.common.mybatis.util;
+
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.common.core.result.ResultCode;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CursorUtil测试类
+ *
+ * @author dongxiang.wu
+ */
+class CursorUtilTest {
+
+    @Test
+    void testEncodeDecode() {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 18, 9, 30, 15, 123_456_000);
+        String cursor = CursorUtil.encode(time, 200_001L);
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        assertEquals(time, position.time());
+        assertEquals(200_001L, position.id());
+    }
+
+    @Test
+    void testDecodeEmpty() {
+        assertNull(CursorUtil.decode(null));
+        assertNull(CursorUtil.decode(" "));
+    }
+
+    @Test
+    void testDecodeInvalid() {
+        BusinessException exception = assertThrows(BusinessException.class, () -> CursorUtil.decode("not-a-cursor"));
+        assertEquals(ResultCode.PARAM_ERROR.getCode(), exception.getCode());
+        assertThrows(BusinessException.class, () -> CursorUtil.decode("!!!"));
+    }
+
+    @Test
+    void testGetSize() {
+        assertEquals(20L, CursorUtil.getSize(null));
+        assertEquals(20L, CursorUtil.getSize(0L));
+        assertEquals(50L, CursorUtil.getSize(50L));
+        assertEquals(500L, CursorUtil.getSize(10_000L));
+    }
+}
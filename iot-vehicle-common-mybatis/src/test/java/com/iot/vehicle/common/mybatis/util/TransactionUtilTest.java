@@ -0,0 +1,54 @@
+package com.iot.vehicle.common.mybatis.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TransactionUtil测试类
+ *
+ * @author dongxiang.wu
+ */
+class TransactionUtilTest {
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testWithoutTransaction() {
+        AtomicInteger runs = new AtomicInteger();
+        TransactionUtil.afterCommit(runs::incrementAndGet);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        AtomicInteger runs = new AtomicInteger();
+        TransactionUtil.afterCommit(runs::incrementAndGet);
+        assertEquals(0, runs.get());
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        AtomicInteger runs = new AtomicInteger();
+        TransactionUtil.afterCommit(runs::incrementAndGet);
+
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(0, runs.get());
+    }
+}
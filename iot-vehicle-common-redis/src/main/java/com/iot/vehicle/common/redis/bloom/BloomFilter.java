@@ -0,0 +1,43 @@
+package com.iot.vehicle.common.redis.bloom;
+
+import java.util.Collection;
+
+/**
+ * 可扩容的布隆过滤器
+ *
+ * 判断为不存在的值一定没有加入过，判断为可能存在的值有一定的误判率；不支持删除。
+ * 过滤器由若干层组成，当前层装满后新增一层，容量翻倍、误判率减半，
+ * 总误判率不超过创建时指定的误判率，不需要预先知道最终的元素数量。
+ *
+ * @author dongxiang.wu
+ */
+public interface BloomFilter {
+
+    /**
+     * 判断值是否可能已加入
+     *
+     * @param value 值
+     * @return false-一定没有加入过，true-可能已加入
+     */
+    boolean mightContain(String value);
+
+    /**
+     * 加入一个值
+     *
+     * @param value 值
+     * @return true-新加入，false-已经（可能）存在，未做修改
+     */
+    boolean add(String value);
+
+    /**
+     * 批量加入
+     *
+     * @param values 值
+     */
+    void addAll(Collection<String> values);
+
+    /**
+     * 已加入的元素数（不含判断为已存在而跳过的值）
+     */
+    long size();
+}
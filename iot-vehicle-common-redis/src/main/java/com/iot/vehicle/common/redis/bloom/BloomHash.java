@@ -0,0 +1,77 @@
+package com.iot.vehicle.common.redis.bloom;
+
+/**
+ * 布隆过滤器的哈希和分层参数
+ *
+ * 每个值计算一次64位哈希，拆成两个32位的h1、h2，第i个位置为(h1 + i * h2) mod m（双重哈希）；
+ * 两个32位分量保证在Redis的Lua脚本中（双精度浮点数）也能精确计算出相同的位置。
+ * 第n层（从0开始）的容量为initialCapacity * 2^n，误判率为fpp / 2^(n+1)。
+ *
+ * @author dongxiang.wu
+ */
+final class BloomHash {
+
+    private static final double LN2 = Math.log(2);
+
+    private BloomHash() {
+    }
+
+    /**
+     * 字符串的64位哈希（FNV-1a后做一次MurmurHash3的终混）
+     */
+    static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static long h1(long hash) {
+        return hash & 0xffffffffL;
+    }
+
+    /**
+     * 取奇数，避免步长为0
+     */
+    static long h2(long hash) {
+        return (hash >>> 32) | 1;
+    }
+
+    static long layerCapacity(long initialCapacity, int layer) {
+        return initialCapacity << layer;
+    }
+
+    static double layerFpp(double fpp, int layer) {
+        return fpp / Math.pow(2, layer + 1);
+    }
+
+    /**
+     * 位数 m = -n * ln(p) / ln(2)^2
+     */
+    static long bitSize(long capacity, double fpp) {
+        return (long) Math.ceil(-capacity * Math.log(fpp) / (LN2 * LN2));
+    }
+
+    /**
+     * 哈希次数 k = m / n * ln(2)
+     */
+    static int hashCount(long capacity, long bitSize) {
+        return Math.max(1, (int) Math.floor((double) bitSize / capacity * LN2 + 0.5));
+    }
+
+    static void validate(long initialCapacity, double fpp) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("初始容量必须大于0: " + initialCapacity);
+        }
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("误判率必须在0和1之间: " + fpp);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.iot.vehicle.common.redis.bloom;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 进程内的可扩容布隆过滤器
+ *
+ * 查询不加锁（位数组为AtomicLongArray，层数组整体替换），加入时加锁；
+ * 每百万个元素、误判率0.1%时约占用1.8MB。
+ *
+ * @author dongxiang.wu
+ */
+public class LocalBloomFilter implements BloomFilter {
+
+    private final long initialCapacity;
+    private final double fpp;
+
+    private volatile Layer[] layers;
+    private volatile long size;
+
+    /**
+     * @param initialCapacity 第一层的容量
+     * @param fpp             总误判率
+     */
+    public LocalBloomFilter(long initialCapacity, double fpp) {
+        BloomHash.validate(initialCapacity, fpp);
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.layers = new Layer[]{newLayer(0)};
+    }
+
+    @Override
+    public boolean mightContain(String value) {
+        return mightContain(layers, BloomHash.hash64(value));
+    }
+
+    @Override
+    public synchronized boolean add(String value) {
+        long hash = BloomHash.hash64(value);
+        Layer[] current = layers;
+        if (mightContain(current, hash)) {
+            return false;
+        }
+        Layer last = current[current.length - 1];
+        if (last.count >= last.capacity) {
+            last = newLayer(current.length);
+            Layer[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = last;
+            layers = grown;
+        }
+        last.put(hash);
+        size++;
+        return true;
+    }
+
+    @Override
+    public void addAll(Collection<String> values) {
+        for (String value : values) {
+            add(value);
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 当前层数
+     */
+    public int layerCount() {
+        return layers.length;
+    }
+
+    /**
+     * 占用的位数
+     */
+    public long bitSize() {
+        long bits = 0;
+        for (Layer layer : layers) {
+            bits += layer.bitSize;
+        }
+        return bits;
+    }
+
+    private Layer newLayer(int index) {
+        return new Layer(BloomHash.layerCapacity(initialCapacity, index), BloomHash.layerFpp(fpp, index));
+    }
+
+    private static boolean mightContain(Layer[] layers, long hash) {
+        for (Layer layer : layers) {
+            if (layer.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Layer {
+
+        private final long capacity;
+        private final long bitSize;
+        private final int hashCount;
+        private final AtomicLongArray words;
+
+        /**
+         * 本层已加入的元素数，只在加锁时访问
+         */
+        private long count;
+
+        Layer(long capacity, double fpp) {
+            this.capacity = capacity;
+            this.bitSize = BloomHash.bitSize(capacity, fpp);
+            this.hashCount = BloomHash.hashCount(capacity, bitSize);
+            this.words = new AtomicLongArray(Math.toIntExact((bitSize + 63) >>> 6));
+        }
+
+        boolean mightContain(long hash) {
+            long h1 = BloomHash.h1(hash);
+            long h2 = BloomHash.h2(hash);
+            for (int i = 0; i < hashCount; i++) {
+                long index = (h1 + i * h2) % bitSize;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(long hash) {
+            long h1 = BloomHash.h1(hash);
+            long h2 = BloomHash.h2(hash);
+            for (int i = 0; i < hashCount; i++) {
+                long index = (h1 + i * h2) % bitSize;
+                words.getAndAccumulate((int) (index >>> 6), 1L << index, (a, b) -> a | b);
+            }
+            count++;
+        }
+    }
+}
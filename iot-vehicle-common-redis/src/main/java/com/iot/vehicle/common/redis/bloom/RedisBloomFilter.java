@@ -0,0 +1,168 @@
+package com.iot.vehicle.common.redis.bloom;
+
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 保存在Redis中的可扩容布隆过滤器，多个节点共享
+ *
+ * 第n层是位图{key}:n，已加入的元素数保存在{key}:count；层的参数由元素数推算，不单独保存。
+ * 查询和加入各是一个Lua脚本，位置在服务端按h1、h2计算，一次往返完成且加入是原子的；
+ * 批量加入先加载脚本，再通过管道批量发送EVALSHA。
+ * 层数随元素数增长，脚本无法预先在KEYS中声明每一层，因此key前缀加上哈希标签{}，
+ * 所有层和计数落在Redis Cluster的同一个槽上，脚本只声明前缀。
+ *
+ * @author dongxiang.wu
+ */
+public class RedisBloomFilter implements BloomFilter {
+
+    private static final String LAYERS = """
+            local function params(i, c0, p0)
+              local c = c0 * 2 ^ i
+              local p = p0 / 2 ^ (i + 1)
+              local m = math.ceil(-c * math.log(p) / (math.log(2) ^ 2))
+              local k = math.max(1, math.floor(m / c * math.log(2) + 0.5))
+              return c, m, k
+            end
+            local function contains(key, n, h1, h2, c0, p0)
+              local i, total = 0, 0
+              while total < n do
+                local c, m, k = params(i, c0, p0)
+                local found = true
+                for j = 0, k - 1 do
+                  if redis.call('GETBIT', key .. ':' .. i, (h1 + j * h2) % m) == 0 then
+                    found = false
+                    break
+                  end
+                end
+                if found then
+                  return true
+                end
+                total = total + c
+                i = i + 1
+              end
+              return false
+            end
+            local key = KEYS[1]
+            local h1, h2, c0, p0 = tonumber(ARGV[1]), tonumber(ARGV[2]), tonumber(ARGV[3]), tonumber(ARGV[4])
+            local n = tonumber(redis.call('GET', key .. ':count') or '0')
+            """;
+
+    private static final String CONTAINS = LAYERS + """
+            if contains(key, n, h1, h2, c0, p0) then
+              return 1
+            end
+            return 0
+            """;
+
+    private static final String ADD = LAYERS + """
+            if contains(key, n, h1, h2, c0, p0) then
+              return 0
+            end
+            local i, total = 0, 0
+            local c, m, k = params(0, c0, p0)
+            while total + c <= n do
+              total = total + c
+              i = i + 1
+              c, m, k = params(i, c0, p0)
+            end
+            for j = 0, k - 1 do
+              redis.call('SETBIT', key .. ':' .. i, (h1 + j * h2) % m, 1)
+            end
+            redis.call('INCR', key .. ':count')
+            return 1
+            """;
+
+    private static final RedisScript<Long> CONTAINS_SCRIPT = new DefaultRedisScript<>(CONTAINS, Long.class);
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(ADD, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String key;
+    private final String initialCapacity;
+    private final String fpp;
+
+    /**
+     * @param redisTemplate   字符串模板
+     * @param key             key前缀，不带哈希标签时整个前缀作为标签
+     * @param initialCapacity 第一层的容量
+     * @param fpp             总误判率
+     */
+    public RedisBloomFilter(StringRedisTemplate redisTemplate, String key, long initialCapacity, double fpp) {
+        BloomHash.validate(initialCapacity, fpp);
+        this.redisTemplate = redisTemplate;
+        this.key = hashTagged(key);
+        this.initialCapacity = String.valueOf(initialCapacity);
+        this.fpp = String.valueOf(fpp);
+    }
+
+    @Override
+    public boolean mightContain(String value) {
+        return execute(CONTAINS_SCRIPT, value) == 1L;
+    }
+
+    @Override
+    public boolean add(String value) {
+        return execute(ADD_SCRIPT, value) == 1L;
+    }
+
+    @Override
+    public void addAll(Collection<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        byte[] rawKey = raw(key);
+        byte[] rawCapacity = raw(initialCapacity);
+        byte[] rawFpp = raw(fpp);
+        String sha = redisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(raw(ADD)));
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String value : values) {
+                long hash = BloomHash.hash64(value);
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1, rawKey,
+                        raw(String.valueOf(BloomHash.h1(hash))), raw(String.valueOf(BloomHash.h2(hash))),
+                        rawCapacity, rawFpp);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public long size() {
+        String count = redisTemplate.opsForValue().get(key + ":count");
+        return count == null ? 0 : Long.parseLong(count);
+    }
+
+    /**
+     * Redis中是否已有该过滤器（至少加入过一个元素）
+     */
+    public boolean exists() {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(key + ":count"));
+    }
+
+    private long execute(RedisScript<Long> script, String value) {
+        long hash = BloomHash.hash64(value);
+        Long result = redisTemplate.execute(script, List.of(key), String.valueOf(BloomHash.h1(hash)),
+                String.valueOf(BloomHash.h2(hash)), initialCapacity, fpp);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * 给key前缀加上哈希标签；已带标签的前缀保持不变
+     */
+    static String hashTagged(String key) {
+        int open = key.indexOf('{');
+        int close = open < 0 ? -1 : key.indexOf('}', open + 1);
+        return close > open + 1 ? key : "{" + key + "}";
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.iot.vehicle.common.redis.pubsub;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 后台订阅Redis发布订阅频道
+ *
+ * RedisMessageListenerContainer.start()会等待订阅建立，Redis不可用时直接抛出异常，在@PostConstruct中启动会让应用启动失败。
+ * 这里在守护线程中启动容器，失败时按间隔重试，直到订阅成功或关闭；订阅建立后连接断开由容器自身按恢复间隔重新订阅。
+ * 订阅建立之前发布的消息收不到，调用方需要有兜底（本地缓存过期、定时校对等）。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+public class RedisChannelSubscriber {
+
+    private final String channel;
+    private final long retryIntervalMs;
+    private final RedisMessageListenerContainer container;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    /**
+     * @param name              订阅名称（线程名和日志）
+     * @param connectionFactory 连接工厂
+     * @param channel           频道
+     * @param listener          消息监听器，在容器的订阅线程中回调
+     * @param retryIntervalMs   订阅失败后的重试间隔（毫秒）
+     */
+    public RedisChannelSubscriber(String name, RedisConnectionFactory connectionFactory, String channel,
+                                  MessageListener listener, long retryIntervalMs) {
+        this.channel = channel;
+        this.retryIntervalMs = retryIntervalMs;
+        this.container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setRecoveryInterval(retryIntervalMs);
+        container.addMessageListener(listener, new ChannelTopic(channel));
+        container.afterPropertiesSet();
+        this.thread = new Thread(this::subscribe, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * 在后台开始订阅，立即返回
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * 订阅是否已建立
+     */
+    public boolean isSubscribed() {
+        return container.isListening();
+    }
+
+    /**
+     * 停止重试并取消订阅
+     */
+    public void stop() {
+        stopped = true;
+        thread.interrupt();
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            log.warn("关闭Redis频道订阅失败: channel={}", channel, e);
+        }
+    }
+
+    private void subscribe() {
+        while (!stopped) {
+            try {
+                container.start();
+                if (stopped) {
+                    stopQuietly();
+                    return;
+                }
+                log.info("已订阅Redis频道: channel={}", channel);
+                return;
+            } catch (Exception e) {
+                log.warn("订阅Redis频道失败，{}ms后重试: channel={}, error={}", retryIntervalMs, channel, e.getMessage());
+                stopQuietly();
+            }
+            try {
+                Thread.sleep(retryIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void stopQuietly() {
+        try {
+            container.stop();
+        } catch (Exception e) {
+            log.debug("停止Redis频道订阅失败: channel={}, error={}", channel, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.iot.vehicle.common.redis.stream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 进程内的消息流，没有Redis时的本地替代
+ *
+ * 消息、消费组位置和待确认列表都在内存中，进程重启后丢失；超过maxLen时丢弃最旧的消息。
+ * 所有方法加锁，适合单节点开发环境或Redis不可用时的临时缓冲。
+ *
+ * @author dongxiang.wu
+ */
+public class LocalMessageStream implements MessageStream {
+
+    private final long maxLen;
+
+    private final TreeMap<StreamId, StreamEntry> entries = new TreeMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+    private StreamId lastId = StreamId.ZERO;
+
+    public LocalMessageStream(long maxLen) {
+        this.maxLen = maxLen;
+    }
+
+    @Override
+    public synchronized List<String> append(List<Map<String, String>> batch) {
+        List<String> ids = new ArrayList<>(batch.size());
+        for (Map<String, String> fields : batch) {
+            long now = System.currentTimeMillis();
+            lastId = now > lastId.time() ? new StreamId(now, 0) : new StreamId(lastId.time(), lastId.sequence() + 1);
+            String id = lastId.toString();
+            entries.put(lastId, new StreamEntry(id, Map.copyOf(fields)));
+            ids.add(id);
+        }
+        while (entries.size() > maxLen) {
+            entries.pollFirstEntry();
+        }
+        return ids;
+    }
+
+    @Override
+    public synchronized void createGroup(String group, String startId) {
+        groups.computeIfAbsent(group, k -> new Group(resolve(startId)));
+    }
+
+    @Override
+    public synchronized List<StreamEntry> readGroup(String group, String consumer, int count) {
+        Group g = group(group);
+        List<StreamEntry> result = new ArrayList<>();
+        for (Map.Entry<StreamId, StreamEntry> entry : entries.tailMap(g.lastDelivered, false).entrySet()) {
+            if (result.size() >= count) {
+                break;
+            }
+            g.lastDelivered = entry.getKey();
+            g.pending.put(entry.getValue().id(), new Pending(consumer, entry.getValue()));
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<StreamEntry> readPending(String group, String consumer, int count) {
+        List<StreamEntry> result = new ArrayList<>();
+        for (Pending pending : group(group).pending.values()) {
+            if (result.size() >= count) {
+                break;
+            }
+            if (pending.consumer.equals(consumer)) {
+                result.add(pending.entry);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long ack(String group, List<String> ids) {
+        Group g = group(group);
+        long acked = 0;
+        for (String id : ids) {
+            if (g.pending.remove(id) != null) {
+                acked++;
+            }
+        }
+        return acked;
+    }
+
+    @Override
+    public synchronized void setGroupOffset(String group, String id) {
+        group(group).lastDelivered = resolve(id);
+    }
+
+    @Override
+    public synchronized List<StreamEntry> range(String afterId, int count) {
+        return first(entries.tailMap(resolve(afterId), false).values(), count);
+    }
+
+    /**
+     * 当前消息数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Group group(String group) {
+        Group g = groups.get(group);
+        if (g == null) {
+            throw new IllegalArgumentException("消费组不存在: " + group);
+        }
+        return g;
+    }
+
+    private StreamId resolve(String id) {
+        return END.equals(id) ? lastId : StreamId.parse(id);
+    }
+
+    private static List<StreamEntry> first(Collection<StreamEntry> values, int count) {
+        List<StreamEntry> result = new ArrayList<>(Math.min(count, values.size()));
+        for (StreamEntry entry : values) {
+            if (result.size() >= count) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private static final class Group {
+
+        private StreamId lastDelivered;
+        private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+        Group(StreamId lastDelivered) {
+            this.lastDelivered = lastDelivered;
+        }
+    }
+
+    private record Pending(String consumer, StreamEntry entry) {
+    }
+
+    /**
+     * 消息ID，先按时间戳再按序号比较
+     */
+    private record StreamId(long time, long sequence) implements Comparable<StreamId> {
+
+        static final StreamId ZERO = new StreamId(0, 0);
+
+        static StreamId parse(String id) {
+            try {
+                int dash = id.indexOf('-');
+                return dash < 0 ? new StreamId(Long.parseLong(id), 0)
+                        : new StreamId(Long.parseLong(id.substring(0, dash)), Long.parseLong(id.substring(dash + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("消息ID格式错误: " + id);
+            }
+        }
+
+        @Override
+        public int compareTo(StreamId other) {
+            int c = Long.compare(time, other.time);
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public String toString() {
+            return time + "-" + sequence;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.iot.vehicle.common.redis.stream;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 追加写的消息流，语义与Redis Stream一致
+ *
+ * 消费组记录已投递的位置，投递后未确认的消息留在该组的待确认列表中，消费者重启后可以重新读取，
+ * 实现至少一次投递；消费组的位置可以重置到任意消息ID，用于重放。
+ * 消息ID按追加顺序递增，格式为"毫秒时间戳-序号"，"0"表示流的开头，"$"表示流的末尾。
+ *
+ * @author dongxiang.wu
+ */
+public interface MessageStream {
+
+    /**
+     * 流的起点
+     */
+    String BEGINNING = "0";
+
+    /**
+     * 流的末尾（只接收之后追加的消息）
+     */
+    String END = "$";
+
+    /**
+     * 按顺序批量追加消息
+     *
+     * @param entries 消息字段
+     * @return 各消息的ID
+     */
+    List<String> append(List<Map<String, String>> entries);
+
+    /**
+     * 创建消费组，已存在时不做任何修改
+     *
+     * @param group   消费组
+     * @param startId 从该ID之后开始投递，可以是{@link #BEGINNING}或{@link #END}
+     */
+    void createGroup(String group, String startId);
+
+    /**
+     * 以消费组的身份读取尚未投递过的消息，读到的消息进入该消费者的待确认列表
+     *
+     * @param group    消费组
+     * @param consumer 消费者名称
+     * @param count    最多读取的条数
+     * @return 消息，没有新消息时返回空列表
+     */
+    List<StreamEntry> readGroup(String group, String consumer, int count);
+
+    /**
+     * 读取该消费者已投递但未确认的消息（消费者重启后先处理这些消息）
+     *
+     * @param group    消费组
+     * @param consumer 消费者名称
+     * @param count    最多读取的条数
+     * @return 消息
+     */
+    List<StreamEntry> readPending(String group, String consumer, int count);
+
+    /**
+     * 确认消息已处理
+     *
+     * @param group 消费组
+     * @param ids   消息ID
+     * @return 确认成功的条数
+     */
+    long ack(String group, List<String> ids);
+
+    /**
+     * 把消费组的位置重置到指定ID，之后从该ID之后重新投递
+     *
+     * @param group 消费组
+     * @param id    消息ID，可以是{@link #BEGINNING}或{@link #END}
+     */
+    void setGroupOffset(String group, String id);
+
+    /**
+     * 不经过消费组，按ID顺序读取指定ID之后的消息
+     *
+     * @param afterId 从该ID之后开始（不包含），可以是{@link #BEGINNING}
+     * @param count   最多读取的条数
+     * @return 消息
+     */
+    List<StreamEntry> range(String afterId, int count);
+}
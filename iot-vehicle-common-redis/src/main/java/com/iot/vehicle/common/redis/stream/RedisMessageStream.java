@@ -0,0 +1,144 @@
+package com.iot.vehicle.common.redis.stream;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于Redis Stream的消息流
+ *
+ * 批量追加通过管道一次往返发送多条XADD，并按MAXLEN ~ maxLen近似裁剪，流的长度有上限；
+ * 消费组、待确认列表和位置重置分别对应XGROUP CREATE、XREADGROUP、XACK和XGROUP SETID。
+ *
+ * @author dongxiang.wu
+ */
+public class RedisMessageStream implements MessageStream {
+
+    private final StringRedisTemplate redisTemplate;
+    private final String key;
+    private final long maxLen;
+
+    /**
+     * @param redisTemplate 字符串模板
+     * @param key           流的key
+     * @param maxLen        流的最大长度（近似裁剪）
+     */
+    public RedisMessageStream(StringRedisTemplate redisTemplate, String key, long maxLen) {
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.maxLen = maxLen;
+    }
+
+    @Override
+    public List<String> append(List<Map<String, String>> entries) {
+        byte[] rawKey = raw(key);
+        XAddOptions options = XAddOptions.maxlen(maxLen).approximateTrimming(true);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map<String, String> fields : entries) {
+                Map<byte[], byte[]> rawFields = new LinkedHashMap<>();
+                fields.forEach((field, value) -> rawFields.put(raw(field), raw(value)));
+                connection.streamCommands().xAdd(StreamRecords.newRecord().in(rawKey).ofMap(rawFields), options);
+            }
+            return null;
+        });
+        List<String> ids = new ArrayList<>(results.size());
+        for (Object result : results) {
+            ids.add(result instanceof RecordId id ? id.getValue() : String.valueOf(result));
+        }
+        return ids;
+    }
+
+    @Override
+    public void createGroup(String group, String startId) {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(raw(key), group, ReadOffset.from(startId), true));
+        } catch (DataAccessException e) {
+            String message = e.getMostSpecificCause().getMessage();
+            if (message == null || !message.contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<StreamEntry> readGroup(String group, String consumer, int count) {
+        return read(group, consumer, count, ReadOffset.lastConsumed());
+    }
+
+    @Override
+    public List<StreamEntry> readPending(String group, String consumer, int count) {
+        return read(group, consumer, count, ReadOffset.from(BEGINNING));
+    }
+
+    @Override
+    public long ack(String group, List<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Long acked = redisTemplate.opsForStream().acknowledge(key, group, ids.toArray(String[]::new));
+        return acked == null ? 0 : acked;
+    }
+
+    @Override
+    public void setGroupOffset(String group, String id) {
+        redisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.execute("XGROUP", raw("SETID"), raw(key), raw(group), raw(id)));
+    }
+
+    @Override
+    public List<StreamEntry> range(String afterId, int count) {
+        // 起点包含afterId本身，多取一条后去掉
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                .range(key, Range.rightUnbounded(Range.Bound.inclusive(afterId)), Limit.limit().count(count + 1));
+        List<StreamEntry> result = toEntries(records);
+        if (!result.isEmpty() && result.get(0).id().equals(afterId)) {
+            result.remove(0);
+        }
+        return result.size() > count ? result.subList(0, count) : result;
+    }
+
+    /**
+     * StreamOperations.read的流参数是泛型可变参数，调用处必然产生泛型数组，这里只传一个流
+     */
+    @SuppressWarnings("unchecked")
+    private List<StreamEntry> read(String group, String consumer, int count, ReadOffset offset) {
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+                Consumer.from(group, consumer), StreamReadOptions.empty().count(count),
+                StreamOffset.create(key, offset));
+        return toEntries(records);
+    }
+
+    private static List<StreamEntry> toEntries(List<MapRecord<String, Object, Object>> records) {
+        List<StreamEntry> entries = new ArrayList<>(records == null ? 0 : records.size());
+        if (records == null) {
+            return entries;
+        }
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            record.getValue().forEach((field, value) -> fields.put(String.valueOf(field), String.valueOf(value)));
+            entries.add(new StreamEntry(record.getId().getValue(), fields));
+        }
+        return entries;
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
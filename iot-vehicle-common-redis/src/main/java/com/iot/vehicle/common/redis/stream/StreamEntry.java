@@ -0,0 +1,13 @@
+package com.iot.vehicle.common.redis.stream;
+
+import java.util.Map;
+
+/**
+ * 流中的一条消息
+ *
+ * @param id     消息ID（毫秒时间戳-序号，如"1718000000000-0"）
+ * @param fields 消息字段
+ * @author dongxiang.wu
+ */
+public record StreamEntry(String id, Map<String, String> fields) {
+}
@@ -0,0 +1,65 @@
+package com.iot.vehicle.common.redis.bloom;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进程内布隆过滤器测试
+ *
+ * @author dongxiang.wu
+ */
+class LocalBloomFilterTest {
+
+    @Test
+    @DisplayName("加入过的值一定判断为可能存在，重复加入不计数")
+    void testNoFalseNegative() {
+        LocalBloomFilter filter = new LocalBloomFilter(1000, 0.01);
+        List<String> ids = ids("VH", 5000);
+        filter.addAll(ids);
+
+        for (String id : ids) {
+            assertTrue(filter.mightContain(id));
+        }
+        assertFalse(filter.add(ids.get(0)));
+        assertTrue(filter.size() <= 5000);
+    }
+
+    @Test
+    @DisplayName("装满后逐层扩容，总误判率不超过指定值")
+    void testScaling() {
+        LocalBloomFilter filter = new LocalBloomFilter(1000, 0.01);
+        filter.addAll(ids("VH", 20000));
+        // 1000 + 2000 + 4000 + 8000 + 16000
+        assertEquals(5, filter.layerCount());
+
+        int falsePositives = 0;
+        List<String> unknown = ids("XX", 100000);
+        for (String id : unknown) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < unknown.size() * 0.01, "falsePositives=" + falsePositives);
+    }
+
+    @Test
+    @DisplayName("参数校验")
+    void testValidate() {
+        assertThrows(IllegalArgumentException.class, () -> new LocalBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new LocalBloomFilter(100, 1.5));
+        assertFalse(new LocalBloomFilter(100, 0.01).mightContain("VH000001"));
+    }
+
+    private static List<String> ids(String prefix, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(String.format("%s%010d", prefix, i));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,22 @@
+package com.iot.vehicle.common.redis.bloom;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Redis布隆过滤器key测试
+ *
+ * @author dongxiang.wu
+ */
+class RedisBloomFilterTest {
+
+    @Test
+    @DisplayName("key前缀加上哈希标签，所有层落在同一个槽上")
+    void testHashTagged() {
+        assertEquals("{device:bloom}", RedisBloomFilter.hashTagged("device:bloom"));
+        assertEquals("{device}:bloom", RedisBloomFilter.hashTagged("{device}:bloom"));
+        assertEquals("{device:{}bloom}", RedisBloomFilter.hashTagged("device:{}bloom"));
+    }
+}
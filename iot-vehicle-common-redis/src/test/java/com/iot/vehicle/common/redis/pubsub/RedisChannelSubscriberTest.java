@@ -0,0 +1,34 @@
+package com.iot.vehicle.common.redis.pubsub;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Redis频道后台订阅测试
+ *
+ * @author dongxiang.wu
+ */
+class RedisChannelSubscriberTest {
+
+    @Test
+    @DisplayName("Redis不可用时start立即返回，后台按间隔重试，stop后不再重试")
+    void testRetryWithoutBlocking() {
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenThrow(new RedisConnectionFailureException("connection refused"));
+        RedisChannelSubscriber subscriber = new RedisChannelSubscriber("test-subscriber", connectionFactory,
+                "test:channel", (message, pattern) -> { }, 50L);
+
+        long start = System.nanoTime();
+        subscriber.start();
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "start不应等待订阅建立");
+
+        verify(connectionFactory, timeout(10_000).atLeast(2)).getConnection();
+        assertFalse(subscriber.isSubscribed());
+        subscriber.stop();
+    }
+}
@@ -0,0 +1,88 @@
+package com.iot.vehicle.common.redis.stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进程内消息流测试
+ *
+ * @author dongxiang.wu
+ */
+class LocalMessageStreamTest {
+
+    @Test
+    @DisplayName("追加：ID递增，超过最大长度时丢弃最旧的消息")
+    void testAppendAndTrim() {
+        LocalMessageStream stream = new LocalMessageStream(3);
+        List<String> ids = stream.append(List.of(entry("1"), entry("2"), entry("3"), entry("4")));
+
+        assertEquals(4, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(compare(ids.get(i - 1), ids.get(i)) < 0);
+        }
+        assertEquals(3, stream.size());
+        List<StreamEntry> all = stream.range(MessageStream.BEGINNING, 10);
+        assertEquals("2", all.get(0).fields().get("d"));
+
+        List<StreamEntry> after = stream.range(ids.get(2), 10);
+        assertEquals(1, after.size());
+        assertEquals(ids.get(3), after.get(0).id());
+    }
+
+    @Test
+    @DisplayName("消费组：只投递创建后的新消息，未确认的消息可以重新读取")
+    void testGroupDelivery() {
+        LocalMessageStream stream = new LocalMessageStream(100);
+        stream.append(List.of(entry("old")));
+        stream.createGroup("g", MessageStream.END);
+        List<String> ids = stream.append(List.of(entry("1"), entry("2"), entry("3")));
+
+        List<StreamEntry> first = stream.readGroup("g", "c1", 2);
+        assertEquals(List.of(ids.get(0), ids.get(1)), first.stream().map(StreamEntry::id).toList());
+        assertEquals(1, stream.readGroup("g", "c2", 10).size());
+        assertTrue(stream.readGroup("g", "c1", 10).isEmpty());
+
+        assertEquals(1, stream.ack("g", List.of(ids.get(0))));
+        assertEquals(0, stream.ack("g", List.of(ids.get(0))));
+        List<StreamEntry> pending = stream.readPending("g", "c1", 10);
+        assertEquals(1, pending.size());
+        assertEquals(ids.get(1), pending.get(0).id());
+
+        // 重复创建不改变位置
+        stream.createGroup("g", MessageStream.BEGINNING);
+        assertTrue(stream.readGroup("g", "c1", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("重置消费组位置后重新投递")
+    void testReplay() {
+        LocalMessageStream stream = new LocalMessageStream(100);
+        stream.createGroup("g", MessageStream.BEGINNING);
+        List<String> ids = stream.append(List.of(entry("1"), entry("2"), entry("3")));
+        assertEquals(3, stream.readGroup("g", "c", 10).size());
+
+        stream.setGroupOffset("g", ids.get(0));
+        List<StreamEntry> replayed = stream.readGroup("g", "c", 10);
+        assertEquals(List.of(ids.get(1), ids.get(2)), replayed.stream().map(StreamEntry::id).toList());
+
+        stream.setGroupOffset("g", MessageStream.END);
+        assertTrue(stream.readGroup("g", "c", 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> stream.readGroup("missing", "c", 10));
+    }
+
+    private static Map<String, String> entry(String deviceId) {
+        return Map.of("t", "S", "d", deviceId);
+    }
+
+    private static int compare(String a, String b) {
+        String[] x = a.split("-");
+        String[] y = b.split("-");
+        int c = Long.compare(Long.parseLong(x[0]), Long.parseLong(y[0]));
+        return c != 0 ? c : Long.compare(Long.parseLong(x[1]), Long.parseLong(y[1]));
+    }
+}
@@ -0,0 +1,82 @@
+package com.iot.vehicle.service.archive;
+
+import com.iot.vehicle.api.entity.DeviceData;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 归档文件读取（格式见{@link ArchiveFileWriter}）
+ *
+ * @author dongxiang.wu
+ */
+final class ArchiveFileReader {
+
+    private ArchiveFileReader() {
+    }
+
+    /**
+     * 读取一个设备在[start, end)内的数据，其他设备和时间不相交的列块直接跳过
+     *
+     * @return 按数据时间升序的数据，文件不存在时返回空列表
+     */
+    static List<DeviceData> read(Path file, String deviceId, LocalDateTime start, LocalDateTime end) throws IOException {
+        List<DeviceData> result = new ArrayList<>();
+        read(file, deviceId, start, end, result::add);
+        return result;
+    }
+
+    /**
+     * 逐条读取一个设备在[start, end)内的数据，同一时刻只解码一个列块
+     *
+     * @param consumer 按数据时间升序接收数据，文件不存在时不会被调用
+     */
+    static void read(Path file, String deviceId, LocalDateTime start, LocalDateTime end,
+                     Consumer<DeviceData> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long startMicros = ColumnChunkCodec.toMicros(start);
+        long endMicros = ColumnChunkCodec.toMicros(end);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != ArchiveFileWriter.MAGIC) {
+                throw new IOException("不是设备数据归档文件: " + file);
+            }
+            short version = in.readShort();
+            if (version != ArchiveFileWriter.VERSION) {
+                throw new IOException("不支持的归档文件版本: " + version);
+            }
+            while (true) {
+                String chunkDeviceId;
+                try {
+                    chunkDeviceId = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                int rowCount = in.readInt();
+                long minMicros = in.readLong();
+                long maxMicros = in.readLong();
+                int length = in.readInt();
+                if (!chunkDeviceId.equals(deviceId) || maxMicros < startMicros || minMicros >= endMicros) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                byte[] chunk = new byte[length];
+                in.readFully(chunk);
+                for (DeviceData row : ColumnChunkCodec.decode(chunk, chunkDeviceId, rowCount)) {
+                    if (!row.getDataTime().isBefore(start) && row.getDataTime().isBefore(end)) {
+                        consumer.accept(row);
+                    }
+                }
+            }
+        }
+    }
+}
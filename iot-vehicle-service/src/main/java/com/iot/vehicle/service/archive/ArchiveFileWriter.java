@@ -0,0 +1,79 @@
+package com.iot.vehicle.service.archive;
+
+import com.iot.vehicle.api.entity.DeviceData;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 归档文件写入器
+ *
+ * 文件格式：[魔数 int][版本 short]，之后是连续的列块：
+ * [设备ID UTF][行数 int][最早时间 long][最晚时间 long][列块长度 int][列块]
+ * 每个列块只包含一个设备的连续数据，块头不压缩，读取时可以跳过其他设备的列块而不解压。
+ * 输入必须按设备ID、数据时间排序。非线程安全。
+ *
+ * @author dongxiang.wu
+ */
+final class ArchiveFileWriter implements Closeable {
+
+    static final int MAGIC = 0x49564441;
+    static final short VERSION = 1;
+
+    /**
+     * 单个列块的最大行数
+     */
+    private static final int CHUNK_ROWS = 8192;
+
+    private final DataOutputStream out;
+    private final List<DeviceData> chunk = new ArrayList<>(CHUNK_ROWS);
+    private long rowCount;
+
+    ArchiveFileWriter(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    void append(DeviceData row) throws IOException {
+        if (!chunk.isEmpty() && (chunk.size() >= CHUNK_ROWS
+                || !chunk.get(0).getDeviceId().equals(row.getDeviceId()))) {
+            flushChunk();
+        }
+        chunk.add(row);
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushChunk();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        byte[] encoded = ColumnChunkCodec.encode(chunk);
+        out.writeUTF(chunk.get(0).getDeviceId());
+        out.writeInt(chunk.size());
+        out.writeLong(ColumnChunkCodec.toMicros(chunk.get(0).getDataTime()));
+        out.writeLong(ColumnChunkCodec.toMicros(chunk.get(chunk.size() - 1).getDataTime()));
+        out.writeInt(encoded.length);
+        out.write(encoded);
+        rowCount += chunk.size();
+        chunk.clear();
+    }
+}
@@ -0,0 +1,104 @@
+package com.iot.vehicle.service.archive;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONWriter;
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 归档清单：记录哪些天的数据已经归档，以及归档时使用的分桶数
+ *
+ * 某一天的所有分桶文件写完后才会加入清单，读取时只有清单中的天才从归档文件读取。
+ * 清单以JSON保存在归档根目录，每次更新写入临时文件后原子替换。
+ *
+ * @author dongxiang.wu
+ */
+public final class ArchiveManifest {
+
+    private static final String FILE_NAME = "manifest.json";
+    private static final String TEMP_FILE_NAME = "manifest.json.tmp";
+
+    private final Path dir;
+    private final Map<LocalDate, Entry> entries = new TreeMap<>();
+
+    ArchiveManifest(Path dir) {
+        this.dir = dir;
+    }
+
+    synchronized void load() throws IOException {
+        entries.clear();
+        Path file = dir.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return;
+        }
+        List<Entry> list = JSON.parseArray(Files.readString(file, StandardCharsets.UTF_8), Entry.class);
+        for (Entry entry : list) {
+            entries.put(entry.getDay(), entry);
+        }
+    }
+
+    synchronized Entry get(LocalDate day) {
+        return entries.get(day);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void put(Entry entry) throws IOException {
+        entries.put(entry.getDay(), entry);
+        Files.createDirectories(dir);
+        Path temp = dir.resolve(TEMP_FILE_NAME);
+        Files.writeString(temp, JSON.toJSONString(new ArrayList<>(entries.values()), JSONWriter.Feature.PrettyFormat),
+                StandardCharsets.UTF_8);
+        Files.move(temp, dir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 一天的归档信息
+     */
+    @Data
+    public static class Entry {
+
+        /**
+         * 数据日期
+         */
+        private LocalDate day;
+
+        /**
+         * 来源表
+         */
+        private String source;
+
+        /**
+         * 设备分桶数（读取时按此计算设备所在的文件）
+         */
+        private Integer bucketCount;
+
+        /**
+         * 行数
+         */
+        private Long rowCount;
+
+        /**
+         * 归档文件总字节数
+         */
+        private Long fileBytes;
+
+        /**
+         * 归档时间
+         */
+        private LocalDateTime archivedTime;
+    }
+}
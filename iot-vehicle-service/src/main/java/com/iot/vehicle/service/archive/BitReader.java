@@ -0,0 +1,42 @@
+package com.iot.vehicle.service.archive;
+
+/**
+ * 按位读取（与{@link BitWriter}对应）
+ *
+ * @author dongxiang.wu
+ */
+final class BitReader {
+
+    private final byte[] buffer;
+    private long bitPosition;
+
+    BitReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean readBit() {
+        boolean bit = (buffer[(int) (bitPosition >>> 3)] & (0x80 >>> (bitPosition & 7))) != 0;
+        bitPosition++;
+        return bit;
+    }
+
+    long readBits(int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = (value << 1) | (readBit() ? 1 : 0);
+        }
+        return value;
+    }
+
+    long readVarLong() {
+        long zigzag = 0;
+        int shift = 0;
+        long b;
+        do {
+            b = readBits(8);
+            zigzag |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
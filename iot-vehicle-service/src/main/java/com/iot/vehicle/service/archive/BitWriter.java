@@ -0,0 +1,58 @@
+package com.iot.vehicle.service.archive;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入的缓冲区（高位在前）
+ *
+ * @author dongxiang.wu
+ */
+final class BitWriter {
+
+    private byte[] buffer = new byte[1024];
+    private long bitCount;
+
+    void writeBit(boolean bit) {
+        ensureCapacity(1);
+        if (bit) {
+            buffer[(int) (bitCount >>> 3)] |= (byte) (0x80 >>> (bitCount & 7));
+        }
+        bitCount++;
+    }
+
+    /**
+     * 写入value的低count位
+     */
+    void writeBits(long value, int count) {
+        ensureCapacity(count);
+        for (int i = count - 1; i >= 0; i--) {
+            if (((value >>> i) & 1L) != 0) {
+                buffer[(int) (bitCount >>> 3)] |= (byte) (0x80 >>> (bitCount & 7));
+            }
+            bitCount++;
+        }
+    }
+
+    /**
+     * 写入ZigZag编码的变长整数，绝对值小的数占用的字节少
+     */
+    void writeVarLong(long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            writeBits((zigzag & 0x7F) | 0x80, 8);
+            zigzag >>>= 7;
+        }
+        writeBits(zigzag, 8);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, (int) ((bitCount + 7) >>> 3));
+    }
+
+    private void ensureCapacity(int bits) {
+        long required = (bitCount + bits + 7) >>> 3;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.max(required, buffer.length * 2L));
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.iot.vehicle.service.archive;
+
+import com.iot.vehicle.api.entity.DeviceData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 列块编解码：把同一设备按时间排序的一组数据按列编码后压缩
+ *
+ * 时间列使用二阶差分，浮点列使用Gorilla异或编码，整数列使用差分变长整数，可空的列先写一个存在位图。
+ * 原始报文（raw_data）单独成段，整块最后用Deflate压缩，JSON中大量重复的键名在这一步被消除。
+ * 时间以微秒存储，与数据库中的TIMESTAMP一一对应。
+ *
+ * 列块格式：[压缩前长度 int][Deflate数据]
+ *
+ * @author dongxiang.wu
+ */
+final class ColumnChunkCodec {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final List<DecimalColumn> DECIMAL_COLUMNS = List.of(
+            new DecimalColumn(DeviceData::getLatitude, DeviceData::setLatitude),
+            new DecimalColumn(DeviceData::getLongitude, DeviceData::setLongitude),
+            new DecimalColumn(DeviceData::getAltitude, DeviceData::setAltitude),
+            new DecimalColumn(DeviceData::getSpeed, DeviceData::setSpeed),
+            new DecimalColumn(DeviceData::getFuelLevel, DeviceData::setFuelLevel),
+            new DecimalColumn(DeviceData::getFuelConsumption, DeviceData::setFuelConsumption),
+            new DecimalColumn(DeviceData::getBatteryVoltage, DeviceData::setBatteryVoltage),
+            new DecimalColumn(DeviceData::getMileage, DeviceData::setMileage));
+
+    private static final List<IntColumn> INT_COLUMNS = List.of(
+            new IntColumn(DeviceData::getDirection, DeviceData::setDirection),
+            new IntColumn(DeviceData::getSatelliteCount, DeviceData::setSatelliteCount),
+            new IntColumn(DeviceData::getSpeedRpm, DeviceData::setSpeedRpm),
+            new IntColumn(DeviceData::getEngineTemp, DeviceData::setEngineTemp),
+            new IntColumn(DeviceData::getSignalStrength, DeviceData::setSignalStrength),
+            new IntColumn(DeviceData::getDataStatus, DeviceData::setDataStatus));
+
+    private ColumnChunkCodec() {
+    }
+
+    /**
+     * 编码并压缩
+     *
+     * @param rows 同一设备按数据时间升序的数据
+     * @return 压缩后的列块
+     */
+    static byte[] encode(List<DeviceData> rows) throws IOException {
+        int count = rows.size();
+        BitWriter bits = new BitWriter();
+
+        long[] dataTimes = new long[count];
+        for (int i = 0; i < count; i++) {
+            dataTimes[i] = toMicros(rows.get(i).getDataTime());
+        }
+        GorillaCodec.writeTimestamps(bits, dataTimes, count);
+
+        long[] createTimes = new long[count];
+        int present = writePresence(bits, rows, DeviceData::getCreateTime);
+        int n = 0;
+        for (DeviceData row : rows) {
+            if (row.getCreateTime() != null) {
+                createTimes[n++] = toMicros(row.getCreateTime());
+            }
+        }
+        GorillaCodec.writeTimestamps(bits, createTimes, present);
+
+        writePresence(bits, rows, DeviceData::getId);
+        long previousId = 0;
+        for (DeviceData row : rows) {
+            if (row.getId() != null) {
+                bits.writeVarLong(row.getId() - previousId);
+                previousId = row.getId();
+            }
+        }
+
+        double[] doubles = new double[count];
+        for (DecimalColumn column : DECIMAL_COLUMNS) {
+            present = writePresence(bits, rows, column.getter());
+            n = 0;
+            for (DeviceData row : rows) {
+                BigDecimal value = column.getter().apply(row);
+                if (value != null) {
+                    doubles[n++] = value.doubleValue();
+                }
+            }
+            GorillaCodec.writeDoubles(bits, doubles, present);
+        }
+
+        for (IntColumn column : INT_COLUMNS) {
+            writePresence(bits, rows, column.getter());
+            long previous = 0;
+            for (DeviceData row : rows) {
+                Integer value = column.getter().apply(row);
+                if (value != null) {
+                    bits.writeVarLong(value - previous);
+                    previous = value;
+                }
+            }
+        }
+
+        writePresence(bits, rows, DeviceData::getGpsValid);
+        for (DeviceData row : rows) {
+            if (row.getGpsValid() != null) {
+                bits.writeBit(row.getGpsValid());
+            }
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(count * 64);
+        DataOutputStream out = new DataOutputStream(body);
+        byte[] numeric = bits.toByteArray();
+        out.writeInt(numeric.length);
+        out.write(numeric);
+        for (DeviceData row : rows) {
+            if (row.getRawData() == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] raw = row.getRawData().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(raw.length);
+                out.write(raw);
+            }
+        }
+        out.flush();
+        return deflate(body.toByteArray());
+    }
+
+    /**
+     * 解压并解码
+     *
+     * @param chunk    压缩后的列块
+     * @param deviceId 设备ID
+     * @param count    行数
+     * @return 按数据时间升序的数据
+     */
+    static List<DeviceData> decode(byte[] chunk, String deviceId, int count) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflate(chunk)));
+        byte[] numeric = new byte[in.readInt()];
+        in.readFully(numeric);
+        BitReader bits = new BitReader(numeric);
+
+        List<DeviceData> rows = new ArrayList<>(count);
+        long[] dataTimes = GorillaCodec.readTimestamps(bits, count);
+        for (int i = 0; i < count; i++) {
+            DeviceData row = new DeviceData();
+            row.setDeviceId(deviceId);
+            row.setDataTime(fromMicros(dataTimes[i]));
+            rows.add(row);
+        }
+
+        boolean[] presence = readPresence(bits, count);
+        long[] createTimes = GorillaCodec.readTimestamps(bits, countOf(presence));
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (presence[i]) {
+                rows.get(i).setCreateTime(fromMicros(createTimes[n++]));
+            }
+        }
+
+        presence = readPresence(bits, count);
+        long previousId = 0;
+        for (int i = 0; i < count; i++) {
+            if (presence[i]) {
+                previousId += bits.readVarLong();
+                rows.get(i).setId(previousId);
+            }
+        }
+
+        for (DecimalColumn column : DECIMAL_COLUMNS) {
+            presence = readPresence(bits, count);
+            double[] doubles = GorillaCodec.readDoubles(bits, countOf(presence));
+            n = 0;
+            for (int i = 0; i < count; i++) {
+                if (presence[i]) {
+                    column.setter().accept(rows.get(i), BigDecimal.valueOf(doubles[n++]));
+                }
+            }
+        }
+
+        for (IntColumn column : INT_COLUMNS) {
+            presence = readPresence(bits, count);
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                if (presence[i]) {
+                    previous += bits.readVarLong();
+                    column.setter().accept(rows.get(i), (int) previous);
+                }
+            }
+        }
+
+        presence = readPresence(bits, count);
+        for (int i = 0; i < count; i++) {
+            if (presence[i]) {
+                rows.get(i).setGpsValid(bits.readBit());
+            }
+        }
+
+        for (DeviceData row : rows) {
+            int length = in.readInt();
+            if (length >= 0) {
+                byte[] raw = new byte[length];
+                in.readFully(raw);
+                row.setRawData(new String(raw, StandardCharsets.UTF_8));
+            }
+        }
+        return rows;
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return ChronoUnit.MICROS.between(EPOCH, time);
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private static <T> int writePresence(BitWriter bits, List<DeviceData> rows, Function<DeviceData, T> getter) {
+        int present = 0;
+        for (DeviceData row : rows) {
+            boolean has = getter.apply(row) != null;
+            bits.writeBit(has);
+            if (has) {
+                present++;
+            }
+        }
+        return present;
+    }
+
+    private static boolean[] readPresence(BitReader bits, int count) {
+        boolean[] presence = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            presence[i] = bits.readBit();
+        }
+        return presence;
+    }
+
+    private static int countOf(boolean[] presence) {
+        int n = 0;
+        for (boolean present : presence) {
+            if (present) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            new DataOutputStream(out).writeInt(data.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        int rawSize = new DataInputStream(new ByteArrayInputStream(data)).readInt();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 4, data.length - 4);
+            byte[] result = new byte[rawSize];
+            int n = 0;
+            while (n < rawSize && !inflater.finished()) {
+                n += inflater.inflate(result, n, rawSize - n);
+                if (n < rawSize && inflater.needsInput()) {
+                    throw new IOException("归档列块不完整");
+                }
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("归档列块已损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private record DecimalColumn(Function<DeviceData, BigDecimal> getter, BiConsumer<DeviceData, BigDecimal> setter) {
+    }
+
+    private record IntColumn(Function<DeviceData, Integer> getter, BiConsumer<DeviceData, Integer> setter) {
+    }
+}
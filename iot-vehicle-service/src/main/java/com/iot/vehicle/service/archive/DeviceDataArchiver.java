@@ -0,0 +1,293 @@
+package com.iot.vehicle.service.archive;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.service.config.ArchiveProperties;
+import com.iot.vehicle.service.mapper.DeviceDataArchiveMapper;
+import com.iot.vehicle.service.mapper.DevicePartitionMapper;
+import com.iot.vehicle.service.partition.DevicePartitionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 设备数据冷归档
+ *
+ * 把过期的原始数据分区按天导出为列式压缩文件后删除分区表，数据库只保留热数据。
+ * 启用归档时分区维护不分离原始数据分区，由这里先导出并写入清单，再分离和删除，
+ * 历史查询在任何时刻都能从数据库或归档读到过期的天。
+ * 每天一个目录，目录下按设备ID哈希分为bucketCount个文件（yyyy/MM/dd/bucket-NN.ivda），
+ * 一天的文件全部写完后才替换目录并加入清单，导出中途失败不会留下不完整的归档。
+ * 历史查询落在已归档的天时，从对应设备所在的分桶文件读取。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceDataArchiver {
+
+    private static final DateTimeFormatter DAY_PATH = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final ArchiveProperties archiveProperties;
+    private final DeviceDataArchiveMapper deviceDataArchiveMapper;
+    private final DevicePartitionMapper devicePartitionMapper;
+    private final DevicePartitionManager devicePartitionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private ArchiveManifest manifest;
+    private Counter rowCounter;
+    private Counter byteCounter;
+
+    @PostConstruct
+    public void init() {
+        rowCounter = Counter.builder("iot.archive.rows")
+                .description("归档的设备数据行数")
+                .register(meterRegistry);
+        byteCounter = Counter.builder("iot.archive.bytes")
+                .description("写入的归档文件字节数")
+                .register(meterRegistry);
+
+        manifest = new ArchiveManifest(Path.of(archiveProperties.getBaseDir()));
+        try {
+            manifest.load();
+            log.info("设备数据归档清单已加载: baseDir={}, days={}", archiveProperties.getBaseDir(), manifest.size());
+        } catch (IOException e) {
+            log.error("加载设备数据归档清单失败: baseDir={}", archiveProperties.getBaseDir(), e);
+        }
+    }
+
+    /**
+     * 定时归档过期的分区
+     */
+    @Scheduled(cron = "${device-data.archive.cron:0 40 0 * * ?}")
+    public void scheduledArchive() {
+        if (Boolean.TRUE.equals(archiveProperties.getEnabled())) {
+            archiveExpiredPartitions();
+            archiveDetachedPartitions();
+        }
+    }
+
+    /**
+     * 归档所有已过保留期、仍挂载的原始数据分区：全部天导出并写入清单后才分离，按配置删除
+     */
+    public synchronized void archiveExpiredPartitions() {
+        for (String table : devicePartitionManager.selectExpiredPartitions()) {
+            try {
+                archiveDays(table);
+                devicePartitionManager.detachPartition(DevicePartitionManager.DEVICE_DATA_TABLE, table);
+                log.info("已归档的分区已分离: table={}", table);
+                dropIfConfigured(table);
+            } catch (Exception e) {
+                log.error("归档分区失败: table={}", table, e);
+            }
+        }
+    }
+
+    /**
+     * 归档所有已分离、尚未删除的原始数据分区（启用归档前分离的，或关闭删除时保留的）
+     */
+    public synchronized void archiveDetachedPartitions() {
+        for (String table : deviceDataArchiveMapper.selectDetachedPartitions()) {
+            try {
+                archiveTable(table);
+            } catch (Exception e) {
+                log.error("归档分区失败: table={}", table, e);
+            }
+        }
+    }
+
+    /**
+     * 按天归档一张表，全部成功后按配置删除该表
+     *
+     * @param table 已分离的分区表
+     */
+    public synchronized void archiveTable(String table) throws IOException {
+        archiveDays(table);
+        dropIfConfigured(table);
+    }
+
+    private void archiveDays(String table) throws IOException {
+        LocalDateTime min = deviceDataArchiveMapper.selectMinDataTime(table);
+        LocalDateTime max = deviceDataArchiveMapper.selectMaxDataTime(table);
+        if (min != null) {
+            for (LocalDate day = min.toLocalDate(); !day.isAfter(max.toLocalDate()); day = day.plusDays(1)) {
+                archiveDay(table, day);
+            }
+        }
+    }
+
+    private void dropIfConfigured(String table) {
+        if (Boolean.TRUE.equals(archiveProperties.getDropAfterArchive())) {
+            devicePartitionMapper.dropTable(table);
+            log.info("已归档的分区已删除: table={}", table);
+        }
+    }
+
+    /**
+     * 归档表中一天的数据（重复归档同一天会覆盖之前的归档）
+     *
+     * @param table 来源表（过期的分区表，或tb_device_data本身）
+     * @param day   数据日期
+     * @return 清单记录
+     */
+    public synchronized ArchiveManifest.Entry archiveDay(String table, LocalDate day) throws IOException {
+        int bucketCount = archiveProperties.getBucketCount();
+        Path dayDir = dayDir(day);
+        Path tempDir = dayDir.resolveSibling(dayDir.getFileName() + TEMP_SUFFIX);
+        deleteRecursively(tempDir);
+        Files.createDirectories(tempDir);
+
+        ArchiveFileWriter[] writers = new ArchiveFileWriter[bucketCount];
+        long rowCount = 0;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<DeviceData> cursor = deviceDataArchiveMapper.scanRange(table,
+                        day.atStartOfDay(), day.plusDays(1).atStartOfDay())) {
+                    for (DeviceData row : cursor) {
+                        int bucket = bucketOf(row.getDeviceId(), bucketCount);
+                        if (writers[bucket] == null) {
+                            writers[bucket] = new ArchiveFileWriter(bucketFile(tempDir, bucket));
+                        }
+                        writers[bucket].append(row);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (ArchiveFileWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                    rowCount += writer.getRowCount();
+                }
+            }
+        }
+
+        long fileBytes = 0;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : files.toList()) {
+                fileBytes += Files.size(file);
+            }
+        }
+        deleteRecursively(dayDir);
+        Files.move(tempDir, dayDir, StandardCopyOption.ATOMIC_MOVE);
+
+        ArchiveManifest.Entry entry = new ArchiveManifest.Entry();
+        entry.setDay(day);
+        entry.setSource(table);
+        entry.setBucketCount(bucketCount);
+        entry.setRowCount(rowCount);
+        entry.setFileBytes(fileBytes);
+        entry.setArchivedTime(LocalDateTime.now());
+        manifest.put(entry);
+
+        rowCounter.increment(rowCount);
+        byteCounter.increment(fileBytes);
+        log.info("设备数据已归档: table={}, day={}, rows={}, bytes={}", table, day, rowCount, fileBytes);
+        return entry;
+    }
+
+    /**
+     * 某一天是否已归档
+     *
+     * @param day 数据日期
+     * @return 是否已归档
+     */
+    public boolean isArchived(LocalDate day) {
+        return manifest.get(day) != null;
+    }
+
+    /**
+     * 从归档读取一个设备在某一天内[start, end)的数据
+     *
+     * @param deviceId 设备ID
+     * @param day      已归档的数据日期
+     * @param start    开始时间（包含，不早于当天零点）
+     * @param end      结束时间（不包含，不晚于次日零点）
+     * @return 按数据时间升序的数据
+     */
+    public List<DeviceData> read(String deviceId, LocalDate day, LocalDateTime start, LocalDateTime end) {
+        ArchiveManifest.Entry entry = manifest.get(day);
+        if (entry == null) {
+            return List.of();
+        }
+        Path file = bucketFile(dayDir(day), bucketOf(deviceId, entry.getBucketCount()));
+        try {
+            return ArchiveFileReader.read(file, deviceId, start, end);
+        } catch (IOException e) {
+            log.error("读取归档数据失败: file={}, deviceId={}", file, deviceId, e);
+            throw new BusinessException("读取归档数据失败");
+        }
+    }
+
+    /**
+     * 从归档逐条读取一个设备在某一天内[start, end)的数据，不在内存中汇总
+     *
+     * @param deviceId 设备ID
+     * @param day      已归档的数据日期
+     * @param start    开始时间（包含，不早于当天零点）
+     * @param end      结束时间（不包含，不晚于次日零点）
+     * @param consumer 按数据时间升序接收数据
+     */
+    public void read(String deviceId, LocalDate day, LocalDateTime start, LocalDateTime end,
+                     Consumer<DeviceData> consumer) {
+        ArchiveManifest.Entry entry = manifest.get(day);
+        if (entry == null) {
+            return;
+        }
+        Path file = bucketFile(dayDir(day), bucketOf(deviceId, entry.getBucketCount()));
+        try {
+            ArchiveFileReader.read(file, deviceId, start, end, consumer);
+        } catch (IOException e) {
+            log.error("读取归档数据失败: file={}, deviceId={}", file, deviceId, e);
+            throw new BusinessException("读取归档数据失败");
+        }
+    }
+
+    static int bucketOf(String deviceId, int bucketCount) {
+        return Math.floorMod(deviceId.hashCode(), bucketCount);
+    }
+
+    private Path dayDir(LocalDate day) {
+        return Path.of(archiveProperties.getBaseDir(), DAY_PATH.format(day));
+    }
+
+    private static Path bucketFile(Path dir, int bucket) {
+        return dir.resolve(String.format("bucket-%02d.ivda", bucket));
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.iot.vehicle.service.archive;
+
+/**
+ * Gorilla时间序列编码
+ *
+ * 时间戳使用二阶差分（delta-of-delta）：固定频率上报时二阶差分几乎都是0，每个时间戳只占1位。
+ * 浮点数与前一个值按位异或：值不变时只占1位，变化时只写异或结果中间有效的位。
+ *
+ * @author dongxiang.wu
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    static void writeTimestamps(BitWriter writer, long[] values, int count) {
+        if (count == 0) {
+            return;
+        }
+        writer.writeBits(values[0], 64);
+        long previous = values[0];
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = values[i] - previous;
+            long deltaOfDelta = delta - previousDelta;
+            if (deltaOfDelta == 0) {
+                writer.writeBit(false);
+            } else if (fits(deltaOfDelta, 7)) {
+                writer.writeBits(0b10, 2);
+                writer.writeBits(deltaOfDelta, 7);
+            } else if (fits(deltaOfDelta, 9)) {
+                writer.writeBits(0b110, 3);
+                writer.writeBits(deltaOfDelta, 9);
+            } else if (fits(deltaOfDelta, 12)) {
+                writer.writeBits(0b1110, 4);
+                writer.writeBits(deltaOfDelta, 12);
+            } else {
+                writer.writeBits(0b1111, 4);
+                writer.writeBits(deltaOfDelta, 64);
+            }
+            previous = values[i];
+            previousDelta = delta;
+        }
+    }
+
+    static long[] readTimestamps(BitReader reader, int count) {
+        long[] values = new long[count];
+        if (count == 0) {
+            return values;
+        }
+        values[0] = reader.readBits(64);
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (!reader.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!reader.readBit()) {
+                deltaOfDelta = signExtend(reader.readBits(7), 7);
+            } else if (!reader.readBit()) {
+                deltaOfDelta = signExtend(reader.readBits(9), 9);
+            } else if (!reader.readBit()) {
+                deltaOfDelta = signExtend(reader.readBits(12), 12);
+            } else {
+                deltaOfDelta = reader.readBits(64);
+            }
+            long delta = previousDelta + deltaOfDelta;
+            values[i] = values[i - 1] + delta;
+            previousDelta = delta;
+        }
+        return values;
+    }
+
+    static void writeDoubles(BitWriter writer, double[] values, int count) {
+        if (count == 0) {
+            return;
+        }
+        long previous = Double.doubleToLongBits(values[0]);
+        writer.writeBits(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long current = Double.doubleToLongBits(values[i]);
+            long xor = current ^ previous;
+            previous = current;
+            if (xor == 0) {
+                writer.writeBit(false);
+                continue;
+            }
+            writer.writeBit(true);
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // 有效位落在上一个窗口内，沿用窗口
+                writer.writeBit(false);
+                writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                writer.writeBit(true);
+                writer.writeBits(leading, 5);
+                // 有效位数为1~64，存储时减1放入6位
+                writer.writeBits(significant - 1, 6);
+                writer.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    static double[] readDoubles(BitReader reader, int count) {
+        double[] values = new double[count];
+        if (count == 0) {
+            return values;
+        }
+        long previous = reader.readBits(64);
+        values[0] = Double.longBitsToDouble(previous);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.readBits(5);
+                    int significant = (int) reader.readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                long xor = reader.readBits(64 - leading - trailing) << trailing;
+                previous ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private static long signExtend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+}
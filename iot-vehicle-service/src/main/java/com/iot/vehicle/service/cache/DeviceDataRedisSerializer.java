@@ -0,0 +1,303 @@
+package com.iot.vehicle.service.cache;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * 设备最新数据的紧凑二进制序列化器
+ *
+ * 格式（版本1）：
+ * <pre>
+ * [版本号 1字节][字段存在位图 varint][deviceId 长度+UTF-8][dataTime 毫秒 varlong]
+ * [其余存在的字段按固定顺序依次写入]
+ * </pre>
+ * 整数使用ZigZag变长编码；经纬度按1e7、其余小数按1e2缩放为整数存储（与数据库列精度一致）；
+ * 时间使用系统时区下的epoch毫秒。版本号不匹配的数据（如旧的JSON格式）反序列化为null，按缓存未命中处理。
+ *
+ * @author dongxiang.wu
+ */
+public class DeviceDataRedisSerializer implements RedisSerializer<DeviceData> {
+
+    /**
+     * 当前格式版本
+     */
+    public static final byte VERSION = 1;
+
+    private static final int COORDINATE_SCALE = 7;
+    private static final int DECIMAL_SCALE = 2;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // 字段存在位图（deviceId、dataTime为必填字段，不占位）
+    private static final int F_ID = 1;
+    private static final int F_LATITUDE = 1 << 1;
+    private static final int F_LONGITUDE = 1 << 2;
+    private static final int F_ALTITUDE = 1 << 3;
+    private static final int F_SPEED = 1 << 4;
+    private static final int F_DIRECTION = 1 << 5;
+    private static final int F_GPS_VALID = 1 << 6;
+    private static final int F_GPS_VALID_TRUE = 1 << 7;
+    private static final int F_SATELLITE_COUNT = 1 << 8;
+    private static final int F_SPEED_RPM = 1 << 9;
+    private static final int F_FUEL_LEVEL = 1 << 10;
+    private static final int F_FUEL_CONSUMPTION = 1 << 11;
+    private static final int F_ENGINE_TEMP = 1 << 12;
+    private static final int F_BATTERY_VOLTAGE = 1 << 13;
+    private static final int F_MILEAGE = 1 << 14;
+    private static final int F_SIGNAL_STRENGTH = 1 << 15;
+    private static final int F_DATA_STATUS = 1 << 16;
+    private static final int F_RAW_DATA = 1 << 17;
+    private static final int F_CREATE_TIME = 1 << 18;
+
+    @Override
+    public byte[] serialize(DeviceData data) throws SerializationException {
+        if (data == null) {
+            return new byte[0];
+        }
+        if (data.getDeviceId() == null || data.getDataTime() == null) {
+            throw new SerializationException("deviceId和dataTime不能为空");
+        }
+
+        byte[] deviceId = data.getDeviceId().getBytes(StandardCharsets.UTF_8);
+        byte[] rawData = data.getRawData() == null ? null : data.getRawData().getBytes(StandardCharsets.UTF_8);
+        Output out = new Output(64 + deviceId.length + (rawData == null ? 0 : rawData.length));
+
+        out.writeByte(VERSION);
+        out.writeVarInt(presenceOf(data));
+        out.writeBytes(deviceId);
+        out.writeVarLong(toEpochMilli(data.getDataTime()));
+
+        if (data.getId() != null) {
+            out.writeVarLong(data.getId());
+        }
+        writeDecimal(out, data.getLatitude(), COORDINATE_SCALE);
+        writeDecimal(out, data.getLongitude(), COORDINATE_SCALE);
+        writeDecimal(out, data.getAltitude(), DECIMAL_SCALE);
+        writeDecimal(out, data.getSpeed(), DECIMAL_SCALE);
+        writeInt(out, data.getDirection());
+        writeInt(out, data.getSatelliteCount());
+        writeInt(out, data.getSpeedRpm());
+        writeDecimal(out, data.getFuelLevel(), DECIMAL_SCALE);
+        writeDecimal(out, data.getFuelConsumption(), DECIMAL_SCALE);
+        writeInt(out, data.getEngineTemp());
+        writeDecimal(out, data.getBatteryVoltage(), DECIMAL_SCALE);
+        writeDecimal(out, data.getMileage(), DECIMAL_SCALE);
+        writeInt(out, data.getSignalStrength());
+        writeInt(out, data.getDataStatus());
+        if (rawData != null) {
+            out.writeBytes(rawData);
+        }
+        if (data.getCreateTime() != null) {
+            out.writeVarLong(toEpochMilli(data.getCreateTime()));
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public DeviceData deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0 || bytes[0] != VERSION) {
+            return null;
+        }
+
+        try {
+            Input in = new Input(bytes, 1);
+            int presence = in.readVarInt();
+
+            DeviceData data = new DeviceData();
+            data.setDeviceId(in.readString());
+            data.setDataTime(fromEpochMilli(in.readVarLong()));
+            if ((presence & F_ID) != 0) {
+                data.setId(in.readVarLong());
+            }
+            data.setLatitude(readDecimal(in, presence, F_LATITUDE, COORDINATE_SCALE));
+            data.setLongitude(readDecimal(in, presence, F_LONGITUDE, COORDINATE_SCALE));
+            data.setAltitude(readDecimal(in, presence, F_ALTITUDE, DECIMAL_SCALE));
+            data.setSpeed(readDecimal(in, presence, F_SPEED, DECIMAL_SCALE));
+            data.setDirection(readInt(in, presence, F_DIRECTION));
+            if ((presence & F_GPS_VALID) != 0) {
+                data.setGpsValid((presence & F_GPS_VALID_TRUE) != 0);
+            }
+            data.setSatelliteCount(readInt(in, presence, F_SATELLITE_COUNT));
+            data.setSpeedRpm(readInt(in, presence, F_SPEED_RPM));
+            data.setFuelLevel(readDecimal(in, presence, F_FUEL_LEVEL, DECIMAL_SCALE));
+            data.setFuelConsumption(readDecimal(in, presence, F_FUEL_CONSUMPTION, DECIMAL_SCALE));
+            data.setEngineTemp(readInt(in, presence, F_ENGINE_TEMP));
+            data.setBatteryVoltage(readDecimal(in, presence, F_BATTERY_VOLTAGE, DECIMAL_SCALE));
+            data.setMileage(readDecimal(in, presence, F_MILEAGE, DECIMAL_SCALE));
+            data.setSignalStrength(readInt(in, presence, F_SIGNAL_STRENGTH));
+            data.setDataStatus(readInt(in, presence, F_DATA_STATUS));
+            if ((presence & F_RAW_DATA) != 0) {
+                data.setRawData(in.readString());
+            }
+            if ((presence & F_CREATE_TIME) != 0) {
+                data.setCreateTime(fromEpochMilli(in.readVarLong()));
+            }
+            return data;
+        } catch (IndexOutOfBoundsException e) {
+            throw new SerializationException("设备数据缓存格式错误", e);
+        }
+    }
+
+    private int presenceOf(DeviceData data) {
+        int presence = 0;
+        presence |= data.getId() != null ? F_ID : 0;
+        presence |= data.getLatitude() != null ? F_LATITUDE : 0;
+        presence |= data.getLongitude() != null ? F_LONGITUDE : 0;
+        presence |= data.getAltitude() != null ? F_ALTITUDE : 0;
+        presence |= data.getSpeed() != null ? F_SPEED : 0;
+        presence |= data.getDirection() != null ? F_DIRECTION : 0;
+        presence |= data.getGpsValid() != null ? F_GPS_VALID : 0;
+        presence |= Boolean.TRUE.equals(data.getGpsValid()) ? F_GPS_VALID_TRUE : 0;
+        presence |= data.getSatelliteCount() != null ? F_SATELLITE_COUNT : 0;
+        presence |= data.getSpeedRpm() != null ? F_SPEED_RPM : 0;
+        presence |= data.getFuelLevel() != null ? F_FUEL_LEVEL : 0;
+        presence |= data.getFuelConsumption() != null ? F_FUEL_CONSUMPTION : 0;
+        presence |= data.getEngineTemp() != null ? F_ENGINE_TEMP : 0;
+        presence |= data.getBatteryVoltage() != null ? F_BATTERY_VOLTAGE : 0;
+        presence |= data.getMileage() != null ? F_MILEAGE : 0;
+        presence |= data.getSignalStrength() != null ? F_SIGNAL_STRENGTH : 0;
+        presence |= data.getDataStatus() != null ? F_DATA_STATUS : 0;
+        presence |= data.getRawData() != null ? F_RAW_DATA : 0;
+        presence |= data.getCreateTime() != null ? F_CREATE_TIME : 0;
+        return presence;
+    }
+
+    private static void writeDecimal(Output out, BigDecimal value, int scale) {
+        if (value != null) {
+            out.writeVarLong(value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        }
+    }
+
+    private static void writeInt(Output out, Integer value) {
+        if (value != null) {
+            out.writeVarLong(value);
+        }
+    }
+
+    private static BigDecimal readDecimal(Input in, int presence, int flag, int scale) {
+        return (presence & flag) != 0 ? BigDecimal.valueOf(in.readVarLong(), scale) : null;
+    }
+
+    private static Integer readInt(Input in, int presence, int flag) {
+        return (presence & flag) != 0 ? (int) in.readVarLong() : null;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMilli(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZONE);
+    }
+
+    /**
+     * 可扩容的字节输出
+     */
+    private static final class Output {
+
+        private byte[] buf;
+        private int pos;
+
+        Output(int initialCapacity) {
+            this.buf = new byte[initialCapacity];
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        /**
+         * ZigZag编码的变长long
+         */
+        void writeVarLong(long value) {
+            long v = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            }
+        }
+    }
+
+    /**
+     * 字节输入
+     */
+    private static final class Input {
+
+        private final byte[] buf;
+        private int pos;
+
+        Input(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buf[pos++];
+                result |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new SerializationException("varint过长");
+        }
+
+        long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return (v >>> 1) ^ -(v & 1);
+                }
+            }
+            throw new SerializationException("varlong过长");
+        }
+
+        String readString() {
+            int length = readVarInt();
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
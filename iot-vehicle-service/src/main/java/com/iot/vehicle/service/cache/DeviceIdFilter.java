@@ -0,0 +1,260 @@
+package com.iot.vehicle.service.cache;
+
+import com.iot.vehicle.common.mybatis.util.TransactionUtil;
+import com.iot.vehicle.common.redis.bloom.LocalBloomFilter;
+import com.iot.vehicle.common.redis.bloom.RedisBloomFilter;
+import com.iot.vehicle.service.config.DeviceIdFilterProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 设备ID过滤器：MQTT认证和上下线前拦截不存在的设备ID
+ *
+ * 本地和Redis各有一个包含全部已注册设备ID的可扩容布隆过滤器。本地过滤器启动时从数据库全量构建；
+ * Redis过滤器由各节点共享，不存在时由启动的节点从数据库写入。新注册的设备在事务提交后同时加入两者。
+ * 本地判断不存在时再查Redis（其他节点注册的设备），Redis也判断不存在才拒绝，整个过程不访问数据库；
+ * Redis不可用时放行，交给后续的查询判断。
+ * 加入Redis失败的设备ID暂存后定时重试；另外定时从数据库重建本地过滤器并补写Redis，
+ * 兜底暂存丢失（重启）或Redis数据丢失的情况。
+ * 布隆过滤器不支持删除，已删除的设备ID仍会通过过滤，由注册信息缓存查询后拒绝。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceIdFilter {
+
+    private final DeviceIdFilterProperties deviceIdFilterProperties;
+    private final DeviceMapper deviceMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 构建完成前为null，此时不拦截
+     */
+    private volatile LocalBloomFilter localFilter;
+    private RedisBloomFilter redisFilter;
+    private Counter rejectedCounter;
+    private Counter remoteHitCounter;
+    private Counter remoteErrorCounter;
+
+    /**
+     * 加入Redis过滤器失败、等待重试的设备ID
+     */
+    private final Queue<String> pendingRedisAdds = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void init() {
+        if (!Boolean.TRUE.equals(deviceIdFilterProperties.getEnabled())) {
+            log.info("设备ID过滤器未启用");
+            return;
+        }
+        rejectedCounter = Counter.builder("iot.device.filter.rejected")
+                .description("被过滤器拒绝的不存在的设备ID")
+                .register(meterRegistry);
+        remoteHitCounter = Counter.builder("iot.device.filter.remote")
+                .description("本地未命中、Redis命中的设备ID")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        remoteErrorCounter = Counter.builder("iot.device.filter.remote")
+                .description("本地未命中、Redis查询失败的设备ID")
+                .tag("result", "error")
+                .register(meterRegistry);
+        Gauge.builder("iot.device.filter.size", this, filter -> {
+                    LocalBloomFilter current = filter.localFilter;
+                    return current == null ? 0 : current.size();
+                })
+                .description("本地过滤器中的设备ID数")
+                .register(meterRegistry);
+        Gauge.builder("iot.device.filter.pending", pendingRedisAdds, Queue::size)
+                .description("等待重试加入Redis过滤器的设备ID数")
+                .register(meterRegistry);
+
+        redisFilter = new RedisBloomFilter(stringRedisTemplate, deviceIdFilterProperties.getRedisKey(),
+                deviceIdFilterProperties.getInitialCapacity(), deviceIdFilterProperties.getFalsePositiveRate());
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("设备ID过滤器构建失败，不拦截设备ID", e);
+        }
+    }
+
+    /**
+     * 从数据库构建本地过滤器，Redis中没有过滤器时一并写入
+     */
+    public void rebuild() {
+        rebuild(false);
+    }
+
+    /**
+     * 定时重建本地过滤器，并把全部设备ID补写到Redis（已存在的不会重复计数）
+     */
+    @Scheduled(cron = "${device-filter.rebuild-cron:0 20 3 * * ?}")
+    public void scheduledRebuild() {
+        if (redisFilter == null) {
+            return;
+        }
+        try {
+            rebuild(true);
+        } catch (Exception e) {
+            log.error("定时重建设备ID过滤器失败", e);
+        }
+    }
+
+    /**
+     * 重试加入Redis过滤器失败的设备ID，仍然失败的留到下次
+     */
+    @Scheduled(fixedDelayString = "${device-filter.retry-interval-ms:5000}")
+    public void retryPendingAdds() {
+        if (redisFilter == null) {
+            return;
+        }
+        int count = pendingRedisAdds.size();
+        for (int i = 0; i < count; i++) {
+            String deviceId = pendingRedisAdds.poll();
+            if (deviceId == null) {
+                return;
+            }
+            try {
+                redisFilter.add(deviceId);
+            } catch (Exception e) {
+                pendingRedisAdds.offer(deviceId);
+                log.warn("重试加入Redis过滤器失败: pending={}, error={}", pendingRedisAdds.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 从数据库构建本地过滤器
+     *
+     * @param topUpRedis 是否把全部设备ID写入Redis；false时仅在Redis中没有过滤器时写入
+     */
+    private void rebuild(boolean topUpRedis) {
+        long start = System.currentTimeMillis();
+        LocalBloomFilter filter = new LocalBloomFilter(deviceIdFilterProperties.getInitialCapacity(),
+                deviceIdFilterProperties.getFalsePositiveRate());
+        AtomicBoolean seeding = new AtomicBoolean(topUpRedis || !redisExists());
+        boolean seedRedis = seeding.get();
+        int batchSize = deviceIdFilterProperties.getBatchSize();
+        List<String> batch = new ArrayList<>(batchSize);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<String> cursor = deviceMapper.scanDeviceIds(null)) {
+                    for (String deviceId : cursor) {
+                        filter.add(deviceId);
+                        if (seeding.get()) {
+                            batch.add(deviceId);
+                            if (batch.size() >= batchSize) {
+                                seed(batch, seeding);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("关闭设备ID游标失败", e.getCause());
+        }
+        if (seeding.get()) {
+            seed(batch, seeding);
+        }
+        // 构建期间注册的设备不在新过滤器中，本地未命中时会从Redis补上
+        localFilter = filter;
+        log.info("设备ID过滤器构建完成: devices={}, layers={}, bits={}, seedRedis={}, cost={}ms", filter.size(),
+                filter.layerCount(), filter.bitSize(), seedRedis, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 设备ID是否可能存在
+     *
+     * @param deviceId 设备ID
+     * @return false-一定不存在，true-可能存在（需要继续查询）
+     */
+    public boolean mightExist(String deviceId) {
+        LocalBloomFilter filter = localFilter;
+        if (filter == null || filter.mightContain(deviceId)) {
+            return true;
+        }
+        try {
+            if (redisFilter.mightContain(deviceId)) {
+                remoteHitCounter.increment();
+                filter.add(deviceId);
+                return true;
+            }
+        } catch (Exception e) {
+            remoteErrorCounter.increment();
+            log.warn("查询设备ID过滤器失败: deviceId={}, error={}", deviceId, e.getMessage());
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    /**
+     * 新注册设备：当前事务提交后加入本地和Redis过滤器，没有事务时立即加入
+     *
+     * @param deviceId 设备ID
+     */
+    public void add(String deviceId) {
+        if (redisFilter == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            LocalBloomFilter filter = localFilter;
+            if (filter != null) {
+                filter.add(deviceId);
+            }
+            try {
+                redisFilter.add(deviceId);
+            } catch (Exception e) {
+                // 重试成功前其他节点会拒绝该设备
+                pendingRedisAdds.offer(deviceId);
+                log.error("设备ID加入Redis过滤器失败，稍后重试: deviceId={}, error={}", deviceId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 写入Redis过滤器，失败后本次构建不再写入（本地过滤器照常构建）
+     */
+    private void seed(List<String> batch, AtomicBoolean seeding) {
+        try {
+            redisFilter.addAll(batch);
+        } catch (Exception e) {
+            seeding.set(false);
+            log.error("写入Redis设备ID过滤器失败", e);
+        }
+        batch.clear();
+    }
+
+    private boolean redisExists() {
+        try {
+            return redisFilter.exists();
+        } catch (Exception e) {
+            log.warn("检查Redis设备ID过滤器失败，跳过写入: error={}", e.getMessage());
+            return true;
+        }
+    }
+}
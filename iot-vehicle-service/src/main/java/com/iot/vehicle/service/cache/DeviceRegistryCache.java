@@ -0,0 +1,184 @@
+package com.iot.vehicle.service.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.common.mybatis.util.TransactionUtil;
+import com.iot.vehicle.common.redis.pubsub.RedisChannelSubscriber;
+import com.iot.vehicle.service.config.DeviceRegistryProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * 设备注册信息两级缓存
+ *
+ * 认证和上下线按设备ID读取(主键, 密钥摘要, 状态, 分组, 所有者)，依次查本地缓存（Caffeine，W-TinyLFU淘汰）、
+ * Redis（device:registry:{deviceId}）和数据库，未命中的层级在返回时回填。同一设备的并发未命中只回源一次，
+ * Broker重启后的集中重连不会把全部查询压到数据库上。
+ * 设备修改、删除、改分组提交后把Redis中的值替换为短期的删除标记，并通过发布订阅通知所有节点清除本地缓存；
+ * 回填Redis只在key不存在时写入（SET NX），提交前读到旧数据的回源请求不会在提交后把旧值写回，
+ * 被删除或禁用的设备不会继续用旧缓存认证。本地缓存另有较短的过期时间，作为丢失通知时的兜底。
+ * 失效通知在后台订阅，Redis不可用时按间隔重试，不阻塞应用启动；订阅建立前的通知由本地缓存过期兜底。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceRegistryCache {
+
+    /**
+     * 删除标记：标记有效期内回填失败，读到时按未命中处理
+     */
+    private static final String TOMBSTONE = "-";
+
+    private final DeviceRegistryProperties deviceRegistryProperties;
+    private final DeviceMapper deviceMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, DeviceRegistryEntry> localCache;
+    private RedisChannelSubscriber invalidateSubscriber;
+    private Counter redisHitCounter;
+    private Counter redisMissCounter;
+    private Counter redisErrorCounter;
+    private Counter redisTombstoneCounter;
+    private Counter databaseLoadCounter;
+
+    @PostConstruct
+    public void start() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(deviceRegistryProperties.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(deviceRegistryProperties.getLocalExpireMinutes()))
+                .recordStats()
+                .build();
+        // 本地缓存命中率：cache.gets{cache=device-registry, result=hit|miss}
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "device-registry");
+        redisHitCounter = redisCounter("hit");
+        redisMissCounter = redisCounter("miss");
+        redisErrorCounter = redisCounter("error");
+        redisTombstoneCounter = redisCounter("tombstone");
+        databaseLoadCounter = Counter.builder("iot.device.registry.db.loads")
+                .description("设备注册信息回源数据库的次数")
+                .register(meterRegistry);
+
+        if (!Boolean.TRUE.equals(deviceRegistryProperties.getEnabled())) {
+            log.info("设备注册信息缓存未启用");
+            return;
+        }
+        invalidateSubscriber = new RedisChannelSubscriber("registry-invalidate-subscriber", redisConnectionFactory,
+                deviceRegistryProperties.getInvalidateChannel(),
+                (message, pattern) -> localCache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                deviceRegistryProperties.getSubscribeRetryMs());
+        invalidateSubscriber.start();
+        log.info("设备注册信息缓存启动完成: localMaxSize={}, redisTtlMinutes={}",
+                deviceRegistryProperties.getLocalMaxSize(), deviceRegistryProperties.getRedisTtlMinutes());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (invalidateSubscriber != null) {
+            invalidateSubscriber.stop();
+        }
+    }
+
+    /**
+     * 获取设备注册信息
+     *
+     * @param deviceId 设备业务ID
+     * @return 注册信息，设备不存在时返回null（不存在的结果不缓存）
+     */
+    public DeviceRegistryEntry get(String deviceId) {
+        if (!Boolean.TRUE.equals(deviceRegistryProperties.getEnabled())) {
+            return loadFromDatabase(deviceId);
+        }
+        return localCache.get(deviceId, this::loadFromRedis);
+    }
+
+    /**
+     * 设备信息已修改或删除：当前事务提交后在Redis写入删除标记并清除所有节点的本地缓存，没有事务时立即清除
+     *
+     * @param deviceId 设备业务ID
+     */
+    public void invalidate(String deviceId) {
+        if (!Boolean.TRUE.equals(deviceRegistryProperties.getEnabled()) || deviceId == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            localCache.invalidate(deviceId);
+            try {
+                stringRedisTemplate.opsForValue().set(deviceRegistryProperties.getKeyPrefix() + deviceId, TOMBSTONE,
+                        Duration.ofSeconds(deviceRegistryProperties.getTombstoneSeconds()));
+                stringRedisTemplate.convertAndSend(deviceRegistryProperties.getInvalidateChannel(), deviceId);
+            } catch (Exception e) {
+                // 其他节点的本地缓存在localExpireMinutes后过期
+                log.error("清除设备注册信息缓存失败: deviceId={}", deviceId, e);
+            }
+        });
+    }
+
+    private DeviceRegistryEntry loadFromRedis(String deviceId) {
+        String key = deviceRegistryProperties.getKeyPrefix() + deviceId;
+        try {
+            String value = stringRedisTemplate.opsForValue().get(key);
+            if (TOMBSTONE.equals(value)) {
+                // 刚失效，直接回源数据库；回填会被标记挡住
+                redisTombstoneCounter.increment();
+                return loadFromDatabase(deviceId);
+            }
+            DeviceRegistryEntry entry = value == null ? null : DeviceRegistryEntry.decode(deviceId, value);
+            if (entry != null) {
+                redisHitCounter.increment();
+                return entry;
+            }
+            redisMissCounter.increment();
+        } catch (Exception e) {
+            // Redis不可用时直接回源数据库
+            redisErrorCounter.increment();
+            log.warn("读取设备注册信息缓存失败: deviceId={}, error={}", deviceId, e.getMessage());
+        }
+
+        DeviceRegistryEntry entry = loadFromDatabase(deviceId);
+        if (entry != null) {
+            try {
+                // 只在key不存在时写入：读数据库之后发生的修改已经写了删除标记，旧值不能覆盖它
+                stringRedisTemplate.opsForValue().setIfAbsent(key, entry.encode(),
+                        Duration.ofMinutes(deviceRegistryProperties.getRedisTtlMinutes()));
+            } catch (Exception e) {
+                log.warn("写入设备注册信息缓存失败: deviceId={}, error={}", deviceId, e.getMessage());
+            }
+        }
+        return entry;
+    }
+
+    private DeviceRegistryEntry loadFromDatabase(String deviceId) {
+        databaseLoadCounter.increment();
+        LambdaQueryWrapper<Device> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Device::getId, Device::getDeviceId, Device::getSecretKey, Device::getStatus,
+                        Device::getGroupId, Device::getOwnerId)
+                .eq(Device::getDeviceId, deviceId);
+        Device device = deviceMapper.selectOne(wrapper);
+        return device == null ? null : DeviceRegistryEntry.of(device);
+    }
+
+    private Counter redisCounter(String result) {
+        return Counter.builder("iot.device.registry.redis")
+                .description("设备注册信息Redis缓存的查询次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,93 @@
+package com.iot.vehicle.service.cache;
+
+import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.service.statistics.DeviceStatKey;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 设备注册信息缓存项：认证和上下线需要的最少字段
+ *
+ * 密钥只保存SHA-256摘要，缓存（包括Redis）中不出现明文密钥。
+ *
+ * @param id         设备主键
+ * @param deviceId   设备业务ID
+ * @param secretHash 密钥的SHA-256摘要（十六进制）
+ * @param status     设备状态
+ * @param groupId    分组ID
+ * @param ownerId    所有者ID
+ * @author dongxiang.wu
+ */
+public record DeviceRegistryEntry(Long id, String deviceId, String secretHash, Integer status,
+                                  Long groupId, Long ownerId) {
+
+    private static final char SEPARATOR = '|';
+
+    public static DeviceRegistryEntry of(Device device) {
+        return new DeviceRegistryEntry(device.getId(), device.getDeviceId(), hash(device.getSecretKey()),
+                device.getStatus(), device.getGroupId(), device.getOwnerId());
+    }
+
+    /**
+     * 校验密钥（按摘要比较，耗时与内容无关）
+     */
+    public boolean matchesSecret(String secretKey) {
+        if (secretKey == null || secretHash == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(hash(secretKey).getBytes(StandardCharsets.US_ASCII),
+                secretHash.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 设备在统计中的位置
+     */
+    public DeviceStatKey statKey(Integer onlineStatus) {
+        return new DeviceStatKey(groupId, ownerId, status, onlineStatus);
+    }
+
+    /**
+     * 编码为Redis中保存的字符串：id|status|groupId|ownerId|secretHash
+     */
+    String encode() {
+        return String.valueOf(id) + SEPARATOR + text(status) + SEPARATOR + text(groupId) + SEPARATOR
+                + text(ownerId) + SEPARATOR + text(secretHash);
+    }
+
+    /**
+     * 解码Redis中的字符串，格式不符时返回null（按未命中处理）
+     */
+    static DeviceRegistryEntry decode(String deviceId, String value) {
+        String[] parts = value.split("\\|", -1);
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            return new DeviceRegistryEntry(Long.valueOf(parts[0]), deviceId, parts[4].isEmpty() ? null : parts[4],
+                    parts[1].isEmpty() ? null : Integer.valueOf(parts[1]),
+                    parts[2].isEmpty() ? null : Long.valueOf(parts[2]),
+                    parts[3].isEmpty() ? null : Long.valueOf(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String hash(String secretKey) {
+        if (secretKey == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secretKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String text(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备数据冷归档配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-data.archive")
+public class ArchiveProperties {
+
+    /**
+     * 是否启用归档（启用后过期的原始数据分区由归档任务导出后再分离和删除，分区维护不再处理）
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 归档文件根目录
+     */
+    private String baseDir = "data/archive";
+
+    /**
+     * 每天的设备分桶数（每个分桶一个文件，修改后只影响之后归档的天）
+     */
+    private Integer bucketCount = 16;
+
+    /**
+     * 导出并分离后是否删除分区表
+     */
+    private Boolean dropAfterArchive = true;
+
+    /**
+     * 归档任务的执行时间（在分区维护之后）
+     */
+    private String cron = "0 40 0 * * ?";
+}
@@ -0,0 +1,74 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 设备变更流配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "change-feed")
+public class ChangeFeedProperties {
+
+    /**
+     * 是否发布设备变更流
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 消息流的存储方式
+     */
+    private Transport transport = Transport.REDIS;
+
+    /**
+     * Redis Stream的key
+     */
+    private String streamKey = "iot:device:changes";
+
+    /**
+     * 流的最大长度，超过后近似裁剪最旧的消息（决定可重放的范围）
+     */
+    private Long maxLen = 1_000_000L;
+
+    /**
+     * 刷写间隔（毫秒），窗口内同一设备的多次最新数据只发布最后一次
+     */
+    private Long flushIntervalMs = 500L;
+
+    /**
+     * 单次管道追加的最大消息数
+     */
+    private Integer batchSize = 500;
+
+    /**
+     * 发布失败时本地暂存的最大消息数，超过后丢弃最旧的消息
+     */
+    private Integer bufferCapacity = 200_000;
+
+    /**
+     * 启动时创建的消费组（从创建时的流末尾开始消费）
+     */
+    private List<String> consumerGroups = new ArrayList<>();
+
+    /**
+     * 消息流的存储方式
+     */
+    public enum Transport {
+        /**
+         * Redis Stream，多节点共享，消费者可以直接使用XREADGROUP
+         */
+        REDIS,
+
+        /**
+         * 进程内存，不依赖Redis，只能通过本服务的接口消费，重启后丢失
+         */
+        LOCAL
+    }
+}
@@ -0,0 +1,51 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备ID过滤器配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-filter")
+public class DeviceIdFilterProperties {
+
+    /**
+     * 是否启用，关闭后不拦截任何设备ID
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 第一层的容量（超过后自动扩容，取接近设备总数的值可以减少层数）
+     */
+    private Long initialCapacity = 1_000_000L;
+
+    /**
+     * 误判率（不存在的设备ID被放行的比例）
+     */
+    private Double falsePositiveRate = 0.001;
+
+    /**
+     * Redis中过滤器的key前缀
+     */
+    private String redisKey = "device:bloom";
+
+    /**
+     * 启动时写入Redis的批量大小
+     */
+    private Integer batchSize = 1000;
+
+    /**
+     * 加入Redis失败的设备ID重试间隔（毫秒）
+     */
+    private Long retryIntervalMs = 5000L;
+
+    /**
+     * 定时重建本地过滤器并补写Redis的cron表达式
+     */
+    private String rebuildCron = "0 20 3 * * ?";
+}
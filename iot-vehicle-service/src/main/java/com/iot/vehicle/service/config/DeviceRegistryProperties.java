@@ -0,0 +1,56 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备注册信息缓存配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-registry")
+public class DeviceRegistryProperties {
+
+    /**
+     * 是否启用缓存，关闭后每次直接查询数据库
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 本地缓存的最大设备数（超过后按W-TinyLFU淘汰）
+     */
+    private Long localMaxSize = 500_000L;
+
+    /**
+     * 本地缓存写入后的过期时间（分钟），作为丢失失效通知时的兜底
+     */
+    private Long localExpireMinutes = 10L;
+
+    /**
+     * Redis缓存的过期时间（分钟）
+     */
+    private Long redisTtlMinutes = 60L;
+
+    /**
+     * 失效后删除标记的保留时间（秒），需大于一次回源查询的最长耗时
+     */
+    private Long tombstoneSeconds = 30L;
+
+    /**
+     * Redis缓存key前缀
+     */
+    private String keyPrefix = "device:registry:";
+
+    /**
+     * 失效通知的发布订阅频道
+     */
+    private String invalidateChannel = "device:registry:invalidate";
+
+    /**
+     * 订阅失效通知失败后的重试间隔（毫秒）
+     */
+    private Long subscribeRetryMs = 5000L;
+}
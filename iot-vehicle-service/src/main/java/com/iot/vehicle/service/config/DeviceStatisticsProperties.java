@@ -0,0 +1,36 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备数量统计配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-statistics")
+public class DeviceStatisticsProperties {
+
+    /**
+     * 是否通过Redis发布订阅把本节点提交的变化同步到其他节点（关闭后其他节点只在定时校对时修正）
+     */
+    private Boolean broadcastEnabled = true;
+
+    /**
+     * 变化广播的发布订阅频道
+     */
+    private String changeChannel = "device:statistics:changes";
+
+    /**
+     * 批量发布变化的间隔（毫秒）
+     */
+    private Long broadcastIntervalMs = 200L;
+
+    /**
+     * 订阅失败后的重试间隔（毫秒）
+     */
+    private Long subscribeRetryMs = 5000L;
+}
@@ -0,0 +1,169 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 数据接入管道配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ingest")
+public class IngestProperties {
+
+    /**
+     * 执行器类型
+     */
+    private ExecutorType executor = ExecutorType.PLATFORM;
+
+    /**
+     * 工作线程数（同一设备的消息总是路由到同一个工作线程，保证顺序）
+     * VIRTUAL模式下运行时不支持虚拟线程时，作为回退线程池的大小
+     */
+    private Integer workerCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 每个工作线程的队列容量
+     */
+    private Integer queueCapacity = 4096;
+
+    /**
+     * VIRTUAL模式下的串行通道数（按设备ID哈希分配，同一通道内的消息顺序执行）
+     */
+    private Integer laneCount = 4096;
+
+    /**
+     * VIRTUAL模式下所有通道合计允许积压的最大消息数
+     */
+    private Integer maxPending = 65536;
+
+    /**
+     * 队列满时的背压策略
+     */
+    private BackpressurePolicy backpressure = BackpressurePolicy.BLOCK;
+
+    /**
+     * BLOCK策略下等待空位时的告警间隔（毫秒）；等待一直持续到有空位或停机，不丢弃消息
+     */
+    private Long offerTimeoutMs = 1000L;
+
+    /**
+     * 停机时等待队列排空的最长时间（毫秒）
+     */
+    private Long shutdownTimeoutMs = 10000L;
+
+    /**
+     * 历史数据批量写入配置
+     */
+    private Writer writer = new Writer();
+
+    /**
+     * 接入执行器类型
+     */
+    public enum ExecutorType {
+        /**
+         * 固定数量的平台线程，每个线程一个有界队列
+         */
+        PLATFORM,
+
+        /**
+         * 虚拟线程（需要Java 21+，不支持时回退到平台线程池），按设备哈希分配到串行通道
+         */
+        VIRTUAL
+    }
+
+    /**
+     * 背压策略
+     */
+    public enum BackpressurePolicy {
+        /**
+         * 阻塞MQTT回调线程直到有空位（停机时放弃），未确认的QoS1消息达到max-inflight后Broker停止投递
+         */
+        BLOCK,
+
+        /**
+         * 丢弃新到达的消息
+         */
+        DROP_NEWEST,
+
+        /**
+         * 丢弃队列中最旧的消息
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * 历史数据批量写入配置
+     */
+    @Data
+    public static class Writer {
+
+        /**
+         * 写入方式
+         */
+        private FlushMode flushMode = FlushMode.MULTI_ROW;
+
+        /**
+         * 单批最大行数，达到后立即刷写
+         */
+        private Integer batchSize = 500;
+
+        /**
+         * 最长刷写间隔（毫秒），未攒满一批时也按此间隔刷写
+         */
+        private Long flushIntervalMs = 200L;
+
+        /**
+         * 缓冲区容量，写满后阻塞生产者
+         */
+        private Integer bufferCapacity = 20000;
+
+        /**
+         * 数据库暂时不可用时重试队列的最大行数，写满后不再从缓冲区取数，背压传递给接入管道
+         */
+        private Integer retryCapacity = 100000;
+
+        /**
+         * 重试间隔（毫秒），连续失败时翻倍
+         */
+        private Long retryBackoffMs = 1000L;
+
+        /**
+         * 最大重试间隔（毫秒）
+         */
+        private Long retryMaxBackoffMs = 30000L;
+
+        /**
+         * 最新数据表合并刷写间隔（毫秒），窗口内同一设备只写入最新一条
+         */
+        private Long latestFlushIntervalMs = 500L;
+
+        /**
+         * 最新数据Redis缓存合并刷写间隔（毫秒）
+         */
+        private Long cacheFlushIntervalMs = 100L;
+    }
+
+    /**
+     * 历史数据写入方式
+     */
+    public enum FlushMode {
+        /**
+         * 单条多值INSERT语句
+         */
+        MULTI_ROW,
+
+        /**
+         * JDBC批处理（配合reWriteBatchedInserts=true由驱动改写为多值INSERT）
+         */
+        JDBC_BATCH,
+
+        /**
+         * PostgreSQL COPY协议
+         */
+        COPY
+    }
+}
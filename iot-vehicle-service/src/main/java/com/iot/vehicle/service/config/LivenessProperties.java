@@ -0,0 +1,41 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备存活检测配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-liveness")
+public class LivenessProperties {
+
+    /**
+     * 是否启用，关闭后只按设备主动上报的离线状态判断离线
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 超时时间（秒），这段时间内没有心跳和数据的设备判定为离线（一般取心跳间隔的3倍）
+     */
+    private Long timeoutSeconds = 180L;
+
+    /**
+     * 时间轮每格的时长（毫秒），即超时判定的精度
+     */
+    private Long tickMs = 1000L;
+
+    /**
+     * 时间轮的格子数（2的幂），一圈最好能覆盖超时时间
+     */
+    private Integer wheelSize = 512;
+
+    /**
+     * 启动时是否跟踪数据库中在线的设备（只适合单节点部署，多节点时各节点只收到部分设备的消息）
+     */
+    private Boolean seedOnStartup = false;
+}
@@ -0,0 +1,46 @@
+package com.iot.vehicle.service.config;
+
+import com.iot.vehicle.service.mqtt.MappedFilePersistence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
+import org.springframework.stereotype.Component;
+
+/**
+ * MQTT客户端工厂
+ *
+ * 按配置的持久化方式创建客户端，避免Paho默认在工作目录下为每个clientId创建持久化目录
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MqttClientFactory {
+
+    private final MqttProperties mqttProperties;
+
+    /**
+     * 创建客户端（未连接）
+     *
+     * @param clientId 客户端ID
+     * @return MQTT客户端
+     */
+    public MqttClient create(String clientId) throws MqttException {
+        MqttClientPersistence persistence = createPersistence();
+        log.info("创建MQTT客户端: clientId={}, persistence={}", clientId, mqttProperties.getPersistence());
+        return new MqttClient(mqttProperties.getBroker(), clientId, persistence);
+    }
+
+    private MqttClientPersistence createPersistence() {
+        return switch (mqttProperties.getPersistence()) {
+            case FILE -> new MqttDefaultFilePersistence(mqttProperties.getPersistenceDir());
+            case MMAP -> new MappedFilePersistence(mqttProperties.getPersistenceDir(), mqttProperties.getMmapInitialSize());
+            default -> new MemoryPersistence();
+        };
+    }
+}
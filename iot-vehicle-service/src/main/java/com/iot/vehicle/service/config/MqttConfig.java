@@ -19,6 +19,7 @@ import org.springframework.context.annotation.Configuration;
 public class MqttConfig {
 
     private final MqttProperties mqttProperties;
+    private final MqttClientFactory mqttClientFactory;
 
     @Bean
     public MqttConnectOptions mqttConnectOptions() {
@@ -52,10 +53,7 @@ public class MqttConfig {
     @Bean
     public MqttClient mqttClient(MqttConnectOptions mqttConnectOptions) {
         try {
-            MqttClient client = new MqttClient(
-                    mqttProperties.getBroker(),
-                    mqttProperties.getClientId()
-            );
+            MqttClient client = mqttClientFactory.create(mqttProperties.getClientId());
             
             // 连接到Broker
             client.connect(mqttConnectOptions);
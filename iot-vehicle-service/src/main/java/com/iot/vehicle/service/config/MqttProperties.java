@@ -53,5 +53,57 @@ public class MqttProperties {
      * 自动重连
      */
     private Boolean autoReconnect = true;
-}
 
+    /**
+     * 每个节点的消费者连接数（每个连接有独立的回调线程，消息统一进入接入管道）
+     */
+    private Integer consumerCount = 1;
+
+    /**
+     * 是否使用共享订阅（$share/{group}/topic），由Broker在所有节点的消费者之间分摊消息
+     *
+     * 需要Broker按发布者clientId分发（EMQX的hash_clientid策略），同一设备所有主题的消息才会投递给同一个消费者；
+     * 按主题分发（hash_topic）只能保证单个主题内有序，同一设备的状态、心跳、数据可能在不同节点上乱序处理
+     */
+    private Boolean sharedSubscription = true;
+
+    /**
+     * 共享订阅分组名
+     */
+    private String sharedGroup = "iot-vehicle";
+
+    /**
+     * QoS1/2在途消息的持久化方式
+     */
+    private PersistenceType persistence = PersistenceType.MEMORY;
+
+    /**
+     * 持久化目录（FILE、MMAP模式使用）
+     */
+    private String persistenceDir = "./data/mqtt";
+
+    /**
+     * 内存映射日志文件的初始大小（字节，MMAP模式使用）
+     */
+    private Integer mmapInitialSize = 4 * 1024 * 1024;
+
+    /**
+     * 持久化方式
+     */
+    public enum PersistenceType {
+        /**
+         * 内存持久化，进程重启后在途消息丢失
+         */
+        MEMORY,
+
+        /**
+         * Paho默认的文件持久化（每条消息一个文件）
+         */
+        FILE,
+
+        /**
+         * 内存映射追加写日志
+         */
+        MMAP
+    }
+}
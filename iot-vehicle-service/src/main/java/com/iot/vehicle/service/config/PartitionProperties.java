@@ -0,0 +1,66 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备数据分区配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-data.partition")
+public class PartitionProperties {
+
+    /**
+     * 是否启用分区自动维护
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 分区粒度（已存在的其他粒度分区会保留，只在未覆盖的范围创建新粒度的分区）
+     */
+    private PartitionInterval interval = PartitionInterval.MONTH;
+
+    /**
+     * 预建分区数量（当前分区之后）
+     */
+    private Integer premake = 3;
+
+    /**
+     * 保留的分区数量（当前分区之前，按分区粒度计），0表示永久保留
+     */
+    private Integer retention = 12;
+
+    /**
+     * 过期分区分离后是否删除（不删除时保留为普通表，便于归档）
+     */
+    private Boolean dropDetached = true;
+
+    /**
+     * 是否使用DETACH PARTITION CONCURRENTLY（PostgreSQL 14+，不阻塞读写）
+     */
+    private Boolean detachConcurrently = true;
+
+    /**
+     * 维护任务的执行时间
+     */
+    private String cron = "0 10 0 * * ?";
+
+    /**
+     * 分区粒度
+     */
+    public enum PartitionInterval {
+        /**
+         * 按天分区，分区名 tb_device_data_pYYYYMMDD
+         */
+        DAY,
+
+        /**
+         * 按月分区，分区名 tb_device_data_pYYYYMM
+         */
+        MONTH
+    }
+}
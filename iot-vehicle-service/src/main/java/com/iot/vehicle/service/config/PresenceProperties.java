@@ -0,0 +1,46 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备在线状态配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-presence")
+public class PresenceProperties {
+
+    /**
+     * 刷写间隔（毫秒），到期的状态变化和在线日志在刷写时批量写入
+     */
+    private Long flushIntervalMs = 1000L;
+
+    /**
+     * 上线防抖时间（毫秒），上线后保持这么久才写入
+     */
+    private Long onlineDebounceMs = 2000L;
+
+    /**
+     * 离线防抖时间（毫秒），离线后在这段时间内重新上线视为抖动，不写入状态
+     */
+    private Long offlineDebounceMs = 10_000L;
+
+    /**
+     * 单条语句的最大设备数
+     */
+    private Integer batchSize = 1000;
+
+    /**
+     * 是否记录在线日志（tb_device_online_log）
+     */
+    private Boolean logEnabled = true;
+
+    /**
+     * 在线日志写入失败时本地暂存的最大条数，超过后丢弃最旧的记录
+     */
+    private Integer logBufferCapacity = 100_000;
+}
@@ -0,0 +1,46 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 近期数据内存缓冲配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "recent-data")
+public class RecentDataProperties {
+
+    /**
+     * 是否启用近期数据缓冲
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 保留的时间窗口（分钟），建议60~360
+     */
+    private Integer windowMinutes = 60;
+
+    /**
+     * 堆外内存上限（MB），用满后新样本被丢弃，直到过期的块被回收
+     */
+    private Integer maxMemoryMb = 1024;
+
+    /**
+     * 每个压缩块的字节数（每个设备最后一个块平均有一半未使用，设备多时不宜过大）
+     */
+    private Integer blockBytes = 512;
+
+    /**
+     * 每次向操作系统申请的堆外内存大小（MB）
+     */
+    private Integer slabMb = 16;
+
+    /**
+     * 回收过期块的间隔（毫秒）
+     */
+    private Long sweepIntervalMs = 60000L;
+}
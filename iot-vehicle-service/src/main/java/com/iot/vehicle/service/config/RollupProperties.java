@@ -0,0 +1,61 @@
+package com.iot.vehicle.service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备数据降采样汇总配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "device-data.rollup")
+public class RollupProperties {
+
+    /**
+     * 是否启用汇总（关闭后接入时不再累加，补算任务和汇总表分区维护也不执行）
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 累加结果写入汇总表的间隔（毫秒）
+     */
+    private Long flushIntervalMs = 5000L;
+
+    /**
+     * 补算任务的执行时间
+     */
+    private String catchUpCron = "0 */10 * * * ?";
+
+    /**
+     * 补算任务重算的时间窗口（分钟），覆盖迟到数据的最大延迟
+     */
+    private Integer catchUpLookbackMinutes = 120;
+
+    /**
+     * 补算窗口的结束时间距当前时间的分钟数，最近的数据仍在接入中，由增量累加负责
+     */
+    private Integer catchUpSettleMinutes = 10;
+
+    /**
+     * 1分钟汇总表保留的月分区数，0表示永久保留
+     */
+    private Integer minuteRetention = 3;
+
+    /**
+     * 1小时汇总表保留的月分区数，0表示永久保留
+     */
+    private Integer hourRetention = 0;
+
+    /**
+     * 趋势查询默认的最大点数
+     */
+    private Integer defaultMaxPoints = 500;
+
+    /**
+     * 趋势查询允许的最大点数
+     */
+    private Integer maxPointsLimit = 5000;
+}
@@ -0,0 +1,14 @@
+package com.iot.vehicle.service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置
+ *
+ * @author dongxiang.wu
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,267 @@
+package com.iot.vehicle.service.feed;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.common.redis.stream.LocalMessageStream;
+import com.iot.vehicle.common.redis.stream.MessageStream;
+import com.iot.vehicle.common.redis.stream.RedisMessageStream;
+import com.iot.vehicle.service.config.ChangeFeedProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备变更流发布器
+ *
+ * 把设备最新状态的变化和上下线事件发布到消息流（默认Redis Stream），下游系统通过消费组订阅，
+ * 不再轮询最新数据表或Redis。接入线程只写内存，刷写线程按间隔批量追加：
+ * 同一设备在窗口内的多次最新数据只发布最后一条，上下线事件按发生顺序全部发布。
+ * 追加失败的消息暂存在本地，下次刷写时先重发（至少一次，消费者需要按消息ID或数据时间去重）。
+ *
+ * 消息字段（值为空的字段不写入）：
+ * t=消息类型（S最新状态 / ON上线 / OFF离线），d=设备ID，ts=数据时间或事件时间（毫秒时间戳），
+ * lat/lng=经纬度，spd=速度，dir=方向，rpm=转速，fuel=油量，temp=发动机温度，mil=里程
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceChangeFeed {
+
+    public static final String TYPE_STATE = "S";
+    public static final String TYPE_ONLINE = "ON";
+    public static final String TYPE_OFFLINE = "OFF";
+
+    private final ChangeFeedProperties changeFeedProperties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, DeviceData> pendingStates = new ConcurrentHashMap<>();
+    private final Queue<Map<String, String>> pendingEvents = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 追加失败、等待重发的消息，只由刷写线程访问
+     */
+    private final Deque<Map<String, String>> retryBuffer = new ArrayDeque<>();
+
+    private volatile MessageStream stream;
+    private ScheduledExecutorService scheduler;
+    private Counter publishedCounter;
+    private Counter failedCounter;
+    private Counter droppedCounter;
+    private Counter coalescedCounter;
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(changeFeedProperties.getEnabled())) {
+            log.info("设备变更流未启用");
+            return;
+        }
+        MessageStream messageStream = changeFeedProperties.getTransport() == ChangeFeedProperties.Transport.REDIS
+                ? new RedisMessageStream(stringRedisTemplate, changeFeedProperties.getStreamKey(),
+                        changeFeedProperties.getMaxLen())
+                : new LocalMessageStream(changeFeedProperties.getMaxLen());
+        for (String group : changeFeedProperties.getConsumerGroups()) {
+            try {
+                messageStream.createGroup(group, MessageStream.END);
+            } catch (Exception e) {
+                log.error("创建设备变更流消费组失败: group={}", group, e);
+            }
+        }
+
+        publishedCounter = Counter.builder("iot.feed.published")
+                .description("发布到设备变更流的消息数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("iot.feed.publish.failed")
+                .description("设备变更流追加失败的次数")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("iot.feed.dropped")
+                .description("本地暂存已满被丢弃的消息数")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("iot.feed.coalesced")
+                .description("刷写窗口内被合并掉的最新状态数")
+                .register(meterRegistry);
+        Gauge.builder("iot.feed.backlog", this, feed -> feed.pendingStates.size() + feed.pendingEvents.size())
+                .description("等待发布的消息数")
+                .register(meterRegistry);
+
+        stream = messageStream;
+        long interval = changeFeedProperties.getFlushIntervalMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-feed-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("设备变更流启动完成: transport={}, streamKey={}, maxLen={}", changeFeedProperties.getTransport(),
+                changeFeedProperties.getStreamKey(), changeFeedProperties.getMaxLen());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(changeFeedProperties.getFlushIntervalMs() * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        log.info("设备变更流已停止: unpublished={}", retryBuffer.size());
+    }
+
+    /**
+     * 提交一条最新数据，窗口内同一设备只保留数据时间最新的一条
+     *
+     * @param data 设备数据
+     */
+    public void offerState(DeviceData data) {
+        if (stream == null || data.getDataTime() == null) {
+            return;
+        }
+        pendingStates.merge(data.getDeviceId(), data, (current, incoming) -> {
+            coalescedCounter.increment();
+            return incoming.getDataTime().isBefore(current.getDataTime()) ? current : incoming;
+        });
+    }
+
+    /**
+     * 设备上线
+     */
+    public void onOnline(String deviceId, LocalDateTime time) {
+        offerEvent(TYPE_ONLINE, deviceId, time);
+    }
+
+    /**
+     * 设备离线
+     */
+    public void onOffline(String deviceId, LocalDateTime time) {
+        offerEvent(TYPE_OFFLINE, deviceId, time);
+    }
+
+    /**
+     * 变更流对应的消息流，供消费接口读取
+     */
+    public MessageStream stream() {
+        MessageStream current = stream;
+        if (current == null) {
+            throw new BusinessException("设备变更流未启用");
+        }
+        return current;
+    }
+
+    private void offerEvent(String type, String deviceId, LocalDateTime time) {
+        if (stream == null) {
+            return;
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("t", type);
+        fields.put("d", deviceId);
+        fields.put("ts", String.valueOf(toMillis(time)));
+        pendingEvents.add(fields);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("发布设备变更流失败", e);
+        }
+    }
+
+    /**
+     * 依次发布：上次失败的消息、上下线事件、合并后的最新状态
+     */
+    private void flush() {
+        List<Map<String, String>> batch = new ArrayList<>(retryBuffer);
+        retryBuffer.clear();
+        for (Map<String, String> event; (event = pendingEvents.poll()) != null; ) {
+            batch.add(event);
+        }
+        for (String deviceId : pendingStates.keySet()) {
+            DeviceData data = pendingStates.remove(deviceId);
+            if (data != null) {
+                batch.add(encodeState(data));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int batchSize = changeFeedProperties.getBatchSize();
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<Map<String, String>> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+            try {
+                stream.append(chunk);
+                publishedCounter.increment(chunk.size());
+            } catch (Exception e) {
+                failedCounter.increment();
+                keepForRetry(batch.subList(from, batch.size()));
+                log.warn("追加设备变更流失败，暂存后重试: pending={}, error={}", retryBuffer.size(), e.getMessage());
+                return;
+            }
+        }
+        log.debug("发布设备变更流: count={}", batch.size());
+    }
+
+    private void keepForRetry(List<Map<String, String>> unpublished) {
+        retryBuffer.addAll(unpublished);
+        int capacity = changeFeedProperties.getBufferCapacity();
+        while (retryBuffer.size() > capacity) {
+            retryBuffer.pollFirst();
+            droppedCounter.increment();
+        }
+    }
+
+    private static Map<String, String> encodeState(DeviceData data) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("t", TYPE_STATE);
+        fields.put("d", data.getDeviceId());
+        fields.put("ts", String.valueOf(toMillis(data.getDataTime())));
+        put(fields, "lat", data.getLatitude());
+        put(fields, "lng", data.getLongitude());
+        put(fields, "spd", data.getSpeed());
+        put(fields, "dir", data.getDirection());
+        put(fields, "rpm", data.getSpeedRpm());
+        put(fields, "fuel", data.getFuelLevel());
+        put(fields, "temp", data.getEngineTemp());
+        put(fields, "mil", data.getMileage());
+        return fields;
+    }
+
+    private static void put(Map<String, String> fields, String name, Object value) {
+        if (value != null) {
+            fields.put(name, value instanceof BigDecimal decimal ? decimal.stripTrailingZeros().toPlainString()
+                    : value.toString());
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
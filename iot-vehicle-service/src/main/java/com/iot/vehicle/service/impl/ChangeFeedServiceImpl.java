@@ -0,0 +1,125 @@
+package com.iot.vehicle.service.impl;
+
+import com.iot.vehicle.api.vo.ChangeFeedMessageVO;
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.common.core.result.ResultCode;
+import com.iot.vehicle.common.redis.stream.MessageStream;
+import com.iot.vehicle.common.redis.stream.StreamEntry;
+import com.iot.vehicle.service.feed.DeviceChangeFeed;
+import com.iot.vehicle.service.service.ChangeFeedService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 设备变更流消费服务实现
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChangeFeedServiceImpl implements ChangeFeedService {
+
+    private static final int DEFAULT_COUNT = 100;
+    private static final int MAX_COUNT = 1000;
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_.:-]{1,64}");
+    private static final Pattern ID_PATTERN = Pattern.compile("\\d+(-\\d+)?");
+
+    private final DeviceChangeFeed deviceChangeFeed;
+
+    /**
+     * 本节点已确认存在的消费组，避免每次读取都执行一次XGROUP CREATE
+     */
+    private final Set<String> knownGroups = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public List<ChangeFeedMessageVO> range(String afterId, Integer count) {
+        String from = afterId == null || afterId.isBlank() ? MessageStream.BEGINNING : checkId(afterId);
+        return toVO(deviceChangeFeed.stream().range(from, checkCount(count)));
+    }
+
+    @Override
+    public List<ChangeFeedMessageVO> read(String group, String consumer, Integer count, boolean pending) {
+        MessageStream stream = deviceChangeFeed.stream();
+        ensureGroup(stream, checkName(group, "消费组"));
+        checkName(consumer, "消费者");
+        List<StreamEntry> entries = pending
+                ? stream.readPending(group, consumer, checkCount(count))
+                : stream.readGroup(group, consumer, checkCount(count));
+        return toVO(entries);
+    }
+
+    @Override
+    public long ack(String group, List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        if (ids.size() > MAX_COUNT) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "单次最多确认" + MAX_COUNT + "条消息");
+        }
+        MessageStream stream = deviceChangeFeed.stream();
+        ensureGroup(stream, checkName(group, "消费组"));
+        ids.forEach(this::checkId);
+        return stream.ack(group, ids);
+    }
+
+    @Override
+    public void resetOffset(String group, String id) {
+        MessageStream stream = deviceChangeFeed.stream();
+        ensureGroup(stream, checkName(group, "消费组"));
+        stream.setGroupOffset(group, MessageStream.END.equals(id) ? id : checkId(id));
+        log.info("重置设备变更流消费组位置: group={}, id={}", group, id);
+    }
+
+    private void ensureGroup(MessageStream stream, String group) {
+        if (!knownGroups.contains(group)) {
+            stream.createGroup(group, MessageStream.END);
+            knownGroups.add(group);
+        }
+    }
+
+    private static String checkName(String name, String label) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, label + "名称只能包含字母、数字和_.:-，最长64个字符");
+        }
+        return name;
+    }
+
+    /**
+     * 校验具体的消息ID；$只对消费组位置有意义，XRANGE和XACK不接受
+     */
+    private String checkId(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "消息ID格式错误: " + id);
+        }
+        return id;
+    }
+
+    private static int checkCount(Integer count) {
+        if (count == null) {
+            return DEFAULT_COUNT;
+        }
+        if (count < 1 || count > MAX_COUNT) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "读取条数必须在1~" + MAX_COUNT + "之间");
+        }
+        return count;
+    }
+
+    private static List<ChangeFeedMessageVO> toVO(List<StreamEntry> entries) {
+        List<ChangeFeedMessageVO> result = new ArrayList<>(entries.size());
+        for (StreamEntry entry : entries) {
+            ChangeFeedMessageVO vo = new ChangeFeedMessageVO();
+            vo.setId(entry.id());
+            vo.setFields(entry.fields());
+            result.add(vo);
+        }
+        return result;
+    }
+}
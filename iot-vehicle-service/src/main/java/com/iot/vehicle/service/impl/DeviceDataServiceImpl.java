@@ -5,21 +5,49 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.iot.vehicle.api.dto.DeviceDataDTO;
 import com.iot.vehicle.api.entity.DeviceData;
 import com.iot.vehicle.api.entity.DeviceLatestData;
+import com.iot.vehicle.api.vo.DeviceRecentPointVO;
+import com.iot.vehicle.api.vo.DeviceTrackPointVO;
+import com.iot.vehicle.api.vo.DeviceTrendVO;
 import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.common.core.result.ResultCode;
+import com.iot.vehicle.common.mybatis.result.CursorPageResult;
+import com.iot.vehicle.common.mybatis.util.CursorUtil;
+import com.iot.vehicle.service.archive.DeviceDataArchiver;
+import com.iot.vehicle.service.config.RollupProperties;
+import com.iot.vehicle.service.feed.DeviceChangeFeed;
+import com.iot.vehicle.service.ingest.DeviceDataBatchWriter;
+import com.iot.vehicle.service.ingest.DeviceDataRecord;
+import com.iot.vehicle.service.ingest.LatestCacheWriter;
+import com.iot.vehicle.service.ingest.LatestDataCoalescer;
 import com.iot.vehicle.service.mapper.DeviceDataMapper;
+import com.iot.vehicle.service.mapper.DeviceDataRollupMapper;
 import com.iot.vehicle.service.mapper.DeviceLatestDataMapper;
+import com.iot.vehicle.service.partition.DevicePartitionManager;
+import com.iot.vehicle.service.recent.RecentDataBuffer;
+import com.iot.vehicle.service.rollup.RollupAccumulator;
+import com.iot.vehicle.service.rollup.RollupResolution;
 import com.iot.vehicle.service.service.DeviceDataService;
+import com.iot.vehicle.service.statistics.GroupStatisticsEngine;
+import com.iot.vehicle.service.track.TrackSimplifier;
+import com.iot.vehicle.service.track.TrackStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 设备数据服务实现
@@ -33,55 +61,128 @@ public class DeviceDataServiceImpl implements DeviceDataService {
 
     private final DeviceDataMapper deviceDataMapper;
     private final DeviceLatestDataMapper deviceLatestDataMapper;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, DeviceData> deviceDataRedisTemplate;
+    private final DeviceDataBatchWriter deviceDataBatchWriter;
+    private final LatestDataCoalescer latestDataCoalescer;
+    private final LatestCacheWriter latestCacheWriter;
+    private final RollupAccumulator rollupAccumulator;
+    private final DeviceDataRollupMapper deviceDataRollupMapper;
+    private final RollupProperties rollupProperties;
+    private final DeviceDataArchiver deviceDataArchiver;
+    private final RecentDataBuffer recentDataBuffer;
+    private final GroupStatisticsEngine groupStatisticsEngine;
+    private final DeviceChangeFeed deviceChangeFeed;
+    private final DevicePartitionManager devicePartitionManager;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Redis key前缀
      */
     private static final String LATEST_DATA_KEY_PREFIX = "device:latest:";
 
+    /**
+     * 允许设备时间超前服务器时间的最大毫秒数（超出的时间戳没有对应的分区可写）
+     */
+    private static final long MAX_CLOCK_SKEW_MS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * 回源查询历史数据时，在最新数据时间之前查找的时间窗口（小时）
+     */
+    private static final long LATEST_LOOKBACK_HOURS = 24;
+
+    /**
+     * 历史数据单次查询的最大时间范围（天）
+     */
+    private static final long MAX_HISTORY_DAYS = 7;
+
+    /**
+     * 历史数据游标分页的最大时间范围（天）
+     */
+    private static final long MAX_SCROLL_DAYS = 31;
+
+    /**
+     * 轨迹单次查询的最大时间范围（天）
+     */
+    private static final long MAX_TRACK_DAYS = 31;
+
+    /**
+     * 轨迹简化的默认容差和最大容差（米）
+     */
+    private static final double DEFAULT_TRACK_TOLERANCE = 5.0;
+    private static final double MAX_TRACK_TOLERANCE = 1000.0;
+
+    /**
+     * 轨迹简化的窗口大小（点数）
+     */
+    private static final int TRACK_WINDOW_SIZE = 4096;
+
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void saveDeviceData(String deviceId, DeviceDataDTO dataDTO) {
+        if (dataDTO == null) {
+            log.warn("数据验证失败: deviceId={}", deviceId);
+            return;
+        }
+        saveDeviceData(deviceId, toRecord(dataDTO));
+    }
+
+    @Override
+    public void saveDeviceData(String deviceId, DeviceDataRecord record) {
         // Day4: 数据验证
-        if (!validateData(dataDTO)) {
+        if (!validateData(record)) {
             log.warn("数据验证失败: deviceId={}", deviceId);
             return;
         }
 
         // Day4: 数据清洗
-        DeviceData deviceData = cleanAndConvert(deviceId, dataDTO);
+        DeviceData deviceData = cleanAndConvert(deviceId, record);
 
-        // Day5: 数据入库（历史数据表）
-        try {
-            deviceDataMapper.insert(deviceData);
-            log.debug("设备数据保存成功: deviceId={}", deviceId);
-        } catch (Exception e) {
-            log.error("设备数据保存失败: deviceId={}", deviceId, e);
-            throw new BusinessException("数据保存失败");
-        }
+        // Day5: 数据入库（历史数据表），交给批量写入器攒批写入
+        deviceDataBatchWriter.add(deviceData);
+
+        // 累加到1分钟/1小时汇总
+        rollupAccumulator.offer(deviceData);
+
+        // 写入近期数据内存缓冲
+        recentDataBuffer.offer(deviceData);
+
+        // 更新分组统计的最新数据摘要
+        groupStatisticsEngine.offer(deviceData);
 
         // 更新最新数据表（持久化最新数据）
         updateLatestDataTable(deviceId, deviceData);
 
+        // 发布到设备变更流
+        deviceChangeFeed.offerState(deviceData);
+
         // Day6: 更新Redis缓存（最新数据）
         cacheLatestData(deviceId, deviceData);
     }
 
     @Override
     public DeviceData getLatestData(String deviceId) {
-        // 先从Redis缓存获取
+        // 先取尚未刷入Redis的数据，再从Redis缓存获取
         String key = LATEST_DATA_KEY_PREFIX + deviceId;
-        DeviceData cachedData = (DeviceData) redisTemplate.opsForValue().get(key);
+        DeviceData pendingData = latestCacheWriter.peek(key);
+        if (pendingData != null) {
+            return pendingData;
+        }
+
+        DeviceData cachedData = deviceDataRedisTemplate.opsForValue().get(key);
         
         if (cachedData != null) {
             log.debug("从缓存获取最新数据: deviceId={}", deviceId);
             return cachedData;
         }
 
-        // 缓存未命中，从数据库查询
+        // 缓存未命中，先通过最新数据表（主键查询）确定数据时间，再按时间范围查询历史表，只扫描对应的分区
+        DeviceLatestData latest = deviceLatestDataMapper.selectById(deviceId);
+        if (latest == null) {
+            return null;
+        }
         LambdaQueryWrapper<DeviceData> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(DeviceData::getDeviceId, deviceId)
+               .le(DeviceData::getDataTime, latest.getDataTime())
+               .ge(DeviceData::getDataTime, latest.getDataTime().minusHours(LATEST_LOOKBACK_HOURS))
                .orderByDesc(DeviceData::getDataTime)
                .last("LIMIT 1");
         
@@ -96,176 +197,483 @@ public class DeviceDataServiceImpl implements DeviceDataService {
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void batchSaveDeviceData(List<DeviceData> dataList) {
         if (dataList == null || dataList.isEmpty()) {
             return;
         }
 
-        // 批量插入（MyBatis-Plus的批量插入）
-        for (DeviceData data : dataList) {
-            deviceDataMapper.insert(data);
+        // 超出已有分区范围的数据会导致整批写入失败，先剔除
+        dataList = dataList.stream()
+                .filter(data -> {
+                    boolean writable = data.getDataTime() != null && devicePartitionManager.isWritable(data.getDataTime());
+                    if (!writable) {
+                        log.warn("数据时间超出已有分区范围，丢弃: deviceId={}, dataTime={}",
+                                data.getDeviceId(), data.getDataTime());
+                    }
+                    return writable;
+                })
+                .toList();
+
+        // 按配置的写入方式一次性批量写入
+        deviceDataBatchWriter.writeNow(dataList);
+        for (DeviceData deviceData : dataList) {
+            rollupAccumulator.offer(deviceData);
+            recentDataBuffer.offer(deviceData);
+            groupStatisticsEngine.offer(deviceData);
         }
 
         log.info("批量保存设备数据: count={}", dataList.size());
     }
 
+    @Override
+    public DeviceTrendVO getTrend(String deviceId, LocalDateTime start, LocalDateTime end, Integer maxPoints) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "开始时间必须早于结束时间");
+        }
+        int points = maxPoints != null ? maxPoints : rollupProperties.getDefaultMaxPoints();
+        if (points < 1 || points > rollupProperties.getMaxPointsLimit()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR,
+                    "最大点数必须在1到" + rollupProperties.getMaxPointsLimit() + "之间");
+        }
+
+        // 1分钟表只保留minuteRetention个月分区，更早的范围只能从1小时表查询
+        Integer minuteRetention = rollupProperties.getMinuteRetention();
+        LocalDateTime minuteCutoff = minuteRetention == null || minuteRetention <= 0 ? null
+                : LocalDate.now().withDayOfMonth(1).minusMonths(minuteRetention).atStartOfDay();
+        RollupResolution resolution = RollupResolution.select(start, end, points, minuteCutoff);
+
+        DeviceTrendVO trend = new DeviceTrendVO();
+        trend.setDeviceId(deviceId);
+        trend.setSource(resolution.table());
+        trend.setResolutionSeconds(resolution.bucketSeconds());
+        trend.setPoints(deviceDataRollupMapper.selectTrend(resolution.table(), deviceId, start, end,
+                resolution.bucketSeconds()));
+        return trend;
+    }
+
+    @Override
+    public List<DeviceData> getHistoryData(String deviceId, LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "开始时间必须早于结束时间");
+        }
+        if (end.isAfter(start.plusDays(MAX_HISTORY_DAYS))) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "查询时间范围不能超过" + MAX_HISTORY_DAYS + "天");
+        }
+
+        // 逐天判断是否已归档，连续的未归档范围合并为一次数据库查询
+        List<DeviceData> result = new ArrayList<>();
+        LocalDateTime dbStart = null;
+        LocalDateTime cursor = start;
+        while (cursor.isBefore(end)) {
+            LocalDate day = cursor.toLocalDate();
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            if (dayEnd.isAfter(end)) {
+                dayEnd = end;
+            }
+            if (deviceDataArchiver.isArchived(day)) {
+                if (dbStart != null) {
+                    result.addAll(selectHistory(deviceId, dbStart, cursor));
+                    dbStart = null;
+                }
+                result.addAll(deviceDataArchiver.read(deviceId, day, cursor, dayEnd));
+            } else if (dbStart == null) {
+                dbStart = cursor;
+            }
+            cursor = dayEnd;
+        }
+        if (dbStart != null) {
+            result.addAll(selectHistory(deviceId, dbStart, end));
+        }
+        return result;
+    }
+
+    @Override
+    public CursorPageResult<DeviceData> getHistoryScroll(String deviceId, LocalDateTime start, LocalDateTime end,
+                                                         String cursor, Long size) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "开始时间必须早于结束时间");
+        }
+        if (end.isAfter(start.plusDays(MAX_SCROLL_DAYS))) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "查询时间范围不能超过" + MAX_SCROLL_DAYS + "天");
+        }
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        long pageSize = CursorUtil.getSize(size);
+        // 多取一行判断是否还有下一页
+        int limit = (int) pageSize + 1;
+
+        // 从游标所在的天开始，逐天读取直到取满一页
+        List<DeviceData> rows = new ArrayList<>(limit);
+        LocalDateTime dbStart = null;
+        LocalDateTime current = position == null || position.time().isBefore(start) ? start : position.time();
+        while (current.isBefore(end) && rows.size() < limit) {
+            LocalDate day = current.toLocalDate();
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            if (dayEnd.isAfter(end)) {
+                dayEnd = end;
+            }
+            if (deviceDataArchiver.isArchived(day)) {
+                if (dbStart != null) {
+                    rows.addAll(selectHistoryPage(deviceId, dbStart, current, position, limit - rows.size()));
+                    dbStart = null;
+                    if (rows.size() >= limit) {
+                        break;
+                    }
+                }
+                deviceDataArchiver.read(deviceId, day, current, dayEnd, row -> {
+                    if (rows.size() < limit && isAfter(row, position)) {
+                        rows.add(row);
+                    }
+                });
+            } else if (dbStart == null) {
+                dbStart = current;
+            }
+            current = dayEnd;
+        }
+        if (dbStart != null && rows.size() < limit) {
+            rows.addAll(selectHistoryPage(deviceId, dbStart, end, position, limit - rows.size()));
+        }
+
+        String nextCursor = null;
+        List<DeviceData> records = rows;
+        if (rows.size() > pageSize) {
+            records = rows.subList(0, (int) pageSize);
+            DeviceData last = records.get(records.size() - 1);
+            nextCursor = CursorUtil.encode(last.getDataTime(), last.getId() == null ? 0L : last.getId());
+        }
+        return CursorPageResult.of(records, pageSize, nextCursor);
+    }
+
+    @Override
+    public List<DeviceRecentPointVO> getRecentData(String deviceId, int minutes) {
+        int window = recentDataBuffer.windowMinutes();
+        if (window == 0) {
+            throw new BusinessException("近期数据缓冲未启用");
+        }
+        if (minutes < 1 || minutes > window) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "分钟数必须在1到" + window + "之间");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // 结束时间放宽到允许的时钟超前范围，设备时间略快于服务器时也能查到最新样本
+        return recentDataBuffer.query(deviceId, now.minusMinutes(minutes), now.plus(Duration.ofMillis(MAX_CLOCK_SKEW_MS)));
+    }
+
+    @Override
+    public TrackStream openTrack(String deviceId, LocalDateTime start, LocalDateTime end, Double tolerance) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "开始时间必须早于结束时间");
+        }
+        if (end.isAfter(start.plusDays(MAX_TRACK_DAYS))) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "轨迹查询时间范围不能超过" + MAX_TRACK_DAYS + "天");
+        }
+        double toleranceMeters = tolerance == null ? DEFAULT_TRACK_TOLERANCE : tolerance;
+        if (toleranceMeters < 0 || toleranceMeters > MAX_TRACK_TOLERANCE) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "容差必须在0到" + (int) MAX_TRACK_TOLERANCE + "米之间");
+        }
+
+        return consumer -> {
+            TrackSimplifier simplifier = new TrackSimplifier(toleranceMeters, TRACK_WINDOW_SIZE, consumer);
+            // 与历史查询相同：已归档的天读归档文件，连续的未归档范围合并为一次游标查询
+            LocalDateTime dbStart = null;
+            LocalDateTime cursor = start;
+            while (cursor.isBefore(end)) {
+                LocalDate day = cursor.toLocalDate();
+                LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+                if (dayEnd.isAfter(end)) {
+                    dayEnd = end;
+                }
+                if (deviceDataArchiver.isArchived(day)) {
+                    if (dbStart != null) {
+                        scanTrack(deviceId, dbStart, cursor, simplifier);
+                        dbStart = null;
+                    }
+                    deviceDataArchiver.read(deviceId, day, cursor, dayEnd, row -> {
+                        DeviceTrackPointVO point = toTrackPoint(row);
+                        if (point != null) {
+                            simplifier.accept(point);
+                        }
+                    });
+                } else if (dbStart == null) {
+                    dbStart = cursor;
+                }
+                cursor = dayEnd;
+            }
+            if (dbStart != null) {
+                scanTrack(deviceId, dbStart, end, simplifier);
+            }
+            simplifier.finish();
+            log.debug("轨迹查询完成: deviceId={}, rawPoints={}, points={}",
+                    deviceId, simplifier.getInputCount(), simplifier.getOutputCount());
+        };
+    }
+
     /**
-     * Day4: 验证数据
+     * 游标需要在事务内读取，否则MyBatis会在语句执行后立即关闭连接
      */
-    private boolean validateData(DeviceDataDTO dataDTO) {
-        if (dataDTO == null) {
-            return false;
+    private void scanTrack(String deviceId, LocalDateTime start, LocalDateTime end, TrackSimplifier simplifier) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<DeviceTrackPointVO> cursor = deviceDataMapper.scanTrack(deviceId, start, end)) {
+                cursor.forEach(simplifier::accept);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static DeviceTrackPointVO toTrackPoint(DeviceData data) {
+        if (data.getLatitude() == null || data.getLongitude() == null || Boolean.FALSE.equals(data.getGpsValid())) {
+            return null;
+        }
+        DeviceTrackPointVO point = new DeviceTrackPointVO();
+        point.setDataTime(data.getDataTime());
+        point.setLatitude(data.getLatitude().doubleValue());
+        point.setLongitude(data.getLongitude().doubleValue());
+        point.setSpeed(data.getSpeed() == null ? null : data.getSpeed().doubleValue());
+        point.setDirection(data.getDirection());
+        return point;
+    }
+
+    private List<DeviceData> selectHistoryPage(String deviceId, LocalDateTime start, LocalDateTime end,
+                                               CursorUtil.Position position, int limit) {
+        LambdaQueryWrapper<DeviceData> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(DeviceData::getDeviceId, deviceId)
+               .ge(DeviceData::getDataTime, start)
+               .lt(DeviceData::getDataTime, end);
+        if (position != null) {
+            wrapper.apply("(data_time, id) > ({0}, {1})", position.time(), position.id());
+        }
+        wrapper.orderByAsc(DeviceData::getDataTime)
+               .orderByAsc(DeviceData::getId)
+               .last("LIMIT " + limit);
+        return deviceDataMapper.selectList(wrapper);
+    }
+
+    /**
+     * 数据是否位于游标之后（按(数据时间, id)比较）
+     */
+    private static boolean isAfter(DeviceData row, CursorUtil.Position position) {
+        if (position == null) {
+            return true;
         }
+        int compare = row.getDataTime().compareTo(position.time());
+        return compare > 0 || (compare == 0 && row.getId() != null && row.getId() > position.id());
+    }
 
+    private List<DeviceData> selectHistory(String deviceId, LocalDateTime start, LocalDateTime end) {
+        LambdaQueryWrapper<DeviceData> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(DeviceData::getDeviceId, deviceId)
+               .ge(DeviceData::getDataTime, start)
+               .lt(DeviceData::getDataTime, end)
+               .orderByAsc(DeviceData::getDataTime);
+        return deviceDataMapper.selectList(wrapper);
+    }
+
+    /**
+     * Day4: 验证数据
+     */
+    private boolean validateData(DeviceDataRecord record) {
         // 验证时间戳
-        if (dataDTO.getTimestamp() == null || dataDTO.getTimestamp() <= 0) {
+        if (!record.has(DeviceDataRecord.TIMESTAMP) || record.getTimestamp() <= 0) {
             log.warn("时间戳无效");
             return false;
         }
+        if (record.getTimestamp() > System.currentTimeMillis() + MAX_CLOCK_SKEW_MS) {
+            log.warn("时间戳超前: {}", record.getTimestamp());
+            return false;
+        }
+        // 历史数据表没有DEFAULT分区，超出已有分区范围的数据无法写入（设备时钟错误或早于保留期）
+        if (!devicePartitionManager.isWritable(toDataTime(record.getTimestamp()))) {
+            log.warn("时间戳超出已有分区范围: {}", record.getTimestamp());
+            return false;
+        }
 
         // 验证GPS数据（如果有）
-        if (dataDTO.getGps() != null) {
-            DeviceDataDTO.GpsData gps = dataDTO.getGps();
-            
-            // 验证经纬度范围
-            if (gps.getLat() != null && (gps.getLat().doubleValue() < -90 || gps.getLat().doubleValue() > 90)) {
-                log.warn("纬度超出范围: {}", gps.getLat());
-                return false;
-            }
-            if (gps.getLng() != null && (gps.getLng().doubleValue() < -180 || gps.getLng().doubleValue() > 180)) {
-                log.warn("经度超出范围: {}", gps.getLng());
-                return false;
-            }
+        // 验证经纬度范围
+        if (record.has(DeviceDataRecord.LATITUDE) && (record.getLatitude() < -90 || record.getLatitude() > 90)) {
+            log.warn("纬度超出范围: {}", record.getLatitude());
+            return false;
+        }
+        if (record.has(DeviceDataRecord.LONGITUDE) && (record.getLongitude() < -180 || record.getLongitude() > 180)) {
+            log.warn("经度超出范围: {}", record.getLongitude());
+            return false;
+        }
 
-            // 验证速度范围（0-300 km/h）
-            if (gps.getSpeed() != null && (gps.getSpeed().doubleValue() < 0 || gps.getSpeed().doubleValue() > 300)) {
-                log.warn("速度超出合理范围: {}", gps.getSpeed());
-                return false;
-            }
+        // 验证速度范围（0-300 km/h）
+        if (record.has(DeviceDataRecord.SPEED) && (record.getSpeed() < 0 || record.getSpeed() > 300)) {
+            log.warn("速度超出合理范围: {}", record.getSpeed());
+            return false;
         }
 
         // 验证OBD数据（如果有）
-        if (dataDTO.getObd() != null) {
-            DeviceDataDTO.ObdData obd = dataDTO.getObd();
-            
-            // 验证转速范围（0-10000 RPM）
-            if (obd.getRpm() != null && (obd.getRpm() < 0 || obd.getRpm() > 10000)) {
-                log.warn("转速超出范围: {}", obd.getRpm());
-                return false;
-            }
+        // 验证转速范围（0-10000 RPM）
+        if (record.has(DeviceDataRecord.RPM) && (record.getRpm() < 0 || record.getRpm() > 10000)) {
+            log.warn("转速超出范围: {}", record.getRpm());
+            return false;
+        }
 
-            // 验证油量范围（0-100%）
-            if (obd.getFuelLevel() != null && (obd.getFuelLevel().doubleValue() < 0 || obd.getFuelLevel().doubleValue() > 100)) {
-                log.warn("油量超出范围: {}", obd.getFuelLevel());
-                return false;
-            }
+        // 验证油量范围（0-100%）
+        if (record.has(DeviceDataRecord.FUEL_LEVEL) && (record.getFuelLevel() < 0 || record.getFuelLevel() > 100)) {
+            log.warn("油量超出范围: {}", record.getFuelLevel());
+            return false;
         }
 
         return true;
     }
 
     /**
-     * Day4: 数据清洗和转换
+     * Day4: 数据清洗和转换（BigDecimal只在实体边界创建）
      */
-    private DeviceData cleanAndConvert(String deviceId, DeviceDataDTO dataDTO) {
+    private DeviceData cleanAndConvert(String deviceId, DeviceDataRecord record) {
         DeviceData deviceData = new DeviceData();
         
         // 设备ID和时间
         deviceData.setDeviceId(deviceId);
-        deviceData.setDataTime(LocalDateTime.ofInstant(
-                Instant.ofEpochMilli(dataDTO.getTimestamp()), 
-                ZoneId.systemDefault()));
+        deviceData.setDataTime(toDataTime(record.getTimestamp()));
 
         // GPS数据
-        if (dataDTO.getGps() != null) {
-            DeviceDataDTO.GpsData gps = dataDTO.getGps();
-            deviceData.setLatitude(gps.getLat());
-            deviceData.setLongitude(gps.getLng());
-            deviceData.setAltitude(gps.getAltitude());
-            deviceData.setSpeed(gps.getSpeed());
-            deviceData.setDirection(gps.getDirection());
-            deviceData.setGpsValid(gps.getValid() != null ? gps.getValid() : false);
-            deviceData.setSatelliteCount(gps.getSatellites());
+        if (record.has(DeviceDataRecord.GPS)) {
+            deviceData.setLatitude(decimal(record, DeviceDataRecord.LATITUDE, record.getLatitude()));
+            deviceData.setLongitude(decimal(record, DeviceDataRecord.LONGITUDE, record.getLongitude()));
+            deviceData.setAltitude(decimal(record, DeviceDataRecord.ALTITUDE, record.getAltitude()));
+            deviceData.setSpeed(decimal(record, DeviceDataRecord.SPEED, record.getSpeed()));
+            deviceData.setDirection(integer(record, DeviceDataRecord.DIRECTION, record.getDirection()));
+            deviceData.setGpsValid(record.has(DeviceDataRecord.GPS_VALID) && record.isGpsValid());
+            deviceData.setSatelliteCount(integer(record, DeviceDataRecord.SATELLITES, record.getSatellites()));
         }
 
         // OBD数据
-        if (dataDTO.getObd() != null) {
-            DeviceDataDTO.ObdData obd = dataDTO.getObd();
-            deviceData.setSpeedRpm(obd.getRpm());
-            deviceData.setFuelLevel(obd.getFuelLevel());
-            deviceData.setFuelConsumption(obd.getFuelConsumption());
-            deviceData.setEngineTemp(obd.getEngineTemp());
-            deviceData.setMileage(obd.getMileage());
-        }
+        deviceData.setSpeedRpm(integer(record, DeviceDataRecord.RPM, record.getRpm()));
+        deviceData.setFuelLevel(decimal(record, DeviceDataRecord.FUEL_LEVEL, record.getFuelLevel()));
+        deviceData.setFuelConsumption(decimal(record, DeviceDataRecord.FUEL_CONSUMPTION, record.getFuelConsumption()));
+        deviceData.setEngineTemp(integer(record, DeviceDataRecord.ENGINE_TEMP, record.getEngineTemp()));
+        deviceData.setMileage(decimal(record, DeviceDataRecord.MILEAGE, record.getMileage()));
 
         // 状态数据
-        if (dataDTO.getStatus() != null) {
-            DeviceDataDTO.StatusData status = dataDTO.getStatus();
-            deviceData.setBatteryVoltage(status.getBatteryVoltage());
-            deviceData.setSignalStrength(status.getSignalStrength());
-        }
+        deviceData.setBatteryVoltage(decimal(record, DeviceDataRecord.BATTERY_VOLTAGE, record.getBatteryVoltage()));
+        deviceData.setSignalStrength(integer(record, DeviceDataRecord.SIGNAL_STRENGTH, record.getSignalStrength()));
 
         // 数据状态默认为正常
         deviceData.setDataStatus(0);
 
-        // 保存原始数据（方便后续分析）
-        deviceData.setRawData(JSON.toJSONString(dataDTO));
+        // 保存原始数据（直接使用原始报文，保留未识别的字段，不再重新序列化）
+        if (record.getPayload() != null) {
+            deviceData.setRawData(new String(record.getPayload(), StandardCharsets.UTF_8));
+        }
 
         return deviceData;
     }
 
+    private static LocalDateTime toDataTime(long timestamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+
+    private static BigDecimal decimal(DeviceDataRecord record, int field, double value) {
+        return record.has(field) ? BigDecimal.valueOf(value) : null;
+    }
+
+    private static Integer integer(DeviceDataRecord record, int field, int value) {
+        return record.has(field) ? value : null;
+    }
+
     /**
-     * 更新最新数据表（使用UPSERT逻辑）
+     * DTO转换为记录（供非MQTT来源的调用方使用）
      */
-    private void updateLatestDataTable(String deviceId, DeviceData deviceData) {
-        try {
-            // 转换为最新数据实体
-            DeviceLatestData latestData = new DeviceLatestData();
-            latestData.setDeviceId(deviceId);
-            latestData.setDataTime(deviceData.getDataTime());
-            latestData.setLatitude(deviceData.getLatitude());
-            latestData.setLongitude(deviceData.getLongitude());
-            latestData.setSpeed(deviceData.getSpeed());
-            latestData.setDirection(deviceData.getDirection());
-            latestData.setGpsValid(deviceData.getGpsValid());
-            latestData.setSpeedRpm(deviceData.getSpeedRpm());
-            latestData.setFuelLevel(deviceData.getFuelLevel());
-            latestData.setEngineTemp(deviceData.getEngineTemp());
-            latestData.setBatteryVoltage(deviceData.getBatteryVoltage());
-            latestData.setMileage(deviceData.getMileage());
-            latestData.setSignalStrength(deviceData.getSignalStrength());
-            latestData.setUpdateTime(LocalDateTime.now());
-
-            // 检查是否已存在
-            DeviceLatestData existData = deviceLatestDataMapper.selectById(deviceId);
-            if (existData == null) {
-                // 新增
-                deviceLatestDataMapper.insert(latestData);
-            } else {
-                // 更新
-                deviceLatestDataMapper.updateById(latestData);
+    private DeviceDataRecord toRecord(DeviceDataDTO dataDTO) {
+        DeviceDataRecord record = new DeviceDataRecord();
+        if (dataDTO.getTimestamp() != null) {
+            record.setTimestamp(dataDTO.getTimestamp());
+        }
+
+        DeviceDataDTO.GpsData gps = dataDTO.getGps();
+        if (gps != null) {
+            record.mark(DeviceDataRecord.GPS);
+            if (gps.getLat() != null) {
+                record.setLatitude(gps.getLat().doubleValue());
+            }
+            if (gps.getLng() != null) {
+                record.setLongitude(gps.getLng().doubleValue());
+            }
+            if (gps.getAltitude() != null) {
+                record.setAltitude(gps.getAltitude().doubleValue());
+            }
+            if (gps.getSpeed() != null) {
+                record.setSpeed(gps.getSpeed().doubleValue());
+            }
+            if (gps.getDirection() != null) {
+                record.setDirection(gps.getDirection());
+            }
+            if (gps.getValid() != null) {
+                record.setGpsValid(gps.getValid());
+            }
+            if (gps.getSatellites() != null) {
+                record.setSatellites(gps.getSatellites());
+            }
+        }
+
+        DeviceDataDTO.ObdData obd = dataDTO.getObd();
+        if (obd != null) {
+            record.mark(DeviceDataRecord.OBD);
+            if (obd.getRpm() != null) {
+                record.setRpm(obd.getRpm());
+            }
+            if (obd.getFuelLevel() != null) {
+                record.setFuelLevel(obd.getFuelLevel().doubleValue());
+            }
+            if (obd.getFuelConsumption() != null) {
+                record.setFuelConsumption(obd.getFuelConsumption().doubleValue());
+            }
+            if (obd.getEngineTemp() != null) {
+                record.setEngineTemp(obd.getEngineTemp());
+            }
+            if (obd.getMileage() != null) {
+                record.setMileage(obd.getMileage().doubleValue());
             }
-            
-            log.debug("更新最新数据表成功: deviceId={}", deviceId);
-        } catch (Exception e) {
-            log.error("更新最新数据表失败: deviceId={}", deviceId, e);
-            // 更新失败不影响主流程
         }
+
+        DeviceDataDTO.StatusData status = dataDTO.getStatus();
+        if (status != null) {
+            record.mark(DeviceDataRecord.STATUS);
+            if (status.getBatteryVoltage() != null) {
+                record.setBatteryVoltage(status.getBatteryVoltage().doubleValue());
+            }
+            if (status.getSignalStrength() != null) {
+                record.setSignalStrength(status.getSignalStrength());
+            }
+        }
+
+        record.setPayload(JSON.toJSONBytes(dataDTO));
+        return record;
     }
 
     /**
-     * Day6: 缓存最新数据到Redis
+     * 更新最新数据表（合并后批量UPSERT）
+     */
+    private void updateLatestDataTable(String deviceId, DeviceData deviceData) {
+        // 转换为最新数据实体
+        DeviceLatestData latestData = new DeviceLatestData();
+        latestData.setDeviceId(deviceId);
+        latestData.setDataTime(deviceData.getDataTime());
+        latestData.setLatitude(deviceData.getLatitude());
+        latestData.setLongitude(deviceData.getLongitude());
+        latestData.setSpeed(deviceData.getSpeed());
+        latestData.setDirection(deviceData.getDirection());
+        latestData.setGpsValid(deviceData.getGpsValid());
+        latestData.setSpeedRpm(deviceData.getSpeedRpm());
+        latestData.setFuelLevel(deviceData.getFuelLevel());
+        latestData.setEngineTemp(deviceData.getEngineTemp());
+        latestData.setBatteryVoltage(deviceData.getBatteryVoltage());
+        latestData.setMileage(deviceData.getMileage());
+        latestData.setSignalStrength(deviceData.getSignalStrength());
+        latestData.setUpdateTime(LocalDateTime.now());
+
+        // 同一刷写窗口内的多条样本只会写入最新一条
+        latestDataCoalescer.offer(latestData);
+    }
+
+    /**
+     * Day6: 缓存最新数据到Redis（合并后通过管道批量写入）
      */
     private void cacheLatestData(String deviceId, DeviceData deviceData) {
-        try {
-            String key = LATEST_DATA_KEY_PREFIX + deviceId;
-            redisTemplate.opsForValue().set(key, deviceData, 24, TimeUnit.HOURS);
-            log.debug("缓存最新数据: deviceId={}", deviceId);
-        } catch (Exception e) {
-            log.error("缓存数据失败: deviceId={}", deviceId, e);
-            // 缓存失败不影响主流程
-        }
+        latestCacheWriter.offer(LATEST_DATA_KEY_PREFIX + deviceId, deviceData);
     }
 }
 
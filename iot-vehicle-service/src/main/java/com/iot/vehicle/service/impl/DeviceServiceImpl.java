@@ -5,21 +5,33 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.iot.vehicle.api.dto.CreateDeviceDTO;
 import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.api.vo.DeviceStatisticsVO;
 import com.iot.vehicle.api.vo.DeviceVO;
+import com.iot.vehicle.api.vo.GroupStatisticsVO;
 import com.iot.vehicle.common.core.enums.DeviceStatus;
 import com.iot.vehicle.common.core.enums.OnlineStatus;
 import com.iot.vehicle.common.core.exception.BusinessException;
 import com.iot.vehicle.common.core.result.ResultCode;
 import com.iot.vehicle.common.core.utils.DeviceIdUtil;
+import com.iot.vehicle.common.mybatis.result.CursorPageResult;
+import com.iot.vehicle.common.mybatis.util.CursorUtil;
+import com.iot.vehicle.service.cache.DeviceIdFilter;
+import com.iot.vehicle.service.cache.DeviceRegistryCache;
 import com.iot.vehicle.service.mapper.DeviceMapper;
+import com.iot.vehicle.service.mapper.TableStatisticsMapper;
 import com.iot.vehicle.service.service.DeviceService;
+import com.iot.vehicle.service.statistics.DeviceStatKey;
+import com.iot.vehicle.service.statistics.DeviceStatisticsEngine;
+import com.iot.vehicle.service.statistics.GroupStatisticsEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -33,6 +45,16 @@ import java.util.Map;
 public class DeviceServiceImpl implements DeviceService {
 
     private final DeviceMapper deviceMapper;
+    private final TableStatisticsMapper tableStatisticsMapper;
+    private final DeviceStatisticsEngine deviceStatisticsEngine;
+    private final GroupStatisticsEngine groupStatisticsEngine;
+    private final DeviceRegistryCache deviceRegistryCache;
+    private final DeviceIdFilter deviceIdFilter;
+
+    /**
+     * 设备表名（用于估算总数）
+     */
+    private static final String DEVICE_TABLE = "tb_device";
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -77,6 +99,8 @@ public class DeviceServiceImpl implements DeviceService {
         if (result <= 0) {
             throw new BusinessException("设备注册失败");
         }
+        deviceStatisticsEngine.onAdded(device.getDeviceId(), DeviceStatKey.of(device));
+        deviceIdFilter.add(device.getDeviceId());
 
         log.info("设备注册成功: deviceId={}, name={}", deviceId, createDeviceDTO.getDeviceName());
 
@@ -114,55 +138,104 @@ public class DeviceServiceImpl implements DeviceService {
     @Override
     public Page<DeviceVO> getDevicePage(Long current, Long size, String deviceName, 
                                         String deviceType, Long groupId, Integer status, Integer onlineStatus) {
-        // 构建查询条件
+        LambdaQueryWrapper<Device> wrapper = buildDeviceQuery(deviceName, deviceType, groupId, status, onlineStatus);
+
+        // 按创建时间倒序
+        wrapper.orderByDesc(Device::getCreateTime);
+
+        // 分页查询
+        Page<Device> page = new Page<>(current, size);
+        page = deviceMapper.selectPage(page, wrapper);
+
+        // 转换为VO
+        Page<DeviceVO> voPage = new Page<>();
+        voPage.setCurrent(page.getCurrent());
+        voPage.setSize(page.getSize());
+        voPage.setTotal(page.getTotal());
+        voPage.setRecords(page.getRecords().stream()
+                .map(this::convertToVO)
+                .toList());
+
+        return voPage;
+    }
+
+    @Override
+    public CursorPageResult<DeviceVO> getDeviceScroll(String cursor, Long size, String deviceName, String deviceType,
+                                                      Long groupId, Integer status, Integer onlineStatus,
+                                                      boolean withTotal) {
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        long pageSize = CursorUtil.getSize(size);
+
+        LambdaQueryWrapper<Device> wrapper = buildDeviceQuery(deviceName, deviceType, groupId, status, onlineStatus);
+        if (position != null) {
+            // 行值比较可以直接用(create_time DESC, id DESC)索引定位，不需要OFFSET
+            wrapper.apply("(create_time, id) < ({0}, {1})", position.time(), position.id());
+        }
+        // 多取一行判断是否还有下一页
+        wrapper.orderByDesc(Device::getCreateTime)
+               .orderByDesc(Device::getId)
+               .last("LIMIT " + (pageSize + 1));
+        List<Device> devices = deviceMapper.selectList(wrapper);
+
+        String nextCursor = null;
+        if (devices.size() > pageSize) {
+            devices = devices.subList(0, (int) pageSize);
+            Device last = devices.get(devices.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreateTime(), last.getId());
+        }
+        CursorPageResult<DeviceVO> result = CursorPageResult.of(
+                devices.stream().map(this::convertToVO).toList(), pageSize, nextCursor);
+
+        if (withTotal) {
+            boolean filtered = StrUtil.isNotBlank(deviceName) || StrUtil.isNotBlank(deviceType)
+                    || groupId != null || status != null || onlineStatus != null;
+            if (filtered) {
+                result.withTotal(deviceMapper.selectCount(
+                        buildDeviceQuery(deviceName, deviceType, groupId, status, onlineStatus)), false);
+            } else {
+                // 无筛选条件时按统计信息估算，避免每次滚动都全表COUNT
+                result.withTotal(tableStatisticsMapper.estimateRowCount(DEVICE_TABLE), true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 设备列表的筛选条件
+     */
+    private LambdaQueryWrapper<Device> buildDeviceQuery(String deviceName, String deviceType, Long groupId,
+                                                        Integer status, Integer onlineStatus) {
         LambdaQueryWrapper<Device> wrapper = new LambdaQueryWrapper<>();
-        
-        // 设备名称模糊查询
+
+        // 设备名称/ID/序列号模糊查询（嵌套括号，避免OR吞掉其他条件）
         if (StrUtil.isNotBlank(deviceName)) {
-            wrapper.like(Device::getDeviceName, deviceName)
-                   .or()
-                   .like(Device::getDeviceId, deviceName)
-                   .or()
-                   .like(Device::getDeviceSn, deviceName);
+            wrapper.and(w -> w.like(Device::getDeviceName, deviceName)
+                    .or()
+                    .like(Device::getDeviceId, deviceName)
+                    .or()
+                    .like(Device::getDeviceSn, deviceName));
         }
-        
+
         // 设备类型
         if (StrUtil.isNotBlank(deviceType)) {
             wrapper.eq(Device::getDeviceType, deviceType);
         }
-        
+
         // 分组ID
         if (groupId != null) {
             wrapper.eq(Device::getGroupId, groupId);
         }
-        
+
         // 设备状态
         if (status != null) {
             wrapper.eq(Device::getStatus, status);
         }
-        
+
         // 在线状态
         if (onlineStatus != null) {
             wrapper.eq(Device::getOnlineStatus, onlineStatus);
         }
-        
-        // 按创建时间倒序
-        wrapper.orderByDesc(Device::getCreateTime);
-
-        // 分页查询
-        Page<Device> page = new Page<>(current, size);
-        page = deviceMapper.selectPage(page, wrapper);
-
-        // 转换为VO
-        Page<DeviceVO> voPage = new Page<>();
-        voPage.setCurrent(page.getCurrent());
-        voPage.setSize(page.getSize());
-        voPage.setTotal(page.getTotal());
-        voPage.setRecords(page.getRecords().stream()
-                .map(this::convertToVO)
-                .toList());
-
-        return voPage;
+        return wrapper;
     }
 
     /**
@@ -221,6 +294,11 @@ public class DeviceServiceImpl implements DeviceService {
         if (result <= 0) {
             throw new BusinessException("更新设备失败");
         }
+        if (device.getGroupId() != null) {
+            DeviceStatKey before = DeviceStatKey.of(existDevice);
+            deviceStatisticsEngine.onMoved(existDevice.getDeviceId(), before, before.withGroupId(device.getGroupId()));
+        }
+        deviceRegistryCache.invalidate(existDevice.getDeviceId());
 
         log.info("更新设备信息: deviceId={}", id);
     }
@@ -228,11 +306,15 @@ public class DeviceServiceImpl implements DeviceService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void deleteDevice(Long id) {
+        Device existDevice = deviceMapper.selectById(id);
+
         // 逻辑删除
-        int result = deviceMapper.deleteById(id);
+        int result = existDevice == null ? 0 : deviceMapper.deleteById(id);
         if (result <= 0) {
             throw new BusinessException("删除设备失败");
         }
+        deviceStatisticsEngine.onRemoved(existDevice.getDeviceId(), DeviceStatKey.of(existDevice));
+        deviceRegistryCache.invalidate(existDevice.getDeviceId());
 
         log.info("删除设备: deviceId={}", id);
     }
@@ -244,8 +326,11 @@ public class DeviceServiceImpl implements DeviceService {
             throw new BusinessException("请选择要删除的设备");
         }
 
-        for (Long id : ids) {
-            deviceMapper.deleteById(id);
+        for (Device device : deviceMapper.selectBatchIds(Arrays.asList(ids))) {
+            if (deviceMapper.deleteById(device.getId()) > 0) {
+                deviceStatisticsEngine.onRemoved(device.getDeviceId(), DeviceStatKey.of(device));
+                deviceRegistryCache.invalidate(device.getDeviceId());
+            }
         }
 
         log.info("批量删除设备: count={}", ids.length);
@@ -254,6 +339,11 @@ public class DeviceServiceImpl implements DeviceService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void updateDeviceGroup(Long id, Long groupId) {
+        Device existDevice = deviceMapper.selectById(id);
+        if (existDevice == null) {
+            throw new BusinessException("修改设备分组失败");
+        }
+
         Device device = new Device();
         device.setId(id);
         device.setGroupId(groupId);
@@ -262,6 +352,9 @@ public class DeviceServiceImpl implements DeviceService {
         if (result <= 0) {
             throw new BusinessException("修改设备分组失败");
         }
+        DeviceStatKey before = DeviceStatKey.of(existDevice);
+        deviceStatisticsEngine.onMoved(existDevice.getDeviceId(), before, before.withGroupId(groupId));
+        deviceRegistryCache.invalidate(existDevice.getDeviceId());
 
         log.info("修改设备分组: deviceId={}, groupId={}", id, groupId);
     }
@@ -273,11 +366,15 @@ public class DeviceServiceImpl implements DeviceService {
             throw new BusinessException("请选择要移动的设备");
         }
 
-        for (Long id : ids) {
+        for (Device existDevice : deviceMapper.selectBatchIds(Arrays.asList(ids))) {
             Device device = new Device();
-            device.setId(id);
+            device.setId(existDevice.getId());
             device.setGroupId(groupId);
-            deviceMapper.updateById(device);
+            if (deviceMapper.updateById(device) > 0) {
+                DeviceStatKey before = DeviceStatKey.of(existDevice);
+                deviceStatisticsEngine.onMoved(existDevice.getDeviceId(), before, before.withGroupId(groupId));
+                deviceRegistryCache.invalidate(existDevice.getDeviceId());
+            }
         }
 
         log.info("批量修改设备分组: count={}, groupId={}", ids.length, groupId);
@@ -285,35 +382,31 @@ public class DeviceServiceImpl implements DeviceService {
 
     @Override
     public Map<String, Object> getDeviceStatistics() {
+        // 从内存计数读取，不再逐个状态COUNT
+        DeviceStatisticsVO statistics = deviceStatisticsEngine.getStatistics();
+
         Map<String, Object> stats = new HashMap<>();
-        
-        // 总设备数
-        Long totalCount = deviceMapper.selectCount(null);
-        
-        // 在线设备数
-        LambdaQueryWrapper<Device> onlineWrapper = new LambdaQueryWrapper<>();
-        onlineWrapper.eq(Device::getOnlineStatus, OnlineStatus.ONLINE.getCode());
-        Long onlineCount = deviceMapper.selectCount(onlineWrapper);
-        
-        // 离线设备数
-        Long offlineCount = totalCount - onlineCount;
-        
-        // 各状态设备数
-        Map<String, Long> statusCount = new HashMap<>();
-        for (DeviceStatus deviceStatus : DeviceStatus.values()) {
-            LambdaQueryWrapper<Device> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(Device::getStatus, deviceStatus.getCode());
-            Long count = deviceMapper.selectCount(wrapper);
-            statusCount.put(deviceStatus.getDesc(), count);
-        }
-        
-        stats.put("totalCount", totalCount);
-        stats.put("onlineCount", onlineCount);
-        stats.put("offlineCount", offlineCount);
-        stats.put("onlineRate", totalCount > 0 ? String.format("%.2f%%", onlineCount * 100.0 / totalCount) : "0%");
-        stats.put("statusCount", statusCount);
+        stats.put("totalCount", statistics.getTotalCount());
+        stats.put("onlineCount", statistics.getOnlineCount());
+        stats.put("offlineCount", statistics.getOfflineCount());
+        stats.put("onlineRate", statistics.getOnlineRate());
+        stats.put("statusCount", statistics.getStatusCount());
         
         return stats;
     }
-}
 
+    @Override
+    public List<DeviceStatisticsVO> getGroupStatistics() {
+        return deviceStatisticsEngine.getGroupStatistics();
+    }
+
+    @Override
+    public List<DeviceStatisticsVO> getOwnerStatistics() {
+        return deviceStatisticsEngine.getOwnerStatistics();
+    }
+
+    @Override
+    public List<GroupStatisticsVO> getGroupTreeStatistics(Long groupId) {
+        return groupStatisticsEngine.getStatistics(groupId);
+    }
+}
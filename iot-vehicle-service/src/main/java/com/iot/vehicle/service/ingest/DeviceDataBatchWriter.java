@@ -0,0 +1,443 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.mapper.DeviceDataMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备历史数据批量写入器
+ *
+ * 接入线程把清洗后的数据放入缓冲区，由独立的刷写线程按“N毫秒或M行”攒批后一次写入，
+ * 避免每条数据一次数据库往返。写入方式支持多值INSERT、JDBC批处理和COPY。
+ *
+ * 失败分两类处理：连接失败、超时等暂时性错误时整批进入有界重试队列，按退避间隔重试，
+ * 队列写满后刷写线程不再从缓冲区取数，缓冲区随之写满并阻塞接入管道；
+ * 其他错误视为批内有坏数据，逐条写入，只丢弃写不进去的行。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceDataBatchWriter {
+
+    /**
+     * 多值INSERT单条语句的最大行数（PostgreSQL单条语句最多65535个绑定参数，每行18个参数）
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String COPY_SQL = "COPY tb_device_data (device_id, data_time, latitude, longitude, altitude, "
+            + "speed, direction, gps_valid, satellite_count, speed_rpm, fuel_level, fuel_consumption, engine_temp, "
+            + "battery_voltage, mileage, signal_strength, data_status, raw_data) FROM STDIN WITH (FORMAT csv)";
+
+    private static final DateTimeFormatter COPY_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private final IngestProperties ingestProperties;
+    private final DeviceDataMapper deviceDataMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private BlockingQueue<DeviceData> buffer;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private DistributionSummary flushSizeSummary;
+    private Timer flushLatencyTimer;
+    private Counter flushFailedCounter;
+    private Counter retryCounter;
+
+    /**
+     * 因数据库暂时不可用而等待重试的批次，只由刷写线程访问
+     */
+    private final Deque<List<DeviceData>> retryQueue = new ArrayDeque<>();
+    private volatile int retryRows;
+    private long retryBackoffMs;
+    private long nextRetryNanos;
+
+    @PostConstruct
+    public void start() {
+        IngestProperties.Writer writer = ingestProperties.getWriter();
+        buffer = new ArrayBlockingQueue<>(Math.max(writer.getBatchSize(), writer.getBufferCapacity()));
+
+        String mode = writer.getFlushMode().name();
+        flushSizeSummary = DistributionSummary.builder("iot.writer.flush.size")
+                .description("每次刷写的行数")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        flushLatencyTimer = Timer.builder("iot.writer.flush.latency")
+                .description("每次刷写的耗时")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        flushFailedCounter = Counter.builder("iot.writer.flush.failed")
+                .description("写入失败被丢弃的行数")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        retryCounter = Counter.builder("iot.writer.retry")
+                .description("数据库暂时不可用而进入重试队列的行数")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        Gauge.builder("iot.writer.retry.pending", this, w -> w.retryRows)
+                .description("重试队列中等待写入的行数")
+                .register(meterRegistry);
+
+        running = true;
+        flusher = new Thread(this::runFlushLoop, "device-data-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("设备数据批量写入器启动完成: mode={}, batchSize={}, flushIntervalMs={}",
+                mode, writer.getBatchSize(), writer.getFlushIntervalMs());
+    }
+
+    /**
+     * 添加一条待写入数据，缓冲区满时阻塞调用方（背压传递给接入管道）
+     *
+     * @param data 设备数据
+     */
+    public void add(DeviceData data) {
+        try {
+            buffer.put(data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("写入缓冲区等待被中断，丢弃数据: deviceId={}", data.getDeviceId());
+        }
+    }
+
+    /**
+     * 立即同步写入一批数据（不经过缓冲区）
+     *
+     * @param dataList 数据列表
+     * @throws BusinessException 数据库暂时不可用，由调用方决定是否重试
+     */
+    public void writeNow(List<DeviceData> dataList) {
+        if (dataList == null || dataList.isEmpty()) {
+            return;
+        }
+        List<DeviceData> unwritten = flush(dataList);
+        if (!unwritten.isEmpty()) {
+            throw new BusinessException("数据库暂时不可用，未写入" + unwritten.size() + "条数据，请稍后重试");
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            flusher.join(ingestProperties.getShutdownTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!buffer.isEmpty() || retryRows > 0) {
+            log.warn("写入器停止时仍有未刷写数据: buffered={}, retrying={}", buffer.size(), retryRows);
+        }
+        log.info("设备数据批量写入器已停止");
+    }
+
+    private void runFlushLoop() {
+        IngestProperties.Writer writer = ingestProperties.getWriter();
+        int batchSize = writer.getBatchSize();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(writer.getFlushIntervalMs());
+        List<DeviceData> batch = new ArrayList<>(batchSize);
+
+        while (running || !buffer.isEmpty() || !retryQueue.isEmpty()) {
+            if (!retryQueue.isEmpty() && !drainRetryQueue()) {
+                if (!running) {
+                    // 停机时数据库仍不可用，不再等待
+                    break;
+                }
+                if (retryRows >= writer.getRetryCapacity()) {
+                    // 重试队列已满：不再取数，缓冲区写满后add()阻塞接入线程
+                    sleepUntilNextRetry();
+                    continue;
+                }
+            }
+
+            long deadline = System.nanoTime() + intervalNanos;
+            try {
+                // 攒批：直到凑满一批或到达刷写间隔
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    DeviceData next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                // 重试队列非空时数据库仍不可用，新批次直接排队，保持写入顺序
+                List<DeviceData> unwritten = retryQueue.isEmpty() ? flush(batch) : batch;
+                if (!unwritten.isEmpty()) {
+                    enqueueRetry(new ArrayList<>(unwritten));
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 按退避间隔依次重写重试队列中的批次，停机时不等待退避间隔
+     *
+     * @return 重试队列已清空返回true
+     */
+    private boolean drainRetryQueue() {
+        if (running && System.nanoTime() - nextRetryNanos < 0) {
+            return false;
+        }
+        while (!retryQueue.isEmpty()) {
+            List<DeviceData> head = retryQueue.peekFirst();
+            List<DeviceData> unwritten = flush(head);
+            retryQueue.pollFirst();
+            retryRows -= head.size();
+            if (!unwritten.isEmpty()) {
+                retryQueue.addFirst(new ArrayList<>(unwritten));
+                retryRows += unwritten.size();
+                IngestProperties.Writer writer = ingestProperties.getWriter();
+                retryBackoffMs = Math.min(Math.max(retryBackoffMs * 2, writer.getRetryBackoffMs()),
+                        writer.getRetryMaxBackoffMs());
+                nextRetryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryBackoffMs);
+                return false;
+            }
+        }
+        retryBackoffMs = 0;
+        log.info("数据库恢复，重试队列已写完");
+        return true;
+    }
+
+    private void enqueueRetry(List<DeviceData> unwritten) {
+        if (retryQueue.isEmpty()) {
+            retryBackoffMs = ingestProperties.getWriter().getRetryBackoffMs();
+            nextRetryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryBackoffMs);
+        }
+        retryQueue.addLast(unwritten);
+        retryRows += unwritten.size();
+        retryCounter.increment(unwritten.size());
+    }
+
+    private void sleepUntilNextRetry() {
+        long remaining = nextRetryNanos - System.nanoTime();
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * 写入一批数据
+     *
+     * @return 因数据库暂时不可用而没有写入的数据，全部写入（坏数据已丢弃）时返回空列表
+     */
+    private List<DeviceData> flush(List<DeviceData> batch) {
+        long start = System.nanoTime();
+        try {
+            switch (ingestProperties.getWriter().getFlushMode()) {
+                case JDBC_BATCH -> flushJdbcBatch(batch);
+                case COPY -> flushCopy(batch);
+                default -> flushMultiRow(batch);
+            }
+            log.debug("批量写入设备数据: count={}", batch.size());
+            return List.of();
+        } catch (Exception e) {
+            if (isTransient(e)) {
+                log.warn("数据库暂时不可用，数据进入重试队列: count={}, error={}", batch.size(), e.getMessage());
+                return batch;
+            }
+            log.error("批量写入设备数据失败，改为逐条写入: count={}", batch.size(), e);
+            return flushOneByOne(batch);
+        } finally {
+            flushSizeSummary.record(batch.size());
+            flushLatencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 多值INSERT，超过单条语句上限时分多条语句写入。所有语句在同一事务内提交，
+     * 中途失败时整批回滚，重试或逐条写入时不会重复插入已写入的分段
+     */
+    private void flushMultiRow(List<DeviceData> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < batch.size(); from += MAX_ROWS_PER_STATEMENT) {
+                int to = Math.min(from + MAX_ROWS_PER_STATEMENT, batch.size());
+                deviceDataMapper.insertBatch(batch.subList(from, to));
+            }
+        });
+    }
+
+    private void flushJdbcBatch(List<DeviceData> batch) {
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            DeviceDataMapper mapper = session.getMapper(DeviceDataMapper.class);
+            for (DeviceData data : batch) {
+                mapper.insertRow(data);
+            }
+            session.flushStatements();
+            session.commit();
+        }
+    }
+
+    private void flushCopy(List<DeviceData> batch) throws Exception {
+        StringBuilder csv = new StringBuilder(batch.size() * 256);
+        for (DeviceData data : batch) {
+            appendCsvRow(csv, data);
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            copyManager.copyIn(COPY_SQL, new StringReader(csv.toString()));
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 逐条写入，只丢弃本身有问题的行
+     *
+     * @return 数据库中途不可用时剩余未写入的数据
+     */
+    private List<DeviceData> flushOneByOne(List<DeviceData> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            DeviceData data = batch.get(i);
+            try {
+                deviceDataMapper.insertRow(data);
+            } catch (Exception e) {
+                if (isTransient(e)) {
+                    return batch.subList(i, batch.size());
+                }
+                flushFailedCounter.increment();
+                log.error("设备数据写入失败，丢弃: deviceId={}, dataTime={}", data.getDeviceId(), data.getDataTime(), e);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * 是否为暂时性错误（连接失败、超时、数据库停机等），重试可能成功；其余错误视为数据本身的问题
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                    || e instanceof DataAccessResourceFailureException || e instanceof SQLTransientException
+                    || e instanceof SQLRecoverableException || e instanceof SQLNonTransientConnectionException
+                    || e instanceof IOException) {
+                return true;
+            }
+            if (e instanceof SQLException sql && isTransientState(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 08xxx连接异常，53xxx资源不足，57P0x数据库停机，57014语句超时，40001/40P01序列化失败和死锁
+     */
+    private static boolean isTransientState(String state) {
+        return state != null && (state.startsWith("08") || state.startsWith("53") || state.startsWith("57P0")
+                || state.equals("57014") || state.equals("40001") || state.equals("40P01"));
+    }
+
+    private void appendCsvRow(StringBuilder csv, DeviceData data) {
+        appendCsvText(csv, data.getDeviceId()).append(',');
+        appendCsvValue(csv, data.getDataTime() == null ? null : COPY_TIME_FORMATTER.format(data.getDataTime())).append(',');
+        appendCsvValue(csv, data.getLatitude()).append(',');
+        appendCsvValue(csv, data.getLongitude()).append(',');
+        appendCsvValue(csv, data.getAltitude()).append(',');
+        appendCsvValue(csv, data.getSpeed()).append(',');
+        appendCsvValue(csv, data.getDirection()).append(',');
+        appendCsvValue(csv, data.getGpsValid()).append(',');
+        appendCsvValue(csv, data.getSatelliteCount()).append(',');
+        appendCsvValue(csv, data.getSpeedRpm()).append(',');
+        appendCsvValue(csv, data.getFuelLevel()).append(',');
+        appendCsvValue(csv, data.getFuelConsumption()).append(',');
+        appendCsvValue(csv, data.getEngineTemp()).append(',');
+        appendCsvValue(csv, data.getBatteryVoltage()).append(',');
+        appendCsvValue(csv, data.getMileage()).append(',');
+        appendCsvValue(csv, data.getSignalStrength()).append(',');
+        appendCsvValue(csv, data.getDataStatus()).append(',');
+        appendCsvText(csv, data.getRawData()).append('\n');
+    }
+
+    /**
+     * 追加非文本值，CSV格式下空字段表示NULL
+     */
+    private StringBuilder appendCsvValue(StringBuilder csv, Object value) {
+        if (value == null) {
+            return csv;
+        }
+        return value instanceof BigDecimal decimal ? csv.append(decimal.toPlainString()) : csv.append(value);
+    }
+
+    /**
+     * 追加文本值，统一加引号并转义双引号
+     */
+    private StringBuilder appendCsvText(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+}
@@ -0,0 +1,575 @@
+package com.iot.vehicle.service.ingest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 设备数据消息的流式解析器
+ *
+ * 直接在原始字节上扫描JSON，只把已知的gps/obd/status字段读入可复用的{@link DeviceDataRecord}，
+ * 不创建中间String、JSONObject和BigDecimal。未识别的字段跳过，完整内容通过原始字节保存到raw_data。
+ * 原始字节不经过重新序列化就写入jsonb列，所以跳过的值也按JSON语法完整校验（括号配对、数字格式、
+ * 转义序列），并拒绝PostgreSQL jsonb不接受的U+0000和不成对的代理项，避免一条坏消息导致整批写入失败。
+ * 实例持有解析状态，不是线程安全的，通过{@link #current()}取得当前线程可用的实例。
+ *
+ * @author dongxiang.wu
+ */
+public final class DeviceDataPayloadParser {
+
+    private static final byte[] K_TIMESTAMP = bytes("timestamp");
+    private static final byte[] K_GPS = bytes("gps");
+    private static final byte[] K_OBD = bytes("obd");
+    private static final byte[] K_STATUS = bytes("status");
+    private static final byte[] K_LAT = bytes("lat");
+    private static final byte[] K_LNG = bytes("lng");
+    private static final byte[] K_ALTITUDE = bytes("altitude");
+    private static final byte[] K_SPEED = bytes("speed");
+    private static final byte[] K_DIRECTION = bytes("direction");
+    private static final byte[] K_VALID = bytes("valid");
+    private static final byte[] K_SATELLITES = bytes("satellites");
+    private static final byte[] K_RPM = bytes("rpm");
+    private static final byte[] K_FUEL_LEVEL = bytes("fuelLevel");
+    private static final byte[] K_FUEL_CONSUMPTION = bytes("fuelConsumption");
+    private static final byte[] K_ENGINE_TEMP = bytes("engineTemp");
+    private static final byte[] K_MILEAGE = bytes("mileage");
+    private static final byte[] K_BATTERY_VOLTAGE = bytes("batteryVoltage");
+    private static final byte[] K_SIGNAL_STRENGTH = bytes("signalStrength");
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private static final int SECTION_ROOT = 0;
+    private static final int SECTION_GPS = 1;
+    private static final int SECTION_OBD = 2;
+    private static final int SECTION_STATUS = 3;
+
+    /**
+     * 跳过未知值时允许的最大嵌套深度
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * 平台工作线程各自持有的解析器
+     */
+    private static final ThreadLocal<DeviceDataPayloadParser> THREAD_PARSER =
+            ThreadLocal.withInitial(DeviceDataPayloadParser::new);
+
+    /**
+     * 执行器为当前排空任务绑定的解析器（虚拟线程模式下每个串行通道一个，优先于线程自己的实例）
+     */
+    private static final ThreadLocal<DeviceDataPayloadParser> BOUND_PARSER = new ThreadLocal<>();
+
+    private final DeviceDataRecord record = new DeviceDataRecord();
+
+    private byte[] buf;
+    private int pos;
+    private int keyStart;
+    private int keyLength;
+
+    /**
+     * 获取当前线程可用的解析器：执行器绑定了解析器时使用绑定的实例，否则使用线程自己的实例
+     *
+     * @return 解析器，只能在当前线程内使用
+     */
+    public static DeviceDataPayloadParser current() {
+        DeviceDataPayloadParser bound = BOUND_PARSER.get();
+        return bound != null ? bound : THREAD_PARSER.get();
+    }
+
+    /**
+     * 在当前线程上绑定解析器，直到{@link #unbind()}
+     */
+    static void bind(DeviceDataPayloadParser parser) {
+        BOUND_PARSER.set(parser);
+    }
+
+    static void unbind() {
+        BOUND_PARSER.remove();
+    }
+
+    /**
+     * 解析消息
+     *
+     * @param payload 原始消息字节
+     * @return 解析结果（解析器内部复用的实例，下次调用parse前有效）
+     * @throws IllegalArgumentException 消息不是合法的JSON对象
+     */
+    public DeviceDataRecord parse(byte[] payload) {
+        record.reset();
+        record.setPayload(payload);
+        buf = payload;
+        pos = 0;
+        try {
+            parseObject(SECTION_ROOT);
+            skipWhitespace();
+            if (pos != buf.length) {
+                throw error("对象结束后存在多余内容");
+            }
+            return record;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw error("消息不完整");
+        } finally {
+            buf = null;
+        }
+    }
+
+    private void parseObject(int section) {
+        expect('{');
+        skipWhitespace();
+        if (buf[pos] == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            readKey();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            parseField(section);
+            skipWhitespace();
+            byte b = buf[pos++];
+            if (b == '}') {
+                return;
+            }
+            if (b != ',') {
+                throw error("缺少','或'}'");
+            }
+        }
+    }
+
+    private void parseField(int section) {
+        if (isNull()) {
+            return;
+        }
+        switch (section) {
+            case SECTION_ROOT -> parseRootField();
+            case SECTION_GPS -> parseGpsField();
+            case SECTION_OBD -> parseObdField();
+            case SECTION_STATUS -> parseStatusField();
+            default -> skipValue();
+        }
+    }
+
+    private void parseRootField() {
+        if (keyIs(K_TIMESTAMP)) {
+            record.setTimestamp(readLong());
+        } else if (keyIs(K_GPS) && buf[pos] == '{') {
+            record.mark(DeviceDataRecord.GPS);
+            parseObject(SECTION_GPS);
+        } else if (keyIs(K_OBD) && buf[pos] == '{') {
+            record.mark(DeviceDataRecord.OBD);
+            parseObject(SECTION_OBD);
+        } else if (keyIs(K_STATUS) && buf[pos] == '{') {
+            record.mark(DeviceDataRecord.STATUS);
+            parseObject(SECTION_STATUS);
+        } else {
+            skipValue();
+        }
+    }
+
+    private void parseGpsField() {
+        if (keyIs(K_LAT)) {
+            record.setLatitude(readDouble());
+        } else if (keyIs(K_LNG)) {
+            record.setLongitude(readDouble());
+        } else if (keyIs(K_ALTITUDE)) {
+            record.setAltitude(readDouble());
+        } else if (keyIs(K_SPEED)) {
+            record.setSpeed(readDouble());
+        } else if (keyIs(K_DIRECTION)) {
+            record.setDirection((int) readLong());
+        } else if (keyIs(K_VALID)) {
+            record.setGpsValid(readBoolean());
+        } else if (keyIs(K_SATELLITES)) {
+            record.setSatellites((int) readLong());
+        } else {
+            skipValue();
+        }
+    }
+
+    private void parseObdField() {
+        if (keyIs(K_RPM)) {
+            record.setRpm((int) readLong());
+        } else if (keyIs(K_FUEL_LEVEL)) {
+            record.setFuelLevel(readDouble());
+        } else if (keyIs(K_FUEL_CONSUMPTION)) {
+            record.setFuelConsumption(readDouble());
+        } else if (keyIs(K_ENGINE_TEMP)) {
+            record.setEngineTemp((int) readLong());
+        } else if (keyIs(K_MILEAGE)) {
+            record.setMileage(readDouble());
+        } else {
+            skipValue();
+        }
+    }
+
+    private void parseStatusField() {
+        if (keyIs(K_BATTERY_VOLTAGE)) {
+            record.setBatteryVoltage(readDouble());
+        } else if (keyIs(K_SIGNAL_STRENGTH)) {
+            record.setSignalStrength((int) readLong());
+        } else {
+            skipValue();
+        }
+    }
+
+    // ==================== 基础读取 ====================
+
+    /**
+     * 读取key，只记录其在缓冲区中的位置
+     */
+    private void readKey() {
+        expect('"');
+        keyStart = pos;
+        boolean escaped = false;
+        while (true) {
+            byte b = buf[pos++];
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\') {
+                // 含转义字符的key不会是已知字段，记录为空key后按未知字段跳过
+                skipEscape();
+                escaped = true;
+            } else if ((b & 0xFF) < 0x20) {
+                throw error("字符串中存在未转义的控制字符");
+            }
+        }
+        keyLength = escaped ? 0 : pos - 1 - keyStart;
+    }
+
+    private boolean keyIs(byte[] key) {
+        if (keyLength != key.length) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (buf[keyStart + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNull() {
+        if (buf[pos] == 'n') {
+            expectLiteral("null");
+            return true;
+        }
+        return false;
+    }
+
+    private boolean readBoolean() {
+        byte b = buf[pos];
+        if (b == 't') {
+            expectLiteral("true");
+            return true;
+        }
+        if (b == 'f') {
+            expectLiteral("false");
+            return false;
+        }
+        if (b == '"') {
+            // 兼容"true"/"false"字符串
+            pos++;
+            boolean value = readBoolean();
+            expect('"');
+            return value;
+        }
+        throw error("期望布尔值");
+    }
+
+    /**
+     * 读取整数，遇到小数或指数时按浮点数读取后截断
+     */
+    private long readLong() {
+        boolean quoted = buf[pos] == '"';
+        if (quoted) {
+            pos++;
+        }
+        int start = pos;
+        boolean negative = buf[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (isDigit(buf[pos])) {
+            value = value * 10 + (buf[pos++] - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw error("期望数字");
+        }
+        if (digits > 1 && buf[pos - digits] == '0') {
+            throw error("数字不能以0开头");
+        }
+        byte b = buf[pos];
+        if (b == '.' || b == 'e' || b == 'E' || digits > 18) {
+            pos = start;
+            value = (long) readNumber();
+        } else if (negative) {
+            value = -value;
+        }
+        if (quoted) {
+            expect('"');
+        }
+        return value;
+    }
+
+    private double readDouble() {
+        boolean quoted = buf[pos] == '"';
+        if (quoted) {
+            pos++;
+        }
+        double value = readNumber();
+        if (quoted) {
+            expect('"');
+        }
+        return value;
+    }
+
+    /**
+     * 读取数字：有效位数不超过18位且无指数时直接用整数尾数除以10的幂得到结果，否则回退到Double.parseDouble
+     */
+    private double readNumber() {
+        int start = pos;
+        boolean negative = buf[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        while (isDigit(buf[pos])) {
+            mantissa = mantissa * 10 + (buf[pos++] - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw error("期望数字");
+        }
+        if (digits > 1 && buf[pos - digits] == '0') {
+            throw error("数字不能以0开头");
+        }
+        if (buf[pos] == '.') {
+            pos++;
+            while (isDigit(buf[pos])) {
+                mantissa = mantissa * 10 + (buf[pos++] - '0');
+                digits++;
+                fractionDigits++;
+            }
+            if (fractionDigits == 0) {
+                throw error("小数点后缺少数字");
+            }
+        }
+        byte b = buf[pos];
+        if (b == 'e' || b == 'E' || digits > 18) {
+            pos = start;
+            skipNumber();
+            return Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.US_ASCII));
+        }
+        double value = mantissa / POW10[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * 跳过任意JSON值，同时校验其语法
+     */
+    private void skipValue() {
+        skipValue(0);
+    }
+
+    private void skipValue(int depth) {
+        byte b = buf[pos];
+        switch (b) {
+            case '"' -> skipString();
+            case '{' -> skipObject(depth + 1);
+            case '[' -> skipArray(depth + 1);
+            case 't' -> expectLiteral("true");
+            case 'f' -> expectLiteral("false");
+            case 'n' -> expectLiteral("null");
+            default -> skipNumber();
+        }
+    }
+
+    private void skipObject(int depth) {
+        checkDepth(depth);
+        expect('{');
+        skipWhitespace();
+        if (buf[pos] == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            skipString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            skipValue(depth);
+            skipWhitespace();
+            byte b = buf[pos++];
+            if (b == '}') {
+                return;
+            }
+            if (b != ',') {
+                throw error("缺少','或'}'");
+            }
+        }
+    }
+
+    private void skipArray(int depth) {
+        checkDepth(depth);
+        expect('[');
+        skipWhitespace();
+        if (buf[pos] == ']') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            skipValue(depth);
+            skipWhitespace();
+            byte b = buf[pos++];
+            if (b == ']') {
+                return;
+            }
+            if (b != ',') {
+                throw error("缺少','或']'");
+            }
+        }
+    }
+
+    private void checkDepth(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw error("嵌套层数超过" + MAX_DEPTH);
+        }
+    }
+
+    private void skipString() {
+        expect('"');
+        while (true) {
+            byte b = buf[pos++];
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                skipEscape();
+            } else if ((b & 0xFF) < 0x20) {
+                throw error("字符串中存在未转义的控制字符");
+            }
+        }
+    }
+
+    /**
+     * 校验反斜杠之后的转义序列
+     */
+    private void skipEscape() {
+        byte b = buf[pos++];
+        switch (b) {
+            case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> {
+            }
+            case 'u' -> {
+                int code = readHex4();
+                if (code == 0) {
+                    throw error("不支持\\u0000");
+                }
+                if (Character.isLowSurrogate((char) code)) {
+                    throw error("不成对的代理项");
+                }
+                if (Character.isHighSurrogate((char) code)) {
+                    if (buf[pos++] != '\\' || buf[pos++] != 'u' || !Character.isLowSurrogate((char) readHex4())) {
+                        throw error("不成对的代理项");
+                    }
+                }
+            }
+            default -> throw error("非法的转义字符");
+        }
+    }
+
+    private int readHex4() {
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit((char) buf[pos++], 16);
+            if (digit < 0) {
+                throw error("非法的\\u转义");
+            }
+            code = code << 4 | digit;
+        }
+        return code;
+    }
+
+    /**
+     * 按JSON数字语法跳过：-?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+     */
+    private void skipNumber() {
+        if (buf[pos] == '-') {
+            pos++;
+        }
+        if (buf[pos] == '0') {
+            pos++;
+        } else if (isDigit(buf[pos])) {
+            skipDigits();
+        } else {
+            throw error("非法的值");
+        }
+        if (buf[pos] == '.') {
+            pos++;
+            skipDigits();
+        }
+        if (buf[pos] == 'e' || buf[pos] == 'E') {
+            pos++;
+            if (buf[pos] == '+' || buf[pos] == '-') {
+                pos++;
+            }
+            skipDigits();
+        }
+    }
+
+    private void skipDigits() {
+        if (!isDigit(buf[pos])) {
+            throw error("期望数字");
+        }
+        while (isDigit(buf[pos])) {
+            pos++;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < buf.length) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char c) {
+        if (buf[pos] != c) {
+            throw error("期望'" + c + "'");
+        }
+        pos++;
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (buf[pos++] != literal.charAt(i)) {
+                throw error("期望" + literal);
+            }
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("设备数据格式错误: " + message + ", position=" + pos);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
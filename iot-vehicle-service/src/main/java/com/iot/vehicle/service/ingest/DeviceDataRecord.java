@@ -0,0 +1,160 @@
+package com.iot.vehicle.service.ingest;
+
+import lombok.Getter;
+
+/**
+ * 设备上报数据的可复用原始类型记录
+ *
+ * 由{@link DeviceDataPayloadParser}直接从字节填充，每个工作线程复用同一个实例，
+ * 字段是否存在通过位图表示，避免为每个字段创建包装类型和BigDecimal对象。
+ *
+ * @author dongxiang.wu
+ */
+@Getter
+public final class DeviceDataRecord {
+
+    public static final int TIMESTAMP = 1;
+    public static final int LATITUDE = 1 << 1;
+    public static final int LONGITUDE = 1 << 2;
+    public static final int ALTITUDE = 1 << 3;
+    public static final int SPEED = 1 << 4;
+    public static final int DIRECTION = 1 << 5;
+    public static final int GPS_VALID = 1 << 6;
+    public static final int SATELLITES = 1 << 7;
+    public static final int RPM = 1 << 8;
+    public static final int FUEL_LEVEL = 1 << 9;
+    public static final int FUEL_CONSUMPTION = 1 << 10;
+    public static final int ENGINE_TEMP = 1 << 11;
+    public static final int MILEAGE = 1 << 12;
+    public static final int BATTERY_VOLTAGE = 1 << 13;
+    public static final int SIGNAL_STRENGTH = 1 << 14;
+
+    /**
+     * gps/obd/status对象是否出现
+     */
+    public static final int GPS = 1 << 20;
+    public static final int OBD = 1 << 21;
+    public static final int STATUS = 1 << 22;
+
+    private int present;
+
+    private long timestamp;
+
+    private double latitude;
+    private double longitude;
+    private double altitude;
+    private double speed;
+    private int direction;
+    private boolean gpsValid;
+    private int satellites;
+
+    private int rpm;
+    private double fuelLevel;
+    private double fuelConsumption;
+    private int engineTemp;
+    private double mileage;
+
+    private double batteryVoltage;
+    private int signalStrength;
+
+    /**
+     * 原始消息字节（用于raw_data，保留未识别的字段）
+     */
+    private byte[] payload;
+
+    /**
+     * 清空记录以便复用
+     */
+    public DeviceDataRecord reset() {
+        present = 0;
+        payload = null;
+        return this;
+    }
+
+    public boolean has(int field) {
+        return (present & field) != 0;
+    }
+
+    public void mark(int field) {
+        present |= field;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        present |= TIMESTAMP;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+        present |= LATITUDE;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+        present |= LONGITUDE;
+    }
+
+    public void setAltitude(double altitude) {
+        this.altitude = altitude;
+        present |= ALTITUDE;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+        present |= SPEED;
+    }
+
+    public void setDirection(int direction) {
+        this.direction = direction;
+        present |= DIRECTION;
+    }
+
+    public void setGpsValid(boolean gpsValid) {
+        this.gpsValid = gpsValid;
+        present |= GPS_VALID;
+    }
+
+    public void setSatellites(int satellites) {
+        this.satellites = satellites;
+        present |= SATELLITES;
+    }
+
+    public void setRpm(int rpm) {
+        this.rpm = rpm;
+        present |= RPM;
+    }
+
+    public void setFuelLevel(double fuelLevel) {
+        this.fuelLevel = fuelLevel;
+        present |= FUEL_LEVEL;
+    }
+
+    public void setFuelConsumption(double fuelConsumption) {
+        this.fuelConsumption = fuelConsumption;
+        present |= FUEL_CONSUMPTION;
+    }
+
+    public void setEngineTemp(int engineTemp) {
+        this.engineTemp = engineTemp;
+        present |= ENGINE_TEMP;
+    }
+
+    public void setMileage(double mileage) {
+        this.mileage = mileage;
+        present |= MILEAGE;
+    }
+
+    public void setBatteryVoltage(double batteryVoltage) {
+        this.batteryVoltage = batteryVoltage;
+        present |= BATTERY_VOLTAGE;
+    }
+
+    public void setSignalStrength(int signalStrength) {
+        this.signalStrength = signalStrength;
+        present |= SIGNAL_STRENGTH;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+}
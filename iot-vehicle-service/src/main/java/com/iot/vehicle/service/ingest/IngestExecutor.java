@@ -0,0 +1,33 @@
+package com.iot.vehicle.service.ingest;
+
+/**
+ * 接入执行器
+ *
+ * 负责把接入消息交给工作线程执行。laneKey相同（同一设备）的消息严格按提交顺序串行执行，
+ * 不同laneKey的消息可以并行执行。
+ *
+ * @author dongxiang.wu
+ */
+public interface IngestExecutor {
+
+    /**
+     * 提交消息（在MQTT回调线程中调用），按配置的背压策略处理积压
+     *
+     * @param laneKey 串行通道键（设备ID的哈希值）
+     * @param message 接入消息
+     * @return 是否被接受，false表示消息被丢弃
+     */
+    boolean submit(int laneKey, IngestMessage message);
+
+    /**
+     * 当前积压的消息总数
+     */
+    int backlog();
+
+    /**
+     * 停止执行器，在超时时间内尽量处理完已接受的消息
+     *
+     * @param timeoutMs 最长等待时间（毫秒）
+     */
+    void shutdown(long timeoutMs);
+}
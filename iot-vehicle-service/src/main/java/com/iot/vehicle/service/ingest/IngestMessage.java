@@ -0,0 +1,31 @@
+package com.iot.vehicle.service.ingest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 接入管道中的原始消息
+ *
+ * 只保存主题和原始字节，解析工作延后到工作线程中进行
+ *
+ * @author dongxiang.wu
+ */
+@Getter
+@RequiredArgsConstructor
+public class IngestMessage {
+
+    /**
+     * MQTT主题
+     */
+    private final String topic;
+
+    /**
+     * 原始消息内容
+     */
+    private final byte[] payload;
+
+    /**
+     * 入队时间（System.nanoTime），用于计算排队延迟
+     */
+    private final long enqueueNanos;
+}
@@ -0,0 +1,132 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.mqtt.MqttMessageDispatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据接入管道
+ *
+ * MQTT回调线程只负责入队，由接入执行器异步完成解析和持久化。
+ * 按设备ID哈希选择串行通道，保证同一设备的消息顺序处理，不同设备之间并行处理。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestPipeline {
+
+    private static final String METRIC_PREFIX = "iot.ingest";
+
+    private final IngestProperties ingestProperties;
+    private final MqttMessageDispatcher mqttMessageDispatcher;
+    private final MeterRegistry meterRegistry;
+
+    private IngestExecutor executor;
+    private volatile boolean running;
+
+    private Counter acceptedCounter;
+    private Counter droppedCounter;
+    private Timer lagTimer;
+
+    @PostConstruct
+    public void start() {
+        acceptedCounter = Counter.builder(METRIC_PREFIX + ".accepted")
+                .description("进入接入队列的消息数")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder(METRIC_PREFIX + ".dropped")
+                .description("因背压被丢弃的消息数")
+                .register(meterRegistry);
+        lagTimer = Timer.builder(METRIC_PREFIX + ".lag")
+                .description("消息从入队到开始处理的排队延迟")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        executor = switch (ingestProperties.getExecutor()) {
+            case VIRTUAL -> new VirtualThreadIngestExecutor(ingestProperties, this::process, droppedCounter, meterRegistry);
+            default -> new PlatformThreadIngestExecutor(ingestProperties, this::process, droppedCounter, meterRegistry);
+        };
+        running = true;
+        log.info("数据接入管道启动完成: executor={}, backpressure={}",
+                ingestProperties.getExecutor(), ingestProperties.getBackpressure());
+    }
+
+    /**
+     * 提交消息（在MQTT回调线程中调用）
+     *
+     * @param topic   主题
+     * @param payload 原始消息内容
+     * @return 是否入队成功
+     */
+    public boolean submit(String topic, byte[] payload) {
+        if (!running) {
+            droppedCounter.increment();
+            log.warn("接入管道已停止，丢弃消息: topic={}", topic);
+            return false;
+        }
+
+        IngestMessage message = new IngestMessage(topic, payload, System.nanoTime());
+        boolean accepted = executor.submit(deviceHash(topic), message);
+        if (accepted) {
+            acceptedCounter.increment();
+        } else {
+            droppedCounter.increment();
+            log.warn("接入队列已满，丢弃消息: topic={}", topic);
+        }
+        return accepted;
+    }
+
+    /**
+     * 当前积压的消息总数
+     */
+    public int backlog() {
+        return executor.backlog();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        executor.shutdown(ingestProperties.getShutdownTimeoutMs());
+        int remaining = backlog();
+        if (remaining > 0) {
+            log.warn("数据接入管道停止时仍有未处理消息: count={}", remaining);
+        }
+        log.info("数据接入管道已停止");
+    }
+
+    private void process(IngestMessage message) {
+        lagTimer.record(System.nanoTime() - message.getEnqueueNanos(), TimeUnit.NANOSECONDS);
+        try {
+            mqttMessageDispatcher.dispatch(message.getTopic(), message.getPayload());
+        } catch (Exception e) {
+            log.error("处理MQTT消息失败: topic={}", message.getTopic(), e);
+        }
+    }
+
+    /**
+     * 计算主题中设备ID的哈希值，作为串行通道键
+     * 主题格式：device/{deviceId}/messageType，直接对设备ID所在区间计算哈希，避免截取字符串
+     */
+    private static int deviceHash(String topic) {
+        int start = topic.indexOf('/') + 1;
+        int end = topic.indexOf('/', start);
+        if (end < 0) {
+            end = topic.length();
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + topic.charAt(i);
+        }
+        return hash;
+    }
+}
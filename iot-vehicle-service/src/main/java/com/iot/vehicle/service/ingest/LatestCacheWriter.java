@@ -0,0 +1,155 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.config.IngestProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备最新数据缓存写入器（Write-Behind）
+ *
+ * 接入线程只更新内存中的待写表，同一设备在窗口内的多次更新合并为一次，
+ * 刷写线程通过Lettuce管道一次往返写入整批key（SET EX）。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LatestCacheWriter {
+
+    /**
+     * 单次管道写入的最大key数量
+     */
+    private static final int MAX_KEYS_PER_PIPELINE = 1000;
+
+    /**
+     * 缓存过期时间（小时）
+     */
+    private static final long CACHE_TTL_HOURS = 24;
+
+    private final IngestProperties ingestProperties;
+    private final RedisTemplate<String, DeviceData> deviceDataRedisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, DeviceData> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private Counter coalescedCounter;
+    private DistributionSummary flushSizeSummary;
+
+    @PostConstruct
+    public void start() {
+        coalescedCounter = Counter.builder("iot.cache.coalesced")
+                .description("在刷写窗口内被合并掉的缓存写入次数")
+                .register(meterRegistry);
+        flushSizeSummary = DistributionSummary.builder("iot.cache.flush.size")
+                .description("每次管道写入的key数量")
+                .register(meterRegistry);
+
+        long interval = ingestProperties.getWriter().getCacheFlushIntervalMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "latest-cache-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("最新数据缓存写入器启动完成: flushIntervalMs={}", interval);
+    }
+
+    /**
+     * 提交一次缓存更新，窗口内同一key只保留数据时间最新的值
+     *
+     * @param key  缓存key
+     * @param data 最新数据
+     */
+    public void offer(String key, DeviceData data) {
+        pending.merge(key, data, (current, incoming) -> {
+            coalescedCounter.increment();
+            return incoming.getDataTime().isBefore(current.getDataTime()) ? current : incoming;
+        });
+    }
+
+    /**
+     * 获取尚未写入Redis的值（读路径优先使用，保证读到自己刚写入的数据）
+     *
+     * @param key 缓存key
+     * @return 待写入的值，不存在返回null
+     */
+    public DeviceData peek(String key) {
+        return pending.get(key);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(ingestProperties.getShutdownTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        log.info("最新数据缓存写入器已停止");
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("刷写最新数据缓存失败", e);
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // 写入成功后才从待写表移除：写入期间读路径仍能通过peek读到该值，不会回源数据库读到滞后的数据
+        List<Map.Entry<String, DeviceData>> batch = new ArrayList<>(pending.size());
+        pending.forEach((key, data) -> batch.add(Map.entry(key, data)));
+
+        for (int from = 0; from < batch.size(); from += MAX_KEYS_PER_PIPELINE) {
+            List<Map.Entry<String, DeviceData>> chunk =
+                    batch.subList(from, Math.min(from + MAX_KEYS_PER_PIPELINE, batch.size()));
+            try {
+                deviceDataRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Object execute(RedisOperations operations) throws DataAccessException {
+                        for (Map.Entry<String, DeviceData> entry : chunk) {
+                            operations.opsForValue().set(entry.getKey(), entry.getValue(), CACHE_TTL_HOURS, TimeUnit.HOURS);
+                        }
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                // 缓存失败不影响主流程，数据留在待写表中下个窗口重试
+                log.error("批量写入最新数据缓存失败: count={}", chunk.size(), e);
+                continue;
+            }
+            // 写入期间到达的新值不会被移除，留给下个窗口
+            chunk.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+        }
+        flushSizeSummary.record(batch.size());
+        log.debug("批量写入最新数据缓存: count={}", batch.size());
+    }
+}
@@ -0,0 +1,137 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.api.entity.DeviceLatestData;
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.mapper.DeviceLatestDataMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备最新数据合并写入器
+ *
+ * 每个刷写窗口内同一设备只保留数据时间最新的一条样本，窗口结束时通过一条UPSERT语句批量写入，
+ * 被覆盖的旧样本不再产生任何数据库写入。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LatestDataCoalescer {
+
+    /**
+     * 单条UPSERT语句的最大行数（每行14个参数，远低于PostgreSQL的65535个参数上限）
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 2000;
+
+    private final IngestProperties ingestProperties;
+    private final DeviceLatestDataMapper deviceLatestDataMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, DeviceLatestData> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private Counter coalescedCounter;
+    private DistributionSummary flushSizeSummary;
+
+    @PostConstruct
+    public void start() {
+        coalescedCounter = Counter.builder("iot.latest.coalesced")
+                .description("在刷写窗口内被新样本覆盖的最新数据条数")
+                .register(meterRegistry);
+        flushSizeSummary = DistributionSummary.builder("iot.latest.flush.size")
+                .description("每次UPSERT的设备数")
+                .register(meterRegistry);
+
+        long interval = ingestProperties.getWriter().getLatestFlushIntervalMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "latest-data-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("最新数据合并写入器启动完成: flushIntervalMs={}", interval);
+    }
+
+    /**
+     * 提交一条最新数据，窗口内只保留数据时间最新的样本
+     *
+     * @param latestData 最新数据
+     */
+    public void offer(DeviceLatestData latestData) {
+        pending.merge(latestData.getDeviceId(), latestData, (current, incoming) -> {
+            coalescedCounter.increment();
+            return incoming.getDataTime().isBefore(current.getDataTime()) ? current : incoming;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(ingestProperties.getShutdownTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        log.info("最新数据合并写入器已停止");
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("刷写最新数据失败", e);
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // 逐个取出当前窗口的数据，刷写期间到达的新样本留给下一个窗口
+        List<DeviceLatestData> batch = new ArrayList<>(pending.size());
+        for (String deviceId : pending.keySet()) {
+            DeviceLatestData latestData = pending.remove(deviceId);
+            if (latestData != null) {
+                batch.add(latestData);
+            }
+        }
+        // 按主键排序，保证多实例并发UPSERT时加锁顺序一致
+        batch.sort(Comparator.comparing(DeviceLatestData::getDeviceId));
+
+        for (int from = 0; from < batch.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<DeviceLatestData> chunk = batch.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, batch.size()));
+            try {
+                deviceLatestDataMapper.upsertBatch(chunk);
+            } catch (Exception e) {
+                log.error("批量更新最新数据表失败: count={}", chunk.size(), e);
+                // 放回未写入的数据，下个窗口重试（若已有更新的样本则以新样本为准）
+                chunk.forEach(this::requeue);
+            }
+        }
+        flushSizeSummary.record(batch.size());
+        log.debug("批量更新最新数据表: count={}", batch.size());
+    }
+
+    private void requeue(DeviceLatestData latestData) {
+        pending.merge(latestData.getDeviceId(), latestData,
+                (current, failed) -> failed.getDataTime().isBefore(current.getDataTime()) ? current : failed);
+    }
+}
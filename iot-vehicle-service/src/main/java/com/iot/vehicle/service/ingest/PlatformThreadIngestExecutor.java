@@ -0,0 +1,137 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.service.config.IngestProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 平台线程接入执行器
+ *
+ * 固定数量的工作线程，每个线程拥有独立的有界队列，按laneKey选择队列，保证同一设备的消息顺序处理。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+public class PlatformThreadIngestExecutor implements IngestExecutor {
+
+    private final IngestProperties ingestProperties;
+    private final Consumer<IngestMessage> handler;
+    private final Counter droppedCounter;
+
+    private final BlockingQueue<IngestMessage>[] queues;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    @SuppressWarnings("unchecked")
+    public PlatformThreadIngestExecutor(IngestProperties ingestProperties, Consumer<IngestMessage> handler,
+                                        Counter droppedCounter, MeterRegistry meterRegistry) {
+        this.ingestProperties = ingestProperties;
+        this.handler = handler;
+        this.droppedCounter = droppedCounter;
+
+        int workerCount = Math.max(1, ingestProperties.getWorkerCount());
+        int capacity = Math.max(1, ingestProperties.getQueueCapacity());
+        queues = new BlockingQueue[workerCount];
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<IngestMessage> queue = new ArrayBlockingQueue<>(capacity);
+            queues[i] = queue;
+            Gauge.builder("iot.ingest.queue.depth", queue, BlockingQueue::size)
+                    .description("接入队列当前积压的消息数")
+                    .tag("worker", String.valueOf(i))
+                    .register(meterRegistry);
+
+            Thread worker = new Thread(() -> drain(queue), "ingest-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers[i] = worker;
+        }
+        log.info("平台线程接入执行器启动完成: workerCount={}, queueCapacity={}", workerCount, capacity);
+    }
+
+    @Override
+    public boolean submit(int laneKey, IngestMessage message) {
+        BlockingQueue<IngestMessage> queue = queues[Math.floorMod(laneKey, queues.length)];
+        return switch (ingestProperties.getBackpressure()) {
+            case DROP_NEWEST -> queue.offer(message);
+            case DROP_OLDEST -> offerDropOldest(queue, message);
+            default -> offerBlocking(queue, message);
+        };
+    }
+
+    @Override
+    public int backlog() {
+        int total = 0;
+        for (BlockingQueue<IngestMessage> queue : queues) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    @Override
+    public void shutdown(long timeoutMs) {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Thread worker : workers) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            try {
+                worker.join(Math.max(1, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (worker.isAlive()) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    private void drain(BlockingQueue<IngestMessage> queue) {
+        while (running || !queue.isEmpty()) {
+            IngestMessage message;
+            try {
+                message = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (message != null) {
+                handler.accept(message);
+            }
+        }
+    }
+
+    /**
+     * 阻塞到队列有空位或执行器停止，回调线程不返回，Broker按max-inflight停止投递
+     */
+    private boolean offerBlocking(BlockingQueue<IngestMessage> queue, IngestMessage message) {
+        try {
+            while (running) {
+                if (queue.offer(message, ingestProperties.getOfferTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                log.warn("接入队列已满，回调线程等待中: topic={}, backlog={}", message.getTopic(), backlog());
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean offerDropOldest(BlockingQueue<IngestMessage> queue, IngestMessage message) {
+        while (!queue.offer(message)) {
+            if (queue.poll() != null) {
+                droppedCounter.increment();
+            }
+        }
+        return true;
+    }
+}
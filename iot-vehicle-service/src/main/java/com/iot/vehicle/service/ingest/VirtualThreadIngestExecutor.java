@@ -0,0 +1,226 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.service.config.IngestProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 虚拟线程接入执行器
+ *
+ * 消息按laneKey分配到固定数量的串行通道，通道有消息时才提交一个排空任务，
+ * 同一时刻每个通道最多一个任务在执行，因此同一设备的消息不会乱序，不同通道之间完全并行。
+ * 排空任务运行在虚拟线程上，阻塞在JDBC、Redis调用时只挂起虚拟线程，不占用载体线程。
+ *
+ * 项目以Java 17编译，虚拟线程执行器通过反射创建；运行时低于Java 21时回退到workerCount大小的平台线程池，
+ * 通道语义不变。每个排空任务都是新的虚拟线程，线程级的复用对象无法跨任务保留，
+ * 因此报文解析器由通道持有，排空期间绑定到当前线程（{@link DeviceDataPayloadParser#current()}）。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+public class VirtualThreadIngestExecutor implements IngestExecutor {
+
+    private final IngestProperties ingestProperties;
+    private final Consumer<IngestMessage> handler;
+    private final Counter droppedCounter;
+
+    private final Lane[] lanes;
+    private final Semaphore permits;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final AtomicInteger activeLanes = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public VirtualThreadIngestExecutor(IngestProperties ingestProperties, Consumer<IngestMessage> handler,
+                                       Counter droppedCounter, MeterRegistry meterRegistry) {
+        this.ingestProperties = ingestProperties;
+        this.handler = handler;
+        this.droppedCounter = droppedCounter;
+
+        int laneCount = Math.max(1, ingestProperties.getLaneCount());
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane();
+        }
+        maxPending = Math.max(1, ingestProperties.getMaxPending());
+        permits = new Semaphore(maxPending);
+
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        if (virtualExecutor != null) {
+            executor = virtualExecutor;
+            log.info("虚拟线程接入执行器启动完成: laneCount={}, maxPending={}", laneCount, maxPending);
+        } else {
+            int workerCount = Math.max(1, ingestProperties.getWorkerCount());
+            AtomicInteger index = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(workerCount, r -> {
+                Thread thread = new Thread(r, "ingest-lane-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.warn("当前运行时不支持虚拟线程，回退到平台线程池: java={}, workerCount={}, laneCount={}",
+                    Runtime.version(), workerCount, laneCount);
+        }
+
+        Gauge.builder("iot.ingest.queue.depth", this, VirtualThreadIngestExecutor::backlog)
+                .description("接入队列当前积压的消息数")
+                .tag("worker", "virtual")
+                .register(meterRegistry);
+        Gauge.builder("iot.ingest.lanes.active", activeLanes, AtomicInteger::get)
+                .description("正在执行排空任务的串行通道数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean submit(int laneKey, IngestMessage message) {
+        Lane lane = lanes[Math.floorMod(laneKey, lanes.length)];
+        if (!acquire(lane)) {
+            return false;
+        }
+        lane.queue.offer(message);
+        schedule(lane);
+        return true;
+    }
+
+    @Override
+    public int backlog() {
+        return maxPending - permits.availablePermits();
+    }
+
+    @Override
+    public void shutdown(long timeoutMs) {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 获取积压名额
+     */
+    private boolean acquire(Lane lane) {
+        return switch (ingestProperties.getBackpressure()) {
+            case DROP_NEWEST -> permits.tryAcquire();
+            case DROP_OLDEST -> acquireDropOldest(lane);
+            default -> acquireBlocking();
+        };
+    }
+
+    /**
+     * 阻塞到有积压名额或执行器停止，回调线程不返回，Broker按max-inflight停止投递
+     */
+    private boolean acquireBlocking() {
+        try {
+            while (running) {
+                if (permits.tryAcquire(ingestProperties.getOfferTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                log.warn("接入积压已满，回调线程等待中: backlog={}", backlog());
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 名额用尽时丢弃本通道最旧的消息并复用其名额，本通道为空时丢弃新消息
+     */
+    private boolean acquireDropOldest(Lane lane) {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (lane.queue.poll() != null) {
+            droppedCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void schedule(Lane lane) {
+        if (!lane.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(lane));
+        } catch (RejectedExecutionException e) {
+            lane.scheduled.set(false);
+            log.warn("接入执行器已停止，通道中的消息未处理: count={}", lane.queue.size());
+        }
+    }
+
+    /**
+     * 排空通道，退出前再次检查队列，避免与提交方的竞争导致消息滞留
+     */
+    private void drain(Lane lane) {
+        activeLanes.incrementAndGet();
+        DeviceDataPayloadParser.bind(lane.parser());
+        try {
+            do {
+                IngestMessage message;
+                while ((message = lane.queue.poll()) != null) {
+                    permits.release();
+                    try {
+                        handler.accept(message);
+                    } catch (RuntimeException e) {
+                        log.error("处理接入消息失败: topic={}", message.getTopic(), e);
+                    }
+                }
+                lane.scheduled.set(false);
+            } while (!lane.queue.isEmpty() && lane.scheduled.compareAndSet(false, true));
+        } finally {
+            DeviceDataPayloadParser.unbind();
+            activeLanes.decrementAndGet();
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器（Executors.newVirtualThreadPerTaskExecutor，Java 21+）
+     *
+     * @return 执行器，运行时不支持时返回null
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class Lane {
+
+        private final Queue<IngestMessage> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * 通道的报文解析器，同一时刻只有一个排空任务使用，首次排空时创建
+         */
+        private DeviceDataPayloadParser parser;
+
+        private DeviceDataPayloadParser parser() {
+            if (parser == null) {
+                parser = new DeviceDataPayloadParser();
+            }
+            return parser;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.iot.vehicle.service.liveness;
+
+import com.iot.vehicle.common.core.enums.OnlineStatus;
+import com.iot.vehicle.service.cache.DeviceIdFilter;
+import com.iot.vehicle.service.cache.DeviceRegistryCache;
+import com.iot.vehicle.service.config.LivenessProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import com.iot.vehicle.service.mqtt.DeviceAuthService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备存活检测
+ *
+ * 心跳和数据消息刷新设备在时间轮（{@link TimingWheel}）中的截止时间，超时未刷新的设备按主动离线处理
+ * （{@link DeviceAuthService#deviceOffline}），断电等无法上报离线状态的设备也能及时离线。
+ * 不在跟踪中（超时、离线后或第一次出现）的设备再次收到消息时重新上线；这类设备先经过设备ID过滤器和注册信息确认存在，
+ * 伪造或随机的设备ID不占用时间轮槽位。只跟踪本节点收到消息的设备：多节点共享订阅时，
+ * Broker需要按发布者clientId把同一设备的数据、心跳、状态消息固定分给一个节点（EMQX的hash_clientid策略，
+ * 设备以deviceId作为clientId连接）；hash_topic按完整主题哈希，同一设备的不同主题会落到不同节点，
+ * 只收到状态消息的节点会把仍在上报数据的设备误判离线。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceLivenessTracker {
+
+    private final LivenessProperties livenessProperties;
+    private final DeviceAuthService deviceAuthService;
+    private final DeviceIdFilter deviceIdFilter;
+    private final DeviceRegistryCache deviceRegistryCache;
+    private final DeviceMapper deviceMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private volatile TimingWheel wheel;
+    private ScheduledExecutorService scheduler;
+    private Counter expiredCounter;
+    private Counter revivedCounter;
+    private Counter unknownCounter;
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(livenessProperties.getEnabled())) {
+            log.info("设备存活检测未启用");
+            return;
+        }
+        TimingWheel timingWheel = new TimingWheel(livenessProperties.getTickMs(), livenessProperties.getWheelSize(),
+                TimeUnit.SECONDS.toMillis(livenessProperties.getTimeoutSeconds()), System.currentTimeMillis());
+        expiredCounter = Counter.builder("iot.liveness.expired")
+                .description("超时未收到心跳和数据而判定离线的设备数")
+                .register(meterRegistry);
+        revivedCounter = Counter.builder("iot.liveness.revived")
+                .description("不在跟踪中时收到消息而重新上线的设备数")
+                .register(meterRegistry);
+        unknownCounter = Counter.builder("iot.liveness.unknown")
+                .description("设备不存在、未分配槽位的消息数")
+                .register(meterRegistry);
+        Gauge.builder("iot.liveness.tracked", timingWheel, TimingWheel::tracked)
+                .description("正在跟踪的设备数")
+                .register(meterRegistry);
+
+        if (Boolean.TRUE.equals(livenessProperties.getSeedOnStartup())) {
+            seed(timingWheel);
+        }
+        wheel = timingWheel;
+
+        long tickMs = livenessProperties.getTickMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "liveness-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tickSafely, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("设备存活检测启动完成: timeoutSeconds={}, tickMs={}, wheelSize={}, tracked={}",
+                livenessProperties.getTimeoutSeconds(), tickMs, livenessProperties.getWheelSize(), timingWheel.tracked());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 收到设备的心跳或数据：刷新截止时间，不在跟踪中的设备确认存在后重新上线
+     *
+     * @param deviceId 设备ID
+     */
+    public void touch(String deviceId) {
+        TimingWheel current = wheel;
+        if (current == null || current.refreshIfTracked(deviceId, System.currentTimeMillis())) {
+            return;
+        }
+        if (!exists(deviceId)) {
+            return;
+        }
+        if (current.refresh(deviceId, System.currentTimeMillis())) {
+            revivedCounter.increment();
+            deviceAuthService.deviceOnline(deviceId, null);
+        }
+    }
+
+    /**
+     * 设备主动上线：开始跟踪
+     *
+     * @param deviceId 设备ID
+     */
+    public void track(String deviceId) {
+        TimingWheel current = wheel;
+        if (current != null && exists(deviceId)) {
+            current.refresh(deviceId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 设备主动离线：停止跟踪
+     *
+     * @param deviceId 设备ID
+     */
+    public void untrack(String deviceId) {
+        TimingWheel current = wheel;
+        if (current != null) {
+            current.remove(deviceId);
+        }
+    }
+
+    /**
+     * 未跟踪的设备分配槽位前确认存在
+     */
+    private boolean exists(String deviceId) {
+        if (deviceIdFilter.mightExist(deviceId) && deviceRegistryCache.get(deviceId) != null) {
+            return true;
+        }
+        unknownCounter.increment();
+        return false;
+    }
+
+    private void tickSafely() {
+        try {
+            List<String> expired = wheel.advance(System.currentTimeMillis());
+            if (expired.isEmpty()) {
+                return;
+            }
+            expiredCounter.increment(expired.size());
+            log.info("设备心跳超时: count={}", expired.size());
+            for (String deviceId : expired) {
+                try {
+                    deviceAuthService.deviceOffline(deviceId);
+                } catch (Exception e) {
+                    log.error("设备心跳超时离线处理失败: deviceId={}", deviceId, e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("推进设备存活时间轮失败", e);
+        }
+    }
+
+    /**
+     * 跟踪数据库中在线的设备，重启期间断电的设备在超时后离线
+     */
+    private void seed(TimingWheel timingWheel) {
+        long now = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<String> cursor = deviceMapper.scanDeviceIds(OnlineStatus.ONLINE.getCode())) {
+                    for (String deviceId : cursor) {
+                        timingWheel.refresh(deviceId, now);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("关闭在线设备游标失败", e.getCause());
+        } catch (Exception e) {
+            log.error("加载在线设备失败", e);
+        }
+    }
+}
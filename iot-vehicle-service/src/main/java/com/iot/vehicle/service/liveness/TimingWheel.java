@@ -0,0 +1,271 @@
+package com.iot.vehicle.service.liveness;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 哈希时间轮：跟踪大量键的超时时间，键在超时时间内没有刷新则判定为超时
+ *
+ * 每个键分配一个固定的槽位，截止时间、链表指针都保存在按槽位索引的基本类型数组中，
+ * 时间轮的每个格子是槽位组成的单向链表，不为每个键创建定时任务或节点对象。
+ * 刷新只用CAS改写截止时间，不移动链表节点，也不加锁；推进时间轮时取出到期格子中的槽位，
+ * 截止时间已被刷新到未来的重新挂到对应的格子，超出一圈的截止时间在经过时逐圈下移。
+ * 因此插入和刷新都是O(1)，每个键在一个超时周期内最多被重新挂接一次。
+ * 截止时间为0表示未跟踪（已超时或已移除）；超时的键立即归还槽位，移除的键在所在格子被推进时归还，
+ * 归还的槽位按栈复用，内存只与同时跟踪的键数成正比，不随出现过的键数增长。
+ *
+ * @author dongxiang.wu
+ */
+public class TimingWheel {
+
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * 链表结束
+     */
+    private static final int END = -1;
+
+    /**
+     * 不在任何格子中
+     */
+    private static final int NOT_LINKED = -2;
+
+    private final long tickMs;
+    private final long timeoutMs;
+    private final int[] buckets;
+    private final int mask;
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger tracked = new AtomicInteger();
+
+    /**
+     * 截止时间，按页分配，已分配的页不再移动，刷新时不需要加锁
+     */
+    private volatile AtomicLongArray[] deadlines = new AtomicLongArray[0];
+
+    private final Object lock = new Object();
+
+    /**
+     * 以下字段只在加锁时访问
+     */
+    private String[] keys = new String[0];
+    private int[] next = new int[0];
+    private int size;
+    private int[] free = new int[0];
+    private int freeCount;
+    private long currentTick;
+
+    /**
+     * @param tickMs    每格的时长（毫秒），即超时判定的精度
+     * @param wheelSize 格子数（2的幂），一圈覆盖tickMs * wheelSize毫秒
+     * @param timeoutMs 超时时间（毫秒）
+     * @param nowMs     当前时间
+     */
+    public TimingWheel(long tickMs, int wheelSize, long timeoutMs, long nowMs) {
+        if (tickMs <= 0 || timeoutMs <= 0) {
+            throw new IllegalArgumentException("时间轮的格子时长和超时时间必须大于0");
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("时间轮的格子数必须是2的幂: " + wheelSize);
+        }
+        this.tickMs = tickMs;
+        this.timeoutMs = timeoutMs;
+        this.buckets = new int[wheelSize];
+        this.mask = wheelSize - 1;
+        Arrays.fill(buckets, END);
+        this.currentTick = nowMs / tickMs;
+    }
+
+    /**
+     * 刷新键的截止时间为 nowMs + 超时时间
+     *
+     * @param key   键
+     * @param nowMs 当前时间
+     * @return true-该键之前不在跟踪中（第一次出现，或已超时、被移除后重新出现）；false-正在跟踪中
+     */
+    public boolean refresh(String key, long nowMs) {
+        if (refreshIfTracked(key, nowMs)) {
+            return false;
+        }
+        long deadline = nowMs + timeoutMs;
+        synchronized (lock) {
+            Integer existing = slots.get(key);
+            int s = existing != null ? existing : allocate(key);
+            AtomicLongArray page = deadlines[s >>> PAGE_BITS];
+            long previous = page.getAndAccumulate(s & PAGE_MASK, deadline, Math::max);
+            if (next[s] == NOT_LINKED) {
+                link(s, deadline);
+            }
+            if (previous == 0) {
+                tracked.incrementAndGet();
+            }
+            return previous == 0;
+        }
+    }
+
+    /**
+     * 只刷新正在跟踪的键，不分配槽位
+     *
+     * @param key   键
+     * @param nowMs 当前时间
+     * @return true-正在跟踪，已刷新；false-不在跟踪中
+     */
+    public boolean refreshIfTracked(String key, long nowMs) {
+        long deadline = nowMs + timeoutMs;
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            return false;
+        }
+        AtomicLongArray page = deadlines[slot >>> PAGE_BITS];
+        int offset = slot & PAGE_MASK;
+        while (true) {
+            long current = page.get(offset);
+            if (current == 0) {
+                return false;
+            }
+            if (current >= deadline || page.compareAndSet(offset, current, deadline)) {
+                // 槽位可能在读取后被归还并分配给了其他键，此时按未跟踪处理（其他键最多多保留一个超时周期）
+                return slot.equals(slots.get(key));
+            }
+        }
+    }
+
+    /**
+     * 停止跟踪键（不会再判定为超时）
+     *
+     * @param key 键
+     */
+    public void remove(String key) {
+        // 加锁：槽位可能已归还并分配给其他键，不能在锁外清零
+        synchronized (lock) {
+            Integer slot = slots.get(key);
+            if (slot != null && deadlines[slot >>> PAGE_BITS].getAndSet(slot & PAGE_MASK, 0) != 0) {
+                tracked.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 推进时间轮到nowMs，取出已超时的键（超时的键停止跟踪）
+     *
+     * @param nowMs 当前时间
+     * @return 已超时的键
+     */
+    public List<String> advance(long nowMs) {
+        List<String> expired = new ArrayList<>();
+        synchronized (lock) {
+            long targetTick = nowMs / tickMs;
+            while (currentTick <= targetTick) {
+                int bucket = (int) (currentTick & mask);
+                int s = buckets[bucket];
+                buckets[bucket] = END;
+                currentTick++;
+                while (s != END) {
+                    int following = next[s];
+                    next[s] = NOT_LINKED;
+                    expire(s, nowMs, expired);
+                    s = following;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 正在跟踪的键数
+     */
+    public int tracked() {
+        return tracked.get();
+    }
+
+    /**
+     * 占用槽位的键数（包括已移除、尚未归还槽位的键）
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * 已分配的槽位数组长度
+     */
+    int capacity() {
+        synchronized (lock) {
+            return keys.length;
+        }
+    }
+
+    private void expire(int s, long nowMs, List<String> expired) {
+        AtomicLongArray page = deadlines[s >>> PAGE_BITS];
+        int offset = s & PAGE_MASK;
+        while (true) {
+            long deadline = page.get(offset);
+            if (deadline == 0) {
+                // 已移除
+                release(s);
+                return;
+            }
+            if (deadline > nowMs) {
+                // 已刷新或还没到期（超过一圈）
+                link(s, deadline);
+                return;
+            }
+            if (page.compareAndSet(offset, deadline, 0)) {
+                tracked.decrementAndGet();
+                expired.add(keys[s]);
+                release(s);
+                return;
+            }
+        }
+    }
+
+    private void link(int s, long deadline) {
+        int bucket = (int) (Math.max(deadline / tickMs, currentTick) & mask);
+        next[s] = buckets[bucket];
+        buckets[bucket] = s;
+    }
+
+    private int allocate(String key) {
+        if (freeCount > 0) {
+            int s = free[--freeCount];
+            keys[s] = key;
+            slots.put(key, s);
+            return s;
+        }
+        int s = size++;
+        if (s == keys.length) {
+            int capacity = Math.max(PAGE_SIZE, keys.length * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            int oldLength = next.length;
+            next = Arrays.copyOf(next, capacity);
+            Arrays.fill(next, oldLength, capacity, NOT_LINKED);
+        }
+        int pageIndex = s >>> PAGE_BITS;
+        if (pageIndex == deadlines.length) {
+            AtomicLongArray[] pages = Arrays.copyOf(deadlines, pageIndex + 1);
+            pages[pageIndex] = new AtomicLongArray(PAGE_SIZE);
+            deadlines = pages;
+        }
+        keys[s] = key;
+        slots.put(key, s);
+        return s;
+    }
+
+    /**
+     * 归还未跟踪且不在任何格子中的槽位
+     */
+    private void release(int s) {
+        slots.remove(keys[s], s);
+        keys[s] = null;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, Math.max(PAGE_SIZE, free.length * 2));
+        }
+        free[freeCount++] = s;
+    }
+}
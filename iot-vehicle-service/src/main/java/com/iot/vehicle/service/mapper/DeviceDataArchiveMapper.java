@@ -0,0 +1,53 @@
+package com.iot.vehicle.service.mapper;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 设备数据归档Mapper
+ *
+ * @author dongxiang.wu
+ */
+@Mapper
+public interface DeviceDataArchiveMapper {
+
+    /**
+     * 查询已从tb_device_data分离、尚未删除的分区表
+     *
+     * @return 表名列表（按名称排序）
+     */
+    List<String> selectDetachedPartitions();
+
+    /**
+     * 查询表中最早的数据时间
+     *
+     * @param table 表名
+     * @return 最早的数据时间，表为空时返回null
+     */
+    LocalDateTime selectMinDataTime(@Param("table") String table);
+
+    /**
+     * 查询表中最晚的数据时间
+     *
+     * @param table 表名
+     * @return 最晚的数据时间，表为空时返回null
+     */
+    LocalDateTime selectMaxDataTime(@Param("table") String table);
+
+    /**
+     * 按设备ID、数据时间顺序流式读取[start, end)内的数据（需要在事务内使用）
+     *
+     * @param table 表名
+     * @param start 开始时间（包含）
+     * @param end   结束时间（不包含）
+     * @return 游标
+     */
+    Cursor<DeviceData> scanRange(@Param("table") String table,
+                                 @Param("start") LocalDateTime start,
+                                 @Param("end") LocalDateTime end);
+}
@@ -2,7 +2,13 @@ package com.iot.vehicle.service.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.api.vo.DeviceTrackPointVO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 设备数据Mapper
@@ -11,5 +17,32 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface DeviceDataMapper extends BaseMapper<DeviceData> {
-}
 
+    /**
+     * 多值INSERT批量插入（单条语句）
+     *
+     * @param list 数据列表
+     * @return 插入行数
+     */
+    int insertBatch(@Param("list") List<DeviceData> list);
+
+    /**
+     * 单行插入（不回填主键，供JDBC批处理使用）
+     *
+     * @param data 数据
+     * @return 插入行数
+     */
+    int insertRow(DeviceData data);
+
+    /**
+     * 按数据时间顺序流式读取设备在[start, end)内的有效定位点（需要在事务内使用）
+     *
+     * @param deviceId 设备ID
+     * @param start    开始时间（包含）
+     * @param end      结束时间（不包含）
+     * @return 游标
+     */
+    Cursor<DeviceTrackPointVO> scanTrack(@Param("deviceId") String deviceId,
+                                         @Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,61 @@
+package com.iot.vehicle.service.mapper;
+
+import com.iot.vehicle.api.vo.DeviceTrendPointVO;
+import com.iot.vehicle.service.rollup.RollupBucket;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 设备数据汇总表Mapper（tb_device_data_1m / tb_device_data_1h）
+ *
+ * @author dongxiang.wu
+ */
+@Mapper
+public interface DeviceDataRollupMapper {
+
+    /**
+     * 批量合并汇总量：不存在时插入，已存在时与已有的行合并（计数/求和相加，最值取最值，首末值按时间取）
+     *
+     * @param table 汇总表名
+     * @param list  汇总量列表（同一批内(设备ID, 时间桶)不能重复）
+     * @return 影响行数
+     */
+    int mergeBatch(@Param("table") String table, @Param("list") List<RollupBucket> list);
+
+    /**
+     * 用原始数据重算[start, end)内的1分钟汇总，覆盖已有的行
+     *
+     * @param start 开始时间（整分钟）
+     * @param end   结束时间（整分钟）
+     * @return 影响行数
+     */
+    int rebuildMinute(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * 用1分钟汇总重算[start, end)内的1小时汇总，覆盖已有的行
+     *
+     * @param start 开始时间（整小时）
+     * @param end   结束时间（整小时）
+     * @return 影响行数
+     */
+    int rebuildHour(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * 按指定桶宽合并汇总表中的行，得到趋势数据
+     *
+     * @param table         汇总表名
+     * @param deviceId      设备ID
+     * @param start         开始时间（包含）
+     * @param end           结束时间（不包含）
+     * @param bucketSeconds 桶宽（秒）
+     * @return 按时间升序的趋势点
+     */
+    List<DeviceTrendPointVO> selectTrend(@Param("table") String table,
+                                         @Param("deviceId") String deviceId,
+                                         @Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end,
+                                         @Param("bucketSeconds") long bucketSeconds);
+}
@@ -0,0 +1,14 @@
+package com.iot.vehicle.service.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iot.vehicle.api.entity.DeviceGroup;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 设备分组Mapper
+ *
+ * @author dongxiang.wu
+ */
+@Mapper
+public interface DeviceGroupMapper extends BaseMapper<DeviceGroup> {
+}
@@ -3,6 +3,9 @@ package com.iot.vehicle.service.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.iot.vehicle.api.entity.DeviceLatestData;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 设备最新数据Mapper
@@ -11,5 +14,12 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface DeviceLatestDataMapper extends BaseMapper<DeviceLatestData> {
-}
 
+    /**
+     * 批量UPSERT最新数据（只有数据时间更新的样本才会覆盖已有记录）
+     *
+     * @param list 最新数据列表（同一批内设备ID不能重复）
+     * @return 影响行数
+     */
+    int upsertBatch(@Param("list") List<DeviceLatestData> list);
+}
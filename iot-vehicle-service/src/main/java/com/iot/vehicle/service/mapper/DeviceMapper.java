@@ -2,7 +2,14 @@ package com.iot.vehicle.service.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.service.presence.PresenceChange;
+import com.iot.vehicle.service.statistics.DeviceStatisticsRow;
+import com.iot.vehicle.service.statistics.GroupMemberRow;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
 
 /**
  * 设备Mapper
@@ -11,5 +18,36 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface DeviceMapper extends BaseMapper<Device> {
-}
 
+    /**
+     * 按(分组, 所有者, 设备状态, 在线状态)统计未删除的设备数（一次扫描）
+     *
+     * @return 统计行
+     */
+    List<DeviceStatisticsRow> selectStatistics();
+
+    /**
+     * 逐行读取未删除设备的分组、状态和最新数据（需要在事务内遍历）
+     *
+     * @return 设备游标
+     */
+    Cursor<GroupMemberRow> scanGroupMembers();
+
+    /**
+     * 逐行读取未删除设备的设备ID（需要在事务内遍历）
+     *
+     * @param onlineStatus 在线状态，为null时不限
+     * @return 设备ID游标
+     */
+    Cursor<String> scanDeviceIds(@Param("onlineStatus") Integer onlineStatus);
+
+    /**
+     * 批量更新在线状态和最后上线/离线时间，只更新状态确实变化的设备（一条语句）
+     *
+     * @param onlineStatus 目标在线状态
+     * @param list         状态变化（主键和事件时间）
+     * @return 状态确实变化的设备ID
+     */
+    List<String> updateOnlineStatusBatch(@Param("onlineStatus") Integer onlineStatus,
+                                         @Param("list") List<PresenceChange> list);
+}
@@ -0,0 +1,25 @@
+package com.iot.vehicle.service.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.iot.vehicle.api.entity.DeviceOnlineLog;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 设备在线日志Mapper
+ *
+ * @author dongxiang.wu
+ */
+@Mapper
+public interface DeviceOnlineLogMapper extends BaseMapper<DeviceOnlineLog> {
+
+    /**
+     * 多值INSERT批量插入（单条语句）
+     *
+     * @param list 日志列表
+     * @return 插入行数
+     */
+    int insertBatch(@Param("list") List<DeviceOnlineLog> list);
+}
@@ -0,0 +1,43 @@
+package com.iot.vehicle.service.mapper;
+
+import com.iot.vehicle.service.partition.PartitionInfo;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 分区维护Mapper
+ *
+ * DDL语句不支持参数绑定，表名和边界由{@link com.iot.vehicle.service.partition.DevicePartitionManager}生成，不接受外部输入
+ *
+ * @author dongxiang.wu
+ */
+@Mapper
+public interface DevicePartitionMapper {
+
+    /**
+     * 查询分区表的所有分区
+     *
+     * @param table 分区表名
+     * @return 分区列表
+     */
+    List<PartitionInfo> selectPartitions(@Param("table") String table);
+
+    /**
+     * 创建分区
+     *
+     * @param table 分区表名
+     * @param name  分区名
+     * @param from 下界（包含），格式 yyyy-MM-dd HH:mm:ss
+     * @param to   上界（不包含），格式 yyyy-MM-dd HH:mm:ss
+     */
+    void createPartition(@Param("table") String table, @Param("name") String name, @Param("from") String from, @Param("to") String to);
+
+    /**
+     * 删除已分离的分区表
+     *
+     * @param name 表名
+     */
+    void dropTable(@Param("name") String name);
+}
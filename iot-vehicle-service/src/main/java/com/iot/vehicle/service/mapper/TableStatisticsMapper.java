@@ -0,0 +1,21 @@
+package com.iot.vehicle.service.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 表统计信息Mapper
+ *
+ * @author dongxiang.wu
+ */
+@Mapper
+public interface TableStatisticsMapper {
+
+    /**
+     * 按pg_class.reltuples估算表的行数（分区表累加各分区），精度取决于最近一次ANALYZE/VACUUM
+     *
+     * @param table 表名
+     * @return 估算行数，从未统计过时为0
+     */
+    long estimateRowCount(@Param("table") String table);
+}
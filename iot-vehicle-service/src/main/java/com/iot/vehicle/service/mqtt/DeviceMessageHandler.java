@@ -0,0 +1,26 @@
+package com.iot.vehicle.service.mqtt;
+
+/**
+ * 设备上行消息处理器
+ *
+ * 每种消息类型实现一个处理器并注册为Spring Bean，分发器会按主题模式自动路由，MQTT服务会自动订阅对应主题
+ *
+ * @author dongxiang.wu
+ */
+public interface DeviceMessageHandler {
+
+    /**
+     * 处理的主题模式，支持单层通配符“+”（第一个通配段作为设备ID），如 device/+/data
+     *
+     * @return 主题模式
+     */
+    String topicPattern();
+
+    /**
+     * 处理消息
+     *
+     * @param match   主题匹配结果（调用返回后会被复用，不要保存引用）
+     * @param payload 原始消息内容
+     */
+    void handle(TopicMatch match, byte[] payload);
+}
@@ -0,0 +1,349 @@
+package com.iot.vehicle.service.mqtt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.MqttPersistentData;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 基于内存映射文件的MQTT消息持久化（追加写日志）
+ *
+ * 每个客户端一个日志文件，put/remove都以记录形式追加到映射区域，内存中维护key到记录位置的索引。
+ * 写入只落到页缓存，不需要每条消息一次文件创建和删除；进程崩溃后重启时按日志重放恢复在途消息。
+ * 空间不足时把仍然存活的记录压缩到新文件，必要时扩容。
+ *
+ * 记录格式：[长度 int][CRC32 int][类型 byte][key长度 short][key][header长度 int][header][payload长度 int][payload]
+ * 长度字段最后写入，长度为0表示日志结束，CRC不匹配的记录（写入中途崩溃）在重放时丢弃。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+public class MappedFilePersistence implements MqttClientPersistence {
+
+    private static final String LOG_FILE_NAME = "mqtt.log";
+    private static final String COMPACT_FILE_NAME = "mqtt.log.compact";
+
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_REMOVE = 2;
+
+    /**
+     * 长度 + CRC
+     */
+    private static final int RECORD_PREFIX = 8;
+
+    private final Path baseDir;
+    private final int initialSize;
+
+    private Path dir;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    /**
+     * key -> 记录在映射区域中的起始位置
+     */
+    private final Map<String, Integer> index = new HashMap<>();
+
+    /**
+     * @param baseDir     持久化根目录
+     * @param initialSize 日志文件初始大小（字节）
+     */
+    public MappedFilePersistence(String baseDir, int initialSize) {
+        this.baseDir = Path.of(baseDir);
+        this.initialSize = initialSize;
+    }
+
+    @Override
+    public synchronized void open(String clientId, String serverURI) throws MqttPersistenceException {
+        try {
+            dir = baseDir.resolve(sanitize(clientId + "-" + serverURI));
+            Files.createDirectories(dir);
+            Path file = dir.resolve(LOG_FILE_NAME);
+            int size = Files.exists(file) ? (int) Math.max(Files.size(file), initialSize) : initialSize;
+            map(file, size);
+            replay();
+            log.info("MQTT持久化日志已打开: dir={}, inflight={}", dir, index.size());
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws MqttPersistenceException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        } finally {
+            channel = null;
+            buffer = null;
+            index.clear();
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, MqttPersistable persistable) throws MqttPersistenceException {
+        checkOpen();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int headerLength = persistable.getHeaderLength();
+        int payloadLength = persistable.getPayloadBytes() == null ? 0 : persistable.getPayloadLength();
+        int length = RECORD_PREFIX + 1 + 2 + keyBytes.length + 4 + headerLength + 4 + payloadLength;
+        ensureCapacity(length);
+
+        int start = writePosition;
+        int pos = start + RECORD_PREFIX;
+        buffer.put(pos++, TYPE_PUT);
+        buffer.putShort(pos, (short) keyBytes.length);
+        pos += 2;
+        buffer.put(pos, keyBytes);
+        pos += keyBytes.length;
+        buffer.putInt(pos, headerLength);
+        pos += 4;
+        buffer.put(pos, persistable.getHeaderBytes(), persistable.getHeaderOffset(), headerLength);
+        pos += headerLength;
+        buffer.putInt(pos, payloadLength);
+        pos += 4;
+        if (payloadLength > 0) {
+            buffer.put(pos, persistable.getPayloadBytes(), persistable.getPayloadOffset(), payloadLength);
+        }
+        commit(start, length);
+        index.put(key, start);
+    }
+
+    @Override
+    public synchronized MqttPersistable get(String key) throws MqttPersistenceException {
+        checkOpen();
+        Integer start = index.get(key);
+        return start == null ? null : read(start);
+    }
+
+    @Override
+    public synchronized void remove(String key) throws MqttPersistenceException {
+        checkOpen();
+        if (index.remove(key) == null) {
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_PREFIX + 1 + 2 + keyBytes.length;
+        ensureCapacity(length);
+
+        int start = writePosition;
+        int pos = start + RECORD_PREFIX;
+        buffer.put(pos++, TYPE_REMOVE);
+        buffer.putShort(pos, (short) keyBytes.length);
+        pos += 2;
+        buffer.put(pos, keyBytes);
+        commit(start, length);
+    }
+
+    @Override
+    public synchronized Enumeration keys() throws MqttPersistenceException {
+        checkOpen();
+        return Collections.enumeration(new ArrayList<>(index.keySet()));
+    }
+
+    @Override
+    public synchronized void clear() throws MqttPersistenceException {
+        checkOpen();
+        try {
+            // 重写成功后replay会清空索引，失败时索引与磁盘上的旧日志保持一致
+            rewrite(Map.of(), initialSize);
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) throws MqttPersistenceException {
+        checkOpen();
+        return index.containsKey(key);
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void map(Path file, int size) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * 重放日志重建索引
+     */
+    private void replay() {
+        index.clear();
+        int pos = 0;
+        int limit = buffer.capacity();
+        while (pos + RECORD_PREFIX <= limit) {
+            int length = buffer.getInt(pos);
+            if (length < RECORD_PREFIX + 3 || pos + length > limit || buffer.getInt(pos + 4) != crc(pos, length)) {
+                break;
+            }
+            byte type = buffer.get(pos + RECORD_PREFIX);
+            String key = readKey(pos);
+            if (type == TYPE_PUT) {
+                index.put(key, pos);
+            } else {
+                index.remove(key);
+            }
+            pos += length;
+        }
+        writePosition = pos;
+        // 清掉日志尾部可能残留的半条记录，避免之后追加的记录被误判
+        if (pos + RECORD_PREFIX <= limit) {
+            buffer.putInt(pos, 0);
+        }
+    }
+
+    /**
+     * 记录内容写完后再写CRC和长度，长度非0即表示记录完整
+     */
+    private void commit(int start, int length) {
+        buffer.putInt(start + 4, crc(start, length));
+        buffer.putInt(start, length);
+        writePosition = start + length;
+        if (writePosition + RECORD_PREFIX <= buffer.capacity()) {
+            buffer.putInt(writePosition, 0);
+        }
+    }
+
+    private int crc(int start, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.slice(start + RECORD_PREFIX, length - RECORD_PREFIX));
+        return (int) crc32.getValue();
+    }
+
+    private String readKey(int start) {
+        int pos = start + RECORD_PREFIX + 1;
+        int keyLength = buffer.getShort(pos);
+        byte[] keyBytes = new byte[keyLength];
+        buffer.get(pos + 2, keyBytes);
+        return new String(keyBytes, StandardCharsets.UTF_8);
+    }
+
+    private MqttPersistable read(int start) {
+        int pos = start + RECORD_PREFIX + 1;
+        int keyLength = buffer.getShort(pos);
+        pos += 2 + keyLength;
+        int headerLength = buffer.getInt(pos);
+        pos += 4;
+        byte[] header = new byte[headerLength];
+        buffer.get(pos, header);
+        pos += headerLength;
+        int payloadLength = buffer.getInt(pos);
+        pos += 4;
+        byte[] payload = new byte[payloadLength];
+        buffer.get(pos, payload);
+        return new MqttPersistentData(readKey(start), header, 0, headerLength, payload, 0, payloadLength);
+    }
+
+    /**
+     * 空间不足时先压缩存活记录，仍然不足则扩容
+     */
+    private void ensureCapacity(int length) throws MqttPersistenceException {
+        // 末尾保留一个结束标记的位置
+        if (writePosition + length + RECORD_PREFIX <= buffer.capacity()) {
+            return;
+        }
+        try {
+            int live = 0;
+            for (int start : index.values()) {
+                live += buffer.getInt(start);
+            }
+            int size = buffer.capacity();
+            while (live + length + RECORD_PREFIX > size / 2) {
+                size *= 2;
+            }
+            rewrite(snapshotLiveRecords(), size);
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    private Map<String, byte[]> snapshotLiveRecords() {
+        Map<String, byte[]> live = new HashMap<>(index.size());
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            int start = entry.getValue();
+            byte[] record = new byte[buffer.getInt(start)];
+            buffer.get(start, record);
+            live.put(entry.getKey(), record);
+        }
+        return live;
+    }
+
+    /**
+     * 把存活记录写入新文件后原子替换旧日志
+     *
+     * 新文件的通道和映射在替换前就已建立（重命名后仍指向同一个文件），替换成功后才切换到新映射并关闭旧通道；
+     * 替换前任何一步失败都只删除新文件，旧日志、映射和索引保持不变，可以继续使用。
+     */
+    private void rewrite(Map<String, byte[]> live, int size) throws IOException {
+        Path compactFile = dir.resolve(COMPACT_FILE_NAME);
+        Files.deleteIfExists(compactFile);
+        FileChannel compactChannel = FileChannel.open(compactFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer compactBuffer;
+        try {
+            compactBuffer = compactChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            for (byte[] record : live.values()) {
+                compactBuffer.put(record);
+            }
+            compactBuffer.force();
+            Files.move(compactFile, dir.resolve(LOG_FILE_NAME),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                compactChannel.close();
+                Files.deleteIfExists(compactFile);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+
+        FileChannel oldChannel = channel;
+        channel = compactChannel;
+        buffer = compactBuffer;
+        try {
+            oldChannel.close();
+        } catch (IOException e) {
+            log.warn("关闭旧的MQTT持久化日志失败: dir={}", dir, e);
+        }
+        replay();
+        log.debug("MQTT持久化日志已压缩: live={}, size={}", live.size(), size);
+    }
+
+    private void checkOpen() throws MqttPersistenceException {
+        if (channel == null) {
+            throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_CLIENT_CLOSED);
+        }
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+        }
+        return sb.toString();
+    }
+}
@@ -1,9 +1,6 @@
 package com.iot.vehicle.service.mqtt;
 
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONObject;
-import com.iot.vehicle.api.dto.DeviceDataDTO;
-import com.iot.vehicle.service.service.DeviceDataService;
+import com.iot.vehicle.service.ingest.IngestPipeline;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
@@ -14,6 +11,8 @@ import org.springframework.stereotype.Component;
 /**
  * MQTT消息回调处理器
  *
+ * 回调运行在Paho的单一回调线程上，这里只做入队，解析和持久化由接入管道的工作线程完成
+ *
  * @author dongxiang.wu
  */
 @Slf4j
@@ -21,10 +20,7 @@ import org.springframework.stereotype.Component;
 public class MqttMessageCallback implements MqttCallback {
 
     @Autowired
-    private DeviceAuthService deviceAuthService;
-
-    @Autowired
-    private DeviceDataService deviceDataService;
+    private IngestPipeline ingestPipeline;
 
     /**
      * 连接丢失回调
@@ -40,28 +36,7 @@ public class MqttMessageCallback implements MqttCallback {
      */
     @Override
     public void messageArrived(String topic, MqttMessage message) throws Exception {
-        String payload = new String(message.getPayload());
-        log.info("收到MQTT消息: topic={}, payload={}", topic, payload);
-        
-        // 解析主题，提取设备ID
-        String deviceId = extractDeviceId(topic);
-        if (deviceId == null) {
-            log.warn("无法解析设备ID: topic={}", topic);
-            return;
-        }
-
-        // 根据主题类型分发处理
-        if (topic.contains("/status")) {
-            handleDeviceStatus(deviceId, payload);
-        } else if (topic.contains("/data")) {
-            handleDeviceData(deviceId, payload);
-        } else if (topic.contains("/location")) {
-            handleDeviceLocation(deviceId, payload);
-        } else if (topic.contains("/alarm")) {
-            handleDeviceAlarm(deviceId, payload);
-        } else if (topic.contains("/heartbeat")) {
-            handleDeviceHeartbeat(deviceId, payload);
-        }
+        ingestPipeline.submit(topic, message.getPayload());
     }
 
     /**
@@ -71,78 +46,4 @@ public class MqttMessageCallback implements MqttCallback {
     public void deliveryComplete(IMqttDeliveryToken token) {
         log.debug("MQTT消息发送完成: messageId={}", token.getMessageId());
     }
-
-    /**
-     * 从主题中提取设备ID
-     * 主题格式：device/{deviceId}/messageType
-     */
-    private String extractDeviceId(String topic) {
-        if (topic == null || !topic.startsWith("device/")) {
-            return null;
-        }
-        String[] parts = topic.split("/");
-        return parts.length >= 2 ? parts[1] : null;
-    }
-
-    /**
-     * 处理设备状态消息
-     */
-    private void handleDeviceStatus(String deviceId, String payload) {
-        try {
-            JSONObject json = JSON.parseObject(payload);
-            String status = json.getString("status");
-            
-            if ("online".equals(status)) {
-                String ipAddress = json.getString("ip");
-                deviceAuthService.deviceOnline(deviceId, ipAddress);
-            } else if ("offline".equals(status)) {
-                deviceAuthService.deviceOffline(deviceId);
-            }
-        } catch (Exception e) {
-            log.error("处理设备状态消息失败: deviceId={}", deviceId, e);
-        }
-    }
-
-    /**
-     * 处理设备数据消息
-     */
-    private void handleDeviceData(String deviceId, String payload) {
-        try {
-            // 解析JSON数据
-            DeviceDataDTO dataDTO = JSON.parseObject(payload, DeviceDataDTO.class);
-            
-            // 保存数据
-            deviceDataService.saveDeviceData(deviceId, dataDTO);
-            
-            log.debug("设备数据处理成功: deviceId={}", deviceId);
-        } catch (Exception e) {
-            log.error("处理设备数据失败: deviceId={}, payload={}", deviceId, payload, e);
-        }
-    }
-
-    /**
-     * 处理设备位置消息
-     */
-    private void handleDeviceLocation(String deviceId, String payload) {
-        log.debug("处理设备位置: deviceId={}, payload={}", deviceId, payload);
-        // TODO: 实现位置数据处理
-    }
-
-    /**
-     * 处理设备告警消息
-     */
-    private void handleDeviceAlarm(String deviceId, String payload) {
-        log.debug("处理设备告警: deviceId={}, payload={}", deviceId, payload);
-        // TODO: 实现告警处理
-    }
-
-    /**
-     * 处理设备心跳消息
-     */
-    private void handleDeviceHeartbeat(String deviceId, String payload) {
-        log.debug("收到设备心跳: deviceId={}", deviceId);
-        // TODO: 更新设备最后心跳时间
-    }
 }
-
-
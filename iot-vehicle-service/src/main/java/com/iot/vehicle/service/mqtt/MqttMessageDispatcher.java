@@ -0,0 +1,65 @@
+package com.iot.vehicle.service.mqtt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * MQTT消息分发器
+ *
+ * 在接入管道的工作线程中执行，通过主题路由器找到对应的{@link DeviceMessageHandler}处理消息。
+ * 新增消息类型只需要新增一个处理器Bean，不需要修改分发器。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+public class MqttMessageDispatcher {
+
+    /**
+     * 每个工作线程复用一个匹配结果对象
+     */
+    private static final ThreadLocal<TopicMatch> TOPIC_MATCH = ThreadLocal.withInitial(TopicMatch::new);
+
+    private final TopicRouter topicRouter = new TopicRouter();
+    private final List<String> topicPatterns;
+
+    public MqttMessageDispatcher(List<DeviceMessageHandler> handlers) {
+        for (DeviceMessageHandler handler : handlers) {
+            topicRouter.register(handler.topicPattern(), handler);
+        }
+        this.topicPatterns = handlers.stream().map(DeviceMessageHandler::topicPattern).toList();
+        log.info("MQTT消息处理器注册完成: topics={}", topicPatterns);
+    }
+
+    /**
+     * 分发消息
+     *
+     * @param topic   主题
+     * @param payload 原始消息内容
+     */
+    public void dispatch(String topic, byte[] payload) {
+        if (log.isDebugEnabled()) {
+            log.debug("收到MQTT消息: topic={}, payload={}", topic, new String(payload, StandardCharsets.UTF_8));
+        }
+
+        TopicMatch match = TOPIC_MATCH.get();
+        DeviceMessageHandler handler = topicRouter.route(topic, match);
+        if (handler == null) {
+            log.warn("没有匹配的消息处理器: topic={}", topic);
+            return;
+        }
+        handler.handle(match, payload);
+    }
+
+    /**
+     * 已注册处理器的主题模式（用于订阅）
+     *
+     * @return 主题模式列表
+     */
+    public List<String> getTopicPatterns() {
+        return topicPatterns;
+    }
+}
@@ -1,13 +1,20 @@
 package com.iot.vehicle.service.mqtt;
 
+import com.iot.vehicle.common.core.constants.MqttTopicConstants;
+import com.iot.vehicle.service.config.MqttClientFactory;
+import com.iot.vehicle.service.config.MqttProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * MQTT服务
@@ -21,23 +28,80 @@ public class MqttService {
 
     private final MqttClient mqttClient;
     private final MqttMessageCallback mqttMessageCallback;
+    private final MqttProperties mqttProperties;
+    private final MqttConnectOptions mqttConnectOptions;
+    private final MqttClientFactory mqttClientFactory;
+    private final MqttMessageDispatcher mqttMessageDispatcher;
+
+    /**
+     * 消费者连接（第一个为主客户端，其余为额外创建的消费者连接）
+     */
+    private final List<MqttClient> consumerClients = new ArrayList<>();
 
     @PostConstruct
     public void init() {
         try {
-            // 设置回调
-            mqttClient.setCallback(mqttMessageCallback);
-            
-            // 订阅主题（订阅所有设备上行消息）
-            mqttClient.subscribe("device/+/data", 1);
-            mqttClient.subscribe("device/+/status", 1);
+            consumerClients.add(mqttClient);
+            int consumerCount = Math.max(1, mqttProperties.getConsumerCount());
+            for (int i = 1; i < consumerCount; i++) {
+                String clientId = mqttProperties.getClientId() + "-" + i;
+                MqttClient consumer = mqttClientFactory.create(clientId);
+                consumer.connect(mqttConnectOptions);
+                consumerClients.add(consumer);
+                log.info("MQTT消费者连接成功: clientId={}", clientId);
+            }
+
+            // 每个连接都订阅所有已注册处理器的主题，所有连接的消息进入同一个接入管道。
+            // 共享订阅下Broker按发布者clientId分发（hash_clientid），同一设备的消息只到达一个连接，
+            // 接入管道再按设备ID分道，因此单设备内的消息按到达顺序处理；不同设备之间不保证顺序
+            List<String> topics = mqttMessageDispatcher.getTopicPatterns().stream()
+                    .map(this::subscriptionTopic)
+                    .toList();
+            for (MqttClient consumer : consumerClients) {
+                // 设置回调
+                consumer.setCallback(mqttMessageCallback);
+                
+                // 订阅主题（订阅所有设备上行消息）
+                for (String topic : topics) {
+                    consumer.subscribe(topic, 1);
+                }
+            }
             
-            log.info("MQTT服务初始化完成，已订阅主题");
+            log.info("MQTT服务初始化完成，已订阅主题: consumerCount={}, topics={}",
+                    consumerClients.size(), topics);
         } catch (MqttException e) {
             log.error("MQTT服务初始化失败", e);
         }
     }
 
+    @PreDestroy
+    public void destroy() {
+        // 主客户端由Spring容器管理，这里只关闭额外创建的消费者连接
+        for (MqttClient consumer : consumerClients) {
+            if (consumer == mqttClient) {
+                continue;
+            }
+            try {
+                if (consumer.isConnected()) {
+                    consumer.disconnect();
+                }
+                consumer.close();
+            } catch (MqttException e) {
+                log.warn("关闭MQTT消费者连接失败: clientId={}", consumer.getClientId(), e);
+            }
+        }
+    }
+
+    /**
+     * 获取实际订阅的主题（启用共享订阅时加上$share/{group}/前缀）
+     */
+    private String subscriptionTopic(String topic) {
+        if (Boolean.TRUE.equals(mqttProperties.getSharedSubscription())) {
+            return MqttTopicConstants.buildSharedTopic(mqttProperties.getSharedGroup(), topic);
+        }
+        return topic;
+    }
+
     /**
      * 发布消息
      *
@@ -0,0 +1,47 @@
+package com.iot.vehicle.service.mqtt;
+
+/**
+ * 主题匹配结果
+ *
+ * 只记录设备ID在主题字符串中的位置，需要时再创建字符串；每个工作线程复用同一个实例
+ *
+ * @author dongxiang.wu
+ */
+public final class TopicMatch {
+
+    private String topic;
+    private int deviceIdOffset;
+    private int deviceIdLength;
+
+    void reset(String topic) {
+        this.topic = topic;
+        this.deviceIdOffset = -1;
+        this.deviceIdLength = 0;
+    }
+
+    void captureDeviceId(int offset, int length) {
+        this.deviceIdOffset = offset;
+        this.deviceIdLength = length;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getDeviceIdOffset() {
+        return deviceIdOffset;
+    }
+
+    public int getDeviceIdLength() {
+        return deviceIdLength;
+    }
+
+    /**
+     * 获取设备ID（创建新字符串）
+     *
+     * @return 设备ID，主题中没有通配段时返回null
+     */
+    public String deviceId() {
+        return deviceIdOffset < 0 ? null : topic.substring(deviceIdOffset, deviceIdOffset + deviceIdLength);
+    }
+}
@@ -0,0 +1,115 @@
+package com.iot.vehicle.service.mqtt;
+
+import java.util.Arrays;
+
+/**
+ * 基于分段前缀树的主题路由器
+ *
+ * 注册时把主题模式按“/”拆分为节点，匹配时直接在主题字符串上逐段比较，不拆分字符串、不创建对象。
+ * 字面量段优先于通配段“+”匹配。路由表在启动时构建完成，之后只读，可被多个线程并发使用。
+ *
+ * @author dongxiang.wu
+ */
+public final class TopicRouter {
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+
+    private final Node root = new Node(null);
+
+    /**
+     * 注册处理器
+     *
+     * @param pattern 主题模式
+     * @param handler 处理器
+     */
+    public void register(String pattern, DeviceMessageHandler handler) {
+        Node node = root;
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty() || segment.equals("#")) {
+                throw new IllegalArgumentException("不支持的主题模式: " + pattern);
+            }
+            node = segment.equals(SINGLE_LEVEL_WILDCARD) ? node.wildcardChild() : node.literalChild(segment);
+        }
+        if (node.handler != null) {
+            throw new IllegalStateException("主题模式重复注册: " + pattern);
+        }
+        node.handler = handler;
+    }
+
+    /**
+     * 匹配主题
+     *
+     * @param topic 主题
+     * @param match 匹配结果（复用）
+     * @return 处理器，未匹配返回null
+     */
+    public DeviceMessageHandler route(String topic, TopicMatch match) {
+        match.reset(topic);
+        return match(root, topic, 0, match);
+    }
+
+    private DeviceMessageHandler match(Node node, String topic, int start, TopicMatch match) {
+        int end = topic.indexOf('/', start);
+        if (end < 0) {
+            end = topic.length();
+        }
+        int length = end - start;
+        boolean last = end == topic.length();
+
+        // 字面量段优先
+        for (Node child : node.literals) {
+            if (child.segment.length() == length && topic.regionMatches(start, child.segment, 0, length)) {
+                DeviceMessageHandler handler = last ? child.handler : match(child, topic, end + 1, match);
+                if (handler != null) {
+                    return handler;
+                }
+            }
+        }
+
+        // 单层通配段（不能匹配空段）
+        Node wildcard = node.wildcard;
+        if (wildcard != null && length > 0) {
+            DeviceMessageHandler handler = last ? wildcard.handler : match(wildcard, topic, end + 1, match);
+            if (handler != null) {
+                if (match.getDeviceIdOffset() < 0 || match.getDeviceIdOffset() > start) {
+                    match.captureDeviceId(start, length);
+                }
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    private static final class Node {
+
+        private static final Node[] EMPTY = new Node[0];
+
+        private final String segment;
+        private Node[] literals = EMPTY;
+        private Node wildcard;
+        private DeviceMessageHandler handler;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node literalChild(String segment) {
+            for (Node child : literals) {
+                if (child.segment.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node(segment);
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            literals[literals.length - 1] = child;
+            return child;
+        }
+
+        private Node wildcardChild() {
+            if (wildcard == null) {
+                wildcard = new Node(SINGLE_LEVEL_WILDCARD);
+            }
+            return wildcard;
+        }
+    }
+}
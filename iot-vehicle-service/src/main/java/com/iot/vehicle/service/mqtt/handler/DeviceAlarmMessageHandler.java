@@ -0,0 +1,28 @@
+package com.iot.vehicle.service.mqtt.handler;
+
+import com.iot.vehicle.common.core.constants.MqttTopicConstants;
+import com.iot.vehicle.service.mqtt.DeviceMessageHandler;
+import com.iot.vehicle.service.mqtt.TopicMatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备告警消息处理器（device/{deviceId}/alarm）
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+public class DeviceAlarmMessageHandler implements DeviceMessageHandler {
+
+    @Override
+    public String topicPattern() {
+        return MqttTopicConstants.SUBSCRIBE_ALL_DEVICE_ALARM;
+    }
+
+    @Override
+    public void handle(TopicMatch match, byte[] payload) {
+        log.debug("处理设备告警: deviceId={}, size={}", match.deviceId(), payload.length);
+        // TODO: 实现告警处理
+    }
+}
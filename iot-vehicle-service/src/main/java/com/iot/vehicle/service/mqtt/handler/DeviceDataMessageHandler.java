@@ -0,0 +1,52 @@
+package com.iot.vehicle.service.mqtt.handler;
+
+import com.iot.vehicle.common.core.constants.MqttTopicConstants;
+import com.iot.vehicle.service.ingest.DeviceDataPayloadParser;
+import com.iot.vehicle.service.ingest.DeviceDataRecord;
+import com.iot.vehicle.service.liveness.DeviceLivenessTracker;
+import com.iot.vehicle.service.mqtt.DeviceMessageHandler;
+import com.iot.vehicle.service.mqtt.TopicMatch;
+import com.iot.vehicle.service.service.DeviceDataService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 设备数据消息处理器（device/{deviceId}/data）
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceDataMessageHandler implements DeviceMessageHandler {
+
+    private final DeviceDataService deviceDataService;
+    private final DeviceLivenessTracker deviceLivenessTracker;
+
+    @Override
+    public String topicPattern() {
+        return MqttTopicConstants.SUBSCRIBE_ALL_DEVICE_DATA;
+    }
+
+    @Override
+    public void handle(TopicMatch match, byte[] payload) {
+        String deviceId = match.deviceId();
+        // 数据消息同时视为心跳
+        deviceLivenessTracker.touch(deviceId);
+        try {
+            // 直接在字节上解析，记录由当前工作线程（虚拟线程模式下为当前串行通道）的解析器复用
+            DeviceDataRecord record = DeviceDataPayloadParser.current().parse(payload);
+            
+            // 保存数据
+            deviceDataService.saveDeviceData(deviceId, record);
+            
+            log.debug("设备数据处理成功: deviceId={}", deviceId);
+        } catch (Exception e) {
+            log.error("处理设备数据失败: deviceId={}, payload={}", deviceId,
+                    new String(payload, StandardCharsets.UTF_8), e);
+        }
+    }
+}
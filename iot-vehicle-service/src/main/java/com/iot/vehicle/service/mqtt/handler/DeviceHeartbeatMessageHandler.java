@@ -0,0 +1,34 @@
+package com.iot.vehicle.service.mqtt.handler;
+
+import com.iot.vehicle.common.core.constants.MqttTopicConstants;
+import com.iot.vehicle.service.liveness.DeviceLivenessTracker;
+import com.iot.vehicle.service.mqtt.DeviceMessageHandler;
+import com.iot.vehicle.service.mqtt.TopicMatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备心跳消息处理器（device/{deviceId}/heartbeat）
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceHeartbeatMessageHandler implements DeviceMessageHandler {
+
+    private final DeviceLivenessTracker deviceLivenessTracker;
+
+    @Override
+    public String topicPattern() {
+        return MqttTopicConstants.SUBSCRIBE_ALL_DEVICE_HEARTBEAT;
+    }
+
+    @Override
+    public void handle(TopicMatch match, byte[] payload) {
+        String deviceId = match.deviceId();
+        log.debug("收到设备心跳: deviceId={}", deviceId);
+        deviceLivenessTracker.touch(deviceId);
+    }
+}
@@ -0,0 +1,28 @@
+package com.iot.vehicle.service.mqtt.handler;
+
+import com.iot.vehicle.common.core.constants.MqttTopicConstants;
+import com.iot.vehicle.service.mqtt.DeviceMessageHandler;
+import com.iot.vehicle.service.mqtt.TopicMatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备位置消息处理器（device/{deviceId}/location）
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+public class DeviceLocationMessageHandler implements DeviceMessageHandler {
+
+    @Override
+    public String topicPattern() {
+        return MqttTopicConstants.SUBSCRIBE_ALL_DEVICE_LOCATION;
+    }
+
+    @Override
+    public void handle(TopicMatch match, byte[] payload) {
+        log.debug("处理设备位置: deviceId={}, size={}", match.deviceId(), payload.length);
+        // TODO: 实现位置数据处理
+    }
+}
@@ -0,0 +1,51 @@
+package com.iot.vehicle.service.mqtt.handler;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.iot.vehicle.common.core.constants.MqttTopicConstants;
+import com.iot.vehicle.service.liveness.DeviceLivenessTracker;
+import com.iot.vehicle.service.mqtt.DeviceAuthService;
+import com.iot.vehicle.service.mqtt.DeviceMessageHandler;
+import com.iot.vehicle.service.mqtt.TopicMatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 设备状态消息处理器（device/{deviceId}/status）
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceStatusMessageHandler implements DeviceMessageHandler {
+
+    private final DeviceAuthService deviceAuthService;
+    private final DeviceLivenessTracker deviceLivenessTracker;
+
+    @Override
+    public String topicPattern() {
+        return MqttTopicConstants.SUBSCRIBE_ALL_DEVICE_STATUS;
+    }
+
+    @Override
+    public void handle(TopicMatch match, byte[] payload) {
+        String deviceId = match.deviceId();
+        try {
+            JSONObject json = JSON.parseObject(payload);
+            String status = json.getString("status");
+            
+            if ("online".equals(status)) {
+                String ipAddress = json.getString("ip");
+                deviceAuthService.deviceOnline(deviceId, ipAddress);
+                deviceLivenessTracker.track(deviceId);
+            } else if ("offline".equals(status)) {
+                deviceLivenessTracker.untrack(deviceId);
+                deviceAuthService.deviceOffline(deviceId);
+            }
+        } catch (Exception e) {
+            log.error("处理设备状态消息失败: deviceId={}", deviceId, e);
+        }
+    }
+}
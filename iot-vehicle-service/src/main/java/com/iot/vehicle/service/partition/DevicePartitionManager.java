@@ -0,0 +1,384 @@
+package com.iot.vehicle.service.partition;
+
+import com.iot.vehicle.service.config.ArchiveProperties;
+import com.iot.vehicle.service.config.PartitionProperties;
+import com.iot.vehicle.service.config.PartitionProperties.PartitionInterval;
+import com.iot.vehicle.service.config.RollupProperties;
+import com.iot.vehicle.service.mapper.DevicePartitionMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.core.BaseConnection;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 设备数据分区管理器
+ *
+ * 启动时和每天定时执行：按配置的粒度预建当前及未来的分区，把超出保留期的分区分离（可选删除）。
+ * 管理原始数据表tb_device_data，以及按月分区的汇总表tb_device_data_1m、tb_device_data_1h。
+ * 删除过期数据只需要分离/删除整个分区，不产生大量DELETE和VACUUM；每个分区的索引大小也不会随总数据量增长。
+ * 切换分区粒度时已有分区保持不变，新分区只覆盖尚未被已有分区覆盖的时间范围。
+ * 三张表都没有DEFAULT分区，维护后记录每张表已有分区覆盖的时间范围，接入和汇总时据此跳过落在范围外的数据
+ * （设备时钟错误、汇总表保留期短于原始数据等），避免一条数据导致整批写入失败。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DevicePartitionManager {
+
+    public static final String DEVICE_DATA_TABLE = "tb_device_data";
+    static final String MINUTE_ROLLUP_TABLE = "tb_device_data_1m";
+    static final String HOUR_ROLLUP_TABLE = "tb_device_data_1h";
+
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final Pattern BOUND_PATTERN = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter DAY_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final PartitionProperties partitionProperties;
+    private final RollupProperties rollupProperties;
+    private final ArchiveProperties archiveProperties;
+    private final DevicePartitionMapper devicePartitionMapper;
+    private final DataSource dataSource;
+
+    /**
+     * 表名 -> 已有分区覆盖的时间范围（相邻分区已合并，按起点排序），没有记录或为空表示未分区或未能加载，不限制写入
+     */
+    private volatile Map<String, List<PartitionRange>> writableRanges = Map.of();
+
+    @PostConstruct
+    public void init() {
+        if (Boolean.TRUE.equals(partitionProperties.getEnabled())) {
+            maintainSafely();
+        } else {
+            refreshWritableRanges();
+        }
+    }
+
+    /**
+     * 定时维护分区
+     */
+    @Scheduled(cron = "${device-data.partition.cron:0 10 0 * * ?}")
+    public void scheduledMaintain() {
+        if (Boolean.TRUE.equals(partitionProperties.getEnabled())) {
+            maintainSafely();
+        } else {
+            refreshWritableRanges();
+        }
+    }
+
+    /**
+     * 数据时间是否落在tb_device_data已有分区内
+     *
+     * @param dataTime 数据时间
+     * @return 有分区可以写入时返回true
+     */
+    public boolean isWritable(LocalDateTime dataTime) {
+        return isWritable(DEVICE_DATA_TABLE, dataTime);
+    }
+
+    /**
+     * 时间是否落在指定分区表的已有分区内
+     *
+     * @param table 分区表名
+     * @param time  数据时间或汇总桶时间
+     * @return 有分区可以写入时返回true
+     */
+    public boolean isWritable(String table, LocalDateTime time) {
+        return covers(writableRanges.getOrDefault(table, List.of()), time);
+    }
+
+    /**
+     * 查询tb_device_data中已过保留期、仍挂载的分区（启用归档时由DeviceDataArchiver导出后再分离）
+     *
+     * @return 分区名，按起点排序
+     */
+    public List<String> selectExpiredPartitions() {
+        int retention = partitionProperties.getRetention();
+        if (!Boolean.TRUE.equals(partitionProperties.getEnabled()) || retention <= 0) {
+            return List.of();
+        }
+        PartitionInterval interval = partitionProperties.getInterval();
+        LocalDateTime cutoff = cutoff(interval, retention, periodStart(interval, LocalDate.now()));
+        return loadPartitions(DEVICE_DATA_TABLE).stream()
+                .filter(partition -> !partition.to().isAfter(cutoff))
+                .map(PartitionRange::name)
+                .toList();
+    }
+
+    /**
+     * 维护分区：预建未来分区，分离过期分区
+     */
+    public synchronized void maintain() {
+        maintainTable(DEVICE_DATA_TABLE, partitionProperties.getInterval(), partitionProperties.getRetention());
+        if (Boolean.TRUE.equals(rollupProperties.getEnabled())) {
+            maintainTable(MINUTE_ROLLUP_TABLE, PartitionInterval.MONTH, rollupProperties.getMinuteRetention());
+            maintainTable(HOUR_ROLLUP_TABLE, PartitionInterval.MONTH, rollupProperties.getHourRetention());
+        }
+    }
+
+    private void maintainTable(String table, PartitionInterval interval, int retention) {
+        try {
+            LocalDate current = periodStart(interval, LocalDate.now());
+            List<PartitionRange> partitions = loadPartitions(table);
+            createPartitions(table, interval, partitions, current);
+            expirePartitions(table, interval, retention, partitions, current);
+            updateWritableRanges(table, partitions);
+        } catch (Exception e) {
+            log.error("分区维护失败: table={}", table, e);
+        }
+    }
+
+    private void refreshWritableRanges() {
+        List<String> tables = Boolean.TRUE.equals(rollupProperties.getEnabled())
+                ? List.of(DEVICE_DATA_TABLE, MINUTE_ROLLUP_TABLE, HOUR_ROLLUP_TABLE)
+                : List.of(DEVICE_DATA_TABLE);
+        for (String table : tables) {
+            try {
+                updateWritableRanges(table, loadPartitions(table));
+            } catch (Exception e) {
+                log.error("加载分区范围失败: table={}", table, e);
+            }
+        }
+    }
+
+    private synchronized void updateWritableRanges(String table, List<PartitionRange> partitions) {
+        Map<String, List<PartitionRange>> updated = new HashMap<>(writableRanges);
+        updated.put(table, merge(partitions));
+        writableRanges = Map.copyOf(updated);
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            log.error("设备数据分区维护失败", e);
+        }
+    }
+
+    /**
+     * 创建当前及未来premake个分区中尚未被覆盖的范围
+     */
+    private void createPartitions(String table, PartitionInterval interval, List<PartitionRange> partitions, LocalDate current) {
+        int premake = Math.max(0, partitionProperties.getPremake());
+        LocalDate start = current;
+        for (int i = 0; i <= premake; i++) {
+            LocalDate end = nextPeriod(interval, start);
+            for (PartitionRange gap : uncovered(table, partitions, start.atStartOfDay(), end.atStartOfDay())) {
+                try {
+                    devicePartitionMapper.createPartition(table, gap.name(),
+                            BOUND_FORMAT.format(gap.from()), BOUND_FORMAT.format(gap.to()));
+                    partitions.add(gap);
+                    log.info("创建分区: name={}, from={}, to={}", gap.name(), gap.from(), gap.to());
+                } catch (Exception e) {
+                    log.error("创建分区失败: name={}", gap.name(), e);
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * 分离（并按配置删除）上界早于保留期起点的分区
+     */
+    private void expirePartitions(String table, PartitionInterval interval, int retention,
+                                  List<PartitionRange> partitions, LocalDate current) {
+        if (retention <= 0) {
+            return;
+        }
+        // 启用归档时过期的原始数据分区保持挂载，由DeviceDataArchiver导出并写入清单后再分离，
+        // 分离前历史查询仍从数据库读取，不会出现既不在数据库也不在归档中的天
+        if (DEVICE_DATA_TABLE.equals(table) && Boolean.TRUE.equals(archiveProperties.getEnabled())) {
+            return;
+        }
+        LocalDateTime cutoff = cutoff(interval, retention, current);
+        boolean drop = Boolean.TRUE.equals(partitionProperties.getDropDetached());
+        for (Iterator<PartitionRange> iterator = partitions.iterator(); iterator.hasNext(); ) {
+            PartitionRange partition = iterator.next();
+            if (partition.to().isAfter(cutoff)) {
+                continue;
+            }
+            try {
+                detachPartition(table, partition.name());
+                iterator.remove();
+                log.info("分离过期分区: name={}, to={}", partition.name(), partition.to());
+                if (drop) {
+                    devicePartitionMapper.dropTable(partition.name());
+                    log.info("删除过期分区: name={}", partition.name());
+                }
+            } catch (Exception e) {
+                log.error("处理过期分区失败: name={}", partition.name(), e);
+            }
+        }
+    }
+
+    /**
+     * 从分区表分离一个分区
+     *
+     * Druid的WallFilter无法解析ALTER TABLE ... DETACH PARTITION，经过连接池的过滤器执行会被拒绝，
+     * 因此与COPY写入一样取得底层的PostgreSQL连接直接执行。表名和分区名只允许小写标识符。
+     * 分离后刷新该表的可写范围，落在分离区间内的数据不再进入批量写入。
+     *
+     * @param table 分区表名
+     * @param name  分区名
+     */
+    public void detachPartition(String table, String name) throws SQLException {
+        String sql = detachSql(table, name, Boolean.TRUE.equals(partitionProperties.getDetachConcurrently()));
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.unwrap(BaseConnection.class).createStatement()) {
+            statement.execute(sql);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        try {
+            updateWritableRanges(table, loadPartitions(table));
+        } catch (Exception e) {
+            log.error("加载分区范围失败: table={}", table, e);
+        }
+    }
+
+    /**
+     * 分离分区的DDL，CONCURRENTLY不能在事务中执行
+     */
+    static String detachSql(String table, String name, boolean concurrently) {
+        if (!IDENTIFIER_PATTERN.matcher(table).matches() || !IDENTIFIER_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("非法的表名: table=" + table + ", name=" + name);
+        }
+        return "ALTER TABLE " + table + " DETACH PARTITION " + name + (concurrently ? " CONCURRENTLY" : "");
+    }
+
+    private List<PartitionRange> loadPartitions(String table) {
+        List<PartitionRange> partitions = new ArrayList<>();
+        for (PartitionInfo info : devicePartitionMapper.selectPartitions(table)) {
+            Matcher matcher = info.getBound() == null ? null : BOUND_PATTERN.matcher(info.getBound());
+            if (matcher == null || !matcher.find()) {
+                log.warn("跳过无法识别边界的分区: name={}, bound={}", info.getName(), info.getBound());
+                continue;
+            }
+            partitions.add(new PartitionRange(info.getName(),
+                    LocalDateTime.parse(matcher.group(1), BOUND_FORMAT),
+                    LocalDateTime.parse(matcher.group(2), BOUND_FORMAT)));
+        }
+        return partitions;
+    }
+
+    /**
+     * 计算[from, to)中未被已有分区覆盖的区间
+     */
+    static List<PartitionRange> uncovered(String table, List<PartitionRange> partitions, LocalDateTime from, LocalDateTime to) {
+        List<PartitionRange> sorted = new ArrayList<>(partitions);
+        sorted.sort(Comparator.comparing(PartitionRange::from));
+        List<PartitionRange> gaps = new ArrayList<>();
+        LocalDateTime cursor = from;
+        for (PartitionRange partition : sorted) {
+            if (!partition.to().isAfter(cursor) || !partition.from().isBefore(to)) {
+                continue;
+            }
+            if (partition.from().isAfter(cursor)) {
+                gaps.add(new PartitionRange(partitionName(table, cursor, partition.from()), cursor, partition.from()));
+            }
+            cursor = partition.to();
+            if (!cursor.isBefore(to)) {
+                return gaps;
+            }
+        }
+        gaps.add(new PartitionRange(partitionName(table, cursor, to), cursor, to));
+        return gaps;
+    }
+
+    /**
+     * 合并首尾相接的分区，得到按起点排序的连续时间范围
+     */
+    static List<PartitionRange> merge(List<PartitionRange> partitions) {
+        List<PartitionRange> sorted = new ArrayList<>(partitions);
+        sorted.sort(Comparator.comparing(PartitionRange::from));
+        List<PartitionRange> merged = new ArrayList<>();
+        for (PartitionRange partition : sorted) {
+            PartitionRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !partition.from().isAfter(last.to())) {
+                if (partition.to().isAfter(last.to())) {
+                    merged.set(merged.size() - 1, new PartitionRange(last.name(), last.from(), partition.to()));
+                }
+            } else {
+                merged.add(partition);
+            }
+        }
+        return List.copyOf(merged);
+    }
+
+    /**
+     * 时间是否落在某个范围内，范围为空时不限制
+     */
+    static boolean covers(List<PartitionRange> ranges, LocalDateTime time) {
+        if (ranges.isEmpty()) {
+            return true;
+        }
+        for (PartitionRange range : ranges) {
+            if (!time.isBefore(range.from()) && time.isBefore(range.to())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 分区命名：整月为 _pYYYYMM，整天为 _pYYYYMMDD，其余（切换粒度时的补齐区间）为 _pYYYYMMDD_YYYYMMDD
+     */
+    static String partitionName(String table, LocalDateTime from, LocalDateTime to) {
+        LocalDate start = from.toLocalDate();
+        LocalDate end = to.toLocalDate();
+        if (start.getDayOfMonth() == 1 && end.equals(start.plusMonths(1))) {
+            return table + "_p" + MONTH_SUFFIX.format(start);
+        }
+        if (end.equals(start.plusDays(1))) {
+            return table + "_p" + DAY_SUFFIX.format(start);
+        }
+        return table + "_p" + DAY_SUFFIX.format(start) + "_" + DAY_SUFFIX.format(end);
+    }
+
+    private static LocalDate periodStart(PartitionInterval interval, LocalDate date) {
+        return interval == PartitionInterval.MONTH ? date.withDayOfMonth(1) : date;
+    }
+
+    private static LocalDate nextPeriod(PartitionInterval interval, LocalDate start) {
+        return interval == PartitionInterval.MONTH ? start.plusMonths(1) : start.plusDays(1);
+    }
+
+    /**
+     * 保留期的截止时间，结束时间不晚于截止时间的分区已过期
+     */
+    private static LocalDateTime cutoff(PartitionInterval interval, int retention, LocalDate current) {
+        return minusPeriods(interval, current, retention).atStartOfDay();
+    }
+
+    private static LocalDate minusPeriods(PartitionInterval interval, LocalDate start, int periods) {
+        return interval == PartitionInterval.MONTH ? start.minusMonths(periods) : start.minusDays(periods);
+    }
+
+    /**
+     * 分区范围 [from, to)
+     */
+    record PartitionRange(String name, LocalDateTime from, LocalDateTime to) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.iot.vehicle.service.partition;
+
+import lombok.Data;
+
+/**
+ * 分区信息
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class PartitionInfo {
+
+    /**
+     * 分区表名
+     */
+    private String name;
+
+    /**
+     * 分区边界表达式，如 FOR VALUES FROM ('2026-10-01 00:00:00') TO ('2026-11-01 00:00:00')
+     */
+    private String bound;
+}
@@ -0,0 +1,258 @@
+package com.iot.vehicle.service.presence;
+
+import com.iot.vehicle.api.entity.DeviceOnlineLog;
+import com.iot.vehicle.common.core.enums.OnlineStatus;
+import com.iot.vehicle.service.cache.DeviceRegistryEntry;
+import com.iot.vehicle.service.config.PresenceProperties;
+import com.iot.vehicle.service.feed.DeviceChangeFeed;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import com.iot.vehicle.service.mapper.DeviceOnlineLogMapper;
+import com.iot.vehicle.service.statistics.DeviceStatisticsEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备在线状态管理器
+ *
+ * 上下线消息只更新内存中的状态机（{@link PresenceTracker}），刷写线程定时取出防抖到期的变化：
+ * 按目标状态各用一条语句批量更新tb_device的在线状态和最后上线/离线时间，只有数据库中状态确实变化的设备
+ * 才更新统计、发布变更流并记录上下线日志；已平息的抖动合并为一条日志，备注中记录合并的次数。
+ * 状态机的稳定状态是推断的，抖动汇总也按最终状态做条件更新，数据库中状态不同时按一次状态变化处理。
+ * 网络不稳定的设备在一个窗口内反复上下线，最终只产生一次状态写入和少量日志。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DevicePresenceManager {
+
+    private final PresenceProperties presenceProperties;
+    private final DeviceMapper deviceMapper;
+    private final DeviceOnlineLogMapper deviceOnlineLogMapper;
+    private final DeviceStatisticsEngine deviceStatisticsEngine;
+    private final DeviceChangeFeed deviceChangeFeed;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 写入失败、等待重试的日志，只由刷写线程访问
+     */
+    private final Deque<DeviceOnlineLog> pendingLogs = new ArrayDeque<>();
+
+    private PresenceTracker tracker;
+    private ScheduledExecutorService scheduler;
+    private Counter transitionCounter;
+    private Counter flapCounter;
+    private Counter duplicateCounter;
+    private Counter droppedLogCounter;
+
+    @PostConstruct
+    public void start() {
+        tracker = new PresenceTracker(Duration.ofMillis(presenceProperties.getOnlineDebounceMs()),
+                Duration.ofMillis(presenceProperties.getOfflineDebounceMs()));
+
+        transitionCounter = Counter.builder("iot.presence.transitions")
+                .description("写入数据库的在线状态变化数")
+                .register(meterRegistry);
+        flapCounter = Counter.builder("iot.presence.flaps")
+                .description("防抖期间被合并掉的上下线往返次数")
+                .register(meterRegistry);
+        duplicateCounter = Counter.builder("iot.presence.duplicates")
+                .description("与最近一次状态相同的重复上下线消息")
+                .register(meterRegistry);
+        droppedLogCounter = Counter.builder("iot.presence.log.dropped")
+                .description("本地暂存已满被丢弃的在线日志数")
+                .register(meterRegistry);
+        Gauge.builder("iot.presence.pending", this, manager -> manager.tracker.size())
+                .description("有未写入变化的设备数")
+                .register(meterRegistry);
+
+        long interval = presenceProperties.getFlushIntervalMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "presence-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> flushSafely(false), interval, interval, TimeUnit.MILLISECONDS);
+        log.info("设备在线状态管理器启动完成: flushIntervalMs={}, onlineDebounceMs={}, offlineDebounceMs={}", interval,
+                presenceProperties.getOnlineDebounceMs(), presenceProperties.getOfflineDebounceMs());
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(presenceProperties.getFlushIntervalMs() * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停机时不再等待防抖
+        flushSafely(true);
+        log.info("设备在线状态管理器已停止: unwrittenLogs={}", pendingLogs.size());
+    }
+
+    /**
+     * 设备上线
+     *
+     * @param entry     设备注册信息
+     * @param ipAddress IP地址
+     */
+    public void online(DeviceRegistryEntry entry, String ipAddress) {
+        offer(entry, true, ipAddress);
+    }
+
+    /**
+     * 设备离线
+     *
+     * @param entry 设备注册信息
+     */
+    public void offline(DeviceRegistryEntry entry) {
+        offer(entry, false, null);
+    }
+
+    private void offer(DeviceRegistryEntry entry, boolean online, String ipAddress) {
+        if (!tracker.offer(entry, online, ipAddress, LocalDateTime.now())) {
+            duplicateCounter.increment();
+        }
+    }
+
+    private void flushSafely(boolean force) {
+        try {
+            flush(force);
+        } catch (Exception e) {
+            log.error("刷写设备在线状态失败", e);
+        }
+    }
+
+    private void flush(boolean force) {
+        List<PresenceChange> changes = tracker.drain(LocalDateTime.now(), force);
+        List<PresenceChange> online = new ArrayList<>();
+        List<PresenceChange> offline = new ArrayList<>();
+        int flapSummaries = 0;
+        for (PresenceChange change : changes) {
+            // 抖动汇总的稳定状态是推断的，同样按最终状态做条件更新
+            (change.getOnline() ? online : offline).add(change);
+            if (!change.getTransition()) {
+                flapSummaries++;
+            }
+        }
+        apply(online, OnlineStatus.ONLINE.getCode());
+        apply(offline, OnlineStatus.OFFLINE.getCode());
+        if (!changes.isEmpty()) {
+            log.debug("刷写设备在线状态: online={}, offline={}, flapSummaries={}", online.size(), offline.size(),
+                    flapSummaries);
+        }
+        writeLogs();
+    }
+
+    /**
+     * 批量更新同一目标状态的设备，只处理数据库中状态确实变化的设备
+     */
+    private void apply(List<PresenceChange> changes, Integer onlineStatus) {
+        // 按主键排序，保证多实例并发更新时加锁顺序一致
+        changes.sort(Comparator.comparing(PresenceChange::getId));
+        int batchSize = presenceProperties.getBatchSize();
+        for (int from = 0; from < changes.size(); from += batchSize) {
+            List<PresenceChange> chunk = changes.subList(from, Math.min(from + batchSize, changes.size()));
+            Set<String> changed;
+            try {
+                changed = new HashSet<>(deviceMapper.updateOnlineStatusBatch(onlineStatus, chunk));
+            } catch (Exception e) {
+                log.error("批量更新设备在线状态失败，下次刷写重试: count={}", chunk.size(), e);
+                chunk.forEach(tracker::requeue);
+                continue;
+            }
+            for (PresenceChange change : chunk) {
+                if (changed.contains(change.getDeviceId())) {
+                    // 抖动汇总推断的稳定状态与数据库不符时，也是一次状态变化
+                    change.setTransition(true);
+                    change.setEventTime(change.getStateTime());
+                    transitionCounter.increment();
+                    onTransition(change, onlineStatus);
+                    keepLog(change);
+                } else if (change.getFlaps() > 0) {
+                    // 数据库中已是该状态，只保留抖动记录
+                    change.setTransition(false);
+                    keepLog(change);
+                }
+            }
+        }
+    }
+
+    private void onTransition(PresenceChange change, Integer onlineStatus) {
+        DeviceRegistryEntry entry = change.getEntry();
+        Integer before = change.getOnline() ? OnlineStatus.OFFLINE.getCode() : OnlineStatus.ONLINE.getCode();
+        deviceStatisticsEngine.onMoved(change.getDeviceId(), entry.statKey(before), entry.statKey(onlineStatus));
+        if (change.getOnline()) {
+            deviceChangeFeed.onOnline(change.getDeviceId(), change.getEventTime());
+        } else {
+            deviceChangeFeed.onOffline(change.getDeviceId(), change.getEventTime());
+        }
+    }
+
+    /**
+     * 变化已最终处理：计入抖动次数并记录日志
+     */
+    private void keepLog(PresenceChange change) {
+        flapCounter.increment(change.getFlaps());
+        if (!Boolean.TRUE.equals(presenceProperties.getLogEnabled())) {
+            return;
+        }
+        DeviceOnlineLog onlineLog = new DeviceOnlineLog();
+        onlineLog.setDeviceId(change.getDeviceId());
+        onlineLog.setEventType(change.getOnline() ? OnlineStatus.ONLINE.getCode() : OnlineStatus.OFFLINE.getCode());
+        onlineLog.setEventTime(change.getEventTime());
+        onlineLog.setIpAddress(change.getOnline() ? change.getIpAddress() : null);
+        if (change.getFlaps() > 0) {
+            onlineLog.setRemark(change.getTransition()
+                    ? "状态变化前合并抖动" + change.getFlaps() + "次"
+                    : "合并抖动" + change.getFlaps() + "次，状态未变化");
+        }
+        pendingLogs.add(onlineLog);
+        while (pendingLogs.size() > presenceProperties.getLogBufferCapacity()) {
+            pendingLogs.pollFirst();
+            droppedLogCounter.increment();
+        }
+    }
+
+    private void writeLogs() {
+        int batchSize = presenceProperties.getBatchSize();
+        while (!pendingLogs.isEmpty()) {
+            List<DeviceOnlineLog> batch = new ArrayList<>(Math.min(batchSize, pendingLogs.size()));
+            for (DeviceOnlineLog onlineLog : pendingLogs) {
+                if (batch.size() >= batchSize) {
+                    break;
+                }
+                batch.add(onlineLog);
+            }
+            try {
+                deviceOnlineLogMapper.insertBatch(batch);
+            } catch (Exception e) {
+                log.warn("写入设备在线日志失败，暂存后重试: pending={}, error={}", pendingLogs.size(), e.getMessage());
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                pendingLogs.pollFirst();
+            }
+        }
+    }
+}
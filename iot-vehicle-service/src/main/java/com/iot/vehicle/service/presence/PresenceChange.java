@@ -0,0 +1,57 @@
+package com.iot.vehicle.service.presence;
+
+import com.iot.vehicle.service.cache.DeviceRegistryEntry;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 防抖到期后需要写入的一次在线状态变化，或一段已平息的抖动汇总
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class PresenceChange {
+
+    private String deviceId;
+
+    /**
+     * 设备主键
+     */
+    private Long id;
+
+    /**
+     * 变化后的状态；抖动汇总时为抖动前后保持不变的状态
+     */
+    private Boolean online;
+
+    /**
+     * true-状态变化，false-只有被合并掉的抖动，相对推断的稳定状态没有变化（写入后以数据库中的实际状态为准）
+     */
+    private Boolean transition;
+
+    /**
+     * 状态变化的时间；抖动汇总时为第一次抖动的时间
+     */
+    private LocalDateTime eventTime;
+
+    /**
+     * 进入变化后状态的时间，写入最后上线/离线时间
+     */
+    private LocalDateTime stateTime;
+
+    /**
+     * 最近一次上线的IP地址
+     */
+    private String ipAddress;
+
+    /**
+     * 被合并掉的往返次数（离线后又上线，或上线后又离线）
+     */
+    private Integer flaps;
+
+    /**
+     * 设备注册信息（用于更新统计）
+     */
+    private DeviceRegistryEntry entry;
+}
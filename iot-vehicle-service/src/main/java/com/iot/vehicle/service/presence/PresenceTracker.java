@@ -0,0 +1,191 @@
+package com.iot.vehicle.service.presence;
+
+import com.iot.vehicle.service.cache.DeviceRegistryEntry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备在线状态机
+ *
+ * 每个有未写入变化的设备保存两个状态：稳定状态（已写入数据库，或按第一次事件推断为相反状态）和最近一次事件的状态。
+ * 两者不同时进入防抖，保持到防抖时间结束才作为一次状态变化取出；防抖期间回到稳定状态则记为一次抖动，不产生状态写入，
+ * 抖动平息后取出一条汇总。状态已取出的设备从状态机中移除，内存只与近期有事件的设备数成正比。
+ * 推断的稳定状态可能与数据库不符（例如超时已判离线后才收到遗嘱离线消息，随后又上线），
+ * 因此抖动汇总同样要按最终状态写入，写入时按数据库中的实际状态做条件更新。
+ *
+ * @author dongxiang.wu
+ */
+public class PresenceTracker {
+
+    private final Duration onlineDebounce;
+    private final Duration offlineDebounce;
+
+    private final Map<String, Presence> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param onlineDebounce  上线防抖时间
+     * @param offlineDebounce 离线防抖时间（同时作为抖动平息的判断时间）
+     */
+    public PresenceTracker(Duration onlineDebounce, Duration offlineDebounce) {
+        this.onlineDebounce = onlineDebounce;
+        this.offlineDebounce = offlineDebounce;
+    }
+
+    /**
+     * 记录一次上下线事件
+     *
+     * @param entry     设备注册信息
+     * @param online    true-上线，false-离线
+     * @param ipAddress 上线时的IP地址
+     * @param time      事件时间
+     * @return true-状态有变化，false-与该设备最近一次事件相同（重复消息）
+     */
+    public boolean offer(DeviceRegistryEntry entry, boolean online, String ipAddress, LocalDateTime time) {
+        while (true) {
+            Presence presence = states.computeIfAbsent(entry.deviceId(), k -> new Presence(!online));
+            synchronized (presence) {
+                // 刚被取出移除的状态不能再修改，重新创建
+                if (!presence.removed) {
+                    return presence.apply(entry, online, ipAddress, time);
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出防抖已到期的状态变化和已平息的抖动汇总
+     *
+     * @param now   当前时间
+     * @param force true-不等待防抖，取出全部（停机时）
+     * @return 变化列表
+     */
+    public List<PresenceChange> drain(LocalDateTime now, boolean force) {
+        List<PresenceChange> changes = new ArrayList<>();
+        for (Map.Entry<String, Presence> state : states.entrySet()) {
+            Presence presence = state.getValue();
+            synchronized (presence) {
+                if (force || presence.due(now)) {
+                    if (presence.current != presence.stable || presence.flaps > 0) {
+                        changes.add(presence.toChange(state.getKey()));
+                    }
+                    presence.removed = true;
+                    states.remove(state.getKey(), presence);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 写入失败的状态变化或抖动汇总放回状态机，下次刷写时立即重试；该设备已有新事件时以新事件为准
+     *
+     * @param change 状态变化
+     */
+    public void requeue(PresenceChange change) {
+        states.computeIfAbsent(change.getDeviceId(), k -> {
+            Presence presence = new Presence(!change.getOnline());
+            presence.apply(change.getEntry(), change.getOnline(), change.getIpAddress(), change.getStateTime());
+            presence.flaps = change.getFlaps();
+            presence.retry = true;
+            return presence;
+        });
+    }
+
+    /**
+     * 有未写入变化的设备数
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * 单个设备的状态，访问时加锁
+     */
+    private final class Presence {
+
+        private final boolean stable;
+        private boolean current;
+        private DeviceRegistryEntry entry;
+        private String ipAddress;
+
+        /**
+         * 离开稳定状态的时间
+         */
+        private LocalDateTime changedAt;
+
+        /**
+         * 进入当前状态的时间
+         */
+        private LocalDateTime enteredAt;
+
+        /**
+         * 最近一次事件的时间
+         */
+        private LocalDateTime lastEventAt;
+
+        private int flaps;
+        private LocalDateTime firstFlapAt;
+
+        /**
+         * 写入失败后放回的变化，不再等待防抖
+         */
+        private boolean retry;
+        private boolean removed;
+
+        Presence(boolean stable) {
+            this.stable = stable;
+            this.current = stable;
+        }
+
+        boolean apply(DeviceRegistryEntry entry, boolean online, String ipAddress, LocalDateTime time) {
+            this.entry = entry;
+            this.lastEventAt = time;
+            if (online && ipAddress != null) {
+                this.ipAddress = ipAddress;
+            }
+            if (current == online) {
+                return false;
+            }
+            current = online;
+            enteredAt = time;
+            if (online != stable) {
+                changedAt = time;
+            } else {
+                flaps++;
+                if (firstFlapAt == null) {
+                    firstFlapAt = changedAt;
+                }
+            }
+            return true;
+        }
+
+        boolean due(LocalDateTime now) {
+            if (retry) {
+                return true;
+            }
+            if (current != stable) {
+                return !changedAt.plus(current ? onlineDebounce : offlineDebounce).isAfter(now);
+            }
+            return !lastEventAt.plus(offlineDebounce).isAfter(now);
+        }
+
+        PresenceChange toChange(String deviceId) {
+            PresenceChange change = new PresenceChange();
+            change.setDeviceId(deviceId);
+            change.setId(entry.id());
+            change.setOnline(current);
+            change.setTransition(current != stable);
+            change.setEventTime(current != stable ? changedAt : firstFlapAt);
+            change.setStateTime(enteredAt);
+            change.setIpAddress(ipAddress);
+            change.setFlaps(flaps);
+            change.setEntry(entry);
+            return change;
+        }
+    }
+}
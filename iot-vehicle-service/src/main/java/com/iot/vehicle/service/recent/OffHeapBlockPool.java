@@ -0,0 +1,84 @@
+package com.iot.vehicle.service.recent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 堆外固定大小块的内存池
+ *
+ * 按slab向操作系统申请直接内存（ByteBuffer.allocateDirect），切分为固定大小的块，块用整数编号。
+ * 释放的块放入空闲栈复用，slab申请后不再归还，总量不超过上限。
+ *
+ * @author dongxiang.wu
+ */
+final class OffHeapBlockPool {
+
+    private final int blockBytes;
+    private final int blocksPerSlab;
+    private final int maxBlocks;
+    private final ByteBuffer[] slabs;
+    private final int[] free;
+
+    private int freeCount;
+    private int allocatedBlocks;
+
+    /**
+     * @param blockBytes 块大小（字节）
+     * @param slabBytes  每个slab的大小（字节）
+     * @param maxBytes   内存上限（字节）
+     */
+    OffHeapBlockPool(int blockBytes, int slabBytes, long maxBytes) {
+        this.blockBytes = blockBytes;
+        this.blocksPerSlab = Math.max(1, slabBytes / blockBytes);
+        int slabCount = (int) Math.max(1, maxBytes / ((long) blocksPerSlab * blockBytes));
+        this.maxBlocks = slabCount * blocksPerSlab;
+        this.slabs = new ByteBuffer[slabCount];
+        this.free = new int[maxBlocks];
+    }
+
+    /**
+     * 分配一个块
+     *
+     * @return 块编号，内存已用满时返回-1
+     */
+    synchronized int allocate() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (allocatedBlocks >= maxBlocks) {
+            return -1;
+        }
+        int slab = allocatedBlocks / blocksPerSlab;
+        if (slabs[slab] == null) {
+            slabs[slab] = ByteBuffer.allocateDirect(blocksPerSlab * blockBytes);
+        }
+        return allocatedBlocks++;
+    }
+
+    synchronized void release(int block) {
+        free[freeCount++] = block;
+    }
+
+    /**
+     * 块所在的slab（调用方需要先通过allocate获得该块，slab引用的可见性由调用方的锁保证）
+     */
+    ByteBuffer slab(int block) {
+        return slabs[block / blocksPerSlab];
+    }
+
+    int offset(int block) {
+        return (block % blocksPerSlab) * blockBytes;
+    }
+
+    int blockBytes() {
+        return blockBytes;
+    }
+
+    synchronized long usedBytes() {
+        return (long) (allocatedBlocks - freeCount) * blockBytes;
+    }
+
+    synchronized long reservedBytes() {
+        long slabBytes = (long) blocksPerSlab * blockBytes;
+        return (allocatedBlocks + blocksPerSlab - 1) / blocksPerSlab * slabBytes;
+    }
+}
@@ -0,0 +1,212 @@
+package com.iot.vehicle.service.recent;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.api.vo.DeviceRecentPointVO;
+import com.iot.vehicle.service.config.RecentDataProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 设备近期数据内存缓冲
+ *
+ * 接入时把每条样本的位置、速度和转速压缩写入该设备的堆外序列，保留最近windowMinutes分钟，
+ * 轨迹回放和"最近N分钟"曲线直接从内存读取，不访问数据库。
+ * 数值以float保存（经纬度精度约1米），乱序到达的旧样本不写入缓冲。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecentDataBuffer {
+
+    private static final long MB = 1024L * 1024L;
+
+    private final RecentDataProperties recentDataProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, RecentSeries> series = new ConcurrentHashMap<>();
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    private OffHeapBlockPool pool;
+    private ScheduledExecutorService scheduler;
+    private Counter exhaustedCounter;
+    private Counter outOfOrderCounter;
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(recentDataProperties.getEnabled())) {
+            log.info("近期数据缓冲未启用");
+            return;
+        }
+        pool = new OffHeapBlockPool(recentDataProperties.getBlockBytes(),
+                (int) (recentDataProperties.getSlabMb() * MB),
+                recentDataProperties.getMaxMemoryMb() * MB);
+
+        Gauge.builder("iot.recent.memory.used", pool, OffHeapBlockPool::usedBytes)
+                .description("近期数据缓冲已使用的堆外内存（字节）")
+                .register(meterRegistry);
+        Gauge.builder("iot.recent.memory.reserved", pool, OffHeapBlockPool::reservedBytes)
+                .description("近期数据缓冲已申请的堆外内存（字节）")
+                .register(meterRegistry);
+        Gauge.builder("iot.recent.samples", sampleCount, AtomicLong::get)
+                .description("近期数据缓冲中的样本数")
+                .register(meterRegistry);
+        Gauge.builder("iot.recent.devices", series, Map::size)
+                .description("近期数据缓冲中的设备数")
+                .register(meterRegistry);
+        exhaustedCounter = Counter.builder("iot.recent.dropped")
+                .description("未写入近期数据缓冲的样本数")
+                .tag("reason", "memory")
+                .register(meterRegistry);
+        outOfOrderCounter = Counter.builder("iot.recent.dropped")
+                .description("未写入近期数据缓冲的样本数")
+                .tag("reason", "out_of_order")
+                .register(meterRegistry);
+
+        long interval = recentDataProperties.getSweepIntervalMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "recent-data-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("近期数据缓冲启动完成: windowMinutes={}, maxMemoryMb={}, blockBytes={}",
+                recentDataProperties.getWindowMinutes(), recentDataProperties.getMaxMemoryMb(),
+                recentDataProperties.getBlockBytes());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 写入一条样本
+     *
+     * @param data 设备数据
+     */
+    public void offer(DeviceData data) {
+        if (pool == null || data.getDataTime() == null) {
+            return;
+        }
+        long time = toMillis(data.getDataTime());
+        if (time < System.currentTimeMillis() - windowMillis()) {
+            return;
+        }
+        float latitude = toFloat(data.getLatitude());
+        float longitude = toFloat(data.getLongitude());
+        float speed = toFloat(data.getSpeed());
+        float rpm = data.getSpeedRpm() == null ? Float.NaN : data.getSpeedRpm();
+        while (true) {
+            RecentSeries deviceSeries = series.computeIfAbsent(data.getDeviceId(), k -> new RecentSeries(pool));
+            switch (deviceSeries.append(time, latitude, longitude, speed, rpm)) {
+                case OK -> sampleCount.incrementAndGet();
+                case OUT_OF_ORDER -> outOfOrderCounter.increment();
+                case POOL_EXHAUSTED -> exhaustedCounter.increment();
+                // 序列刚被回收，重新创建
+                case CLOSED -> {
+                    continue;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * 查询设备在[start, end)内的近期样本
+     *
+     * @param deviceId 设备ID
+     * @param start    开始时间（包含）
+     * @param end      结束时间（不包含）
+     * @return 按数据时间升序的样本，缓冲未启用或没有数据时返回空列表
+     */
+    public List<DeviceRecentPointVO> query(String deviceId, LocalDateTime start, LocalDateTime end) {
+        RecentSeries deviceSeries = series.get(deviceId);
+        List<DeviceRecentPointVO> points = new ArrayList<>();
+        if (deviceSeries == null) {
+            return points;
+        }
+        deviceSeries.read(toMillis(start), toMillis(end), (time, latitude, longitude, speed, rpm) -> {
+            DeviceRecentPointVO point = new DeviceRecentPointVO();
+            point.setDataTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()));
+            point.setLatitude(toDouble(latitude));
+            point.setLongitude(toDouble(longitude));
+            point.setSpeed(toDouble(speed));
+            point.setRpm(Float.isNaN(rpm) ? null : (int) rpm);
+            points.add(point);
+        });
+        return points;
+    }
+
+    /**
+     * 缓冲覆盖的时间窗口（分钟），缓冲未启用时为0
+     */
+    public int windowMinutes() {
+        return pool == null ? 0 : recentDataProperties.getWindowMinutes();
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.error("回收近期数据缓冲失败", e);
+        }
+    }
+
+    private void sweep() {
+        long cutoff = System.currentTimeMillis() - windowMillis();
+        long expired = 0;
+        int removed = 0;
+        for (Map.Entry<String, RecentSeries> entry : series.entrySet()) {
+            RecentSeries deviceSeries = entry.getValue();
+            expired += deviceSeries.expire(cutoff);
+            if (deviceSeries.closeIfEmpty() && series.remove(entry.getKey(), deviceSeries)) {
+                removed++;
+            }
+        }
+        sampleCount.addAndGet(-expired);
+        log.debug("近期数据缓冲回收完成: expiredSamples={}, removedDevices={}, usedBytes={}",
+                expired, removed, pool.usedBytes());
+    }
+
+    private long windowMillis() {
+        return recentDataProperties.getWindowMinutes() * 60_000L;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static float toFloat(BigDecimal value) {
+        return value == null ? Float.NaN : value.floatValue();
+    }
+
+    /**
+     * 按float的最短十进制表示转换，避免出现31.230400085449219这样的尾数
+     */
+    private static Double toDouble(float value) {
+        return Float.isNaN(value) ? null : Double.valueOf(Float.toString(value));
+    }
+}
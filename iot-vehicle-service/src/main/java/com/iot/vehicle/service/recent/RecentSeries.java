@@ -0,0 +1,320 @@
+package com.iot.vehicle.service.recent;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 单个设备的近期样本序列
+ *
+ * 样本按Gorilla方式流式编码到堆外块中：时间戳为毫秒的二阶差分，纬度、经度、速度、转速为float的异或编码，
+ * 缺失的值记为NaN。每个块从原始值开始编码，可以独立解码；块写满后申请新块，过期时按块整体释放。
+ * 块的起止时间和样本数保存在堆内，查询时跳过时间范围外的块。
+ *
+ * @author dongxiang.wu
+ */
+final class RecentSeries {
+
+    static final int CHANNELS = 4;
+
+    /**
+     * 单个样本编码后的最大位数：时间戳4+64位，每个通道2+5+5+32位
+     */
+    private static final int MAX_SAMPLE_BITS = 68 + CHANNELS * 44;
+
+    /**
+     * 样本的读取回调
+     */
+    interface SampleConsumer {
+        void accept(long time, float latitude, float longitude, float speed, float rpm);
+    }
+
+    /**
+     * 追加结果
+     */
+    enum AppendResult {
+        OK,
+        OUT_OF_ORDER,
+        POOL_EXHAUSTED,
+        CLOSED
+    }
+
+    private final OffHeapBlockPool pool;
+
+    private int[] blocks = new int[4];
+    private long[] blockStart = new long[4];
+    private long[] blockEnd = new long[4];
+    private int[] blockCount = new int[4];
+    private int size;
+    private long sampleCount;
+    private boolean closed;
+
+    // 当前块的编码状态
+    private ByteBuffer buffer;
+    private int base;
+    private int bitPosition;
+    private long lastTime;
+    private long lastDelta;
+    private final int[] lastBits = new int[CHANNELS];
+    private final int[] lastLeading = new int[CHANNELS];
+    private final int[] lastTrailing = new int[CHANNELS];
+
+    RecentSeries(OffHeapBlockPool pool) {
+        this.pool = pool;
+    }
+
+    synchronized AppendResult append(long time, float latitude, float longitude, float speed, float rpm) {
+        if (closed) {
+            return AppendResult.CLOSED;
+        }
+        if (size > 0 && time < lastTime) {
+            return AppendResult.OUT_OF_ORDER;
+        }
+        int[] bits = {
+                Float.floatToIntBits(latitude), Float.floatToIntBits(longitude),
+                Float.floatToIntBits(speed), Float.floatToIntBits(rpm)
+        };
+        if (size == 0 || bitPosition + MAX_SAMPLE_BITS > pool.blockBytes() * 8) {
+            if (!startBlock(time, bits)) {
+                return AppendResult.POOL_EXHAUSTED;
+            }
+        } else {
+            writeTimestamp(time);
+            for (int c = 0; c < CHANNELS; c++) {
+                writeValue(c, bits[c]);
+            }
+        }
+        int last = size - 1;
+        blockEnd[last] = time;
+        blockCount[last]++;
+        sampleCount++;
+        return AppendResult.OK;
+    }
+
+    /**
+     * 读取数据时间在[from, to)内的样本
+     */
+    synchronized void read(long from, long to, SampleConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            if (blockEnd[i] < from || blockStart[i] >= to) {
+                continue;
+            }
+            decodeBlock(blocks[i], blockCount[i], from, to, consumer);
+        }
+    }
+
+    /**
+     * 释放最后一个样本早于cutoff的块
+     *
+     * @return 释放的样本数
+     */
+    synchronized long expire(long cutoff) {
+        int expired = 0;
+        long samples = 0;
+        while (expired < size && blockEnd[expired] < cutoff) {
+            pool.release(blocks[expired]);
+            samples += blockCount[expired];
+            expired++;
+        }
+        if (expired > 0) {
+            int remaining = size - expired;
+            System.arraycopy(blocks, expired, blocks, 0, remaining);
+            System.arraycopy(blockStart, expired, blockStart, 0, remaining);
+            System.arraycopy(blockEnd, expired, blockEnd, 0, remaining);
+            System.arraycopy(blockCount, expired, blockCount, 0, remaining);
+            size = remaining;
+            sampleCount -= samples;
+        }
+        return samples;
+    }
+
+    /**
+     * 没有样本时关闭序列，关闭后不再接受追加（由调用方从索引中移除）
+     *
+     * @return 是否已关闭
+     */
+    synchronized boolean closeIfEmpty() {
+        if (size == 0) {
+            closed = true;
+        }
+        return closed;
+    }
+
+    synchronized long sampleCount() {
+        return sampleCount;
+    }
+
+    // ==================== 编码 ====================
+
+    private boolean startBlock(long time, int[] bits) {
+        int block = pool.allocate();
+        if (block < 0) {
+            return false;
+        }
+        if (size == blocks.length) {
+            int capacity = size * 2;
+            blocks = Arrays.copyOf(blocks, capacity);
+            blockStart = Arrays.copyOf(blockStart, capacity);
+            blockEnd = Arrays.copyOf(blockEnd, capacity);
+            blockCount = Arrays.copyOf(blockCount, capacity);
+        }
+        blocks[size] = block;
+        blockStart[size] = time;
+        blockCount[size] = 0;
+        size++;
+
+        buffer = pool.slab(block);
+        base = pool.offset(block);
+        bitPosition = 0;
+        writeBits(time, 64);
+        lastTime = time;
+        lastDelta = 0;
+        for (int c = 0; c < CHANNELS; c++) {
+            writeBits(bits[c], 32);
+            lastBits[c] = bits[c];
+            lastLeading[c] = -1;
+            lastTrailing[c] = 0;
+        }
+        return true;
+    }
+
+    private void writeTimestamp(long time) {
+        long delta = time - lastTime;
+        long deltaOfDelta = delta - lastDelta;
+        if (deltaOfDelta == 0) {
+            writeBits(0, 1);
+        } else if (fits(deltaOfDelta, 7)) {
+            writeBits(0b10, 2);
+            writeBits(deltaOfDelta, 7);
+        } else if (fits(deltaOfDelta, 9)) {
+            writeBits(0b110, 3);
+            writeBits(deltaOfDelta, 9);
+        } else if (fits(deltaOfDelta, 12)) {
+            writeBits(0b1110, 4);
+            writeBits(deltaOfDelta, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(deltaOfDelta, 64);
+        }
+        lastTime = time;
+        lastDelta = delta;
+    }
+
+    private void writeValue(int channel, int bits) {
+        int xor = bits ^ lastBits[channel];
+        lastBits[channel] = bits;
+        if (xor == 0) {
+            writeBits(0, 1);
+            return;
+        }
+        int leading = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        if (lastLeading[channel] >= 0 && leading >= lastLeading[channel] && trailing >= lastTrailing[channel]) {
+            writeBits(0b10, 2);
+            writeBits(xor >>> lastTrailing[channel], 32 - lastLeading[channel] - lastTrailing[channel]);
+        } else {
+            int significant = 32 - leading - trailing;
+            writeBits(0b11, 2);
+            writeBits(leading, 5);
+            writeBits(significant - 1, 5);
+            writeBits(xor >>> trailing, significant);
+            lastLeading[channel] = leading;
+            lastTrailing[channel] = trailing;
+        }
+    }
+
+    private void writeBits(long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            int index = base + (bitPosition >>> 3);
+            int mask = 0x80 >>> (bitPosition & 7);
+            byte b = buffer.get(index);
+            buffer.put(index, ((value >>> i) & 1L) != 0 ? (byte) (b | mask) : (byte) (b & ~mask));
+            bitPosition++;
+        }
+    }
+
+    // ==================== 解码 ====================
+
+    private void decodeBlock(int block, int count, long from, long to, SampleConsumer consumer) {
+        BlockReader reader = new BlockReader(pool.slab(block), pool.offset(block));
+        long time = reader.readBits(64);
+        long delta = 0;
+        int[] bits = new int[CHANNELS];
+        int[] leading = new int[CHANNELS];
+        int[] trailing = new int[CHANNELS];
+        for (int c = 0; c < CHANNELS; c++) {
+            bits[c] = (int) reader.readBits(32);
+        }
+        for (int i = 0; ; ) {
+            if (time >= from && time < to) {
+                consumer.accept(time, Float.intBitsToFloat(bits[0]), Float.intBitsToFloat(bits[1]),
+                        Float.intBitsToFloat(bits[2]), Float.intBitsToFloat(bits[3]));
+            }
+            if (++i >= count || time >= to) {
+                return;
+            }
+            delta += reader.readDeltaOfDelta();
+            time += delta;
+            for (int c = 0; c < CHANNELS; c++) {
+                if (reader.readBit()) {
+                    if (reader.readBit()) {
+                        leading[c] = (int) reader.readBits(5);
+                        int significant = (int) reader.readBits(5) + 1;
+                        trailing[c] = 32 - leading[c] - significant;
+                    }
+                    bits[c] ^= (int) (reader.readBits(32 - leading[c] - trailing[c]) << trailing[c]);
+                }
+            }
+        }
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private static final class BlockReader {
+
+        private final ByteBuffer buffer;
+        private final int base;
+        private int bitPosition;
+
+        BlockReader(ByteBuffer buffer, int base) {
+            this.buffer = buffer;
+            this.base = base;
+        }
+
+        boolean readBit() {
+            boolean bit = (buffer.get(base + (bitPosition >>> 3)) & (0x80 >>> (bitPosition & 7))) != 0;
+            bitPosition++;
+            return bit;
+        }
+
+        long readBits(int count) {
+            long value = 0;
+            for (int i = 0; i < count; i++) {
+                value = (value << 1) | (readBit() ? 1 : 0);
+            }
+            return value;
+        }
+
+        long readDeltaOfDelta() {
+            if (!readBit()) {
+                return 0;
+            }
+            if (!readBit()) {
+                return signExtend(readBits(7), 7);
+            }
+            if (!readBit()) {
+                return signExtend(readBits(9), 9);
+            }
+            if (!readBit()) {
+                return signExtend(readBits(12), 12);
+            }
+            return readBits(64);
+        }
+
+        private static long signExtend(long value, int bits) {
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.iot.vehicle.service.rollup;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.config.RollupProperties;
+import com.iot.vehicle.service.ingest.DeviceDataBatchWriter;
+import com.iot.vehicle.service.mapper.DeviceDataRollupMapper;
+import com.iot.vehicle.service.partition.DevicePartitionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备数据汇总累加器
+ *
+ * 接入时把每条样本累加到内存中的1分钟和1小时桶，定时通过合并UPSERT写入汇总表，
+ * 一个刷写窗口内同一设备同一时间桶的多条样本只产生一行写入。
+ * 1分钟和1小时桶分别维护，各自写入失败时只放回自己的桶，避免合并UPSERT重复累加。
+ * 汇总表的保留期可能短于原始数据，桶时间不在汇总表已有分区内的样本不累加到该表；
+ * 写入失败时与DeviceDataBatchWriter一致：暂时性错误整批放回重试，其他错误逐行写入，只丢弃写不进去的桶。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RollupAccumulator {
+
+    /**
+     * 单条UPSERT语句的最大行数（每行14个参数）
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 2000;
+
+    private final RollupProperties rollupProperties;
+    private final IngestProperties ingestProperties;
+    private final DeviceDataRollupMapper deviceDataRollupMapper;
+    private final DevicePartitionManager devicePartitionManager;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<BucketKey, RollupBucket> minuteBuckets = new ConcurrentHashMap<>();
+    private final Map<BucketKey, RollupBucket> hourBuckets = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private Counter sampleCounter;
+    private Counter minuteSkippedCounter;
+    private Counter hourSkippedCounter;
+    private Counter minuteDroppedCounter;
+    private Counter hourDroppedCounter;
+    private DistributionSummary minuteFlushSummary;
+    private DistributionSummary hourFlushSummary;
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(rollupProperties.getEnabled())) {
+            log.info("设备数据汇总未启用");
+            return;
+        }
+        sampleCounter = Counter.builder("iot.rollup.samples")
+                .description("累加到汇总桶的样本数")
+                .register(meterRegistry);
+        minuteSkippedCounter = skippedCounter("1m");
+        hourSkippedCounter = skippedCounter("1h");
+        minuteDroppedCounter = droppedCounter("1m");
+        hourDroppedCounter = droppedCounter("1h");
+        minuteFlushSummary = DistributionSummary.builder("iot.rollup.flush.size")
+                .description("每次合并写入的汇总行数")
+                .tag("resolution", "1m")
+                .register(meterRegistry);
+        hourFlushSummary = DistributionSummary.builder("iot.rollup.flush.size")
+                .description("每次合并写入的汇总行数")
+                .tag("resolution", "1h")
+                .register(meterRegistry);
+
+        long interval = rollupProperties.getFlushIntervalMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rollup-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("设备数据汇总累加器启动完成: flushIntervalMs={}", interval);
+    }
+
+    /**
+     * 累加一条样本
+     *
+     * @param data 设备数据
+     */
+    public void offer(DeviceData data) {
+        if (scheduler == null || data.getDataTime() == null) {
+            return;
+        }
+        LocalDateTime minute = data.getDataTime().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime hour = data.getDataTime().truncatedTo(ChronoUnit.HOURS);
+        if (devicePartitionManager.isWritable(RollupResolution.MINUTE_TABLE, minute)) {
+            accumulate(minuteBuckets, new BucketKey(data.getDeviceId(), minute), data);
+        } else {
+            minuteSkippedCounter.increment();
+        }
+        if (devicePartitionManager.isWritable(RollupResolution.HOUR_TABLE, hour)) {
+            accumulate(hourBuckets, new BucketKey(data.getDeviceId(), hour), data);
+        } else {
+            hourSkippedCounter.increment();
+        }
+        sampleCounter.increment();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(ingestProperties.getShutdownTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        log.info("设备数据汇总累加器已停止");
+    }
+
+    private static void accumulate(Map<BucketKey, RollupBucket> buckets, BucketKey key, DeviceData data) {
+        // compute在键级别加锁，桶只在锁内修改；被刷写线程取走后的样本会进入新桶
+        buckets.compute(key, (k, bucket) -> {
+            RollupBucket target = bucket != null ? bucket : new RollupBucket(k.deviceId(), k.bucketTime());
+            target.add(data);
+            return target;
+        });
+    }
+
+    private void flushSafely() {
+        try {
+            flush(minuteBuckets, RollupResolution.MINUTE_TABLE, minuteFlushSummary, minuteDroppedCounter);
+            flush(hourBuckets, RollupResolution.HOUR_TABLE, hourFlushSummary, hourDroppedCounter);
+        } catch (Exception e) {
+            log.error("刷写设备数据汇总失败", e);
+        }
+    }
+
+    private void flush(Map<BucketKey, RollupBucket> buckets, String table, DistributionSummary flushSummary,
+                       Counter droppedCounter) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        List<RollupBucket> batch = new ArrayList<>(buckets.size());
+        for (BucketKey key : buckets.keySet()) {
+            RollupBucket bucket = buckets.remove(key);
+            if (bucket != null) {
+                batch.add(bucket);
+            }
+        }
+        // 按主键排序，保证多实例并发UPSERT时加锁顺序一致
+        batch.sort(Comparator.comparing(RollupBucket::getDeviceId).thenComparing(RollupBucket::getBucketTime));
+
+        for (int from = 0; from < batch.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<RollupBucket> chunk = batch.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, batch.size()));
+            try {
+                deviceDataRollupMapper.mergeBatch(table, chunk);
+            } catch (Exception e) {
+                // 单条语句整体失败，没有累加任何行
+                if (DeviceDataBatchWriter.isTransient(e)) {
+                    log.warn("数据库暂时不可用，汇总桶放回下个窗口重试: table={}, count={}, error={}",
+                            table, chunk.size(), e.getMessage());
+                    requeue(buckets, chunk);
+                } else {
+                    log.error("合并写入汇总表失败，改为逐行写入: table={}, count={}", table, chunk.size(), e);
+                    requeue(buckets, mergeOneByOne(table, chunk, droppedCounter));
+                }
+            }
+        }
+        flushSummary.record(batch.size());
+        log.debug("合并写入汇总表: table={}, count={}", table, batch.size());
+    }
+
+    /**
+     * 逐行合并写入，只丢弃本身写不进去的桶（如桶时间所在的分区已过期删除）
+     *
+     * @return 数据库中途不可用时剩余未写入的桶
+     */
+    private List<RollupBucket> mergeOneByOne(String table, List<RollupBucket> chunk, Counter droppedCounter) {
+        for (int i = 0; i < chunk.size(); i++) {
+            RollupBucket bucket = chunk.get(i);
+            try {
+                deviceDataRollupMapper.mergeBatch(table, List.of(bucket));
+            } catch (Exception e) {
+                if (DeviceDataBatchWriter.isTransient(e)) {
+                    return chunk.subList(i, chunk.size());
+                }
+                droppedCounter.increment();
+                log.error("汇总桶写入失败，丢弃: table={}, deviceId={}, bucketTime={}",
+                        table, bucket.getDeviceId(), bucket.getBucketTime(), e);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * 放回未写入的桶，与窗口内的新样本合并后下个窗口重试
+     */
+    private static void requeue(Map<BucketKey, RollupBucket> buckets, List<RollupBucket> unwritten) {
+        unwritten.forEach(bucket -> buckets.merge(new BucketKey(bucket.getDeviceId(), bucket.getBucketTime()),
+                bucket, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                }));
+    }
+
+    private Counter skippedCounter(String resolution) {
+        return Counter.builder("iot.rollup.skipped")
+                .description("桶时间不在汇总表已有分区内而未累加的样本数")
+                .tag("resolution", resolution)
+                .register(meterRegistry);
+    }
+
+    private Counter droppedCounter(String resolution) {
+        return Counter.builder("iot.rollup.dropped")
+                .description("写入失败被丢弃的汇总行数")
+                .tag("resolution", resolution)
+                .register(meterRegistry);
+    }
+
+    private record BucketKey(String deviceId, LocalDateTime bucketTime) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.iot.vehicle.service.rollup;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 一个设备在一个时间桶内的汇总量
+ *
+ * 只包含可合并的量：计数和求和相加，最值取最值，首末值按数据时间取最早/最晚的非空值。
+ * 同一个桶既可以逐条累加样本，也可以与汇总表中已有的行或其他桶合并，合并顺序不影响结果。
+ * 对应tb_device_data_1m / tb_device_data_1h的一行。
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class RollupBucket {
+
+    private String deviceId;
+
+    /**
+     * 时间桶起点
+     */
+    private LocalDateTime bucketTime;
+
+    private int sampleCount;
+
+    /**
+     * 有速度的样本数（平均速度 = speedSum / speedCount）
+     */
+    private int speedCount;
+
+    private double speedSum;
+
+    private Double speedMin;
+
+    private Double speedMax;
+
+    private Integer rpmMax;
+
+    private LocalDateTime firstTime;
+
+    private LocalDateTime lastTime;
+
+    private Double fuelFirst;
+
+    private Double fuelLast;
+
+    private Double mileageFirst;
+
+    private Double mileageLast;
+
+    public RollupBucket(String deviceId, LocalDateTime bucketTime) {
+        this.deviceId = deviceId;
+        this.bucketTime = bucketTime;
+    }
+
+    /**
+     * 累加一条样本
+     *
+     * @param data 设备数据
+     */
+    public void add(DeviceData data) {
+        sampleCount++;
+        if (data.getSpeed() != null) {
+            double speed = data.getSpeed().doubleValue();
+            speedCount++;
+            speedSum += speed;
+            speedMin = speedMin == null ? speed : Math.min(speedMin, speed);
+            speedMax = speedMax == null ? speed : Math.max(speedMax, speed);
+        }
+        if (data.getSpeedRpm() != null) {
+            rpmMax = rpmMax == null ? data.getSpeedRpm() : Math.max(rpmMax, data.getSpeedRpm());
+        }
+        Double fuel = toDouble(data.getFuelLevel());
+        Double mileage = toDouble(data.getMileage());
+        mergeFirst(data.getDataTime(), fuel, mileage);
+        mergeLast(data.getDataTime(), fuel, mileage);
+    }
+
+    /**
+     * 合并另一个桶
+     *
+     * @param other 同一设备、同一时间桶（或被本桶包含的更细时间桶）的汇总量
+     */
+    public void merge(RollupBucket other) {
+        sampleCount += other.sampleCount;
+        speedCount += other.speedCount;
+        speedSum += other.speedSum;
+        if (other.speedMin != null) {
+            speedMin = speedMin == null ? other.speedMin : Math.min(speedMin, other.speedMin);
+        }
+        if (other.speedMax != null) {
+            speedMax = speedMax == null ? other.speedMax : Math.max(speedMax, other.speedMax);
+        }
+        if (other.rpmMax != null) {
+            rpmMax = rpmMax == null ? other.rpmMax : Math.max(rpmMax, other.rpmMax);
+        }
+        if (other.firstTime != null) {
+            mergeFirst(other.firstTime, other.fuelFirst, other.mileageFirst);
+        }
+        if (other.lastTime != null) {
+            mergeLast(other.lastTime, other.fuelLast, other.mileageLast);
+        }
+    }
+
+    /**
+     * 更早的样本的值优先，缺失时保留已有的值
+     */
+    private void mergeFirst(LocalDateTime time, Double fuel, Double mileage) {
+        if (firstTime == null || time.isBefore(firstTime)) {
+            firstTime = time;
+            fuelFirst = fuel != null ? fuel : fuelFirst;
+            mileageFirst = mileage != null ? mileage : mileageFirst;
+        } else {
+            fuelFirst = fuelFirst != null ? fuelFirst : fuel;
+            mileageFirst = mileageFirst != null ? mileageFirst : mileage;
+        }
+    }
+
+    /**
+     * 更晚的样本的值优先，缺失时保留已有的值
+     */
+    private void mergeLast(LocalDateTime time, Double fuel, Double mileage) {
+        if (lastTime == null || time.isAfter(lastTime)) {
+            lastTime = time;
+            fuelLast = fuel != null ? fuel : fuelLast;
+            mileageLast = mileage != null ? mileage : mileageLast;
+        } else {
+            fuelLast = fuelLast != null ? fuelLast : fuel;
+            mileageLast = mileageLast != null ? mileageLast : mileage;
+        }
+    }
+
+    private static Double toDouble(BigDecimal value) {
+        return value == null ? null : value.doubleValue();
+    }
+}
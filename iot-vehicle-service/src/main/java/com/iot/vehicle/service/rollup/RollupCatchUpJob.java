@@ -0,0 +1,67 @@
+package com.iot.vehicle.service.rollup;
+
+import com.iot.vehicle.service.config.RollupProperties;
+import com.iot.vehicle.service.mapper.DeviceDataRollupMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 设备数据汇总补算任务
+ *
+ * 增量累加只在样本到达时生效，迟到的数据、累加写入失败或服务重启丢失的桶都会让汇总表与原始数据不一致。
+ * 本任务定期用原始数据重算最近lookback分钟内（不含最近settle分钟）的1分钟汇总并覆盖已有的行，
+ * 再用1分钟汇总重算其中完整的小时。迟到时间不超过lookback的数据最终都会反映到汇总表中。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RollupCatchUpJob {
+
+    private final RollupProperties rollupProperties;
+    private final DeviceDataRollupMapper deviceDataRollupMapper;
+
+    /**
+     * 定时补算
+     */
+    @Scheduled(cron = "${device-data.rollup.catch-up-cron:0 */10 * * * ?}")
+    public void scheduledCatchUp() {
+        if (!Boolean.TRUE.equals(rollupProperties.getEnabled())) {
+            return;
+        }
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES)
+                .minusMinutes(rollupProperties.getCatchUpSettleMinutes());
+        LocalDateTime start = end.minusMinutes(rollupProperties.getCatchUpLookbackMinutes());
+        try {
+            catchUp(start, end);
+        } catch (Exception e) {
+            log.error("设备数据汇总补算失败: start={}, end={}", start, end, e);
+        }
+    }
+
+    /**
+     * 重算[start, end)内的1分钟汇总，以及其中已经结束的小时的1小时汇总
+     *
+     * @param start 开始时间
+     * @param end   结束时间
+     */
+    public void catchUp(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime minuteStart = start.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime minuteEnd = end.truncatedTo(ChronoUnit.MINUTES);
+        int minuteRows = deviceDataRollupMapper.rebuildMinute(minuteStart, minuteEnd);
+
+        // 只重算补算窗口结束前已经完整的小时，尚未结束的小时仍由增量累加维护
+        LocalDateTime hourStart = minuteStart.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime hourEnd = minuteEnd.truncatedTo(ChronoUnit.HOURS);
+        int hourRows = hourStart.isBefore(hourEnd) ? deviceDataRollupMapper.rebuildHour(hourStart, hourEnd) : 0;
+
+        log.info("设备数据汇总补算完成: start={}, end={}, minuteRows={}, hourRows={}",
+                minuteStart, minuteEnd, minuteRows, hourRows);
+    }
+}
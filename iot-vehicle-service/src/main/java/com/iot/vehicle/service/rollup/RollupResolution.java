@@ -0,0 +1,45 @@
+package com.iot.vehicle.service.rollup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 趋势查询的数据源和时间桶宽度
+ *
+ * @param table         汇总表
+ * @param bucketSeconds 返回的每个点覆盖的秒数（数据源粒度的整数倍）
+ * @author dongxiang.wu
+ */
+public record RollupResolution(String table, long bucketSeconds) {
+
+    public static final String MINUTE_TABLE = "tb_device_data_1m";
+    public static final String HOUR_TABLE = "tb_device_data_1h";
+
+    private static final long MINUTE = 60;
+    private static final long HOUR = 3600;
+
+    /**
+     * 选择满足点数限制的最细粒度：桶宽 = 时间范围 / 最大点数，向上取整到数据源粒度。
+     * 桶宽不小于1小时，或者起始时间早于1分钟表的保留范围时使用1小时表，否则使用1分钟表。
+     *
+     * @param start         开始时间（包含）
+     * @param end           结束时间（不包含）
+     * @param maxPoints     最大点数
+     * @param minuteCutoff  1分钟表保留的最早时间，null表示永久保留
+     * @return 数据源和桶宽
+     */
+    public static RollupResolution select(LocalDateTime start, LocalDateTime end, int maxPoints,
+                                          LocalDateTime minuteCutoff) {
+        long rangeSeconds = Duration.between(start, end).getSeconds();
+        long bucket = Math.max(MINUTE, ceilDiv(rangeSeconds, maxPoints));
+        boolean minuteExpired = minuteCutoff != null && start.isBefore(minuteCutoff);
+        if (bucket >= HOUR || minuteExpired) {
+            return new RollupResolution(HOUR_TABLE, ceilDiv(bucket, HOUR) * HOUR);
+        }
+        return new RollupResolution(MINUTE_TABLE, ceilDiv(bucket, MINUTE) * MINUTE);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return (x + y - 1) / y;
+    }
+}
@@ -0,0 +1,50 @@
+package com.iot.vehicle.service.service;
+
+import com.iot.vehicle.api.vo.ChangeFeedMessageVO;
+
+import java.util.List;
+
+/**
+ * 设备变更流消费服务
+ *
+ * @author dongxiang.wu
+ */
+public interface ChangeFeedService {
+
+    /**
+     * 按消息ID顺序读取指定ID之后的消息（不经过消费组，用于重放或补数）
+     *
+     * @param afterId 从该ID之后开始，为空时从最早的消息开始
+     * @param count   最多读取的条数
+     * @return 消息
+     */
+    List<ChangeFeedMessageVO> range(String afterId, Integer count);
+
+    /**
+     * 以消费组的身份读取消息，读到的消息需要确认，否则可以通过pending=true重新读取
+     *
+     * @param group    消费组（不存在时从流末尾创建）
+     * @param consumer 消费者名称
+     * @param count    最多读取的条数
+     * @param pending  true-读取已投递未确认的消息，false-读取新消息
+     * @return 消息
+     */
+    List<ChangeFeedMessageVO> read(String group, String consumer, Integer count, boolean pending);
+
+    /**
+     * 确认消息已处理
+     *
+     * @param group 消费组
+     * @param ids   消息ID
+     * @return 确认成功的条数
+     */
+    long ack(String group, List<String> ids);
+
+    /**
+     * 把消费组的位置重置到指定ID，之后从该ID之后重新投递
+     *
+     * @param group 消费组
+     * @param id    消息ID，"0"表示从最早的消息开始，"$"表示跳到末尾
+     */
+    void resetOffset(String group, String id);
+}
@@ -2,6 +2,14 @@ package com.iot.vehicle.service.service;
 
 import com.iot.vehicle.api.dto.DeviceDataDTO;
 import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.api.vo.DeviceRecentPointVO;
+import com.iot.vehicle.api.vo.DeviceTrendVO;
+import com.iot.vehicle.common.mybatis.result.CursorPageResult;
+import com.iot.vehicle.service.ingest.DeviceDataRecord;
+import com.iot.vehicle.service.track.TrackStream;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 设备数据服务接口
@@ -18,6 +26,14 @@ public interface DeviceDataService {
      */
     void saveDeviceData(String deviceId, DeviceDataDTO dataDTO);
 
+    /**
+     * 保存设备数据（MQTT接入路径，记录由流式解析器直接从原始报文填充）
+     *
+     * @param deviceId 设备ID
+     * @param record   解析后的数据记录（调用返回后即可复用）
+     */
+    void saveDeviceData(String deviceId, DeviceDataRecord record);
+
     /**
      * 获取设备最新数据
      *
@@ -31,6 +47,59 @@ public interface DeviceDataService {
      *
      * @param dataList 数据列表
      */
-    void batchSaveDeviceData(java.util.List<DeviceData> dataList);
-}
+    void batchSaveDeviceData(List<DeviceData> dataList);
+
+    /**
+     * 查询设备历史数据（已归档的天从归档文件读取，其余从数据库读取）
+     *
+     * @param deviceId 设备ID
+     * @param start    开始时间（包含）
+     * @param end      结束时间（不包含）
+     * @return 按数据时间升序的历史数据
+     */
+    List<DeviceData> getHistoryData(String deviceId, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * 游标分页查询设备历史数据（按数据时间升序，已归档的天从归档文件读取）
+     *
+     * @param deviceId 设备ID
+     * @param start    开始时间（包含）
+     * @param end      结束时间（不包含）
+     * @param cursor   上一页返回的游标，第一页为空
+     * @param size     每页大小
+     * @return 历史数据游标分页
+     */
+    CursorPageResult<DeviceData> getHistoryScroll(String deviceId, LocalDateTime start, LocalDateTime end,
+                                                  String cursor, Long size);
+
+    /**
+     * 查询设备数据趋势（从汇总表中选择满足点数限制的最细粒度）
+     *
+     * @param deviceId  设备ID
+     * @param start     开始时间（包含）
+     * @param end       结束时间（不包含）
+     * @param maxPoints 最大点数，null时使用默认值
+     * @return 趋势数据
+     */
+    DeviceTrendVO getTrend(String deviceId, LocalDateTime start, LocalDateTime end, Integer maxPoints);
 
+    /**
+     * 查询设备最近N分钟的位置、速度和转速（从内存缓冲读取，不访问数据库）
+     *
+     * @param deviceId 设备ID
+     * @param minutes  分钟数，不超过缓冲的时间窗口
+     * @return 按数据时间升序的样本
+     */
+    List<DeviceRecentPointVO> getRecentData(String deviceId, int minutes);
+
+    /**
+     * 打开设备轨迹查询（参数立即校验，数据在输出时才流式读取并简化）
+     *
+     * @param deviceId  设备ID
+     * @param start     开始时间（包含）
+     * @param end       结束时间（不包含）
+     * @param tolerance 简化容差（米），null时使用默认值，0表示不简化
+     * @return 轨迹流
+     */
+    TrackStream openTrack(String deviceId, LocalDateTime start, LocalDateTime end, Double tolerance);
+}
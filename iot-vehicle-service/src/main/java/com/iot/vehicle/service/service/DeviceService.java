@@ -3,8 +3,12 @@ package com.iot.vehicle.service.service;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.iot.vehicle.api.dto.CreateDeviceDTO;
 import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.api.vo.DeviceStatisticsVO;
 import com.iot.vehicle.api.vo.DeviceVO;
+import com.iot.vehicle.api.vo.GroupStatisticsVO;
+import com.iot.vehicle.common.mybatis.result.CursorPageResult;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -53,6 +57,22 @@ public interface DeviceService {
     Page<DeviceVO> getDevicePage(Long current, Long size, String deviceName, 
                                   String deviceType, Long groupId, Integer status, Integer onlineStatus);
 
+    /**
+     * 游标分页查询设备列表（按创建时间倒序，不执行COUNT，适合滚动加载）
+     *
+     * @param cursor       上一页返回的游标，第一页为空
+     * @param size         每页大小
+     * @param deviceName   设备名称（模糊查询）
+     * @param deviceType   设备类型
+     * @param groupId      分组ID
+     * @param status       设备状态
+     * @param onlineStatus 在线状态
+     * @param withTotal    是否返回总数（无筛选条件时为估算值）
+     * @return 设备游标分页列表
+     */
+    CursorPageResult<DeviceVO> getDeviceScroll(String cursor, Long size, String deviceName, String deviceType,
+                                               Long groupId, Integer status, Integer onlineStatus, boolean withTotal);
+
     /**
      * 更新设备信息
      *
@@ -97,5 +117,26 @@ public interface DeviceService {
      * @return 统计信息
      */
     Map<String, Object> getDeviceStatistics();
-}
 
+    /**
+     * 按分组统计设备数量（不含子分组）
+     *
+     * @return 各分组的统计，未分组的设备groupId为null
+     */
+    List<DeviceStatisticsVO> getGroupStatistics();
+
+    /**
+     * 按所有者统计设备数量
+     *
+     * @return 各所有者的统计，没有所有者的设备ownerId为null
+     */
+    List<DeviceStatisticsVO> getOwnerStatistics();
+
+    /**
+     * 按分组树统计设备数量和最新数据摘要（含全部子分组）
+     *
+     * @param groupId 分组ID，为空时返回全部顶级分组
+     * @return 分组统计树
+     */
+    List<GroupStatisticsVO> getGroupTreeStatistics(Long groupId);
+}
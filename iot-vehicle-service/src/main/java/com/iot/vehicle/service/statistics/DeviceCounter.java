@@ -0,0 +1,100 @@
+package com.iot.vehicle.service.statistics;
+
+import com.iot.vehicle.api.vo.DeviceStatisticsVO;
+import com.iot.vehicle.common.core.enums.DeviceStatus;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一组设备按(设备状态, 在线状态)的计数
+ *
+ * 计数格大小固定（状态数 x 2），汇总总数、在线数和各状态数的代价与设备数量无关。
+ * 非线程安全，由{@link DeviceStatisticsEngine}加锁访问。
+ *
+ * @author dongxiang.wu
+ */
+final class DeviceCounter {
+
+    private static final DeviceStatus[] STATUSES = DeviceStatus.values();
+
+    /**
+     * 最后一行存放不在DeviceStatus中的状态码
+     */
+    private static final int STATUS_SLOTS = STATUSES.length + 1;
+
+    private final long[] cells = new long[STATUS_SLOTS * 2];
+
+    void add(DeviceStatKey key, long delta) {
+        cells[index(key)] += delta;
+    }
+
+    void addAll(DeviceCounter other) {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] += other.cells[i];
+        }
+    }
+
+    long total() {
+        long total = 0;
+        for (long cell : cells) {
+            total += cell;
+        }
+        return total;
+    }
+
+    boolean isEmpty() {
+        for (long cell : cells) {
+            if (cell != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    DeviceStatisticsVO toVO() {
+        long total = 0;
+        long online = 0;
+        Map<String, Long> statusCount = new LinkedHashMap<>();
+        for (int slot = 0; slot < STATUS_SLOTS; slot++) {
+            long offlineCell = cells[slot * 2];
+            long onlineCell = cells[slot * 2 + 1];
+            total += offlineCell + onlineCell;
+            online += onlineCell;
+            if (slot < STATUSES.length) {
+                statusCount.put(STATUSES[slot].getDesc(), offlineCell + onlineCell);
+            }
+        }
+        DeviceStatisticsVO vo = new DeviceStatisticsVO();
+        vo.setTotalCount(total);
+        vo.setOnlineCount(online);
+        vo.setOfflineCount(total - online);
+        vo.setOnlineRate(total > 0 ? String.format("%.2f%%", online * 100.0 / total) : "0%");
+        vo.setStatusCount(statusCount);
+        return vo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DeviceCounter other && Arrays.equals(cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(cells);
+    }
+
+    private static int index(DeviceStatKey key) {
+        int slot = STATUSES.length;
+        if (key.status() != null) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                if (STATUSES[i].getCode().equals(key.status())) {
+                    slot = i;
+                    break;
+                }
+            }
+        }
+        return slot * 2 + (key.online() ? 1 : 0);
+    }
+}
@@ -0,0 +1,36 @@
+package com.iot.vehicle.service.statistics;
+
+import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.common.core.enums.OnlineStatus;
+
+/**
+ * 设备在统计中所处的位置：所属分组、所有者、设备状态和在线状态
+ *
+ * @param groupId      分组ID
+ * @param ownerId      所有者ID
+ * @param status       设备状态
+ * @param onlineStatus 在线状态
+ * @author dongxiang.wu
+ */
+public record DeviceStatKey(Long groupId, Long ownerId, Integer status, Integer onlineStatus) {
+
+    public static DeviceStatKey of(Device device) {
+        return new DeviceStatKey(device.getGroupId(), device.getOwnerId(), device.getStatus(), device.getOnlineStatus());
+    }
+
+    public DeviceStatKey withGroupId(Long groupId) {
+        return new DeviceStatKey(groupId, ownerId, status, onlineStatus);
+    }
+
+    public DeviceStatKey withStatus(Integer status) {
+        return new DeviceStatKey(groupId, ownerId, status, onlineStatus);
+    }
+
+    public DeviceStatKey withOnlineStatus(Integer onlineStatus) {
+        return new DeviceStatKey(groupId, ownerId, status, onlineStatus);
+    }
+
+    public boolean online() {
+        return OnlineStatus.ONLINE.getCode().equals(onlineStatus);
+    }
+}
@@ -0,0 +1,373 @@
+package com.iot.vehicle.service.statistics;
+
+import com.iot.vehicle.api.vo.DeviceStatisticsVO;
+import com.iot.vehicle.common.mybatis.util.TransactionUtil;
+import com.iot.vehicle.common.redis.pubsub.RedisChannelSubscriber;
+import com.iot.vehicle.service.config.DeviceStatisticsProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 设备数量统计引擎
+ *
+ * 在内存中按全局、分组、所有者三个维度维护(设备状态, 在线状态)计数。
+ * 注册、删除、改分组、上下线时由调用方报告设备在统计中的位置变化，事务提交后再计入，回滚的修改不会影响计数；
+ * 查询直接读取计数，与设备总量无关。
+ * 启动时和定时用一次GROUP BY查询重建计数，并与内存中的计数比对，修正并发或遗漏造成的偏差。
+ * 提交后的变化同时转发给{@link GroupStatisticsEngine}，按分组树汇总。
+ *
+ * 多节点部署时每个变化只由提交它的节点报告（上下线由处理该设备消息的节点报告），
+ * 提交后的变化按间隔批量通过Redis发布订阅广播，其他节点收到后同样计入，各节点的计数在广播延迟内一致。
+ * 计数的增减与顺序无关；广播丢失（订阅建立前、Redis不可用）时偏差由定时校对修正，
+ * 即最坏情况下统计接口在一个校对间隔内是最终一致的。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceStatisticsEngine {
+
+    private static final String ADDED = "A";
+    private static final String REMOVED = "R";
+    private static final String MOVED = "M";
+
+    /**
+     * 一条广播消息最多包含的变化数
+     */
+    private static final int MAX_CHANGES_PER_MESSAGE = 1000;
+
+    private final DeviceMapper deviceMapper;
+    private final MeterRegistry meterRegistry;
+    private final GroupStatisticsEngine groupStatisticsEngine;
+    private final DeviceStatisticsProperties deviceStatisticsProperties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisConnectionFactory redisConnectionFactory;
+
+    /**
+     * 本节点标识，收到自己广播的变化时跳过
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 已提交、等待广播的变化
+     */
+    private final Queue<String> pendingBroadcasts = new ConcurrentLinkedQueue<>();
+
+    private final Object lock = new Object();
+    private DeviceCounter global = new DeviceCounter();
+    private Map<Long, DeviceCounter> groups = new HashMap<>();
+    private Map<Long, DeviceCounter> owners = new HashMap<>();
+    private volatile boolean ready;
+
+    private RedisChannelSubscriber subscriber;
+    private Counter driftCounter;
+    private Counter broadcastFailedCounter;
+
+    @PostConstruct
+    public void init() {
+        driftCounter = Counter.builder("iot.device.statistics.drift")
+                .description("定时校对发现内存计数与数据库不一致的次数")
+                .register(meterRegistry);
+        broadcastFailedCounter = Counter.builder("iot.device.statistics.broadcast.failed")
+                .description("广播失败的统计变化数")
+                .register(meterRegistry);
+        reconcileSafely();
+
+        if (Boolean.TRUE.equals(deviceStatisticsProperties.getBroadcastEnabled())) {
+            subscriber = new RedisChannelSubscriber("statistics-subscriber", redisConnectionFactory,
+                    deviceStatisticsProperties.getChangeChannel(),
+                    (message, pattern) -> onBroadcast(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    deviceStatisticsProperties.getSubscribeRetryMs());
+            subscriber.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscriber != null) {
+            flushBroadcasts();
+            subscriber.stop();
+        }
+    }
+
+    /**
+     * 定时与数据库校对
+     */
+    @Scheduled(cron = "${device-statistics.reconcile-cron:0 */5 * * * ?}")
+    public void scheduledReconcile() {
+        reconcileSafely();
+    }
+
+    /**
+     * 批量广播已提交的变化
+     */
+    @Scheduled(fixedDelayString = "${device-statistics.broadcast-interval-ms:200}")
+    public void scheduledBroadcast() {
+        if (subscriber != null) {
+            flushBroadcasts();
+        }
+    }
+
+    /**
+     * 新增设备（注册）
+     */
+    public void onAdded(String deviceId, DeviceStatKey key) {
+        TransactionUtil.afterCommit(() -> {
+            added(deviceId, key);
+            broadcast(ADDED, deviceId, null, key);
+        });
+    }
+
+    /**
+     * 移除设备（删除）
+     */
+    public void onRemoved(String deviceId, DeviceStatKey key) {
+        TransactionUtil.afterCommit(() -> {
+            removed(deviceId, key);
+            broadcast(REMOVED, deviceId, key, null);
+        });
+    }
+
+    /**
+     * 设备的分组、所有者、状态或在线状态变化
+     */
+    public void onMoved(String deviceId, DeviceStatKey from, DeviceStatKey to) {
+        if (from.equals(to)) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            moved(deviceId, from, to);
+            broadcast(MOVED, deviceId, from, to);
+        });
+    }
+
+    /**
+     * 全部设备的统计
+     */
+    public DeviceStatisticsVO getStatistics() {
+        ensureReady();
+        synchronized (lock) {
+            return global.toVO();
+        }
+    }
+
+    /**
+     * 按分组统计（不含子分组，未分组的设备groupId为null）
+     */
+    public List<DeviceStatisticsVO> getGroupStatistics() {
+        ensureReady();
+        List<DeviceStatisticsVO> result = new ArrayList<>();
+        synchronized (lock) {
+            groups.forEach((groupId, counter) -> {
+                DeviceStatisticsVO vo = counter.toVO();
+                vo.setGroupId(groupId);
+                result.add(vo);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 按所有者统计（没有所有者的设备ownerId为null）
+     */
+    public List<DeviceStatisticsVO> getOwnerStatistics() {
+        ensureReady();
+        List<DeviceStatisticsVO> result = new ArrayList<>();
+        synchronized (lock) {
+            owners.forEach((ownerId, counter) -> {
+                DeviceStatisticsVO vo = counter.toVO();
+                vo.setOwnerId(ownerId);
+                result.add(vo);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 用数据库重建计数
+     *
+     * @return 重建前的内存计数是否与数据库一致（首次加载时为true）
+     */
+    public boolean reconcile() {
+        DeviceCounter newGlobal = new DeviceCounter();
+        Map<Long, DeviceCounter> newGroups = new HashMap<>();
+        Map<Long, DeviceCounter> newOwners = new HashMap<>();
+        for (DeviceStatisticsRow row : deviceMapper.selectStatistics()) {
+            DeviceStatKey key = new DeviceStatKey(row.getGroupId(), row.getOwnerId(),
+                    row.getStatus(), row.getOnlineStatus());
+            newGlobal.add(key, row.getDeviceCount());
+            newGroups.computeIfAbsent(row.getGroupId(), k -> new DeviceCounter()).add(key, row.getDeviceCount());
+            newOwners.computeIfAbsent(row.getOwnerId(), k -> new DeviceCounter()).add(key, row.getDeviceCount());
+        }
+
+        // 查询期间提交的变化可能已计入查询结果又被增量计入一次，偏差由下一次校对修正
+        boolean consistent;
+        synchronized (lock) {
+            consistent = !ready || (global.equals(newGlobal) && groups.equals(newGroups) && owners.equals(newOwners));
+            global = newGlobal;
+            groups = newGroups;
+            owners = newOwners;
+            ready = true;
+        }
+        if (!consistent) {
+            driftCounter.increment();
+            log.warn("设备统计与数据库不一致，已按数据库重建: total={}", newGlobal.total());
+        } else {
+            log.debug("设备统计校对完成: total={}, groups={}, owners={}",
+                    newGlobal.total(), newGroups.size(), newOwners.size());
+        }
+        return consistent;
+    }
+
+    /**
+     * 计入其他节点广播的变化，每行一个变化，跳过本节点发出的消息
+     *
+     * @param message nodeId后跟若干行 op|from|to|deviceId
+     */
+    void onBroadcast(String message) {
+        String[] lines = message.split("\n");
+        if (lines.length == 0 || nodeId.equals(lines[0])) {
+            return;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            try {
+                String[] fields = lines[i].split("\\|", 4);
+                DeviceStatKey from = decodeKey(fields[1]);
+                DeviceStatKey to = decodeKey(fields[2]);
+                switch (fields[0]) {
+                    case ADDED -> added(fields[3], to);
+                    case REMOVED -> removed(fields[3], from);
+                    case MOVED -> moved(fields[3], from, to);
+                    default -> log.warn("未知的设备统计变化: {}", lines[i]);
+                }
+            } catch (RuntimeException e) {
+                log.warn("解析设备统计变化失败: line={}, error={}", lines[i], e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 发布等待广播的变化，失败的变化丢弃，由定时校对修正
+     */
+    void flushBroadcasts() {
+        while (!pendingBroadcasts.isEmpty()) {
+            StringBuilder message = new StringBuilder(nodeId);
+            int count = 0;
+            String line;
+            while (count < MAX_CHANGES_PER_MESSAGE && (line = pendingBroadcasts.poll()) != null) {
+                message.append('\n').append(line);
+                count++;
+            }
+            if (count == 0) {
+                return;
+            }
+            try {
+                stringRedisTemplate.convertAndSend(deviceStatisticsProperties.getChangeChannel(), message.toString());
+            } catch (Exception e) {
+                broadcastFailedCounter.increment(count);
+                log.warn("广播设备统计变化失败，其他节点在下次校对时修正: count={}, error={}", count, e.getMessage());
+            }
+        }
+    }
+
+    private void added(String deviceId, DeviceStatKey key) {
+        synchronized (lock) {
+            apply(key, 1);
+        }
+        groupStatisticsEngine.onAdded(deviceId, key);
+    }
+
+    private void removed(String deviceId, DeviceStatKey key) {
+        synchronized (lock) {
+            apply(key, -1);
+        }
+        groupStatisticsEngine.onRemoved(deviceId);
+    }
+
+    private void moved(String deviceId, DeviceStatKey from, DeviceStatKey to) {
+        synchronized (lock) {
+            apply(from, -1);
+            apply(to, 1);
+        }
+        groupStatisticsEngine.onMoved(deviceId, to);
+    }
+
+    private void broadcast(String op, String deviceId, DeviceStatKey from, DeviceStatKey to) {
+        if (subscriber != null) {
+            pendingBroadcasts.add(op + "|" + encodeKey(from) + "|" + encodeKey(to) + "|" + deviceId);
+        }
+    }
+
+    /**
+     * 统计位置编码为 groupId,ownerId,status,onlineStatus，空值为空串，整个位置为空时为空串
+     */
+    static String encodeKey(DeviceStatKey key) {
+        if (key == null) {
+            return "";
+        }
+        return encode(key.groupId()) + "," + encode(key.ownerId()) + "," + encode(key.status()) + ","
+                + encode(key.onlineStatus());
+    }
+
+    static DeviceStatKey decodeKey(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        String[] parts = value.split(",", -1);
+        return new DeviceStatKey(parts[0].isEmpty() ? null : Long.valueOf(parts[0]),
+                parts[1].isEmpty() ? null : Long.valueOf(parts[1]),
+                parts[2].isEmpty() ? null : Integer.valueOf(parts[2]),
+                parts[3].isEmpty() ? null : Integer.valueOf(parts[3]));
+    }
+
+    private static String encode(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private void reconcileSafely() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("设备统计校对失败", e);
+        }
+    }
+
+    private void ensureReady() {
+        if (!ready) {
+            reconcile();
+        }
+    }
+
+    private void apply(DeviceStatKey key, long delta) {
+        global.add(key, delta);
+        apply(groups, key.groupId(), key, delta);
+        apply(owners, key.ownerId(), key, delta);
+    }
+
+    private static void apply(Map<Long, DeviceCounter> counters, Long dimension, DeviceStatKey key, long delta) {
+        DeviceCounter counter = counters.computeIfAbsent(dimension, k -> new DeviceCounter());
+        counter.add(key, delta);
+        if (counter.isEmpty()) {
+            counters.remove(dimension);
+        }
+    }
+}
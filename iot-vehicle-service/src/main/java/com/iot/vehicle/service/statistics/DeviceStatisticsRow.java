@@ -0,0 +1,22 @@
+package com.iot.vehicle.service.statistics;
+
+import lombok.Data;
+
+/**
+ * 按(分组, 所有者, 设备状态, 在线状态)分组的设备数
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class DeviceStatisticsRow {
+
+    private Long groupId;
+
+    private Long ownerId;
+
+    private Integer status;
+
+    private Integer onlineStatus;
+
+    private Long deviceCount;
+}
@@ -0,0 +1,35 @@
+package com.iot.vehicle.service.statistics;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 分组统计重建时读取的单个设备：所属分组、状态和最新数据
+ *
+ * @author dongxiang.wu
+ */
+@Data
+public class GroupMemberRow {
+
+    private String deviceId;
+
+    private Long groupId;
+
+    private Long ownerId;
+
+    private Integer status;
+
+    private Integer onlineStatus;
+
+    /**
+     * 最新速度（没有最新数据时为null）
+     */
+    private BigDecimal speed;
+
+    /**
+     * 最新数据时间（没有最新数据时为null）
+     */
+    private LocalDateTime dataTime;
+}
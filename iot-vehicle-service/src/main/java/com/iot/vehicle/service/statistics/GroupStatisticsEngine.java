@@ -0,0 +1,561 @@
+package com.iot.vehicle.service.statistics;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.api.entity.DeviceGroup;
+import com.iot.vehicle.api.vo.DeviceStatisticsVO;
+import com.iot.vehicle.api.vo.GroupStatisticsVO;
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.common.core.result.ResultCode;
+import com.iot.vehicle.service.mapper.DeviceGroupMapper;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 分组统计引擎
+ *
+ * 按tb_device_group的parent_id构建分组树，每个节点物化其子树（自身及全部子分组）的(设备状态, 在线状态)计数
+ * 和最新数据摘要：有数据的设备数、行驶设备数、行驶平均速度、最近数据时间。
+ * 注册、删除、改分组、上下线由{@link DeviceStatisticsEngine}在事务提交后转发，新数据由接入链路报告，
+ * 每次变化只更新设备所在分组到根的路径，代价与树的深度成正比；查询直接读取节点，不执行递归查询。
+ * 接入线程和事务回调只把变化放入并发队列（最新数据按设备合并），由单个更新线程按间隔应用到分组树，
+ * 再发布各节点计数的不可变快照；查询读取最近的快照，接入和查询都不获取锁，统计最多滞后一个发布间隔。
+ * 离线设备和超过{@link #MOVING_STALE_MINUTES}分钟没有新数据的设备不再计为行驶。
+ * 启动时和定时重新加载分组树并从数据库重建，新建或调整的分组在重建后生效，遗漏的变化也在重建时修正。
+ *
+ * @author dongxiang.wu
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GroupStatisticsEngine {
+
+    /**
+     * 低于该速度（km/h）视为停车，过滤静止时的GPS漂移
+     */
+    static final double MOVING_SPEED = 1.0;
+
+    /**
+     * 超过该时间（分钟）没有新数据的设备不再计为行驶
+     */
+    static final long MOVING_STALE_MINUTES = 5;
+
+    /**
+     * 应用变化并发布快照的间隔（毫秒）
+     */
+    private static final long PUBLISH_INTERVAL_MS = 1000;
+
+    private final DeviceGroupMapper deviceGroupMapper;
+    private final DeviceMapper deviceMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 等待应用的设备变化（注册、删除、改分组、上下线），按发生顺序
+     */
+    private final Queue<Consumer<GroupTree>> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 等待应用的最新数据，同一设备只保留数据时间最新的一条
+     */
+    private final Map<String, DeviceData> pendingTelemetry = new ConcurrentHashMap<>();
+
+    /**
+     * 只由更新线程和重建时的替换持有，接入和查询都不获取
+     */
+    private final Object updateLock = new Object();
+    private GroupTree tree = new GroupTree(List.of());
+    private volatile Snapshot snapshot = Snapshot.of(tree);
+    private volatile boolean ready;
+    private ScheduledExecutorService updater;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("iot.group.statistics.groups", this, engine -> engine.snapshot.groupCount())
+                .description("分组统计中的分组数")
+                .register(meterRegistry);
+        Gauge.builder("iot.group.statistics.devices", this, engine -> engine.snapshot.deviceCount())
+                .description("分组统计中跟踪的设备数")
+                .register(meterRegistry);
+        Gauge.builder("iot.group.statistics.pending", this,
+                        engine -> engine.pendingChanges.size() + engine.pendingTelemetry.size())
+                .description("等待应用到分组统计的变化数")
+                .register(meterRegistry);
+        rebuildSafely();
+
+        updater = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "group-statistics-updater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        updater.scheduleWithFixedDelay(this::flushSafely, PUBLISH_INTERVAL_MS, PUBLISH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (updater != null) {
+            updater.shutdownNow();
+        }
+    }
+
+    /**
+     * 定时重新加载分组树并重建
+     */
+    @Scheduled(cron = "${device-statistics.group-rebuild-cron:30 */5 * * * ?}")
+    public void scheduledRebuild() {
+        rebuildSafely();
+    }
+
+    /**
+     * 新增设备
+     */
+    public void onAdded(String deviceId, DeviceStatKey key) {
+        pendingChanges.add(tree -> tree.put(deviceId, key));
+    }
+
+    /**
+     * 移除设备
+     */
+    public void onRemoved(String deviceId) {
+        pendingChanges.add(tree -> tree.remove(deviceId));
+    }
+
+    /**
+     * 设备的分组、状态或在线状态变化
+     */
+    public void onMoved(String deviceId, DeviceStatKey to) {
+        pendingChanges.add(tree -> tree.put(deviceId, to));
+    }
+
+    /**
+     * 报告一条新数据，早于该设备当前最新数据的样本不计入
+     *
+     * @param data 设备数据
+     */
+    public void offer(DeviceData data) {
+        if (data.getDataTime() == null) {
+            return;
+        }
+        pendingTelemetry.merge(data.getDeviceId(), data,
+                (current, incoming) -> incoming.getDataTime().isBefore(current.getDataTime()) ? current : incoming);
+    }
+
+    /**
+     * 查询分组树的统计
+     *
+     * @param groupId 分组ID，为空时返回全部顶级分组
+     * @return 分组统计，子分组在children中
+     */
+    public List<GroupStatisticsVO> getStatistics(Long groupId) {
+        ensureReady();
+        // 分组树的结构在构建后不再变化，计数从快照中读取
+        Snapshot current = snapshot;
+        List<GroupNode> roots;
+        if (groupId == null) {
+            roots = current.tree().roots;
+        } else {
+            GroupNode node = current.tree().nodes.get(groupId);
+            if (node == null) {
+                throw new BusinessException(ResultCode.NOT_FOUND, "分组不存在");
+            }
+            roots = List.of(node);
+        }
+        List<GroupStatisticsVO> result = new ArrayList<>(roots.size());
+        for (GroupNode root : roots) {
+            result.add(toVO(root, current.copies()));
+        }
+        return result;
+    }
+
+    /**
+     * 应用等待中的变化和最新数据，过期行驶状态，并发布新的快照
+     */
+    void flush() {
+        flush(LocalDateTime.now());
+    }
+
+    void flush(LocalDateTime now) {
+        synchronized (updateLock) {
+            for (Consumer<GroupTree> change; (change = pendingChanges.poll()) != null; ) {
+                change.accept(tree);
+            }
+            for (String deviceId : pendingTelemetry.keySet()) {
+                DeviceData data = pendingTelemetry.remove(deviceId);
+                if (data != null) {
+                    tree.telemetry(deviceId, data.getDataTime(), data.getSpeed());
+                }
+            }
+            tree.expireMoving(now.minusMinutes(MOVING_STALE_MINUTES));
+            if (tree.dirty) {
+                tree.dirty = false;
+                snapshot = Snapshot.of(tree);
+            }
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("更新分组统计失败", e);
+        }
+    }
+
+    /**
+     * 重新加载分组树，并从数据库重建全部设备的统计
+     */
+    public void rebuild() {
+        List<DeviceGroup> groups = deviceGroupMapper.selectList(null);
+        GroupTree newTree = new GroupTree(groups);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<GroupMemberRow> cursor = deviceMapper.scanGroupMembers()) {
+                    newTree.load(cursor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("关闭分组统计游标失败", e.getCause());
+        }
+        swap(newTree);
+    }
+
+    /**
+     * 用给定的分组和设备重建（测试用）
+     */
+    void rebuild(List<DeviceGroup> groups, Iterable<GroupMemberRow> members) {
+        GroupTree newTree = new GroupTree(groups);
+        newTree.load(members);
+        swap(newTree);
+    }
+
+    private void swap(GroupTree newTree) {
+        // 重建期间排队的变化随后应用到新树（put/remove可重复执行），其余偏差由下一次重建修正
+        synchronized (updateLock) {
+            newTree.expireMoving(LocalDateTime.now().minusMinutes(MOVING_STALE_MINUTES));
+            newTree.dirty = false;
+            tree = newTree;
+            snapshot = Snapshot.of(newTree);
+            ready = true;
+        }
+        log.debug("分组统计重建完成: groups={}, devices={}", newTree.nodes.size(), newTree.devices.size());
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("分组统计重建失败", e);
+        }
+    }
+
+    private void ensureReady() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    private static void copy(GroupNode node, Map<GroupNode, GroupNode> copies) {
+        GroupNode copy = new GroupNode(node.group);
+        copy.merge(node);
+        copies.put(node, copy);
+        for (GroupNode child : node.children) {
+            copy(child, copies);
+        }
+    }
+
+    private static GroupStatisticsVO toVO(GroupNode node, Map<GroupNode, GroupNode> copies) {
+        GroupNode copy = copies.get(node);
+        DeviceStatisticsVO counts = copy.counter.toVO();
+        GroupStatisticsVO vo = new GroupStatisticsVO();
+        vo.setGroupId(node.group.getId());
+        vo.setParentId(node.group.getParentId());
+        vo.setGroupName(node.group.getGroupName());
+        vo.setLevelPath(node.group.getLevelPath());
+        vo.setDirectCount(copy.directCount);
+        vo.setTotalCount(counts.getTotalCount());
+        vo.setOnlineCount(counts.getOnlineCount());
+        vo.setOfflineCount(counts.getOfflineCount());
+        vo.setOnlineRate(counts.getOnlineRate());
+        vo.setStatusCount(counts.getStatusCount());
+        vo.setReportedCount(copy.reportedCount);
+        vo.setMovingCount(copy.movingCount);
+        vo.setAvgSpeed(copy.movingCount > 0
+                ? Math.round(copy.movingSpeedSum / (double) copy.movingCount) / 100.0 : null);
+        vo.setLatestDataTime(copy.latestDataTime);
+        List<GroupStatisticsVO> children = new ArrayList<>(node.children.size());
+        for (GroupNode child : node.children) {
+            children.add(toVO(child, copies));
+        }
+        vo.setChildren(children);
+        return vo;
+    }
+
+    /**
+     * 已发布的统计快照：分组树（只读取结构）和各节点计数的副本
+     */
+    private record Snapshot(GroupTree tree, Map<GroupNode, GroupNode> copies, int groupCount, int deviceCount) {
+
+        static Snapshot of(GroupTree tree) {
+            Map<GroupNode, GroupNode> copies = new HashMap<>();
+            for (GroupNode root : tree.roots) {
+                copy(root, copies);
+            }
+            return new Snapshot(tree, copies, tree.nodes.size(), tree.devices.size());
+        }
+    }
+
+    /**
+     * 分组树及其中跟踪的设备，非线程安全，只由持有更新锁的线程修改；
+     * 节点和父子关系在构造后不再变化，可以在锁外读取
+     */
+    private static final class GroupTree {
+
+        private final Map<Long, GroupNode> nodes = new HashMap<>();
+        private final List<GroupNode> roots = new ArrayList<>();
+        private final Map<String, DeviceSlot> devices = new HashMap<>();
+
+        /**
+         * 当前计为行驶的设备，用于过期检查
+         */
+        private final Set<DeviceSlot> moving = new HashSet<>();
+
+        /**
+         * 上次发布快照后是否有变化
+         */
+        private boolean dirty;
+
+        GroupTree(List<DeviceGroup> groups) {
+            for (DeviceGroup group : groups) {
+                nodes.put(group.getId(), new GroupNode(group));
+            }
+            Comparator<GroupNode> order = Comparator
+                    .comparing((GroupNode n) -> n.group.getSortOrder(), Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(n -> n.group.getId());
+            List<GroupNode> sorted = new ArrayList<>(nodes.values());
+            sorted.sort(order);
+            for (GroupNode node : sorted) {
+                GroupNode parent = node.group.getParentId() == null ? null : nodes.get(node.group.getParentId());
+                if (parent != null && parent.isDescendantOf(node)) {
+                    log.warn("分组的父分组形成环，按顶级分组统计: groupId={}, parentId={}",
+                            node.group.getId(), node.group.getParentId());
+                    parent = null;
+                }
+                if (parent == null) {
+                    roots.add(node);
+                } else {
+                    node.parent = parent;
+                    parent.children.add(node);
+                }
+            }
+        }
+
+        void load(Iterable<GroupMemberRow> members) {
+            for (GroupMemberRow row : members) {
+                DeviceSlot slot = new DeviceSlot(new DeviceStatKey(row.getGroupId(), row.getOwnerId(),
+                        row.getStatus(), row.getOnlineStatus()));
+                slot.setTelemetry(row.getDataTime(), row.getSpeed());
+                slot.moving &= slot.key.online();
+                devices.put(row.getDeviceId(), slot);
+                apply(slot, 1);
+            }
+        }
+
+        void put(String deviceId, DeviceStatKey key) {
+            DeviceSlot slot = devices.get(deviceId);
+            if (slot == null) {
+                slot = new DeviceSlot(key);
+                devices.put(deviceId, slot);
+            } else {
+                apply(slot, -1);
+                slot.key = key;
+            }
+            // 离线的设备不再计为行驶
+            slot.moving &= key.online();
+            apply(slot, 1);
+        }
+
+        void remove(String deviceId) {
+            DeviceSlot slot = devices.remove(deviceId);
+            if (slot != null) {
+                apply(slot, -1);
+                moving.remove(slot);
+            }
+        }
+
+        void telemetry(String deviceId, LocalDateTime dataTime, BigDecimal speed) {
+            DeviceSlot slot = devices.get(deviceId);
+            if (slot == null || (slot.dataTime != null && dataTime.isBefore(slot.dataTime))) {
+                return;
+            }
+            addTelemetry(slot, -1);
+            slot.setTelemetry(dataTime, speed);
+            slot.moving &= slot.key.online();
+            addTelemetry(slot, 1);
+        }
+
+        /**
+         * 最新数据早于staleBefore的设备不再计为行驶
+         */
+        void expireMoving(LocalDateTime staleBefore) {
+            List<DeviceSlot> expired = new ArrayList<>();
+            for (DeviceSlot slot : moving) {
+                if (slot.dataTime.isBefore(staleBefore)) {
+                    expired.add(slot);
+                }
+            }
+            for (DeviceSlot slot : expired) {
+                addTelemetry(slot, -1);
+                slot.moving = false;
+                addTelemetry(slot, 1);
+            }
+        }
+
+        private void addTelemetry(DeviceSlot slot, int delta) {
+            GroupNode node = nodes.get(slot.key.groupId());
+            if (node == null) {
+                return;
+            }
+            for (; node != null; node = node.parent) {
+                node.addTelemetry(slot, delta);
+            }
+            trackMoving(slot, delta);
+        }
+
+        private void trackMoving(DeviceSlot slot, int delta) {
+            dirty = true;
+            if (delta > 0 && slot.moving) {
+                moving.add(slot);
+            } else {
+                moving.remove(slot);
+            }
+        }
+
+        /**
+         * 把设备计入（delta=1）或移出（delta=-1）所在分组及其全部上级
+         */
+        private void apply(DeviceSlot slot, int delta) {
+            GroupNode node = nodes.get(slot.key.groupId());
+            if (node == null) {
+                // 未分组或分组已删除的设备不计入分组树
+                return;
+            }
+            node.directCount += delta;
+            for (; node != null; node = node.parent) {
+                node.counter.add(slot.key, delta);
+                node.addTelemetry(slot, delta);
+            }
+            trackMoving(slot, delta);
+        }
+    }
+
+    /**
+     * 分组树的节点，计数覆盖整个子树
+     */
+    private static final class GroupNode {
+
+        private final DeviceGroup group;
+        private final List<GroupNode> children = new ArrayList<>();
+        private GroupNode parent;
+
+        private final DeviceCounter counter = new DeviceCounter();
+        private long directCount;
+        private long reportedCount;
+        private long movingCount;
+        /**
+         * 行驶设备的速度之和（0.01km/h）
+         */
+        private long movingSpeedSum;
+        private LocalDateTime latestDataTime;
+
+        GroupNode(DeviceGroup group) {
+            this.group = group;
+        }
+
+        boolean isDescendantOf(GroupNode ancestor) {
+            for (GroupNode node = this; node != null; node = node.parent) {
+                if (node == ancestor) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void addTelemetry(DeviceSlot slot, int delta) {
+            if (slot.dataTime == null) {
+                return;
+            }
+            reportedCount += delta;
+            if (slot.moving) {
+                movingCount += delta;
+                movingSpeedSum += delta * slot.speed;
+            }
+            // 最近数据时间只增不减，移出的设备留下的时间在下一次重建时修正
+            if (delta > 0 && (latestDataTime == null || slot.dataTime.isAfter(latestDataTime))) {
+                latestDataTime = slot.dataTime;
+            }
+        }
+
+        void merge(GroupNode other) {
+            counter.addAll(other.counter);
+            directCount = other.directCount;
+            reportedCount = other.reportedCount;
+            movingCount = other.movingCount;
+            movingSpeedSum = other.movingSpeedSum;
+            latestDataTime = other.latestDataTime;
+        }
+    }
+
+    /**
+     * 单个设备当前计入分组树的状态
+     */
+    private static final class DeviceSlot {
+
+        private DeviceStatKey key;
+        private LocalDateTime dataTime;
+        private boolean moving;
+        /**
+         * 最新速度（0.01km/h）
+         */
+        private long speed;
+
+        DeviceSlot(DeviceStatKey key) {
+            this.key = key;
+        }
+
+        void setTelemetry(LocalDateTime dataTime, BigDecimal speed) {
+            this.dataTime = dataTime;
+            this.moving = speed != null && speed.doubleValue() >= MOVING_SPEED;
+            this.speed = moving ? Math.round(speed.doubleValue() * 100) : 0;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.iot.vehicle.service.track;
+
+import com.iot.vehicle.api.vo.DeviceTrackPointVO;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 流式轨迹简化（分窗口Douglas-Peucker）
+ *
+ * 轨迹点按时间顺序逐个写入，攒满windowSize个点后对窗口做一次Douglas-Peucker简化并输出保留的点，
+ * 窗口的最后一个点作为下一窗口的起点，相邻窗口首尾相接，内存占用只与窗口大小有关。
+ * 距离按等距圆柱投影换算为米，容差为0时只去掉完全重合的连续点。
+ *
+ * @author dongxiang.wu
+ */
+public class TrackSimplifier {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private final double tolerance;
+    private final Consumer<DeviceTrackPointVO> downstream;
+
+    private final DeviceTrackPointVO[] window;
+    private final double[] x;
+    private final double[] y;
+    private final boolean[] keep;
+    private final int[] stack;
+    private int size;
+
+    private double cosLatitude = Double.NaN;
+    private long inputCount;
+    private long outputCount;
+
+    /**
+     * @param tolerance  容差（米）
+     * @param windowSize 每次简化的窗口大小，至少为3
+     * @param downstream 简化结果的消费者
+     */
+    public TrackSimplifier(double tolerance, int windowSize, Consumer<DeviceTrackPointVO> downstream) {
+        if (windowSize < 3) {
+            throw new IllegalArgumentException("windowSize must be at least 3");
+        }
+        this.tolerance = tolerance;
+        this.downstream = downstream;
+        this.window = new DeviceTrackPointVO[windowSize];
+        this.x = new double[windowSize];
+        this.y = new double[windowSize];
+        this.keep = new boolean[windowSize];
+        this.stack = new int[windowSize * 2];
+    }
+
+    /**
+     * 写入一个轨迹点（调用方保证按数据时间升序）
+     *
+     * @param point 轨迹点，经纬度不能为空
+     */
+    public void accept(DeviceTrackPointVO point) {
+        inputCount++;
+        if (Double.isNaN(cosLatitude)) {
+            // 投影以第一个点的纬度为基准，单条轨迹的纬度跨度内误差可以忽略
+            cosLatitude = Math.cos(Math.toRadians(point.getLatitude()));
+        }
+        double px = Math.toRadians(point.getLongitude()) * cosLatitude * EARTH_RADIUS_METERS;
+        double py = Math.toRadians(point.getLatitude()) * EARTH_RADIUS_METERS;
+        if (size > 0 && px == x[size - 1] && py == y[size - 1]) {
+            // 停车时的重复位置只保留第一个点
+            return;
+        }
+        window[size] = point;
+        x[size] = px;
+        y[size] = py;
+        size++;
+        if (size == window.length) {
+            simplifyWindow(false);
+        }
+    }
+
+    /**
+     * 输出剩余的点，轨迹结束时调用
+     */
+    public void finish() {
+        if (size > 0) {
+            simplifyWindow(true);
+        }
+    }
+
+    /**
+     * 已写入的原始点数
+     */
+    public long getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * 已输出的点数
+     */
+    public long getOutputCount() {
+        return outputCount;
+    }
+
+    private void simplifyWindow(boolean last) {
+        int end = size - 1;
+        Arrays.fill(keep, 0, size, false);
+        keep[0] = true;
+        keep[end] = true;
+
+        // 用显式栈代替递归，窗口较大时不会栈溢出
+        int top = 0;
+        if (end > 1) {
+            stack[top++] = 0;
+            stack[top++] = end;
+        }
+        while (top > 0) {
+            int to = stack[--top];
+            int from = stack[--top];
+            int farthest = -1;
+            double maxDistance = tolerance;
+            for (int i = from + 1; i < to; i++) {
+                double distance = distance(i, from, to);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+            keep[farthest] = true;
+            if (farthest - from > 1) {
+                stack[top++] = from;
+                stack[top++] = farthest;
+            }
+            if (to - farthest > 1) {
+                stack[top++] = farthest;
+                stack[top++] = to;
+            }
+        }
+
+        // 最后一个点留作下一窗口的起点，由下一窗口输出
+        int emitEnd = last ? size : end;
+        for (int i = 0; i < emitEnd; i++) {
+            if (keep[i]) {
+                downstream.accept(window[i]);
+                outputCount++;
+            }
+        }
+        if (last) {
+            Arrays.fill(window, 0, size, null);
+            size = 0;
+        } else {
+            window[0] = window[end];
+            x[0] = x[end];
+            y[0] = y[end];
+            Arrays.fill(window, 1, size, null);
+            size = 1;
+        }
+    }
+
+    /**
+     * 点i到线段(from, to)的距离（米）
+     */
+    private double distance(int i, int from, int to) {
+        double dx = x[to] - x[from];
+        double dy = y[to] - y[from];
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            return Math.hypot(x[i] - x[from], y[i] - y[from]);
+        }
+        double t = ((x[i] - x[from]) * dx + (y[i] - y[from]) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(x[i] - (x[from] + t * dx), y[i] - (y[from] + t * dy));
+    }
+}
@@ -0,0 +1,23 @@
+package com.iot.vehicle.service.track;
+
+import com.iot.vehicle.api.vo.DeviceTrackPointVO;
+
+import java.util.function.Consumer;
+
+/**
+ * 已校验参数、尚未执行的轨迹查询
+ *
+ * 调用forEach时才打开数据库游标，轨迹点边读取边简化边交给consumer，不在内存中汇总整条轨迹。
+ *
+ * @author dongxiang.wu
+ */
+@FunctionalInterface
+public interface TrackStream {
+
+    /**
+     * 按数据时间升序输出简化后的轨迹点
+     *
+     * @param consumer 轨迹点消费者
+     */
+    void forEach(Consumer<DeviceTrackPointVO> consumer);
+}
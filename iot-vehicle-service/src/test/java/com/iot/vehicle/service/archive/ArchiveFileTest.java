@@ -0,0 +1,117 @@
+package com.iot.vehicle.service.archive;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 归档文件编解码测试
+ *
+ * @author dongxiang.wu
+ */
+class ArchiveFileTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 10, 18, 0, 0);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("写入后读取的数据与原数据一致")
+    void testRoundTrip() throws Exception {
+        List<DeviceData> rows = new ArrayList<>();
+        for (int i = 0; i < 8000; i++) {
+            rows.add(sample("DEV_001", i));
+        }
+        Path file = tempDir.resolve("bucket-00.ivda");
+        try (ArchiveFileWriter writer = new ArchiveFileWriter(file)) {
+            for (DeviceData row : rows) {
+                writer.append(row);
+            }
+        }
+
+        List<DeviceData> read = ArchiveFileReader.read(file, "DEV_001", DAY, DAY.plusDays(1));
+
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertRowEquals(rows.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("只返回指定设备和时间范围内的数据")
+    void testFilter() throws Exception {
+        Path file = tempDir.resolve("bucket-01.ivda");
+        try (ArchiveFileWriter writer = new ArchiveFileWriter(file)) {
+            for (String deviceId : List.of("DEV_001", "DEV_002", "DEV_003")) {
+                for (int i = 0; i < 100; i++) {
+                    writer.append(sample(deviceId, i));
+                }
+            }
+        }
+
+        List<DeviceData> read = ArchiveFileReader.read(file, "DEV_002", DAY.plusSeconds(100), DAY.plusSeconds(200));
+
+        assertEquals(10, read.size());
+        assertTrue(read.stream().allMatch(row -> "DEV_002".equals(row.getDeviceId())));
+        assertEquals(DAY.plusSeconds(100), read.get(0).getDataTime());
+        assertTrue(ArchiveFileReader.read(tempDir.resolve("missing.ivda"), "DEV_002", DAY, DAY.plusDays(1)).isEmpty());
+    }
+
+    /**
+     * 10秒一条，时间偶有抖动，部分字段缺失
+     */
+    private static DeviceData sample(String deviceId, int i) {
+        DeviceData data = new DeviceData();
+        data.setId(1000L + i * 3L);
+        data.setDeviceId(deviceId);
+        data.setDataTime(DAY.plusSeconds(i * 10L).plusNanos(i % 7 == 0 ? 123_000L : 0));
+        data.setCreateTime(DAY.plusSeconds(i * 10L + 1));
+        data.setLatitude(new BigDecimal("31.2304000").add(BigDecimal.valueOf(i, 6)));
+        data.setLongitude(new BigDecimal("121.4737000").subtract(BigDecimal.valueOf(i % 50, 6)));
+        data.setSpeed(i % 5 == 0 ? null : BigDecimal.valueOf(40 + i % 30, 1));
+        data.setDirection(i % 360);
+        data.setGpsValid(i % 11 != 0);
+        data.setSpeedRpm(i % 3 == 0 ? null : 1500 + i % 200);
+        data.setFuelLevel(BigDecimal.valueOf(8000 - i / 100, 2));
+        data.setMileage(BigDecimal.valueOf(1234500 + i, 2));
+        data.setDataStatus(0);
+        data.setRawData(i % 13 == 0 ? null : "{\"timestamp\":" + i + ",\"gps\":{\"lat\":31.23,\"lng\":121.47}}");
+        return data;
+    }
+
+    private static void assertRowEquals(DeviceData expected, DeviceData actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDeviceId(), actual.getDeviceId());
+        assertEquals(expected.getDataTime(), actual.getDataTime());
+        assertEquals(expected.getCreateTime(), actual.getCreateTime());
+        assertDecimal(expected.getLatitude(), actual.getLatitude());
+        assertDecimal(expected.getLongitude(), actual.getLongitude());
+        assertDecimal(expected.getSpeed(), actual.getSpeed());
+        assertDecimal(expected.getFuelLevel(), actual.getFuelLevel());
+        assertDecimal(expected.getMileage(), actual.getMileage());
+        assertNull(actual.getAltitude());
+        assertEquals(expected.getDirection(), actual.getDirection());
+        assertEquals(expected.getGpsValid(), actual.getGpsValid());
+        assertEquals(expected.getSpeedRpm(), actual.getSpeedRpm());
+        assertEquals(expected.getDataStatus(), actual.getDataStatus());
+        assertEquals(expected.getRawData(), actual.getRawData());
+    }
+
+    private static void assertDecimal(BigDecimal expected, BigDecimal actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(0, expected.compareTo(actual), expected + " != " + actual);
+        }
+    }
+}
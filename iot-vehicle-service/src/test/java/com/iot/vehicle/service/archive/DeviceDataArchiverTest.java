@@ -0,0 +1,114 @@
+package com.iot.vehicle.service.archive;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.config.ArchiveProperties;
+import com.iot.vehicle.service.mapper.DeviceDataArchiveMapper;
+import com.iot.vehicle.service.mapper.DevicePartitionMapper;
+import com.iot.vehicle.service.partition.DevicePartitionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备数据冷归档测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceDataArchiverTest {
+
+    private static final String PARTITION = "tb_device_data_p20240101";
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path baseDir;
+
+    private final DeviceDataArchiveMapper archiveMapper = mock(DeviceDataArchiveMapper.class);
+    private final DevicePartitionMapper partitionMapper = mock(DevicePartitionMapper.class);
+    private final DevicePartitionManager partitionManager = mock(DevicePartitionManager.class);
+
+    private DeviceDataArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setEnabled(true);
+        properties.setBaseDir(baseDir.toString());
+        properties.setBucketCount(4);
+        archiver = new DeviceDataArchiver(properties, archiveMapper, partitionMapper, partitionManager,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry());
+        archiver.init();
+
+        when(partitionManager.selectExpiredPartitions()).thenReturn(List.of(PARTITION));
+        when(archiveMapper.selectMinDataTime(PARTITION)).thenReturn(DAY.atTime(0, 5));
+        when(archiveMapper.selectMaxDataTime(PARTITION)).thenReturn(DAY.atTime(23, 50));
+    }
+
+    @Test
+    @DisplayName("过期分区先导出并写入清单再分离，分离时查询已能从归档读到")
+    void testArchiveBeforeDetach() throws Exception {
+        List<DeviceData> rows = List.of(sample("DEV001", 1), sample("DEV001", 2), sample("DEV002", 3));
+        when(archiveMapper.scanRange(eq(PARTITION), any(), any())).thenAnswer(invocation -> cursor(rows));
+        doAnswer(invocation -> {
+            assertTrue(archiver.isArchived(DAY), "分离前必须已写入归档清单");
+            assertEquals(2, archiver.read("DEV001", DAY, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()).size());
+            return null;
+        }).when(partitionManager).detachPartition(DevicePartitionManager.DEVICE_DATA_TABLE, PARTITION);
+
+        archiver.archiveExpiredPartitions();
+
+        InOrder inOrder = inOrder(archiveMapper, partitionManager, partitionMapper);
+        inOrder.verify(archiveMapper).scanRange(eq(PARTITION), any(), any());
+        inOrder.verify(partitionManager).detachPartition(DevicePartitionManager.DEVICE_DATA_TABLE, PARTITION);
+        inOrder.verify(partitionMapper).dropTable(PARTITION);
+        assertEquals(1, archiver.read("DEV002", DAY, DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()).size());
+    }
+
+    @Test
+    @DisplayName("导出失败时分区保持挂载，不分离也不删除")
+    void testArchiveFailureKeepsPartition() throws Exception {
+        when(archiveMapper.scanRange(eq(PARTITION), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        archiver.archiveExpiredPartitions();
+
+        verify(partitionManager, never()).detachPartition(any(), any());
+        verify(partitionMapper, never()).dropTable(any());
+        assertFalse(archiver.isArchived(DAY));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<DeviceData> cursor(List<DeviceData> rows) {
+        Cursor<DeviceData> cursor = mock(Cursor.class);
+        when(cursor.iterator()).thenReturn(new ArrayList<>(rows).iterator());
+        return cursor;
+    }
+
+    private static DeviceData sample(String deviceId, int minute) {
+        LocalDateTime time = DAY.atTime(8, minute);
+        DeviceData data = new DeviceData();
+        data.setId((long) minute);
+        data.setDeviceId(deviceId);
+        data.setDataTime(time);
+        data.setCreateTime(time.plusSeconds(1));
+        data.setDataStatus(0);
+        return data;
+    }
+}
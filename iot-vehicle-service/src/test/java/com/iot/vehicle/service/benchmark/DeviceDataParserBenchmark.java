@@ -0,0 +1,61 @@
+package com.iot.vehicle.service.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.iot.vehicle.api.dto.DeviceDataDTO;
+import com.iot.vehicle.service.ingest.DeviceDataPayloadParser;
+import com.iot.vehicle.service.ingest.DeviceDataRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备数据报文解析基准测试：流式字节解析 vs 原有fastjson2路径
+ *
+ * 原有路径包括 new String(payload) -> JSON.parseObject(DeviceDataDTO) -> JSON.toJSONString(raw_data)；
+ * 新路径为字节解析到可复用记录，raw_data直接使用原始字节。建议加 -prof gc 观察每次操作的分配量。
+ *
+ * @author dongxiang.wu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeviceDataParserBenchmark {
+
+    private static final byte[] PAYLOAD = ("{\"timestamp\":1705285815120,"
+            + "\"gps\":{\"lat\":31.230416,\"lng\":121.473701,\"altitude\":12.5,\"speed\":62.35,"
+            + "\"direction\":275,\"valid\":true,\"satellites\":11},"
+            + "\"obd\":{\"rpm\":2350,\"fuelLevel\":68.4,\"fuelConsumption\":7.85,\"engineTemp\":89,\"mileage\":45821.3},"
+            + "\"status\":{\"batteryVoltage\":12.6,\"signalStrength\":87}}").getBytes(StandardCharsets.UTF_8);
+
+    private final DeviceDataPayloadParser parser = new DeviceDataPayloadParser();
+
+    @Benchmark
+    public DeviceDataRecord streamingParser() {
+        DeviceDataRecord record = parser.parse(PAYLOAD);
+        record.getPayload();
+        return record;
+    }
+
+    @Benchmark
+    public String fastjson2Path() {
+        String payload = new String(PAYLOAD);
+        DeviceDataDTO dto = JSON.parseObject(payload, DeviceDataDTO.class);
+        return JSON.toJSONString(dto);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DeviceDataParserBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
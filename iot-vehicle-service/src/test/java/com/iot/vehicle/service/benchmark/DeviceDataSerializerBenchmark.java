@@ -0,0 +1,124 @@
+package com.iot.vehicle.service.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.cache.DeviceDataRedisSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最新数据缓存序列化基准测试：二进制格式 vs 当前的Jackson默认类型格式
+ *
+ * 运行方式：mvn -pl iot-vehicle-service -am test-compile 后执行本类的main方法，
+ * 启动时会先打印两种格式每条数据的字节数。样本与接入路径写入缓存的值一致，包含原始报文rawData，
+ * 缓存值的大小主要由rawData决定。
+ *
+ * @author dongxiang.wu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceDataSerializerBenchmark {
+
+    private DeviceData data;
+    private DeviceDataRedisSerializer binarySerializer;
+    private Jackson2JsonRedisSerializer<Object> jacksonSerializer;
+    private byte[] binaryBytes;
+    private byte[] jacksonBytes;
+
+    @Setup
+    public void setup() {
+        data = sampleData();
+        binarySerializer = new DeviceDataRedisSerializer();
+        jacksonSerializer = jacksonSerializer();
+        binaryBytes = binarySerializer.serialize(data);
+        jacksonBytes = jacksonSerializer.serialize(data);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(data);
+    }
+
+    @Benchmark
+    public DeviceData binaryDeserialize() {
+        return binarySerializer.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public byte[] jacksonSerialize() {
+        return jacksonSerializer.serialize(data);
+    }
+
+    @Benchmark
+    public Object jacksonDeserialize() {
+        return jacksonSerializer.deserialize(jacksonBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        DeviceData sample = sampleData();
+        System.out.printf("bytes/entry: binary=%d, jackson=%d%n",
+                new DeviceDataRedisSerializer().serialize(sample).length,
+                jacksonSerializer().serialize(sample).length);
+
+        Options options = new OptionsBuilder()
+                .include(DeviceDataSerializerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 与RedisConfig中redisTemplate相同的Jackson配置
+     */
+    private static Jackson2JsonRedisSerializer<Object> jacksonSerializer() {
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        om.registerModule(new JavaTimeModule());
+        return new Jackson2JsonRedisSerializer<>(om, Object.class);
+    }
+
+    private static DeviceData sampleData() {
+        DeviceData data = new DeviceData();
+        data.setId(123456789L);
+        data.setDeviceId("VEH-000123");
+        data.setDataTime(LocalDateTime.of(2024, 1, 15, 10, 30, 15, 120_000_000));
+        data.setLatitude(new BigDecimal("31.2304160"));
+        data.setLongitude(new BigDecimal("121.4737010"));
+        data.setAltitude(new BigDecimal("12.50"));
+        data.setSpeed(new BigDecimal("62.35"));
+        data.setDirection(275);
+        data.setGpsValid(true);
+        data.setSatelliteCount(11);
+        data.setSpeedRpm(2350);
+        data.setFuelLevel(new BigDecimal("68.40"));
+        data.setFuelConsumption(new BigDecimal("7.85"));
+        data.setEngineTemp(89);
+        data.setBatteryVoltage(new BigDecimal("12.60"));
+        data.setMileage(new BigDecimal("45821.30"));
+        data.setSignalStrength(87);
+        data.setDataStatus(0);
+        // 接入路径总是保存原始报文（DeviceDataServiceImpl.cleanAndConvert）
+        data.setRawData("{\"timestamp\":1705285815120,"
+                + "\"gps\":{\"lat\":31.230416,\"lng\":121.473701,\"altitude\":12.5,\"speed\":62.35,"
+                + "\"direction\":275,\"valid\":true,\"satellites\":11},"
+                + "\"obd\":{\"rpm\":2350,\"fuelLevel\":68.4,\"fuelConsumption\":7.85,\"engineTemp\":89,\"mileage\":45821.3},"
+                + "\"status\":{\"batteryVoltage\":12.6,\"signalStrength\":87}}");
+        return data;
+    }
+}
@@ -0,0 +1,131 @@
+package com.iot.vehicle.service.cache;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 设备最新数据二进制序列化器测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceDataRedisSerializerTest {
+
+    private final DeviceDataRedisSerializer serializer = new DeviceDataRedisSerializer();
+
+    @Test
+    @DisplayName("全部字段序列化后反序列化得到相同的值")
+    void testRoundTrip() {
+        DeviceData data = new DeviceData();
+        data.setId(123456789L);
+        data.setDeviceId("VEH-000123");
+        data.setDataTime(LocalDateTime.of(2024, 1, 15, 10, 30, 15, 120_000_000));
+        data.setLatitude(new BigDecimal("31.2304160"));
+        data.setLongitude(new BigDecimal("121.4737010"));
+        data.setAltitude(new BigDecimal("12.50"));
+        data.setSpeed(new BigDecimal("62.35"));
+        data.setDirection(275);
+        data.setGpsValid(true);
+        data.setSatelliteCount(11);
+        data.setSpeedRpm(2350);
+        data.setFuelLevel(new BigDecimal("68.40"));
+        data.setFuelConsumption(new BigDecimal("7.85"));
+        data.setEngineTemp(89);
+        data.setBatteryVoltage(new BigDecimal("12.60"));
+        data.setMileage(new BigDecimal("45821.30"));
+        data.setSignalStrength(87);
+        data.setDataStatus(0);
+        data.setRawData("{\"timestamp\":1705285815120,\"note\":\"沪A·12345\"}");
+        data.setCreateTime(LocalDateTime.of(2024, 1, 15, 10, 30, 16, 5_000_000));
+
+        assertEquals(data, serializer.deserialize(serializer.serialize(data)));
+    }
+
+    @Test
+    @DisplayName("空字段保持为空，gpsValid=false与空值区分")
+    void testNullFields() {
+        DeviceData data = required();
+        DeviceData decoded = serializer.deserialize(serializer.serialize(data));
+        assertEquals(data, decoded);
+        assertNull(decoded.getGpsValid());
+        assertNull(decoded.getRawData());
+
+        data.setGpsValid(false);
+        assertEquals(Boolean.FALSE, serializer.deserialize(serializer.serialize(data)).getGpsValid());
+    }
+
+    @Test
+    @DisplayName("负数按ZigZag编码往返不变")
+    void testNegativeValues() {
+        DeviceData data = required();
+        data.setId(-1L);
+        data.setLatitude(new BigDecimal("-33.8688197"));
+        data.setLongitude(new BigDecimal("-70.6692655"));
+        data.setAltitude(new BigDecimal("-28.00"));
+        data.setEngineTemp(-40);
+        data.setSignalStrength(Integer.MIN_VALUE);
+        data.setDataTime(LocalDateTime.of(1969, 12, 31, 23, 59, 59));
+
+        assertEquals(data, serializer.deserialize(serializer.serialize(data)));
+    }
+
+    @Test
+    @DisplayName("小数按列精度缩放：经纬度7位、其余2位，超出精度时四舍五入")
+    void testDecimalScales() {
+        DeviceData data = required();
+        data.setLatitude(new BigDecimal("31.23"));
+        data.setLongitude(new BigDecimal("121.473701049"));
+        data.setSpeed(new BigDecimal("62.345"));
+        data.setMileage(new BigDecimal("45821"));
+
+        DeviceData decoded = serializer.deserialize(serializer.serialize(data));
+        assertEquals(new BigDecimal("31.2300000"), decoded.getLatitude());
+        assertEquals(new BigDecimal("121.4737010"), decoded.getLongitude());
+        assertEquals(new BigDecimal("62.35"), decoded.getSpeed());
+        assertEquals(new BigDecimal("45821.00"), decoded.getMileage());
+    }
+
+    @Test
+    @DisplayName("版本号不匹配（旧JSON格式、空值）按缓存未命中返回null")
+    void testVersionMismatchIsMiss() {
+        byte[] legacyJson = "[\"com.iot.vehicle.api.entity.DeviceData\",{\"deviceId\":\"VEH-000123\"}]"
+                .getBytes(StandardCharsets.UTF_8);
+        assertNull(serializer.deserialize(legacyJson));
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+
+        byte[] bytes = serializer.serialize(required());
+        bytes[0] = DeviceDataRedisSerializer.VERSION + 1;
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    @DisplayName("截断的数据抛出序列化异常，缺少必填字段时拒绝序列化")
+    void testMalformed() {
+        byte[] bytes = serializer.serialize(required());
+        assertThrows(SerializationException.class,
+                () -> serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 1)));
+        // 截断在字符串中间
+        assertThrows(SerializationException.class, () -> serializer.deserialize(Arrays.copyOf(bytes, 5)));
+
+        DeviceData noTime = new DeviceData();
+        noTime.setDeviceId("VEH-000123");
+        assertThrows(SerializationException.class, () -> serializer.serialize(noTime));
+        assertEquals(0, serializer.serialize(null).length);
+    }
+
+    private static DeviceData required() {
+        DeviceData data = new DeviceData();
+        data.setDeviceId("VEH-000123");
+        data.setDataTime(LocalDateTime.of(2024, 1, 15, 10, 30, 15, 120_000_000));
+        return data;
+    }
+}
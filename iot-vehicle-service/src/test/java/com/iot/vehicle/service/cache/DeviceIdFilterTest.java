@@ -0,0 +1,86 @@
+package com.iot.vehicle.service.cache;
+
+import com.iot.vehicle.service.config.DeviceIdFilterProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备ID过滤器测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceIdFilterTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final DeviceMapper deviceMapper = mock(DeviceMapper.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DeviceIdFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.hasKey(any())).thenReturn(true);
+        when(deviceMapper.scanDeviceIds(null)).thenAnswer(invocation -> cursor(List.of("DEV001", "DEV002")));
+        filter = new DeviceIdFilter(new DeviceIdFilterProperties(), deviceMapper,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), redisTemplate, meterRegistry);
+        filter.init();
+    }
+
+    @Test
+    @DisplayName("加入Redis失败的设备ID暂存，定时重试成功后清空")
+    @SuppressWarnings("unchecked")
+    void testRetryFailedRedisAdd() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("connection refused"))
+                .thenThrow(new RedisConnectionFailureException("connection refused"))
+                .thenReturn(1L);
+
+        filter.add("DEV003");
+        assertTrue(filter.mightExist("DEV003"), "本节点提交后立即可见");
+        assertEquals(1.0, meterRegistry.get("iot.device.filter.pending").gauge().value());
+
+        filter.retryPendingAdds();
+        assertEquals(1.0, meterRegistry.get("iot.device.filter.pending").gauge().value(), "仍然失败的留到下次");
+
+        filter.retryPendingAdds();
+        assertEquals(0.0, meterRegistry.get("iot.device.filter.pending").gauge().value());
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("启动时Redis已有过滤器不写入，定时重建时补写全部设备ID")
+    @SuppressWarnings("unchecked")
+    void testScheduledRebuildTopsUpRedis() {
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+
+        filter.scheduledRebuild();
+
+        verify(redisTemplate).executePipelined(any(RedisCallback.class));
+        verify(deviceMapper, times(2)).scanDeviceIds(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> cursor(List<String> deviceIds) {
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.iterator()).thenReturn(new ArrayList<>(deviceIds).iterator());
+        return cursor;
+    }
+}
@@ -0,0 +1,79 @@
+package com.iot.vehicle.service.cache;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.service.config.DeviceRegistryProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备注册信息两级缓存测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceRegistryCacheTest {
+
+    @BeforeAll
+    static void initTableInfo() {
+        // 回源查询使用LambdaQueryWrapper，需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Device.class);
+    }
+
+    @Test
+    @DisplayName("Redis不可用时启动不阻塞，后台重试订阅，查询回源数据库")
+    @SuppressWarnings("unchecked")
+    void testStartWithoutRedis() {
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenThrow(new RedisConnectionFailureException("connection refused"));
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("connection refused"));
+        DeviceMapper deviceMapper = mock(DeviceMapper.class);
+        when(deviceMapper.selectOne(any())).thenReturn(device());
+
+        DeviceRegistryProperties properties = new DeviceRegistryProperties();
+        properties.setSubscribeRetryMs(50L);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DeviceRegistryCache cache = new DeviceRegistryCache(properties, deviceMapper, redisTemplate,
+                connectionFactory, meterRegistry);
+
+        long start = System.nanoTime();
+        cache.start();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "启动不应等待订阅建立");
+        try {
+            DeviceRegistryEntry entry = cache.get("VH001");
+            assertNotNull(entry);
+            assertEquals(1L, entry.id());
+            assertEquals(1.0, meterRegistry.get("iot.device.registry.redis").tag("result", "error").counter().count());
+            verify(connectionFactory, timeout(TimeUnit.SECONDS.toMillis(10)).atLeast(2)).getConnection();
+        } finally {
+            cache.stop();
+        }
+    }
+
+    private static Device device() {
+        Device device = new Device();
+        device.setId(1L);
+        device.setDeviceId("VH001");
+        device.setSecretKey("s3cr3t");
+        device.setStatus(2);
+        return device;
+    }
+}
@@ -0,0 +1,55 @@
+package com.iot.vehicle.service.cache;
+
+import com.iot.vehicle.api.entity.Device;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 设备注册信息缓存项测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceRegistryEntryTest {
+
+    @Test
+    @DisplayName("只保存密钥摘要，按摘要校验密钥")
+    void testMatchesSecret() {
+        DeviceRegistryEntry entry = DeviceRegistryEntry.of(device("s3cr3t"));
+
+        assertNotEquals("s3cr3t", entry.secretHash());
+        assertTrue(entry.matchesSecret("s3cr3t"));
+        assertFalse(entry.matchesSecret("S3CR3T"));
+        assertFalse(entry.matchesSecret(null));
+        assertFalse(DeviceRegistryEntry.of(device(null)).matchesSecret("s3cr3t"));
+    }
+
+    @Test
+    @DisplayName("编码后解码得到相同的缓存项，空字段保持为空")
+    void testEncodeDecode() {
+        DeviceRegistryEntry entry = DeviceRegistryEntry.of(device("s3cr3t"));
+        assertEquals(entry, DeviceRegistryEntry.decode("VH001", entry.encode()));
+
+        DeviceRegistryEntry sparse = new DeviceRegistryEntry(7L, "VH002", null, null, null, null);
+        assertEquals(sparse, DeviceRegistryEntry.decode("VH002", sparse.encode()));
+    }
+
+    @Test
+    @DisplayName("格式错误的缓存值按未命中处理")
+    void testDecodeMalformed() {
+        assertNull(DeviceRegistryEntry.decode("VH001", "1|2|3"));
+        assertNull(DeviceRegistryEntry.decode("VH001", "x|1|2|3|abc"));
+    }
+
+    private static Device device(String secretKey) {
+        Device device = new Device();
+        device.setId(1L);
+        device.setDeviceId("VH001");
+        device.setSecretKey(secretKey);
+        device.setStatus(2);
+        device.setGroupId(10L);
+        device.setOwnerId(100L);
+        return device;
+    }
+}
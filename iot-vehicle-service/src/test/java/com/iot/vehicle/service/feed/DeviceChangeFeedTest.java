@@ -0,0 +1,174 @@
+package com.iot.vehicle.service.feed;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.config.ChangeFeedProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备变更流发布器测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceChangeFeedTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * 模拟的Redis Stream中按追加顺序记录的消息
+     */
+    private final List<Map<String, String>> published = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("窗口内同一设备只发布数据时间最新的状态，上下线事件按顺序全部发布且在状态之前")
+    void testCoalescing() {
+        DeviceChangeFeed feed = new DeviceChangeFeed(properties(60000L, 100), template(call -> false), meterRegistry);
+        feed.start();
+
+        feed.offerState(state("DEV001", 1, "40.5"));
+        feed.offerState(state("DEV001", 3, "42.00"));
+        feed.offerState(state("DEV001", 2, "41"));
+        feed.offerState(state("DEV002", 5, null));
+        feed.onOnline("DEV003", BASE);
+        feed.onOffline("DEV003", BASE.plusSeconds(1));
+        feed.stop();
+
+        assertEquals(4, published.size());
+        assertEquals(List.of("ON", "OFF"), List.of(published.get(0).get("t"), published.get(1).get("t")));
+        Map<String, Map<String, String>> states = new LinkedHashMap<>();
+        published.subList(2, 4).forEach(fields -> states.put(fields.get("d"), fields));
+        assertEquals("S", states.get("DEV001").get("t"));
+        assertEquals("42", states.get("DEV001").get("spd"));
+        assertFalse(states.get("DEV002").containsKey("spd"), "空值字段不写入");
+        assertEquals(2.0, meterRegistry.get("iot.feed.coalesced").counter().count());
+    }
+
+    @Test
+    @DisplayName("追加失败的消息暂存，下次刷写时先于新消息重发")
+    void testRetryBeforeNewMessages() {
+        DeviceChangeFeed[] holder = new DeviceChangeFeed[1];
+        DeviceChangeFeed feed = new DeviceChangeFeed(properties(200L, 100), template(call -> {
+            if (call == 1) {
+                // 追加期间到达的新事件排在重发的消息之后
+                holder[0].onOffline("DEV002", BASE.plusSeconds(2));
+                return true;
+            }
+            return false;
+        }), meterRegistry);
+        holder[0] = feed;
+        feed.start();
+
+        feed.onOnline("DEV001", BASE);
+        feed.onOnline("DEV002", BASE.plusSeconds(1));
+        waitForPublished(3);
+        feed.stop();
+
+        assertEquals(List.of("ON:DEV001", "ON:DEV002", "OFF:DEV002"), summary());
+        assertEquals(1.0, meterRegistry.get("iot.feed.publish.failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("iot.feed.dropped").counter().count());
+    }
+
+    @Test
+    @DisplayName("暂存超过容量时丢弃最早的消息并计数")
+    void testBoundedRetryBuffer() {
+        DeviceChangeFeed feed = new DeviceChangeFeed(properties(300L, 3), template(call -> call == 1), meterRegistry);
+        feed.start();
+
+        for (int i = 1; i <= 5; i++) {
+            feed.onOnline("DEV00" + i, BASE.plusSeconds(i));
+        }
+        waitForPublished(3);
+        feed.stop();
+
+        assertEquals(List.of("ON:DEV003", "ON:DEV004", "ON:DEV005"), summary());
+        assertEquals(2.0, meterRegistry.get("iot.feed.dropped").counter().count());
+    }
+
+    private void waitForPublished(int count) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (published.size() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        assertEquals(count, published.size());
+    }
+
+    private List<String> summary() {
+        return published.stream().map(fields -> fields.get("t") + ":" + fields.get("d")).toList();
+    }
+
+    /**
+     * 构造模拟的StringRedisTemplate：管道中的XADD记录到published，fail对第几次追加返回true时抛出连接异常
+     */
+    @SuppressWarnings("unchecked")
+    private StringRedisTemplate template(IntPredicate fail) {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisStreamCommands streamCommands = mock(RedisStreamCommands.class);
+        when(connection.streamCommands()).thenReturn(streamCommands);
+
+        List<Map<String, String>> appended = new ArrayList<>();
+        when(streamCommands.xAdd(any(MapRecord.class), any(RedisStreamCommands.XAddOptions.class)))
+                .thenAnswer(invocation -> {
+                    MapRecord<byte[], byte[], byte[]> record = invocation.getArgument(0);
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    record.getValue().forEach((field, value) -> fields.put(
+                            new String(field, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8)));
+                    appended.add(fields);
+                    return null;
+                });
+
+        AtomicInteger calls = new AtomicInteger();
+        when(template.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            if (fail.test(calls.incrementAndGet())) {
+                throw new RedisConnectionFailureException("connection refused");
+            }
+            appended.clear();
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            published.addAll(appended);
+            return appended.stream().map(fields -> (Object) ("0-" + published.size())).toList();
+        });
+        return template;
+    }
+
+    private static ChangeFeedProperties properties(long flushIntervalMs, int bufferCapacity) {
+        ChangeFeedProperties properties = new ChangeFeedProperties();
+        properties.setTransport(ChangeFeedProperties.Transport.REDIS);
+        properties.setFlushIntervalMs(flushIntervalMs);
+        properties.setBufferCapacity(bufferCapacity);
+        return properties;
+    }
+
+    private static DeviceData state(String deviceId, int second, String speed) {
+        DeviceData data = new DeviceData();
+        data.setDeviceId(deviceId);
+        data.setDataTime(BASE.plusSeconds(second));
+        data.setSpeed(speed == null ? null : new BigDecimal(speed));
+        return data;
+    }
+}
@@ -0,0 +1,99 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.mapper.DeviceDataMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备历史数据批量写入器测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceDataBatchWriterTest {
+
+    @Test
+    @DisplayName("连接失败、超时、数据库停机为暂时性错误")
+    void testTransientErrors() {
+        assertTrue(DeviceDataBatchWriter.isTransient(new CannotGetJdbcConnectionException("pool exhausted")));
+        assertTrue(DeviceDataBatchWriter.isTransient(
+                new PersistenceException(new SQLException("connection refused", "08001"))));
+        assertTrue(DeviceDataBatchWriter.isTransient(new SQLException("terminating connection", "57P01")));
+        assertTrue(DeviceDataBatchWriter.isTransient(new SQLException("statement timeout", "57014")));
+        assertTrue(DeviceDataBatchWriter.isTransient(new RuntimeException(new ConnectException("refused"))));
+    }
+
+    @Test
+    @DisplayName("数据错误不是暂时性错误")
+    void testDataErrors() {
+        assertFalse(DeviceDataBatchWriter.isTransient(new DataIntegrityViolationException("not null")));
+        assertFalse(DeviceDataBatchWriter.isTransient(
+                new PersistenceException(new SQLException("no partition of relation found", "23514"))));
+        assertFalse(DeviceDataBatchWriter.isTransient(new SQLException("invalid json", "22P02")));
+        assertFalse(DeviceDataBatchWriter.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    @DisplayName("多值INSERT分段在同一事务内写入，中途失败整批回滚后逐条写入，不重复插入")
+    void testMultiRowChunksShareTransaction() {
+        DeviceDataMapper mapper = mock(DeviceDataMapper.class);
+        AtomicInteger statements = new AtomicInteger();
+        when(mapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            if (statements.incrementAndGet() == 3) {
+                throw new DataIntegrityViolationException("bad row in chunk 3");
+            }
+            return invocation.<List<?>>getArgument(0).size();
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        TransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+
+        DeviceDataBatchWriter writer = new DeviceDataBatchWriter(new IngestProperties(), mapper, null, null,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        writer.start();
+        try {
+            writer.writeNow(rows(2500));
+        } finally {
+            writer.stop();
+        }
+
+        assertEquals(3, statements.get());
+        verify(transactionManager).rollback(status);
+        verify(transactionManager, never()).commit(any());
+        // 回滚后逐条写入整批，每行只写一次
+        verify(mapper, times(2500)).insertRow(any());
+    }
+
+    private static List<DeviceData> rows(int count) {
+        List<DeviceData> rows = new ArrayList<>(count);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < count; i++) {
+            DeviceData data = new DeviceData();
+            data.setDeviceId("DEV" + (i % 10));
+            data.setDataTime(base.plusSeconds(i));
+            rows.add(data);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,98 @@
+package com.iot.vehicle.service.ingest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 设备数据报文解析器测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceDataPayloadParserTest {
+
+    private final DeviceDataPayloadParser parser = new DeviceDataPayloadParser();
+
+    @Test
+    @DisplayName("解析已知字段并跳过未知字段")
+    void testParseKnownFields() {
+        byte[] payload = bytes("{\"timestamp\":1705285815120,\"extra\":{\"a\":[1,{\"b\":\"x\\\"}\"}]},"
+                + "\"gps\":{\"lat\":31.230416,\"lng\":-121.473701,\"speed\":\"62.35\",\"valid\":true,\"foo\":null},"
+                + "\"obd\":{\"rpm\":2350,\"fuelLevel\":6.84e1},"
+                + "\"status\":{\"signalStrength\":87}}");
+
+        DeviceDataRecord record = parser.parse(payload);
+
+        assertEquals(1705285815120L, record.getTimestamp());
+        assertEquals(31.230416, record.getLatitude());
+        assertEquals(-121.473701, record.getLongitude());
+        assertEquals(62.35, record.getSpeed());
+        assertTrue(record.isGpsValid());
+        assertEquals(2350, record.getRpm());
+        assertEquals(68.4, record.getFuelLevel(), 1e-9);
+        assertEquals(87, record.getSignalStrength());
+        assertFalse(record.has(DeviceDataRecord.ALTITUDE));
+        assertFalse(record.has(DeviceDataRecord.BATTERY_VOLTAGE));
+        assertSame(payload, record.getPayload());
+    }
+
+    @Test
+    @DisplayName("复用解析器时清空上一次的字段")
+    void testReuseResetsFields() {
+        parser.parse(bytes("{\"timestamp\":1,\"gps\":{\"lat\":10.5}}"));
+        DeviceDataRecord record = parser.parse(bytes("{\"timestamp\":2}"));
+
+        assertEquals(2L, record.getTimestamp());
+        assertFalse(record.has(DeviceDataRecord.GPS));
+        assertFalse(record.has(DeviceDataRecord.LATITUDE));
+    }
+
+    @Test
+    @DisplayName("非法报文抛出异常")
+    void testInvalidPayload() {
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(bytes("{")));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(bytes("{\"a\":}")));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(bytes("[1]")));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(bytes("{\"a\":1}x")));
+    }
+
+    @Test
+    @DisplayName("跳过的未知值也按JSON语法校验，raw_data保持为合法JSON")
+    void testMalformedSkippedValues() {
+        String[] invalid = {
+                "{\"a\":[1,2}}",
+                "{\"a\":{\"b\":1]}",
+                "{\"a\":[1 2]}",
+                "{\"a\":{\"b\" 1}}",
+                "{\"a\":1-2}",
+                "{\"a\":1e}",
+                "{\"a\":1.}",
+                "{\"a\":01}",
+                "{\"a\":-}",
+                "{\"a\":+1}",
+                "{\"gps\":{\"lat\":1.e5}}",
+                "{\"gps\":{\"lat\":007}}",
+                "{\"a\":\"x\\qy\"}",
+                "{\"a\":\"\\u12\"}",
+                "{\"a\":\"\\u0000\"}",
+                "{\"a\":\"\\ud800\"}",
+                "{\"a\":\"tab\there\"}",
+                "{\"a\":" + "[".repeat(100) + "]".repeat(100) + "}"
+        };
+        for (String payload : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> parser.parse(bytes(payload)), payload);
+        }
+
+        DeviceDataRecord record = parser.parse(bytes("{\"a\":[0,-0.5e+3,1E-2,\"\\ud83d\\ude97\\n\"],"
+                + "\"gps\":{\"lat\":0.5,\"lng\":-1e2}}"));
+        assertEquals(0.5, record.getLatitude());
+        assertEquals(-100.0, record.getLongitude());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,296 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.config.IngestProperties.BackpressurePolicy;
+import com.iot.vehicle.service.config.IngestProperties.ExecutorType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 接入执行器测试：两种执行器的串行通道、单设备顺序和三种背压策略
+ *
+ * 积压上限都设为1：第一条消息被工作线程取走后阻塞在处理器中，第二条占满积压，第三条触发背压。
+ *
+ * @author dongxiang.wu
+ */
+class IngestExecutorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Counter droppedCounter = meterRegistry.counter("iot.ingest.dropped");
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private IngestExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown(1000);
+        }
+    }
+
+    @Test
+    @DisplayName("平台线程执行器：同一通道键的消息总在同一个工作线程上执行")
+    void testLaneAffinity() throws Exception {
+        IngestProperties properties = properties(BackpressurePolicy.BLOCK);
+        properties.setWorkerCount(4);
+        properties.setQueueCapacity(1000);
+        Map<Integer, Set<String>> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(400);
+        executor = new PlatformThreadIngestExecutor(properties, message -> {
+            threads.computeIfAbsent(Integer.parseInt(message.getTopic()), k -> ConcurrentHashMap.newKeySet())
+                    .add(Thread.currentThread().getName());
+            done.countDown();
+        }, droppedCounter, meterRegistry);
+
+        for (int i = 0; i < 400; i++) {
+            assertTrue(executor.submit(i % 8, message(String.valueOf(i % 8))));
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        threads.values().forEach(names -> assertEquals(1, names.size()));
+        // 4个工作线程：通道键0和4落在同一个队列
+        assertEquals(threads.get(0), threads.get(4));
+        assertNotEquals(threads.get(0), threads.get(1));
+        assertEquals(0, executor.backlog());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutorType.class)
+    @DisplayName("多个回调线程并发提交、多个通道并发排空时，同一设备的消息按提交顺序串行处理")
+    void testPerDeviceOrder(ExecutorType type) throws Exception {
+        int submitters = 8;
+        int devicesPerSubmitter = 32;
+        int messagesPerDevice = 200;
+        int total = submitters * devicesPerSubmitter * messagesPerDevice;
+
+        IngestProperties properties = properties(BackpressurePolicy.BLOCK);
+        properties.setWorkerCount(4);
+        properties.setQueueCapacity(256);
+        properties.setLaneCount(64);
+        properties.setMaxPending(1024);
+        Map<String, List<Integer>> sequences = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(total);
+        Consumer<IngestMessage> handler = message -> {
+            String[] parts = message.getTopic().split("/");
+            AtomicInteger running = inFlight.computeIfAbsent(parts[0], k -> new AtomicInteger());
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            if (ThreadLocalRandom.current().nextInt(16) == 0) {
+                Thread.yield();
+            }
+            sequences.computeIfAbsent(parts[0], k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.parseInt(parts[1]));
+            running.decrementAndGet();
+            done.countDown();
+        };
+        executor = type == ExecutorType.VIRTUAL
+                ? new VirtualThreadIngestExecutor(properties, handler, droppedCounter, meterRegistry)
+                : new PlatformThreadIngestExecutor(properties, handler, droppedCounter, meterRegistry);
+
+        // 每个提交线程模拟一个MQTT回调线程，负责固定的一组设备，设备之间交错提交
+        ExecutorService callbackThreads = Executors.newFixedThreadPool(submitters);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int s = 0; s < submitters; s++) {
+            int submitter = s;
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int seq = 0; seq < messagesPerDevice; seq++) {
+                    for (int d = 0; d < devicesPerSubmitter; d++) {
+                        String deviceId = "DEV" + (submitter * devicesPerSubmitter + d);
+                        assertTrue(executor.submit(deviceId.hashCode(), message(deviceId + "/" + seq)));
+                    }
+                }
+            }, callbackThreads));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            callbackThreads.shutdownNow();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        assertEquals(0, overlaps.get(), "同一设备的消息不应并发处理");
+        assertEquals(submitters * devicesPerSubmitter, sequences.size());
+        for (Map.Entry<String, List<Integer>> entry : sequences.entrySet()) {
+            List<Integer> seqs = entry.getValue();
+            assertEquals(messagesPerDevice, seqs.size(), entry.getKey());
+            for (int i = 0; i < messagesPerDevice; i++) {
+                assertEquals(i, seqs.get(i), entry.getKey());
+            }
+        }
+        assertEquals(0.0, droppedCounter.count());
+    }
+
+    @Test
+    @DisplayName("虚拟线程执行器：每个通道跨排空任务复用同一个解析器，不同通道互不共享")
+    void testLaneParser() throws Exception {
+        IngestProperties properties = properties(BackpressurePolicy.BLOCK);
+        properties.setLaneCount(4);
+        properties.setMaxPending(100);
+        Map<String, Set<DeviceDataPayloadParser>> parsers = new ConcurrentHashMap<>();
+        executor = new VirtualThreadIngestExecutor(properties, message -> {
+            parsers.computeIfAbsent(message.getTopic(), k -> ConcurrentHashMap.newKeySet())
+                    .add(DeviceDataPayloadParser.current());
+            handled.add(message.getTopic());
+        }, droppedCounter, meterRegistry);
+
+        // 分三轮提交，每轮等排空结束，后一轮由新的排空任务处理
+        for (int round = 0; round < 3; round++) {
+            for (int lane = 0; lane < 4; lane++) {
+                assertTrue(executor.submit(lane, message(String.valueOf(lane))));
+            }
+            awaitHandled((round + 1) * 4);
+        }
+
+        assertEquals(4, parsers.size());
+        parsers.values().forEach(set -> assertEquals(1, set.size()));
+        assertEquals(4, parsers.values().stream().flatMap(Set::stream).distinct().count());
+        // 提交线程没有绑定通道的解析器
+        assertFalse(parsers.values().stream().flatMap(Set::stream)
+                .anyMatch(parser -> parser == DeviceDataPayloadParser.current()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutorType.class)
+    @DisplayName("DROP_NEWEST：积压已满时拒绝新消息")
+    void testDropNewest(ExecutorType type) throws Exception {
+        executor = create(type, BackpressurePolicy.DROP_NEWEST);
+        fill();
+
+        assertFalse(executor.submit(0, message("m3")));
+        release.countDown();
+        awaitHandled(2);
+        assertEquals(List.of("m1", "m2"), handled);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutorType.class)
+    @DisplayName("DROP_OLDEST：积压已满时丢弃最旧的消息并计数")
+    void testDropOldest(ExecutorType type) throws Exception {
+        executor = create(type, BackpressurePolicy.DROP_OLDEST);
+        fill();
+
+        assertTrue(executor.submit(0, message("m3")));
+        assertEquals(1.0, droppedCounter.count());
+        release.countDown();
+        awaitHandled(2);
+        assertEquals(List.of("m1", "m3"), handled);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutorType.class)
+    @DisplayName("BLOCK：超过告警间隔仍继续等待，有空位后入队，不丢弃消息")
+    void testBlockWaitsForSpace(ExecutorType type) throws Exception {
+        executor = create(type, BackpressurePolicy.BLOCK);
+        fill();
+
+        CompletableFuture<Boolean> submitted = CompletableFuture.supplyAsync(() -> executor.submit(0, message("m3")));
+        Thread.sleep(300);
+        assertFalse(submitted.isDone());
+        assertEquals(1, executor.backlog());
+
+        release.countDown();
+        assertTrue(submitted.get(5, TimeUnit.SECONDS));
+        awaitHandled(3);
+        assertEquals(List.of("m1", "m2", "m3"), handled);
+        assertEquals(0.0, droppedCounter.count());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutorType.class)
+    @DisplayName("BLOCK：停机时等待中的提交返回失败")
+    void testBlockGivesUpOnShutdown(ExecutorType type) throws Exception {
+        executor = create(type, BackpressurePolicy.BLOCK);
+        fill();
+
+        CompletableFuture<Boolean> submitted = CompletableFuture.supplyAsync(() -> executor.submit(0, message("m3")));
+        Thread.sleep(100);
+        executor.shutdown(100);
+        assertFalse(submitted.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("积压指标：每个工作线程一个队列深度")
+    void testQueueDepthGauge() throws Exception {
+        executor = create(ExecutorType.PLATFORM, BackpressurePolicy.DROP_NEWEST);
+        fill();
+        assertEquals(1.0, meterRegistry.get("iot.ingest.queue.depth").tag("worker", "0").gauge().value());
+    }
+
+    /**
+     * 提交m1（被工作线程取走并阻塞）和m2（占满积压）
+     */
+    private void fill() throws InterruptedException {
+        assertTrue(executor.submit(0, message("m1")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.submit(0, message("m2")));
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handled.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, handled.size());
+    }
+
+    private IngestExecutor create(ExecutorType type, BackpressurePolicy policy) {
+        IngestProperties properties = properties(policy);
+        return type == ExecutorType.VIRTUAL
+                ? new VirtualThreadIngestExecutor(properties, this::handle, droppedCounter, meterRegistry)
+                : new PlatformThreadIngestExecutor(properties, this::handle, droppedCounter, meterRegistry);
+    }
+
+    private void handle(IngestMessage message) {
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        handled.add(message.getTopic());
+    }
+
+    private static IngestProperties properties(BackpressurePolicy policy) {
+        IngestProperties properties = new IngestProperties();
+        properties.setBackpressure(policy);
+        properties.setWorkerCount(1);
+        properties.setQueueCapacity(1);
+        properties.setLaneCount(1);
+        properties.setMaxPending(1);
+        properties.setOfferTimeoutMs(50L);
+        return properties;
+    }
+
+    private static IngestMessage message(String topic) {
+        return new IngestMessage(topic, new byte[0], System.nanoTime());
+    }
+}
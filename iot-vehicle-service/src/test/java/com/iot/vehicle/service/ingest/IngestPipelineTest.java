@@ -0,0 +1,83 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.mqtt.DeviceMessageHandler;
+import com.iot.vehicle.service.mqtt.MqttMessageDispatcher;
+import com.iot.vehicle.service.mqtt.TopicMatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据接入管道测试
+ *
+ * @author dongxiang.wu
+ */
+class IngestPipelineTest {
+
+    private static final int DEVICES = 20;
+    private static final int MESSAGES = 200;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<String, List<String>> received = new ConcurrentHashMap<>();
+    private final CountDownLatch done = new CountDownLatch(DEVICES * MESSAGES);
+
+    @Test
+    @DisplayName("同一设备不同类型的消息按提交顺序处理，计数和排队延迟指标")
+    void testPerDeviceOrderAcrossTopics() throws Exception {
+        IngestProperties properties = new IngestProperties();
+        properties.setWorkerCount(4);
+        IngestPipeline pipeline = new IngestPipeline(properties,
+                new MqttMessageDispatcher(List.of(handler("data"), handler("status"))), meterRegistry);
+        pipeline.start();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            for (int d = 0; d < DEVICES; d++) {
+                String type = i % 3 == 0 ? "status" : "data";
+                assertTrue(pipeline.submit("device/VH" + d + "/" + type, String.valueOf(i).getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        for (int d = 0; d < DEVICES; d++) {
+            List<String> messages = received.get("VH" + d);
+            for (int i = 0; i < MESSAGES; i++) {
+                assertEquals(String.valueOf(i), messages.get(i), "VH" + d);
+            }
+        }
+        assertEquals(DEVICES * MESSAGES, meterRegistry.get("iot.ingest.accepted").counter().count());
+        assertEquals(DEVICES * MESSAGES, meterRegistry.get("iot.ingest.lag").timer().count());
+
+        pipeline.stop();
+        assertFalse(pipeline.submit("device/VH0/data", new byte[0]));
+        assertEquals(1.0, meterRegistry.get("iot.ingest.dropped").counter().count());
+    }
+
+    private DeviceMessageHandler handler(String type) {
+        return new DeviceMessageHandler() {
+            @Override
+            public String topicPattern() {
+                return "device/+/" + type;
+            }
+
+            @Override
+            public void handle(TopicMatch match, byte[] payload) {
+                // 同一设备的消息串行处理，列表不需要同步
+                received.computeIfAbsent(match.deviceId(), k -> new ArrayList<>())
+                        .add(new String(payload, StandardCharsets.UTF_8));
+                done.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.config.IngestProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备最新数据缓存写入器测试
+ *
+ * @author dongxiang.wu
+ */
+class LatestCacheWriterTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * 模拟的Redis，记录管道写入的值
+     */
+    private final Map<String, DeviceData> redis = new ConcurrentHashMap<>();
+
+    @Test
+    @DisplayName("窗口内同一key只写数据时间最新的值，写入成功后从待写表移除")
+    void testNewestWinsAndRemovedAfterWrite() {
+        RedisTemplate<String, DeviceData> template = template((key, invocationCount) -> { });
+        LatestCacheWriter writer = new LatestCacheWriter(properties(60000L), template, meterRegistry);
+        writer.start();
+
+        writer.offer("latest:DEV001", sample("DEV001", 2));
+        writer.offer("latest:DEV001", sample("DEV001", 1));
+        assertEquals(BASE.plusSeconds(2), writer.peek("latest:DEV001").getDataTime());
+        writer.stop();
+
+        assertEquals(BASE.plusSeconds(2), redis.get("latest:DEV001").getDataTime());
+        assertNull(writer.peek("latest:DEV001"));
+        assertEquals(1.0, meterRegistry.get("iot.cache.coalesced").counter().count());
+    }
+
+    @Test
+    @DisplayName("管道写入期间值仍可通过peek读取，期间到达的新值不被移除")
+    void testPendingVisibleDuringWrite() {
+        LatestCacheWriter[] holder = new LatestCacheWriter[1];
+        DeviceData[] peeked = new DeviceData[1];
+        RedisTemplate<String, DeviceData> template = template((key, invocationCount) -> {
+            if (invocationCount == 1) {
+                peeked[0] = holder[0].peek(key);
+                holder[0].offer(key, sample("DEV001", 5));
+            }
+        });
+        LatestCacheWriter writer = new LatestCacheWriter(properties(20L), template, meterRegistry);
+        holder[0] = writer;
+
+        writer.offer("latest:DEV001", sample("DEV001", 1));
+        writer.start();
+        verify(template, timeout(TimeUnit.SECONDS.toMillis(5)).times(2)).executePipelined(any(SessionCallback.class));
+        writer.stop();
+
+        assertNotNull(peeked[0], "写入期间读路径不应看到空的待写表");
+        assertEquals(BASE.plusSeconds(5), redis.get("latest:DEV001").getDataTime());
+        assertNull(writer.peek("latest:DEV001"));
+    }
+
+    @Test
+    @DisplayName("写入失败的值留在待写表中，下个窗口重试")
+    void testRetryAfterFailure() {
+        RedisTemplate<String, DeviceData> template = template((key, invocationCount) -> {
+            if (invocationCount == 1) {
+                throw new RedisConnectionFailureException("connection refused");
+            }
+        });
+        LatestCacheWriter writer = new LatestCacheWriter(properties(20L), template, meterRegistry);
+
+        writer.offer("latest:DEV001", sample("DEV001", 1));
+        writer.start();
+        verify(template, timeout(TimeUnit.SECONDS.toMillis(5)).times(2)).executePipelined(any(SessionCallback.class));
+        writer.stop();
+
+        assertEquals(BASE.plusSeconds(1), redis.get("latest:DEV001").getDataTime());
+        assertNull(writer.peek("latest:DEV001"));
+    }
+
+    /**
+     * 构造模拟的RedisTemplate，每次SET前回调hook（参数为key和第几次管道调用）
+     */
+    @SuppressWarnings("unchecked")
+    private RedisTemplate<String, DeviceData> template(SetHook hook) {
+        RedisTemplate<String, DeviceData> template = mock(RedisTemplate.class);
+        RedisOperations<String, DeviceData> operations = mock(RedisOperations.class);
+        ValueOperations<String, DeviceData> valueOperations = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(valueOperations);
+
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer((Answer<Void>) invocation -> {
+            String key = invocation.getArgument(0);
+            hook.beforeSet(key, calls.get());
+            redis.put(key, invocation.getArgument(1));
+            return null;
+        }).when(valueOperations).set(anyString(), any(DeviceData.class), anyLong(), any(TimeUnit.class));
+        when(template.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            invocation.<SessionCallback<Object>>getArgument(0).execute(operations);
+            return List.of();
+        });
+        return template;
+    }
+
+    @FunctionalInterface
+    private interface SetHook {
+        void beforeSet(String key, int invocationCount);
+    }
+
+    private static IngestProperties properties(long flushIntervalMs) {
+        IngestProperties properties = new IngestProperties();
+        properties.getWriter().setCacheFlushIntervalMs(flushIntervalMs);
+        properties.setShutdownTimeoutMs(1000L);
+        return properties;
+    }
+
+    private static DeviceData sample(String deviceId, int second) {
+        DeviceData data = new DeviceData();
+        data.setDeviceId(deviceId);
+        data.setDataTime(BASE.plusSeconds(second));
+        return data;
+    }
+}
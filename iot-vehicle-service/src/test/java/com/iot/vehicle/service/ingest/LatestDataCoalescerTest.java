@@ -0,0 +1,117 @@
+package com.iot.vehicle.service.ingest;
+
+import com.iot.vehicle.api.entity.DeviceLatestData;
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.mapper.DeviceLatestDataMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备最新数据合并写入器测试
+ *
+ * @author dongxiang.wu
+ */
+class LatestDataCoalescerTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<DeviceLatestData>> written = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("窗口内同一设备只写数据时间最新的样本，乱序到达的旧样本不覆盖新样本")
+    void testNewestWins() {
+        DeviceLatestDataMapper mapper = recordingMapper();
+        LatestDataCoalescer coalescer = new LatestDataCoalescer(properties(60000L), mapper, meterRegistry);
+        coalescer.start();
+
+        coalescer.offer(sample("DEV001", 1));
+        coalescer.offer(sample("DEV001", 3));
+        coalescer.offer(sample("DEV001", 2));
+        coalescer.offer(sample("DEV002", 5));
+        coalescer.stop();
+
+        assertEquals(1, written.size());
+        Map<String, DeviceLatestData> rows = byDevice(written.get(0));
+        assertEquals(2, rows.size());
+        assertEquals(BASE.plusSeconds(3), rows.get("DEV001").getDataTime());
+        assertEquals(BASE.plusSeconds(5), rows.get("DEV002").getDataTime());
+        assertEquals(2.0, meterRegistry.get("iot.latest.coalesced").counter().count());
+        // 按主键排序写入
+        assertEquals("DEV001", written.get(0).get(0).getDeviceId());
+    }
+
+    @Test
+    @DisplayName("写入失败的数据放回下个窗口重试，期间到达的新样本优先")
+    void testRequeueOnFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        LatestDataCoalescer[] holder = new LatestDataCoalescer[1];
+        DeviceLatestDataMapper mapper = mock(DeviceLatestDataMapper.class);
+        when(mapper.upsertBatch(anyList())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                // 刷写期间DEV002到达了更新的样本
+                holder[0].offer(sample("DEV002", 9));
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+            List<DeviceLatestData> chunk = invocation.getArgument(0);
+            written.add(List.copyOf(chunk));
+            return chunk.size();
+        });
+        LatestDataCoalescer coalescer = new LatestDataCoalescer(properties(20L), mapper, meterRegistry);
+        holder[0] = coalescer;
+
+        coalescer.offer(sample("DEV001", 1));
+        coalescer.offer(sample("DEV002", 1));
+        coalescer.start();
+        verify(mapper, timeout(TimeUnit.SECONDS.toMillis(5)).times(2)).upsertBatch(anyList());
+        coalescer.stop();
+
+        assertEquals(1, written.size());
+        Map<String, DeviceLatestData> rows = byDevice(written.get(0));
+        assertEquals(BASE.plusSeconds(1), rows.get("DEV001").getDataTime());
+        assertEquals(BASE.plusSeconds(9), rows.get("DEV002").getDataTime());
+    }
+
+    private DeviceLatestDataMapper recordingMapper() {
+        DeviceLatestDataMapper mapper = mock(DeviceLatestDataMapper.class);
+        when(mapper.upsertBatch(anyList())).thenAnswer(invocation -> {
+            List<DeviceLatestData> chunk = invocation.getArgument(0);
+            written.add(List.copyOf(chunk));
+            return chunk.size();
+        });
+        return mapper;
+    }
+
+    private static IngestProperties properties(long flushIntervalMs) {
+        IngestProperties properties = new IngestProperties();
+        properties.getWriter().setLatestFlushIntervalMs(flushIntervalMs);
+        properties.setShutdownTimeoutMs(1000L);
+        return properties;
+    }
+
+    private static DeviceLatestData sample(String deviceId, int second) {
+        DeviceLatestData data = new DeviceLatestData();
+        data.setDeviceId(deviceId);
+        data.setDataTime(BASE.plusSeconds(second));
+        return data;
+    }
+
+    private static Map<String, DeviceLatestData> byDevice(List<DeviceLatestData> rows) {
+        return rows.stream().collect(Collectors.toMap(DeviceLatestData::getDeviceId, Function.identity()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.iot.vehicle.service.liveness;
+
+import com.iot.vehicle.service.cache.DeviceIdFilter;
+import com.iot.vehicle.service.cache.DeviceRegistryCache;
+import com.iot.vehicle.service.cache.DeviceRegistryEntry;
+import com.iot.vehicle.service.config.LivenessProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import com.iot.vehicle.service.mqtt.DeviceAuthService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备存活检测测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceLivenessTrackerTest {
+
+    private static final String DEVICE_ID = "VH001";
+
+    private final DeviceAuthService deviceAuthService = mock(DeviceAuthService.class);
+    private final DeviceIdFilter deviceIdFilter = mock(DeviceIdFilter.class);
+    private final DeviceRegistryCache deviceRegistryCache = mock(DeviceRegistryCache.class);
+
+    private DeviceLivenessTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        when(deviceIdFilter.mightExist(anyString())).thenReturn(true);
+        when(deviceRegistryCache.get(DEVICE_ID))
+                .thenReturn(new DeviceRegistryEntry(1L, DEVICE_ID, "hash", 1, null, null));
+
+        LivenessProperties properties = new LivenessProperties();
+        properties.setTimeoutSeconds(1L);
+        properties.setTickMs(50L);
+        properties.setWheelSize(64);
+        tracker = new DeviceLivenessTracker(properties, deviceAuthService, deviceIdFilter, deviceRegistryCache,
+                mock(DeviceMapper.class), mock(TransactionTemplate.class), new SimpleMeterRegistry());
+        tracker.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.stop();
+    }
+
+    @Test
+    @DisplayName("同一设备的状态、数据、心跳消息在同一节点上共同维持在线，超时离线后心跳重新上线")
+    void testLivenessAcrossTopics() {
+        // device/VH001/status online
+        tracker.track(DEVICE_ID);
+        // 之后交替收到device/VH001/data和device/VH001/heartbeat，总时长超过超时时间
+        for (int i = 0; i < 6; i++) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300));
+            tracker.touch(DEVICE_ID);
+        }
+        verify(deviceAuthService, never()).deviceOffline(any());
+        verify(deviceAuthService, never()).deviceOnline(any(), any());
+
+        // 停止上报后超时离线
+        verify(deviceAuthService, timeout(5000)).deviceOffline(DEVICE_ID);
+
+        // device/VH001/heartbeat 再次到达时重新上线
+        tracker.touch(DEVICE_ID);
+        verify(deviceAuthService).deviceOnline(DEVICE_ID, null);
+        verify(deviceAuthService, times(1)).deviceOffline(DEVICE_ID);
+    }
+}
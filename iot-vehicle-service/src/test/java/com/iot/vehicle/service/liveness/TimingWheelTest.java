@@ -0,0 +1,109 @@
+package com.iot.vehicle.service.liveness;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 哈希时间轮测试
+ *
+ * @author dongxiang.wu
+ */
+class TimingWheelTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("超时时间内没有刷新的键超时一次，之后不再重复超时")
+    void testExpire() {
+        TimingWheel wheel = new TimingWheel(1000, 64, 30_000, T0);
+        assertTrue(wheel.refresh("VH001", T0));
+        assertFalse(wheel.refresh("VH001", T0));
+        wheel.refresh("VH002", T0 + 5_000);
+
+        assertTrue(wheel.advance(T0 + 29_000).isEmpty());
+        assertEquals(List.of("VH001"), wheel.advance(T0 + 30_000));
+        assertEquals(List.of("VH002"), wheel.advance(T0 + 35_000));
+        assertTrue(wheel.advance(T0 + 100_000).isEmpty());
+        assertEquals(0, wheel.tracked());
+    }
+
+    @Test
+    @DisplayName("刷新推迟截止时间，超时后再次出现时返回true")
+    void testRefresh() {
+        TimingWheel wheel = new TimingWheel(1000, 64, 30_000, T0);
+        wheel.refresh("VH001", T0);
+        assertFalse(wheel.refresh("VH001", T0 + 20_000));
+
+        assertTrue(wheel.advance(T0 + 40_000).isEmpty());
+        assertEquals(List.of("VH001"), wheel.advance(T0 + 50_000));
+        assertTrue(wheel.refresh("VH001", T0 + 60_000));
+        assertEquals(1, wheel.tracked());
+        assertEquals(List.of("VH001"), wheel.advance(T0 + 90_000));
+    }
+
+    @Test
+    @DisplayName("移除的键不会超时；超时时间超过一圈时按圈下移")
+    void testRemoveAndMultipleRounds() {
+        TimingWheel wheel = new TimingWheel(1000, 8, 30_000, T0);
+        wheel.refresh("VH001", T0);
+        wheel.refresh("VH002", T0);
+        wheel.remove("VH002");
+
+        for (long t = T0; t < T0 + 30_000; t += 1000) {
+            assertTrue(wheel.advance(t).isEmpty(), "t=" + (t - T0));
+        }
+        assertEquals(List.of("VH001"), wheel.advance(T0 + 30_000));
+        assertTrue(wheel.refresh("VH002", T0 + 31_000));
+    }
+
+    @Test
+    @DisplayName("50万个键：全部按时超时")
+    void testManyKeys() {
+        int count = 500_000;
+        TimingWheel wheel = new TimingWheel(1000, 512, 90_000, T0);
+        for (int i = 0; i < count; i++) {
+            wheel.refresh("VH" + i, T0 + i % 60_000);
+        }
+        // 一半的键在60秒时刷新
+        for (int i = 0; i < count; i += 2) {
+            wheel.refresh("VH" + i, T0 + 60_000);
+        }
+        assertEquals(count, wheel.tracked());
+
+        int expired = wheel.advance(T0 + 150_000 - 1).size();
+        assertEquals(count / 2, expired);
+        assertEquals(count / 2, wheel.advance(T0 + 150_000).size());
+        assertEquals(0, wheel.tracked());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("超时和移除的键归还槽位，新出现的键复用槽位，内存不随出现过的键数增长")
+    void testSlotsReclaimed() {
+        int count = 20_000;
+        TimingWheel wheel = new TimingWheel(1000, 64, 30_000, T0);
+        for (int i = 0; i < count; i++) {
+            wheel.refresh("VH" + i, T0);
+        }
+        wheel.remove("VH0");
+        int capacity = wheel.capacity();
+
+        assertEquals(count - 1, wheel.advance(T0 + 30_000).size());
+        assertEquals(0, wheel.size());
+        assertFalse(wheel.refreshIfTracked("VH1", T0 + 31_000));
+
+        // 另一批设备ID：全部复用归还的槽位
+        for (int i = 0; i < count; i++) {
+            assertTrue(wheel.refresh("XX" + i, T0 + 31_000));
+        }
+        assertEquals(count, wheel.size());
+        assertEquals(capacity, wheel.capacity());
+        assertTrue(wheel.refreshIfTracked("XX1", T0 + 40_000));
+        assertEquals(count - 1, wheel.advance(T0 + 61_000).size());
+        assertEquals(List.of("XX1"), wheel.advance(T0 + 70_000));
+    }
+}
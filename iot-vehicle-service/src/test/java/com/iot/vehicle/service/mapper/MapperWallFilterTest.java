@@ -0,0 +1,83 @@
+package com.iot.vehicle.service.mapper;
+
+import com.alibaba.druid.wall.WallCheckResult;
+import com.alibaba.druid.wall.WallProvider;
+import com.alibaba.druid.wall.spi.PGWallProvider;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mapper语句的WallFilter检查
+ *
+ * 数据源配置了Druid的wall过滤器（filters: stat,wall），被拒绝的语句在运行时直接失败。
+ * 这里用与运行时相同的PostgreSQL默认规则检查所有XML中的语句，动态SQL按示例参数展开。
+ *
+ * @author dongxiang.wu
+ */
+class MapperWallFilterTest {
+
+    private final WallProvider wallProvider = new PGWallProvider();
+
+    @Test
+    @DisplayName("所有XML Mapper语句都能通过WallFilter")
+    void testAllStatementsPassWallFilter() throws Exception {
+        Configuration configuration = loadMappers();
+        Set<String> checked = new TreeSet<>();
+        List<String> denied = new ArrayList<>();
+        for (Object value : configuration.getMappedStatements()) {
+            // getMappedStatements同时包含完整id和简写id，按完整id去重
+            if (!(value instanceof MappedStatement statement) || !checked.add(statement.getId())) {
+                continue;
+            }
+            String sql = statement.getBoundSql(sampleParameters()).getSql();
+            WallCheckResult result = wallProvider.check(sql);
+            if (!result.getViolations().isEmpty()) {
+                denied.add(statement.getId() + ": " + result.getViolations());
+            }
+        }
+
+        assertTrue(checked.size() > 20, "应加载全部XML Mapper语句: " + checked);
+        assertTrue(denied.isEmpty(), "被WallFilter拒绝的语句: " + denied);
+    }
+
+    private static Configuration loadMappers() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:/mapper/**/*.xml");
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                new XMLMapperBuilder(in, configuration, resource.toString(), configuration.getSqlFragments()).parse();
+            }
+        }
+        return configuration;
+    }
+
+    /**
+     * 展开动态SQL用的示例参数：${}取示例表名和边界，foreach取两个元素（#{}只生成占位符，不读取元素属性）
+     */
+    private static Map<String, Object> sampleParameters() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("table", "tb_device_data_p20240101");
+        parameters.put("name", "tb_device_data_p20240101");
+        parameters.put("from", "2024-01-01 00:00:00");
+        parameters.put("to", "2024-01-02 00:00:00");
+        parameters.put("onlineStatus", 1);
+        parameters.put("list", List.of(new Object(), new Object()));
+        return parameters;
+    }
+}
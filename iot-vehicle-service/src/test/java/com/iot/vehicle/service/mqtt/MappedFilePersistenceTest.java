@@ -0,0 +1,225 @@
+package com.iot.vehicle.service.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.MqttPersistentData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 基于内存映射文件的MQTT消息持久化测试
+ *
+ * @author dongxiang.wu
+ */
+class MappedFilePersistenceTest {
+
+    private static final String CLIENT_ID = "iot-vehicle-server";
+    private static final String SERVER_URI = "tcp://localhost:1883";
+    private static final int INITIAL_SIZE = 256;
+
+    @TempDir
+    Path baseDir;
+
+    private MappedFilePersistence persistence;
+
+    @AfterEach
+    void tearDown() throws MqttPersistenceException {
+        if (persistence != null) {
+            persistence.close();
+        }
+    }
+
+    @Test
+    @DisplayName("重启后按日志重放恢复存活记录，已删除的记录不恢复")
+    void testReplay() throws Exception {
+        persistence = open();
+        persistence.put("s-1", message("s-1", "payload-1"));
+        persistence.put("s-2", message("s-2", "payload-2"));
+        persistence.put("s-3", message("s-3", ""));
+        persistence.remove("s-2");
+        persistence.put("s-1", message("s-1", "payload-1b"));
+
+        reopen();
+        assertEquals(Set.of("s-1", "s-3"), keys());
+        assertMessage("s-1", "payload-1b", persistence.get("s-1"));
+        assertMessage("s-3", "", persistence.get("s-3"));
+        assertNull(persistence.get("s-2"));
+        assertFalse(persistence.containsKey("s-2"));
+    }
+
+    @Test
+    @DisplayName("写入中途崩溃的记录CRC不匹配，重放时从该处截断，之后的追加正常恢复")
+    void testTornWriteTruncated() throws Exception {
+        persistence = open();
+        persistence.put("s-1", message("s-1", "payload-1"));
+        persistence.put("s-2", message("s-2", "payload-2"));
+        persistence.close();
+        persistence = null;
+
+        // 模拟第二条记录写了长度但内容不完整
+        Path file = logFile();
+        byte[] bytes = Files.readAllBytes(file);
+        int second = ByteBuffer.wrap(bytes).getInt(0);
+        bytes[second + 20] ^= 0x5A;
+        Files.write(file, bytes);
+
+        persistence = open();
+        assertEquals(Set.of("s-1"), keys());
+        persistence.put("s-3", message("s-3", "payload-3"));
+
+        reopen();
+        assertEquals(Set.of("s-1", "s-3"), keys());
+        assertMessage("s-3", "payload-3", persistence.get("s-3"));
+    }
+
+    @Test
+    @DisplayName("空间不足时压缩已删除的记录，存活记录不多时不扩容")
+    void testCompaction() throws Exception {
+        persistence = open();
+        persistence.put("keep", message("keep", "keep-payload"));
+        for (int i = 0; i < 100; i++) {
+            persistence.put("s-" + i, message("s-" + i, "payload-" + i));
+            persistence.remove("s-" + i);
+        }
+
+        assertEquals(INITIAL_SIZE, Files.size(logFile()));
+        assertFalse(Files.exists(logFile().resolveSibling("mqtt.log.compact")));
+        reopen();
+        assertEquals(Set.of("keep"), keys());
+        assertMessage("keep", "keep-payload", persistence.get("keep"));
+    }
+
+    @Test
+    @DisplayName("存活记录超过一半空间时扩容，扩容后全部记录可读")
+    void testGrowth() throws Exception {
+        persistence = open();
+        Set<String> expected = new TreeSet<>();
+        for (int i = 0; i < 50; i++) {
+            persistence.put("s-" + i, message("s-" + i, "payload-" + i));
+            expected.add("s-" + i);
+        }
+
+        assertTrue(Files.size(logFile()) > INITIAL_SIZE);
+        reopen();
+        assertEquals(expected, keys());
+        for (int i = 0; i < 50; i++) {
+            assertMessage("s-" + i, "payload-" + i, persistence.get("s-" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("clear清空全部记录并恢复初始大小，之后可继续写入")
+    void testClear() throws Exception {
+        persistence = open();
+        for (int i = 0; i < 50; i++) {
+            persistence.put("s-" + i, message("s-" + i, "payload-" + i));
+        }
+        persistence.clear();
+        assertTrue(keys().isEmpty());
+        assertEquals(INITIAL_SIZE, Files.size(logFile()));
+
+        persistence.put("after", message("after", "after-clear"));
+        reopen();
+        assertEquals(Set.of("after"), keys());
+        assertMessage("after", "after-clear", persistence.get("after"));
+    }
+
+    @Test
+    @DisplayName("压缩替换日志失败时保持原有映射可用，恢复后再次压缩不丢数据")
+    void testRewriteFailureKeepsUsableState() throws Exception {
+        persistence = open();
+        persistence.put("keep", message("keep", "keep-payload"));
+
+        // 把日志文件移走并在原位置放一个非空目录，使压缩后的原子替换失败（已打开的映射仍指向移走的文件）
+        Path file = logFile();
+        Path moved = file.resolveSibling("mqtt.log.moved");
+        Files.move(file, moved);
+        Files.createDirectory(file);
+        Files.writeString(file.resolve("blocker"), "x");
+
+        MqttPersistenceException error = assertThrows(MqttPersistenceException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                persistence.put("s-" + i, message("s-" + i, "payload-" + i));
+                persistence.remove("s-" + i);
+            }
+        });
+        assertNotNull(error.getCause());
+        assertFalse(Files.exists(file.resolveSibling("mqtt.log.compact")));
+        assertEquals(Set.of("keep"), keys());
+        assertMessage("keep", "keep-payload", persistence.get("keep"));
+
+        // 恢复后继续写入，触发压缩成功
+        Files.delete(file.resolve("blocker"));
+        Files.delete(file);
+        Files.move(moved, file);
+        for (int i = 0; i < 100; i++) {
+            persistence.put("s-" + i, message("s-" + i, "payload-" + i));
+            persistence.remove("s-" + i);
+        }
+        persistence.put("last", message("last", "last-payload"));
+
+        reopen();
+        assertEquals(Set.of("keep", "last"), keys());
+        assertMessage("last", "last-payload", persistence.get("last"));
+    }
+
+    @Test
+    @DisplayName("关闭后访问抛出客户端已关闭异常")
+    void testClosed() throws Exception {
+        persistence = open();
+        persistence.close();
+        MqttPersistenceException error = assertThrows(MqttPersistenceException.class, () -> persistence.get("s-1"));
+        assertEquals(MqttPersistenceException.REASON_CODE_CLIENT_CLOSED, error.getReasonCode());
+        persistence = null;
+    }
+
+    private MappedFilePersistence open() throws MqttPersistenceException {
+        MappedFilePersistence opened = new MappedFilePersistence(baseDir.toString(), INITIAL_SIZE);
+        opened.open(CLIENT_ID, SERVER_URI);
+        return opened;
+    }
+
+    private void reopen() throws MqttPersistenceException {
+        persistence.close();
+        persistence = open();
+    }
+
+    private Path logFile() throws IOException {
+        try (var dirs = Files.list(baseDir)) {
+            return dirs.findFirst().orElseThrow().resolve("mqtt.log");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> keys() throws MqttPersistenceException {
+        return new TreeSet<>(Collections.list(persistence.keys()));
+    }
+
+    private static MqttPersistable message(String key, String payload) {
+        byte[] header = key.getBytes(StandardCharsets.UTF_8);
+        byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+        return new MqttPersistentData(key, header, 0, header.length, body, 0, body.length);
+    }
+
+    private static void assertMessage(String key, String payload, MqttPersistable persistable)
+            throws MqttPersistenceException {
+        assertNotNull(persistable);
+        assertEquals(key, new String(persistable.getHeaderBytes(), persistable.getHeaderOffset(),
+                persistable.getHeaderLength(), StandardCharsets.UTF_8));
+        assertEquals(payload, new String(persistable.getPayloadBytes(), persistable.getPayloadOffset(),
+                persistable.getPayloadLength(), StandardCharsets.UTF_8));
+    }
+}
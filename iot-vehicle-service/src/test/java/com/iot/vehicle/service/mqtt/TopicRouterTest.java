@@ -0,0 +1,82 @@
+package com.iot.vehicle.service.mqtt;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 主题路由器测试
+ *
+ * @author dongxiang.wu
+ */
+class TopicRouterTest {
+
+    private final TopicMatch match = new TopicMatch();
+
+    @Test
+    @DisplayName("按通配段匹配并提取设备ID")
+    void testRouteWildcard() {
+        TopicRouter router = new TopicRouter();
+        DeviceMessageHandler data = handler("device/+/data");
+        DeviceMessageHandler status = handler("device/+/status");
+        router.register(data.topicPattern(), data);
+        router.register(status.topicPattern(), status);
+
+        assertSame(data, router.route("device/VH001/data", match));
+        assertEquals("VH001", match.deviceId());
+        assertSame(status, router.route("device/VH002/status", match));
+        assertEquals("VH002", match.deviceId());
+    }
+
+    @Test
+    @DisplayName("字面量段优先于通配段")
+    void testLiteralBeforeWildcard() {
+        TopicRouter router = new TopicRouter();
+        DeviceMessageHandler wildcard = handler("device/+/data");
+        DeviceMessageHandler literal = handler("device/broadcast/data");
+        router.register(wildcard.topicPattern(), wildcard);
+        router.register(literal.topicPattern(), literal);
+
+        assertSame(literal, router.route("device/broadcast/data", match));
+        assertNull(match.deviceId());
+        assertSame(wildcard, router.route("device/broadcast2/data", match));
+        assertEquals("broadcast2", match.deviceId());
+    }
+
+    @Test
+    @DisplayName("层级不一致或空段不匹配")
+    void testNoMatch() {
+        TopicRouter router = new TopicRouter();
+        DeviceMessageHandler data = handler("device/+/data");
+        router.register(data.topicPattern(), data);
+
+        assertNull(router.route("device/VH001/data/extra", match));
+        assertNull(router.route("device/VH001", match));
+        assertNull(router.route("device//data", match));
+        assertNull(router.route("server/VH001/data", match));
+    }
+
+    @Test
+    @DisplayName("重复注册和不支持的模式抛出异常")
+    void testRegisterInvalid() {
+        TopicRouter router = new TopicRouter();
+        router.register("device/+/data", handler("device/+/data"));
+
+        assertThrows(IllegalStateException.class, () -> router.register("device/+/data", handler("device/+/data")));
+        assertThrows(IllegalArgumentException.class, () -> router.register("device/#", handler("device/#")));
+    }
+
+    private static DeviceMessageHandler handler(String pattern) {
+        return new DeviceMessageHandler() {
+            @Override
+            public String topicPattern() {
+                return pattern;
+            }
+
+            @Override
+            public void handle(TopicMatch match, byte[] payload) {
+            }
+        };
+    }
+}
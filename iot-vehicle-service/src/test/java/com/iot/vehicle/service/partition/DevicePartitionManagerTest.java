@@ -0,0 +1,114 @@
+package com.iot.vehicle.service.partition;
+
+import com.alibaba.druid.wall.spi.PGWallProvider;
+import com.iot.vehicle.service.partition.DevicePartitionManager.PartitionRange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 设备数据分区管理器测试
+ *
+ * @author dongxiang.wu
+ */
+class DevicePartitionManagerTest {
+
+    private static final String TABLE = DevicePartitionManager.DEVICE_DATA_TABLE;
+
+    @Test
+    @DisplayName("分区命名")
+    void testPartitionName() {
+        assertEquals("tb_device_data_p202610",
+                DevicePartitionManager.partitionName(TABLE, time(2026, 10, 1), time(2026, 11, 1)));
+        assertEquals("tb_device_data_p20261018",
+                DevicePartitionManager.partitionName(TABLE, time(2026, 10, 18), time(2026, 10, 19)));
+        assertEquals("tb_device_data_p20261018_20261101",
+                DevicePartitionManager.partitionName(TABLE, time(2026, 10, 18), time(2026, 11, 1)));
+        assertEquals("tb_device_data_1m_p202610",
+                DevicePartitionManager.partitionName(DevicePartitionManager.MINUTE_ROLLUP_TABLE,
+                        time(2026, 10, 1), time(2026, 11, 1)));
+    }
+
+    @Test
+    @DisplayName("没有已有分区时整个区间都需要创建")
+    void testUncoveredEmpty() {
+        List<PartitionRange> gaps = DevicePartitionManager.uncovered(TABLE, new ArrayList<>(), time(2026, 10, 1), time(2026, 11, 1));
+
+        assertEquals(1, gaps.size());
+        assertEquals("tb_device_data_p202610", gaps.get(0).name());
+    }
+
+    @Test
+    @DisplayName("已被按月分区覆盖的按天区间不再创建")
+    void testUncoveredCovered() {
+        List<PartitionRange> partitions = List.of(range(time(2026, 10, 1), time(2026, 11, 1)));
+
+        assertTrue(DevicePartitionManager.uncovered(TABLE, partitions, time(2026, 10, 18), time(2026, 10, 19)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("按天切换为按月时只补齐未覆盖的部分")
+    void testUncoveredPartial() {
+        List<PartitionRange> partitions = List.of(
+                range(time(2026, 11, 1), time(2026, 11, 2)),
+                range(time(2026, 11, 2), time(2026, 11, 3)),
+                range(time(2026, 11, 5), time(2026, 11, 6)));
+
+        List<PartitionRange> gaps = DevicePartitionManager.uncovered(TABLE, partitions, time(2026, 11, 1), time(2026, 12, 1));
+
+        assertEquals(2, gaps.size());
+        assertEquals(time(2026, 11, 3), gaps.get(0).from());
+        assertEquals(time(2026, 11, 5), gaps.get(0).to());
+        assertEquals("tb_device_data_p20261106_20261201", gaps.get(1).name());
+    }
+
+    @Test
+    @DisplayName("可写范围：相邻分区合并，范围外和分区空洞中的时间不可写")
+    void testWritableRanges() {
+        List<PartitionRange> ranges = DevicePartitionManager.merge(List.of(
+                range(time(2026, 11, 1), time(2026, 12, 1)),
+                range(time(2026, 10, 1), time(2026, 11, 1)),
+                range(time(2027, 1, 1), time(2027, 2, 1))));
+
+        assertEquals(2, ranges.size());
+        assertEquals(time(2026, 10, 1), ranges.get(0).from());
+        assertEquals(time(2026, 12, 1), ranges.get(0).to());
+        assertTrue(DevicePartitionManager.covers(ranges, time(2026, 10, 1)));
+        assertTrue(DevicePartitionManager.covers(ranges, time(2026, 11, 30).plusHours(23)));
+        assertFalse(DevicePartitionManager.covers(ranges, time(2026, 12, 1)));
+        assertTrue(DevicePartitionManager.covers(ranges, time(2027, 1, 15)));
+        assertFalse(DevicePartitionManager.covers(ranges, time(1970, 1, 1)));
+        assertFalse(DevicePartitionManager.covers(ranges, time(2027, 2, 1)));
+
+        // 未分区或未加载时不限制
+        assertTrue(DevicePartitionManager.covers(List.of(), time(1970, 1, 1)));
+    }
+
+    @Test
+    @DisplayName("分离分区的DDL只接受小写标识符，且会被WallFilter拒绝（因此绕过连接池过滤器执行）")
+    void testDetachSql() {
+        String sql = DevicePartitionManager.detachSql(TABLE, "tb_device_data_p20261018", true);
+        assertEquals("ALTER TABLE tb_device_data DETACH PARTITION tb_device_data_p20261018 CONCURRENTLY", sql);
+        assertEquals("ALTER TABLE tb_device_data DETACH PARTITION tb_device_data_p20261018",
+                DevicePartitionManager.detachSql(TABLE, "tb_device_data_p20261018", false));
+        assertFalse(new PGWallProvider().check(sql).getViolations().isEmpty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> DevicePartitionManager.detachSql(TABLE, "p1; DROP TABLE tb_device", false));
+        assertThrows(IllegalArgumentException.class,
+                () -> DevicePartitionManager.detachSql("\"TB\"", "tb_device_data_p20261018", false));
+    }
+
+    private static PartitionRange range(LocalDateTime from, LocalDateTime to) {
+        return new PartitionRange(DevicePartitionManager.partitionName(TABLE, from, to), from, to);
+    }
+
+    private static LocalDateTime time(int year, int month, int day) {
+        return LocalDateTime.of(year, month, day, 0, 0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.iot.vehicle.service.presence;
+
+import com.iot.vehicle.common.core.enums.OnlineStatus;
+import com.iot.vehicle.service.cache.DeviceRegistryEntry;
+import com.iot.vehicle.service.config.PresenceProperties;
+import com.iot.vehicle.service.feed.DeviceChangeFeed;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import com.iot.vehicle.service.mapper.DeviceOnlineLogMapper;
+import com.iot.vehicle.service.statistics.DeviceStatisticsEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备在线状态管理器测试
+ *
+ * @author dongxiang.wu
+ */
+class DevicePresenceManagerTest {
+
+    private static final int ONLINE = OnlineStatus.ONLINE.getCode();
+    private static final int OFFLINE = OnlineStatus.OFFLINE.getCode();
+
+    private final DeviceMapper deviceMapper = mock(DeviceMapper.class);
+    private final DeviceChangeFeed deviceChangeFeed = mock(DeviceChangeFeed.class);
+    private final DeviceStatisticsEngine deviceStatisticsEngine = mock(DeviceStatisticsEngine.class);
+    private final DevicePresenceManager manager = manager();
+
+    @Test
+    @DisplayName("数据库已判离线后收到遗嘱离线、随后又上线：抖动汇总按最终状态写入上线")
+    void testFlapSummaryWritesFinalState() {
+        DeviceRegistryEntry entry = new DeviceRegistryEntry(1L, "VH001", null, 2, 10L, 100L);
+        when(deviceMapper.updateOnlineStatusBatch(eq(ONLINE), anyList())).thenReturn(List.of("VH001"));
+
+        manager.start();
+        manager.offline(entry);
+        manager.online(entry, "10.0.0.1");
+        manager.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PresenceChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(deviceMapper).updateOnlineStatusBatch(eq(ONLINE), captor.capture());
+        PresenceChange change = captor.getValue().get(0);
+        assertEquals("VH001", change.getDeviceId());
+        assertTrue(change.getTransition());
+        assertEquals(1, change.getFlaps());
+        assertEquals(change.getStateTime(), change.getEventTime());
+        verify(deviceStatisticsEngine).onMoved("VH001", entry.statKey(OFFLINE), entry.statKey(ONLINE));
+        verify(deviceChangeFeed).onOnline("VH001", change.getStateTime());
+    }
+
+    @Test
+    @DisplayName("抖动汇总与数据库状态一致：条件更新不生效，不产生状态变化")
+    void testFlapSummaryUnchanged() {
+        DeviceRegistryEntry entry = new DeviceRegistryEntry(1L, "VH001", null, 2, 10L, 100L);
+        when(deviceMapper.updateOnlineStatusBatch(anyInt(), anyList())).thenReturn(List.of());
+
+        manager.start();
+        manager.offline(entry);
+        manager.online(entry, "10.0.0.1");
+        manager.stop();
+
+        verify(deviceMapper).updateOnlineStatusBatch(eq(ONLINE), anyList());
+        verifyNoInteractions(deviceStatisticsEngine, deviceChangeFeed);
+    }
+
+    private DevicePresenceManager manager() {
+        PresenceProperties properties = new PresenceProperties();
+        // 只在停机时刷写
+        properties.setFlushIntervalMs(60_000L);
+        return new DevicePresenceManager(properties, deviceMapper, mock(DeviceOnlineLogMapper.class),
+                deviceStatisticsEngine, deviceChangeFeed, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,96 @@
+package com.iot.vehicle.service.presence;
+
+import com.iot.vehicle.service.cache.DeviceRegistryEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 设备在线状态机测试
+ *
+ * @author dongxiang.wu
+ */
+class PresenceTrackerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 6, 1, 8, 0, 0);
+
+    private final PresenceTracker tracker = new PresenceTracker(Duration.ofSeconds(2), Duration.ofSeconds(10));
+
+    @Test
+    @DisplayName("上线保持到防抖结束才取出，重复消息不改变状态")
+    void testOnlineDebounce() {
+        assertTrue(tracker.offer(entry("VH001"), true, "10.0.0.1", T0));
+        assertFalse(tracker.offer(entry("VH001"), true, "10.0.0.2", T0.plusSeconds(1)));
+
+        assertTrue(tracker.drain(T0.plusSeconds(1), false).isEmpty());
+        List<PresenceChange> changes = tracker.drain(T0.plusSeconds(2), false);
+        assertEquals(1, changes.size());
+        PresenceChange change = changes.get(0);
+        assertTrue(change.getOnline());
+        assertTrue(change.getTransition());
+        assertEquals(T0, change.getEventTime());
+        assertEquals("10.0.0.2", change.getIpAddress());
+        assertEquals(0, change.getFlaps());
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    @DisplayName("离线后在防抖时间内重新上线：平息后取出一条抖动汇总，带最终状态和进入该状态的时间")
+    void testFlapsCoalesced() {
+        for (int i = 0; i < 6; i++) {
+            tracker.offer(entry("VH001"), i % 2 == 1, "10.0.0.1", T0.plusSeconds(i));
+        }
+
+        assertTrue(tracker.drain(T0.plusSeconds(14), false).isEmpty());
+        List<PresenceChange> changes = tracker.drain(T0.plusSeconds(15), false);
+        assertEquals(1, changes.size());
+        PresenceChange summary = changes.get(0);
+        assertFalse(summary.getTransition());
+        assertTrue(summary.getOnline());
+        assertEquals(3, summary.getFlaps());
+        assertEquals(T0, summary.getEventTime());
+        // 稳定状态是推断的，汇总同样按最终状态做条件更新，写入最后上线时间
+        assertEquals(T0.plusSeconds(5), summary.getStateTime());
+    }
+
+    @Test
+    @DisplayName("抖动后最终离线：只取出一次离线变化，记录合并的抖动次数")
+    void testFlapsThenOffline() {
+        tracker.offer(entry("VH001"), false, null, T0);
+        tracker.offer(entry("VH001"), true, "10.0.0.1", T0.plusSeconds(1));
+        tracker.offer(entry("VH001"), false, null, T0.plusSeconds(2));
+
+        assertTrue(tracker.drain(T0.plusSeconds(11), false).isEmpty());
+        List<PresenceChange> changes = tracker.drain(T0.plusSeconds(12), false);
+        assertEquals(1, changes.size());
+        assertFalse(changes.get(0).getOnline());
+        assertTrue(changes.get(0).getTransition());
+        assertEquals(T0.plusSeconds(2), changes.get(0).getEventTime());
+        assertEquals(1, changes.get(0).getFlaps());
+    }
+
+    @Test
+    @DisplayName("写入失败放回后下次立即取出，停机时不等待防抖")
+    void testRequeueAndForce() {
+        tracker.offer(entry("VH001"), true, "10.0.0.1", T0);
+        PresenceChange change = tracker.drain(T0.plusSeconds(2), false).get(0);
+
+        tracker.requeue(change);
+        List<PresenceChange> retried = tracker.drain(T0.plusSeconds(2), false);
+        assertEquals(1, retried.size());
+        assertEquals(T0, retried.get(0).getEventTime());
+
+        tracker.offer(entry("VH002"), false, null, T0);
+        assertTrue(tracker.drain(T0, false).isEmpty());
+        assertEquals(1, tracker.drain(T0, true).size());
+    }
+
+    private static DeviceRegistryEntry entry(String deviceId) {
+        return new DeviceRegistryEntry(1L, deviceId, null, 2, 10L, 100L);
+    }
+}
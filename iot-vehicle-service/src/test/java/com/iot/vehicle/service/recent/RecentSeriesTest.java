@@ -0,0 +1,117 @@
+package com.iot.vehicle.service.recent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 近期样本序列编码测试
+ *
+ * @author dongxiang.wu
+ */
+class RecentSeriesTest {
+
+    private static final long START = 1_792_300_000_000L;
+
+    @Test
+    @DisplayName("写满多个块后逐条还原，缺失值保持为NaN")
+    void testRoundTrip() {
+        OffHeapBlockPool pool = new OffHeapBlockPool(512, 64 * 1024, 1024 * 1024);
+        RecentSeries series = new RecentSeries(pool);
+        List<float[]> expected = new ArrayList<>();
+        Random random = new Random(42);
+        long time = START;
+        float latitude = 31.2304f;
+        float longitude = 121.4737f;
+        for (int i = 0; i < 3000; i++) {
+            // 大部分为固定间隔，偶尔抖动
+            time += i % 50 == 0 ? 1000 + random.nextInt(300) : 1000;
+            latitude += (random.nextInt(21) - 10) * 1e-5f;
+            longitude += (random.nextInt(21) - 10) * 1e-5f;
+            float speed = i % 100 == 0 ? Float.NaN : random.nextInt(120);
+            float rpm = 800 + random.nextInt(20) * 100;
+            expected.add(new float[]{time, latitude, longitude, speed, rpm});
+            assertEquals(RecentSeries.AppendResult.OK, series.append(time, latitude, longitude, speed, rpm));
+        }
+        assertEquals(3000, series.sampleCount());
+        assertTrue(pool.usedBytes() > 512);
+
+        List<Long> times = new ArrayList<>();
+        List<float[]> actual = new ArrayList<>();
+        series.read(Long.MIN_VALUE, Long.MAX_VALUE, (t, lat, lng, speed, rpm) -> {
+            times.add(t);
+            actual.add(new float[]{t, lat, lng, speed, rpm});
+        });
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (int c = 1; c < 5; c++) {
+                assertEquals(Float.floatToIntBits(expected.get(i)[c]), Float.floatToIntBits(actual.get(i)[c]));
+            }
+        }
+        assertEquals(time, times.get(times.size() - 1));
+    }
+
+    @Test
+    @DisplayName("按时间范围读取，乱序样本被拒绝")
+    void testRangeAndOrder() {
+        RecentSeries series = new RecentSeries(new OffHeapBlockPool(64, 1024, 4096));
+        for (int i = 0; i < 100; i++) {
+            series.append(START + i * 1000L, 1f, 2f, i, Float.NaN);
+        }
+        assertEquals(RecentSeries.AppendResult.OUT_OF_ORDER, series.append(START, 1f, 2f, 0f, 0f));
+
+        List<Long> times = new ArrayList<>();
+        series.read(START + 10_000, START + 20_000, (t, lat, lng, speed, rpm) -> {
+            times.add(t);
+            assertEquals((t - START) / 1000f, speed);
+            assertTrue(Float.isNaN(rpm));
+        });
+        assertEquals(10, times.size());
+        assertEquals(START + 10_000, times.get(0));
+        assertEquals(START + 19_000, times.get(9));
+    }
+
+    @Test
+    @DisplayName("过期按块释放，释放后的块可以复用")
+    void testExpire() {
+        OffHeapBlockPool pool = new OffHeapBlockPool(64, 1024, 4096);
+        RecentSeries series = new RecentSeries(pool);
+        for (int i = 0; i < 200; i++) {
+            series.append(START + i * 1000L, 1f, 2f, i % 7, 1000f);
+        }
+        long used = pool.usedBytes();
+
+        long expired = series.expire(START + 100_000);
+        assertTrue(expired > 0 && expired <= 100);
+        assertEquals(200 - expired, series.sampleCount());
+        assertTrue(pool.usedBytes() < used);
+        List<Long> times = new ArrayList<>();
+        series.read(Long.MIN_VALUE, Long.MAX_VALUE, (t, lat, lng, speed, rpm) -> times.add(t));
+        assertEquals(200 - expired, times.size());
+        assertEquals(START + 199_000, times.get(times.size() - 1));
+
+        assertEquals(200 - expired, series.expire(Long.MAX_VALUE));
+        assertEquals(0, pool.usedBytes());
+        assertTrue(series.closeIfEmpty());
+        assertEquals(RecentSeries.AppendResult.CLOSED, series.append(START + 300_000, 1f, 2f, 0f, 0f));
+    }
+
+    @Test
+    @DisplayName("内存用满时拒绝写入新块")
+    void testPoolExhausted() {
+        OffHeapBlockPool pool = new OffHeapBlockPool(64, 64, 64);
+        RecentSeries first = new RecentSeries(pool);
+        RecentSeries second = new RecentSeries(pool);
+        assertEquals(RecentSeries.AppendResult.OK, first.append(START, 1f, 2f, 3f, 4f));
+        assertEquals(RecentSeries.AppendResult.POOL_EXHAUSTED, second.append(START, 1f, 2f, 3f, 4f));
+        assertEquals(0, second.sampleCount());
+
+        first.expire(Long.MAX_VALUE);
+        assertEquals(RecentSeries.AppendResult.OK, second.append(START, 1f, 2f, 3f, 4f));
+    }
+}
@@ -0,0 +1,144 @@
+package com.iot.vehicle.service.rollup;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.config.IngestProperties;
+import com.iot.vehicle.service.config.RollupProperties;
+import com.iot.vehicle.service.mapper.DeviceDataRollupMapper;
+import com.iot.vehicle.service.partition.DevicePartitionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备数据汇总累加器测试
+ *
+ * @author dongxiang.wu
+ */
+class RollupAccumulatorTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 6, 1, 8, 0);
+    private static final LocalDateTime EXPIRED = LocalDateTime.of(2024, 1, 15, 8, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeviceDataRollupMapper mapper = mock(DeviceDataRollupMapper.class);
+    private final DevicePartitionManager partitionManager = mock(DevicePartitionManager.class);
+    private final List<RollupBucket> minuteRows = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("桶时间不在汇总表已有分区内的样本不累加到该表，其他分辨率照常累加")
+    void testSkipUnwritableBuckets() {
+        when(partitionManager.isWritable(any(String.class), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> !(RollupResolution.MINUTE_TABLE.equals(invocation.getArgument(0))
+                        && invocation.<LocalDateTime>getArgument(1).isBefore(BASE.minusMonths(3))));
+        recordMinuteRows();
+        RollupAccumulator accumulator = accumulator(60000L);
+        accumulator.start();
+
+        accumulator.offer(sample("DEV001", EXPIRED));
+        accumulator.offer(sample("DEV001", BASE));
+        accumulator.stop();
+
+        assertEquals(1, minuteRows.size());
+        assertEquals(BASE, minuteRows.get(0).getBucketTime());
+        verify(mapper).mergeBatch(eq(RollupResolution.HOUR_TABLE), argThat(list -> list.size() == 2));
+        assertEquals(1.0, meterRegistry.get("iot.rollup.skipped").tag("resolution", "1m").counter().count());
+        assertEquals(0.0, meterRegistry.get("iot.rollup.skipped").tag("resolution", "1h").counter().count());
+    }
+
+    @Test
+    @DisplayName("非暂时性错误改为逐行写入，只丢弃写不进去的桶，不再重试")
+    void testNonTransientErrorDropsOnlyFailedRows() {
+        when(partitionManager.isWritable(any(String.class), any(LocalDateTime.class))).thenReturn(true);
+        when(mapper.mergeBatch(eq(RollupResolution.MINUTE_TABLE), anyList())).thenAnswer(invocation -> {
+            List<RollupBucket> chunk = invocation.getArgument(1);
+            if (chunk.stream().anyMatch(bucket -> "DEV002".equals(bucket.getDeviceId()))) {
+                throw new DataIntegrityViolationException("no partition of relation \"tb_device_data_1m\" found for row");
+            }
+            minuteRows.addAll(chunk);
+            return chunk.size();
+        });
+        RollupAccumulator accumulator = accumulator(200L);
+        accumulator.start();
+
+        accumulator.offer(sample("DEV001", BASE));
+        accumulator.offer(sample("DEV002", BASE));
+        accumulator.offer(sample("DEV003", BASE));
+        // 整批失败1次 + 逐行3次
+        verify(mapper, timeout(TimeUnit.SECONDS.toMillis(5)).times(4))
+                .mergeBatch(eq(RollupResolution.MINUTE_TABLE), anyList());
+        // 再等几个刷写窗口，失败的桶没有被放回重试
+        verify(mapper, after(600).times(4)).mergeBatch(eq(RollupResolution.MINUTE_TABLE), anyList());
+        accumulator.stop();
+
+        assertTrue(minuteRows.stream().noneMatch(bucket -> "DEV002".equals(bucket.getDeviceId())));
+        assertEquals(List.of("DEV001", "DEV003"),
+                minuteRows.stream().map(RollupBucket::getDeviceId).distinct().sorted().toList());
+        assertEquals(1.0, meterRegistry.get("iot.rollup.dropped").tag("resolution", "1m").counter().count());
+    }
+
+    @Test
+    @DisplayName("暂时性错误整批放回，下个窗口与新样本合并后重试")
+    void testTransientErrorRequeued() {
+        when(partitionManager.isWritable(any(String.class), any(LocalDateTime.class))).thenReturn(true);
+        AtomicInteger minuteCalls = new AtomicInteger();
+        when(mapper.mergeBatch(eq(RollupResolution.MINUTE_TABLE), anyList())).thenAnswer(invocation -> {
+            if (minuteCalls.incrementAndGet() == 1) {
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+            List<RollupBucket> chunk = invocation.getArgument(1);
+            minuteRows.addAll(chunk);
+            return chunk.size();
+        });
+        RollupAccumulator accumulator = accumulator(200L);
+        accumulator.start();
+
+        accumulator.offer(sample("DEV001", BASE));
+        accumulator.offer(sample("DEV001", BASE.plusSeconds(30)));
+        verify(mapper, timeout(TimeUnit.SECONDS.toMillis(5)).times(2))
+                .mergeBatch(eq(RollupResolution.MINUTE_TABLE), anyList());
+        accumulator.stop();
+
+        assertEquals(1, minuteRows.size());
+        assertEquals(2, minuteRows.get(0).getSampleCount());
+        assertEquals(0.0, meterRegistry.get("iot.rollup.dropped").tag("resolution", "1m").counter().count());
+    }
+
+    private void recordMinuteRows() {
+        when(mapper.mergeBatch(eq(RollupResolution.MINUTE_TABLE), anyList())).thenAnswer(invocation -> {
+            List<RollupBucket> chunk = invocation.getArgument(1);
+            minuteRows.addAll(chunk);
+            return chunk.size();
+        });
+    }
+
+    private RollupAccumulator accumulator(long flushIntervalMs) {
+        RollupProperties rollupProperties = new RollupProperties();
+        rollupProperties.setFlushIntervalMs(flushIntervalMs);
+        IngestProperties ingestProperties = new IngestProperties();
+        ingestProperties.setShutdownTimeoutMs(1000L);
+        return new RollupAccumulator(rollupProperties, ingestProperties, mapper, partitionManager, meterRegistry);
+    }
+
+    private static DeviceData sample(String deviceId, LocalDateTime dataTime) {
+        DeviceData data = new DeviceData();
+        data.setDeviceId(deviceId);
+        data.setDataTime(dataTime);
+        data.setSpeed(new BigDecimal("60.00"));
+        return data;
+    }
+}
@@ -0,0 +1,104 @@
+package com.iot.vehicle.service.rollup;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 汇总桶与趋势粒度选择测试
+ *
+ * @author dongxiang.wu
+ */
+class RollupBucketTest {
+
+    private static final LocalDateTime MINUTE = LocalDateTime.of(2026, 10, 18, 12, 30);
+
+    @Test
+    @DisplayName("逐条累加：计数、最值和首末值")
+    void testAdd() {
+        RollupBucket bucket = new RollupBucket("DEV_001", MINUTE);
+        bucket.add(sample(20, 60.0, 1500, 50.0, 1000.0));
+        bucket.add(sample(10, 40.0, 1200, null, 999.5));
+        bucket.add(sample(40, null, 2000, 49.5, null));
+
+        assertEquals(3, bucket.getSampleCount());
+        assertEquals(2, bucket.getSpeedCount());
+        assertEquals(100.0, bucket.getSpeedSum(), 1e-9);
+        assertEquals(40.0, bucket.getSpeedMin());
+        assertEquals(60.0, bucket.getSpeedMax());
+        assertEquals(2000, bucket.getRpmMax());
+        assertEquals(MINUTE.plusSeconds(10), bucket.getFirstTime());
+        assertEquals(MINUTE.plusSeconds(40), bucket.getLastTime());
+        // 最早的样本没有油量，取时间上最早的非空值
+        assertEquals(50.0, bucket.getFuelFirst());
+        assertEquals(49.5, bucket.getFuelLast());
+        assertEquals(999.5, bucket.getMileageFirst());
+        assertEquals(1000.0, bucket.getMileageLast());
+    }
+
+    @Test
+    @DisplayName("合并顺序不影响结果")
+    void testMergeOrder() {
+        RollupBucket early = new RollupBucket("DEV_001", MINUTE);
+        early.add(sample(5, 30.0, 900, 60.0, 100.0));
+        RollupBucket late = new RollupBucket("DEV_001", MINUTE);
+        late.add(sample(50, 80.0, 3000, 58.0, 101.2));
+
+        RollupBucket forward = new RollupBucket("DEV_001", MINUTE);
+        forward.merge(early);
+        forward.merge(late);
+        RollupBucket backward = new RollupBucket("DEV_001", MINUTE);
+        backward.merge(late);
+        backward.merge(early);
+
+        assertEquals(forward, backward);
+        assertEquals(2, forward.getSampleCount());
+        assertEquals(60.0, forward.getFuelFirst());
+        assertEquals(58.0, forward.getFuelLast());
+        assertEquals(100.0, forward.getMileageFirst());
+        assertEquals(101.2, forward.getMileageLast());
+    }
+
+    @Test
+    @DisplayName("短时间范围使用1分钟表")
+    void testResolutionMinute() {
+        RollupResolution resolution = RollupResolution.select(MINUTE, MINUTE.plusHours(1), 500, null);
+
+        assertEquals(RollupResolution.MINUTE_TABLE, resolution.table());
+        assertEquals(60, resolution.bucketSeconds());
+
+        // 一天500个点：172.8秒向上取整到3分钟
+        resolution = RollupResolution.select(MINUTE, MINUTE.plusDays(1), 500, null);
+        assertEquals(RollupResolution.MINUTE_TABLE, resolution.table());
+        assertEquals(180, resolution.bucketSeconds());
+    }
+
+    @Test
+    @DisplayName("桶宽超过1小时或超出1分钟表保留范围时使用1小时表")
+    void testResolutionHour() {
+        RollupResolution resolution = RollupResolution.select(MINUTE, MINUTE.plusDays(30), 500, null);
+
+        assertEquals(RollupResolution.HOUR_TABLE, resolution.table());
+        assertEquals(7200, resolution.bucketSeconds());
+
+        resolution = RollupResolution.select(MINUTE, MINUTE.plusHours(1), 500, MINUTE.plusDays(1));
+        assertEquals(RollupResolution.HOUR_TABLE, resolution.table());
+        assertEquals(3600, resolution.bucketSeconds());
+    }
+
+    private static DeviceData sample(int second, Double speed, Integer rpm, Double fuel, Double mileage) {
+        DeviceData data = new DeviceData();
+        data.setDeviceId("DEV_001");
+        data.setDataTime(MINUTE.plusSeconds(second));
+        data.setSpeed(speed == null ? null : BigDecimal.valueOf(speed));
+        data.setSpeedRpm(rpm);
+        data.setFuelLevel(fuel == null ? null : BigDecimal.valueOf(fuel));
+        data.setMileage(mileage == null ? null : BigDecimal.valueOf(mileage));
+        return data;
+    }
+}
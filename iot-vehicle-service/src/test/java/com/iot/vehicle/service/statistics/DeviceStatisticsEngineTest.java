@@ -0,0 +1,199 @@
+package com.iot.vehicle.service.statistics;
+
+import com.iot.vehicle.api.vo.DeviceStatisticsVO;
+import com.iot.vehicle.common.core.enums.DeviceStatus;
+import com.iot.vehicle.common.core.enums.OnlineStatus;
+import com.iot.vehicle.service.config.DeviceStatisticsProperties;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备数量统计引擎测试
+ *
+ * @author dongxiang.wu
+ */
+class DeviceStatisticsEngineTest {
+
+    private static final int NORMAL = DeviceStatus.NORMAL.getCode();
+    private static final int DISABLED = DeviceStatus.DISABLED.getCode();
+    private static final int ONLINE = OnlineStatus.ONLINE.getCode();
+    private static final int OFFLINE = OnlineStatus.OFFLINE.getCode();
+
+    private final DeviceMapper deviceMapper = mock(DeviceMapper.class);
+    private final DeviceStatisticsEngine engine = engine(false, mock(StringRedisTemplate.class));
+
+    @Test
+    @DisplayName("从数据库加载：全局、分组和所有者计数")
+    void testReconcileLoad() {
+        when(deviceMapper.selectStatistics()).thenReturn(List.of(
+                row(1L, 10L, NORMAL, ONLINE, 3),
+                row(1L, 20L, NORMAL, OFFLINE, 2),
+                row(2L, 10L, DISABLED, OFFLINE, 5),
+                row(null, null, 99, ONLINE, 1)));
+        engine.init();
+
+        DeviceStatisticsVO global = engine.getStatistics();
+        assertEquals(11L, global.getTotalCount());
+        assertEquals(4L, global.getOnlineCount());
+        assertEquals(7L, global.getOfflineCount());
+        assertEquals("36.36%", global.getOnlineRate());
+        assertEquals(5L, global.getStatusCount().get(DeviceStatus.NORMAL.getDesc()));
+        assertEquals(5L, global.getStatusCount().get(DeviceStatus.DISABLED.getDesc()));
+
+        DeviceStatisticsVO group1 = find(engine.getGroupStatistics(), 1L, true);
+        assertEquals(5L, group1.getTotalCount());
+        assertEquals(3L, group1.getOnlineCount());
+        DeviceStatisticsVO ungrouped = find(engine.getGroupStatistics(), null, true);
+        assertEquals(1L, ungrouped.getTotalCount());
+        DeviceStatisticsVO owner10 = find(engine.getOwnerStatistics(), 10L, false);
+        assertEquals(8L, owner10.getTotalCount());
+    }
+
+    @Test
+    @DisplayName("增量变化：注册、上线、改分组、删除")
+    void testIncremental() {
+        when(deviceMapper.selectStatistics()).thenReturn(List.of());
+        engine.init();
+
+        DeviceStatKey registered = new DeviceStatKey(1L, 10L, NORMAL, OFFLINE);
+        engine.onAdded("D1", registered);
+        DeviceStatKey online = registered.withOnlineStatus(ONLINE);
+        engine.onMoved("D1", registered, online);
+        assertEquals(1L, engine.getStatistics().getOnlineCount());
+
+        DeviceStatKey moved = online.withGroupId(2L);
+        engine.onMoved("D1", online, moved);
+        assertNull(find(engine.getGroupStatistics(), 1L, true));
+        assertEquals(1L, find(engine.getGroupStatistics(), 2L, true).getOnlineCount());
+
+        engine.onRemoved("D1", moved);
+        assertEquals(0L, engine.getStatistics().getTotalCount());
+        assertTrue(engine.getGroupStatistics().isEmpty());
+        assertTrue(engine.getOwnerStatistics().isEmpty());
+    }
+
+    @Test
+    @DisplayName("校对：内存计数与数据库不一致时按数据库重建")
+    void testReconcileDrift() {
+        when(deviceMapper.selectStatistics()).thenReturn(List.of(row(1L, 10L, NORMAL, ONLINE, 3)));
+        engine.init();
+        assertTrue(engine.reconcile());
+
+        // 漏掉了一次离线
+        when(deviceMapper.selectStatistics()).thenReturn(List.of(
+                row(1L, 10L, NORMAL, ONLINE, 2),
+                row(1L, 10L, NORMAL, OFFLINE, 1)));
+        assertFalse(engine.reconcile());
+        assertEquals(2L, engine.getStatistics().getOnlineCount());
+        assertTrue(engine.reconcile());
+    }
+
+    @Test
+    @DisplayName("统计位置编码往返不变，空值保持为空")
+    void testKeyEncoding() {
+        DeviceStatKey key = new DeviceStatKey(1L, null, NORMAL, ONLINE);
+        assertEquals("1,," + NORMAL + "," + ONLINE, DeviceStatisticsEngine.encodeKey(key));
+        assertEquals(key, DeviceStatisticsEngine.decodeKey(DeviceStatisticsEngine.encodeKey(key)));
+        assertEquals(new DeviceStatKey(null, null, null, null),
+                DeviceStatisticsEngine.decodeKey(DeviceStatisticsEngine.encodeKey(new DeviceStatKey(null, null, null, null))));
+        assertNull(DeviceStatisticsEngine.decodeKey(DeviceStatisticsEngine.encodeKey(null)));
+    }
+
+    @Test
+    @DisplayName("一个节点提交的变化广播后其他节点同样计入，节点跳过自己发出的消息")
+    void testBroadcastAcrossNodes() {
+        when(deviceMapper.selectStatistics()).thenReturn(List.of());
+        StringRedisTemplate redisA = mock(StringRedisTemplate.class);
+        DeviceStatisticsEngine nodeA = engine(true, redisA);
+        DeviceStatisticsEngine nodeB = engine(true, mock(StringRedisTemplate.class));
+        // 发布订阅把A发出的消息同时投递给A和B
+        doAnswer(invocation -> {
+            String message = invocation.getArgument(1);
+            nodeA.onBroadcast(message);
+            nodeB.onBroadcast(message);
+            return 1L;
+        }).when(redisA).convertAndSend(eq("device:statistics:changes"), anyString());
+        nodeA.init();
+        nodeB.init();
+        try {
+            DeviceStatKey registered = new DeviceStatKey(1L, 10L, NORMAL, OFFLINE);
+            DeviceStatKey online = registered.withOnlineStatus(ONLINE);
+            nodeA.onAdded("D|1", registered);
+            nodeA.onMoved("D|1", registered, online);
+            nodeA.onAdded("D2", registered);
+            nodeA.onRemoved("D2", registered);
+            nodeA.flushBroadcasts();
+
+            verify(redisA, times(1)).convertAndSend(eq("device:statistics:changes"), anyString());
+            for (DeviceStatisticsEngine node : List.of(nodeA, nodeB)) {
+                DeviceStatisticsVO global = node.getStatistics();
+                assertEquals(1L, global.getTotalCount());
+                assertEquals(1L, global.getOnlineCount());
+                assertEquals(1L, find(node.getGroupStatistics(), 1L, true).getOnlineCount());
+            }
+        } finally {
+            nodeA.stop();
+            nodeB.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("广播失败时丢弃变化，不影响本节点计数")
+    void testBroadcastFailure() {
+        when(deviceMapper.selectStatistics()).thenReturn(List.of());
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        when(redis.convertAndSend(anyString(), anyString()))
+                .thenThrow(new RedisConnectionFailureException("connection refused"));
+        DeviceStatisticsEngine node = engine(true, redis);
+        node.init();
+        try {
+            node.onAdded("D1", new DeviceStatKey(1L, 10L, NORMAL, ONLINE));
+            node.flushBroadcasts();
+            node.flushBroadcasts();
+
+            verify(redis, times(1)).convertAndSend(anyString(), anyString());
+            assertEquals(1L, node.getStatistics().getOnlineCount());
+        } finally {
+            node.stop();
+        }
+    }
+
+    private DeviceStatisticsEngine engine(boolean broadcast, StringRedisTemplate redisTemplate) {
+        DeviceStatisticsProperties properties = new DeviceStatisticsProperties();
+        properties.setBroadcastEnabled(broadcast);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenThrow(new RedisConnectionFailureException("connection refused"));
+        return new DeviceStatisticsEngine(deviceMapper, new SimpleMeterRegistry(), mock(GroupStatisticsEngine.class),
+                properties, redisTemplate, connectionFactory);
+    }
+
+    private static DeviceStatisticsVO find(List<DeviceStatisticsVO> list, Long id, boolean group) {
+        return list.stream()
+                .filter(vo -> Objects.equals(group ? vo.getGroupId() : vo.getOwnerId(), id))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static DeviceStatisticsRow row(Long groupId, Long ownerId, int status, int onlineStatus, long count) {
+        DeviceStatisticsRow row = new DeviceStatisticsRow();
+        row.setGroupId(groupId);
+        row.setOwnerId(ownerId);
+        row.setStatus(status);
+        row.setOnlineStatus(onlineStatus);
+        row.setDeviceCount(count);
+        return row;
+    }
+}
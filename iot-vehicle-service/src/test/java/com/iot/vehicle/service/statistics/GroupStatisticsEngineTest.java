@@ -0,0 +1,210 @@
+package com.iot.vehicle.service.statistics;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.api.entity.DeviceGroup;
+import com.iot.vehicle.api.vo.GroupStatisticsVO;
+import com.iot.vehicle.common.core.enums.DeviceStatus;
+import com.iot.vehicle.common.core.enums.OnlineStatus;
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.service.mapper.DeviceGroupMapper;
+import com.iot.vehicle.service.mapper.DeviceMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 分组统计引擎测试
+ *
+ * 分组树：1 -> (2 -> 4, 3)，另有一个父分组不存在的分组5
+ * 增量变化由更新线程按间隔应用，测试中直接调用flush()
+ *
+ * @author dongxiang.wu
+ */
+class GroupStatisticsEngineTest {
+
+    private static final int NORMAL = DeviceStatus.NORMAL.getCode();
+    private static final int DISABLED = DeviceStatus.DISABLED.getCode();
+    private static final int ONLINE = OnlineStatus.ONLINE.getCode();
+    private static final int OFFLINE = OnlineStatus.OFFLINE.getCode();
+    private static final LocalDateTime T0 = LocalDateTime.now().withNano(0).minusMinutes(1);
+
+    private final GroupStatisticsEngine engine = new GroupStatisticsEngine(mock(DeviceGroupMapper.class),
+            mock(DeviceMapper.class), mock(TransactionTemplate.class), new SimpleMeterRegistry());
+
+    private final List<DeviceGroup> groups = List.of(
+            group(1L, 0L, "0"), group(2L, 1L, "0/1"), group(3L, 1L, "0/1"),
+            group(4L, 2L, "0/1/2"), group(5L, 99L, "0/99"));
+
+    @Test
+    @DisplayName("重建：每个节点汇总自身和全部子分组")
+    void testRebuildRollup() {
+        engine.rebuild(groups, List.of(
+                member("D1", 1L, NORMAL, ONLINE, "30", T0),
+                member("D2", 2L, NORMAL, OFFLINE, "0", T0.plusMinutes(1)),
+                member("D3", 4L, DISABLED, ONLINE, "50", T0.plusMinutes(2)),
+                member("D4", 3L, NORMAL, ONLINE, null, null),
+                member("D5", null, NORMAL, ONLINE, "10", T0)));
+
+        List<GroupStatisticsVO> roots = engine.getStatistics(null);
+        assertEquals(2, roots.size());
+        GroupStatisticsVO root = roots.get(0);
+        assertEquals(1L, root.getGroupId());
+        assertEquals(4L, root.getTotalCount());
+        assertEquals(1L, root.getDirectCount());
+        assertEquals(3L, root.getOnlineCount());
+        assertEquals(1L, root.getStatusCount().get(DeviceStatus.DISABLED.getDesc()));
+        assertEquals(3L, root.getReportedCount());
+        assertEquals(2L, root.getMovingCount());
+        assertEquals(40.0, root.getAvgSpeed());
+        assertEquals(T0.plusMinutes(2), root.getLatestDataTime());
+
+        GroupStatisticsVO group2 = root.getChildren().get(0);
+        assertEquals(2L, group2.getGroupId());
+        assertEquals(2L, group2.getTotalCount());
+        assertEquals(1L, group2.getMovingCount());
+        assertEquals(1L, group2.getChildren().get(0).getTotalCount());
+
+        GroupStatisticsVO group3 = root.getChildren().get(1);
+        assertEquals(0L, group3.getReportedCount());
+        assertNull(group3.getAvgSpeed());
+        assertEquals(0L, roots.get(1).getTotalCount());
+    }
+
+    @Test
+    @DisplayName("增量变化：注册、上线、改分组、删除只影响所在路径")
+    void testIncremental() {
+        engine.rebuild(groups, List.of());
+
+        DeviceStatKey registered = new DeviceStatKey(4L, null, NORMAL, OFFLINE);
+        engine.onAdded("D1", registered);
+        engine.onMoved("D1", registered.withOnlineStatus(ONLINE));
+        engine.flush();
+        assertEquals(1L, node(1L).getOnlineCount());
+        assertEquals(1L, node(2L).getOnlineCount());
+        assertEquals(1L, node(4L).getOnlineCount());
+
+        engine.onMoved("D1", registered.withOnlineStatus(ONLINE).withGroupId(3L));
+        assertEquals(0L, node(3L).getTotalCount());
+        engine.flush();
+        assertEquals(1L, node(1L).getTotalCount());
+        assertEquals(0L, node(2L).getTotalCount());
+        assertEquals(1L, node(3L).getTotalCount());
+
+        engine.onRemoved("D1");
+        engine.flush();
+        assertEquals(0L, node(1L).getTotalCount());
+        assertEquals(0L, node(3L).getTotalCount());
+    }
+
+    @Test
+    @DisplayName("最新数据：替换设备之前的贡献，乱序样本不计入")
+    void testTelemetry() {
+        engine.rebuild(groups, List.of(member("D1", 4L, NORMAL, ONLINE, null, null)));
+
+        engine.offer(data("D1", T0, "60"));
+        engine.flush();
+        assertEquals(1L, node(1L).getMovingCount());
+        assertEquals(60.0, node(1L).getAvgSpeed());
+
+        engine.offer(data("D1", T0.plusSeconds(10), "0.5"));
+        engine.flush();
+        assertEquals(1L, node(2L).getReportedCount());
+        assertEquals(0L, node(2L).getMovingCount());
+
+        engine.offer(data("D1", T0.plusSeconds(5), "80"));
+        engine.flush();
+        assertEquals(0L, node(4L).getMovingCount());
+        assertEquals(T0.plusSeconds(10), node(1L).getLatestDataTime());
+
+        // 未跟踪的设备不计入
+        engine.offer(data("D9", T0.plusSeconds(20), "80"));
+        engine.flush();
+        assertEquals(T0.plusSeconds(10), node(1L).getLatestDataTime());
+    }
+
+    @Test
+    @DisplayName("同一刷写间隔内的多条数据只保留最新一条")
+    void testTelemetryCoalesced() {
+        engine.rebuild(groups, List.of(member("D1", 4L, NORMAL, ONLINE, null, null)));
+
+        engine.offer(data("D1", T0.plusSeconds(10), "0.5"));
+        engine.offer(data("D1", T0.plusSeconds(5), "80"));
+        engine.flush();
+        assertEquals(1L, node(4L).getReportedCount());
+        assertEquals(0L, node(4L).getMovingCount());
+        assertEquals(T0.plusSeconds(10), node(4L).getLatestDataTime());
+    }
+
+    @Test
+    @DisplayName("离线或长时间没有新数据的设备不再计为行驶")
+    void testMovingExpires() {
+        LocalDateTime stale = LocalDateTime.now().minusMinutes(GroupStatisticsEngine.MOVING_STALE_MINUTES + 1);
+        engine.rebuild(groups, List.of(
+                member("D1", 4L, NORMAL, ONLINE, "60", T0),
+                member("D2", 4L, NORMAL, ONLINE, "60", T0),
+                member("D3", 4L, NORMAL, ONLINE, "60", stale),
+                member("D4", 4L, NORMAL, OFFLINE, "60", T0)));
+        assertEquals(2L, node(1L).getMovingCount());
+        assertEquals(4L, node(1L).getReportedCount());
+
+        engine.onMoved("D1", new DeviceStatKey(4L, null, NORMAL, OFFLINE));
+        engine.flush();
+        assertEquals(1L, node(1L).getMovingCount());
+        assertEquals(60.0, node(1L).getAvgSpeed());
+
+        // D2之后没有新数据，超过MOVING_STALE_MINUTES后过期
+        engine.flush(T0.plusMinutes(GroupStatisticsEngine.MOVING_STALE_MINUTES).plusSeconds(1));
+        assertEquals(0L, node(1L).getMovingCount());
+        assertNull(node(1L).getAvgSpeed());
+        assertEquals(4L, node(1L).getReportedCount());
+    }
+
+    @Test
+    @DisplayName("查询不存在的分组")
+    void testUnknownGroup() {
+        engine.rebuild(groups, List.of());
+        assertThrows(BusinessException.class, () -> engine.getStatistics(42L));
+    }
+
+    private GroupStatisticsVO node(Long groupId) {
+        return engine.getStatistics(groupId).get(0);
+    }
+
+    private static DeviceGroup group(Long id, Long parentId, String levelPath) {
+        DeviceGroup group = new DeviceGroup();
+        group.setId(id);
+        group.setParentId(parentId);
+        group.setGroupName("分组" + id);
+        group.setLevelPath(levelPath);
+        group.setSortOrder(id.intValue());
+        return group;
+    }
+
+    private static GroupMemberRow member(String deviceId, Long groupId, int status, int onlineStatus,
+                                         String speed, LocalDateTime dataTime) {
+        GroupMemberRow row = new GroupMemberRow();
+        row.setDeviceId(deviceId);
+        row.setGroupId(groupId);
+        row.setStatus(status);
+        row.setOnlineStatus(onlineStatus);
+        row.setSpeed(speed == null ? null : new BigDecimal(speed));
+        row.setDataTime(dataTime);
+        return row;
+    }
+
+    private static DeviceData data(String deviceId, LocalDateTime dataTime, String speed) {
+        DeviceData data = new DeviceData();
+        data.setDeviceId(deviceId);
+        data.setDataTime(dataTime);
+        data.setSpeed(new BigDecimal(speed));
+        return data;
+    }
+}
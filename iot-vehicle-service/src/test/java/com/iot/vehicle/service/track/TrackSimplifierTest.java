@@ -0,0 +1,114 @@
+package com.iot.vehicle.service.track;
+
+import com.iot.vehicle.api.vo.DeviceTrackPointVO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式轨迹简化测试
+ *
+ * @author dongxiang.wu
+ */
+class TrackSimplifierTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 10, 18, 8, 0);
+
+    /**
+     * 纬度方向1米对应的度数
+     */
+    private static final double METER = 1 / 111_195.0;
+
+    @Test
+    @DisplayName("直线只保留首尾两点")
+    void testStraightLine() {
+        List<DeviceTrackPointVO> result = new ArrayList<>();
+        TrackSimplifier simplifier = new TrackSimplifier(5, 1000, result::add);
+        for (int i = 0; i < 100; i++) {
+            simplifier.accept(point(i, 31.0 + i * 10 * METER, 121.0));
+        }
+        simplifier.finish();
+
+        assertEquals(2, result.size());
+        assertEquals(START, result.get(0).getDataTime());
+        assertEquals(START.plusSeconds(99), result.get(1).getDataTime());
+        assertEquals(100, simplifier.getInputCount());
+        assertEquals(2, simplifier.getOutputCount());
+    }
+
+    @Test
+    @DisplayName("偏离超过容差的拐点保留，容差内的抖动去掉")
+    void testTolerance() {
+        List<DeviceTrackPointVO> result = new ArrayList<>();
+        TrackSimplifier simplifier = new TrackSimplifier(5, 1000, result::add);
+        // 向北100米，中间有2米抖动，再向东100米
+        for (int i = 0; i <= 10; i++) {
+            double jitter = i == 5 ? 2 * METER : 0;
+            simplifier.accept(point(i, 31.0 + i * 10 * METER, 121.0 + jitter));
+        }
+        for (int i = 1; i <= 10; i++) {
+            simplifier.accept(point(10 + i, 31.0 + 100 * METER, 121.0 + i * 10 * METER / Math.cos(Math.toRadians(31.0))));
+        }
+        simplifier.finish();
+
+        assertEquals(3, result.size());
+        assertEquals(START.plusSeconds(10), result.get(1).getDataTime());
+    }
+
+    @Test
+    @DisplayName("跨窗口输出：窗口边界点只输出一次且保持时间顺序")
+    void testWindowBoundary() {
+        List<DeviceTrackPointVO> windowed = new ArrayList<>();
+        List<DeviceTrackPointVO> whole = new ArrayList<>();
+        TrackSimplifier small = new TrackSimplifier(5, 16, windowed::add);
+        TrackSimplifier large = new TrackSimplifier(5, 100_000, whole::add);
+        for (int i = 0; i < 86_400; i++) {
+            // 每30秒转一次向的锯齿，拐点都超出容差
+            double offset = (i / 30 % 2 == 0 ? i % 30 : 30 - i % 30) * 3 * METER;
+            DeviceTrackPointVO p = point(i, 31.0 + i * 10 * METER, 121.0 + offset);
+            small.accept(p);
+            large.accept(p);
+        }
+        small.finish();
+        large.finish();
+
+        assertEquals(START, windowed.get(0).getDataTime());
+        assertEquals(START.plusSeconds(86_399), windowed.get(windowed.size() - 1).getDataTime());
+        for (int i = 1; i < windowed.size(); i++) {
+            assertTrue(windowed.get(i).getDataTime().isAfter(windowed.get(i - 1).getDataTime()));
+        }
+        // 窗口切分只会多保留边界点，不会丢掉整体简化保留的拐点
+        assertTrue(windowed.size() >= whole.size());
+        assertTrue(windowed.size() < 86_400 / 10);
+    }
+
+    @Test
+    @DisplayName("连续重复位置只保留第一个点")
+    void testDuplicates() {
+        List<DeviceTrackPointVO> result = new ArrayList<>();
+        TrackSimplifier simplifier = new TrackSimplifier(0, 1000, result::add);
+        simplifier.accept(point(0, 31.0, 121.0));
+        simplifier.accept(point(1, 31.0, 121.0));
+        simplifier.accept(point(2, 31.0, 121.0));
+        simplifier.accept(point(3, 31.0 + 10 * METER, 121.0));
+        simplifier.finish();
+
+        assertEquals(2, result.size());
+        assertEquals(START, result.get(0).getDataTime());
+        assertEquals(START.plusSeconds(3), result.get(1).getDataTime());
+    }
+
+    private static DeviceTrackPointVO point(int second, double latitude, double longitude) {
+        DeviceTrackPointVO point = new DeviceTrackPointVO();
+        point.setDataTime(START.plusSeconds(second));
+        point.setLatitude(latitude);
+        point.setLongitude(longitude);
+        point.setSpeed(36.0);
+        return point;
+    }
+}
@@ -8,6 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -15,6 +16,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 设备模拟器
@@ -28,8 +30,13 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class DeviceSimulator {
 
+    private static final String BROKER_URL = "tcp://localhost:1883";
+
     private final SimulatorProperties properties;
     private final Map<String, VirtualDevice> devices = new ConcurrentHashMap<>();
+    private final List<MqttClient> sharedClients = new ArrayList<>();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
     private ScheduledExecutorService executor;
     private volatile boolean running = false;
 
@@ -47,9 +54,22 @@ public class DeviceSimulator {
         // 初始化虚拟设备
         initDevices();
         
-        // 启动定时任务
+        // 启动定时任务：设备分组发送，各组的起始时间在发送间隔内错开，避免所有设备同时发送
+        int groupCount = Math.max(Runtime.getRuntime().availableProcessors(), sharedClients.size());
+        List<List<VirtualDevice>> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(new ArrayList<>());
+        }
+        int index = 0;
+        for (VirtualDevice device : devices.values()) {
+            groups.get(index++ % groupCount).add(device);
+        }
+        long intervalMs = properties.getSendInterval() * 1000L;
         executor = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
-        executor.scheduleAtFixedRate(this::sendAllDevicesData, 0, properties.getSendInterval(), TimeUnit.SECONDS);
+        for (int i = 0; i < groupCount; i++) {
+            List<VirtualDevice> group = groups.get(i);
+            executor.scheduleAtFixedRate(() -> sendData(group), i * intervalMs / groupCount, intervalMs, TimeUnit.MILLISECONDS);
+        }
         
         running = true;
         log.info("模拟器启动成功");
@@ -71,28 +91,79 @@ public class DeviceSimulator {
         // 断开所有设备连接
         devices.values().forEach(VirtualDevice::disconnect);
         devices.clear();
+        sharedClients.forEach(this::closeQuietly);
+        sharedClients.clear();
         
         log.info("模拟器已停止");
     }
 
+    /**
+     * 获取运行状态
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running);
+        status.put("deviceCount", devices.size());
+        status.put("connectionMode", properties.getConnectionMode());
+        status.put("connectionCount", sharedClients.isEmpty() ? devices.size() : sharedClients.size());
+        status.put("sentCount", sentCount.get());
+        status.put("failedCount", failedCount.get());
+        return status;
+    }
+
     /**
      * 初始化虚拟设备
      */
     private void initDevices() {
+        if (properties.getConnectionMode() == SimulatorProperties.ConnectionMode.SHARED) {
+            initSharedClients();
+        }
         for (int i = 1; i <= properties.getDeviceCount(); i++) {
             String deviceId = String.format("SIM_DEV_%03d", i);
-            VirtualDevice device = new VirtualDevice(deviceId, properties);
+            MqttClient sharedClient = sharedClients.isEmpty() ? null : sharedClients.get(i % sharedClients.size());
+            VirtualDevice device = new VirtualDevice(deviceId, properties, sharedClient, sentCount, failedCount);
             device.connect();
             devices.put(deviceId, device);
         }
-        log.info("初始化{}个虚拟设备", devices.size());
+        log.info("初始化{}个虚拟设备，连接模式：{}", devices.size(), properties.getConnectionMode());
     }
 
     /**
-     * 发送所有设备数据
+     * 创建共享连接
      */
-    private void sendAllDevicesData() {
-        devices.values().forEach(VirtualDevice::sendData);
+    private void initSharedClients() {
+        for (int i = 0; i < properties.getSharedConnections(); i++) {
+            String clientId = "simulator-shared-" + i;
+            try {
+                MqttClient client = new MqttClient(BROKER_URL, clientId, new MemoryPersistence());
+                MqttConnectOptions options = new MqttConnectOptions();
+                options.setAutomaticReconnect(true);
+                options.setMaxInflight(properties.getMaxInflight());
+                client.connect(options);
+                sharedClients.add(client);
+            } catch (Exception e) {
+                log.error("共享连接创建失败: {}", clientId, e);
+            }
+        }
+        log.info("创建{}个共享连接", sharedClients.size());
+    }
+
+    private void closeQuietly(MqttClient client) {
+        try {
+            if (client.isConnected()) {
+                client.disconnect();
+            }
+            client.close();
+        } catch (Exception e) {
+            log.error("共享连接关闭失败: {}", client.getClientId(), e);
+        }
+    }
+
+    /**
+     * 发送一组设备的数据
+     */
+    private void sendData(List<VirtualDevice> group) {
+        group.forEach(VirtualDevice::sendData);
     }
 
     /**
@@ -117,10 +188,19 @@ public class DeviceSimulator {
         private double mileage;
         
         private SimulatorProperties config;
+        
+        // 共享连接（SHARED模式），为null时设备自己建立连接
+        private MqttClient sharedClient;
+        private AtomicLong sentCount;
+        private AtomicLong failedCount;
 
-        public VirtualDevice(String deviceId, SimulatorProperties config) {
+        public VirtualDevice(String deviceId, SimulatorProperties config, MqttClient sharedClient,
+                             AtomicLong sentCount, AtomicLong failedCount) {
             this.deviceId = deviceId;
             this.config = config;
+            this.sharedClient = sharedClient;
+            this.sentCount = sentCount;
+            this.failedCount = failedCount;
             
             // 初始化GPS位置（随机偏移）
             this.latitude = config.getInitLatitude() + (random.nextDouble() - 0.5) * config.getGpsDriftRange();
@@ -134,8 +214,13 @@ public class DeviceSimulator {
         }
 
         public void connect() {
+            if (sharedClient != null) {
+                mqttClient = sharedClient;
+                sendOnlineMessage();
+                return;
+            }
             try {
-                mqttClient = new MqttClient("tcp://localhost:1883", deviceId);
+                mqttClient = new MqttClient(BROKER_URL, deviceId, new MemoryPersistence());
                 MqttConnectOptions options = new MqttConnectOptions();
                 options.setAutomaticReconnect(true);
                 mqttClient.connect(options);
@@ -148,6 +233,10 @@ public class DeviceSimulator {
         }
 
         public void disconnect() {
+            // 共享连接由模拟器统一关闭
+            if (sharedClient != null) {
+                return;
+            }
             try {
                 if (mqttClient != null && mqttClient.isConnected()) {
                     mqttClient.disconnect();
@@ -247,10 +336,14 @@ public class DeviceSimulator {
                 if (mqttClient != null && mqttClient.isConnected()) {
                     String json = JSONUtil.toJsonStr(payload);
                     MqttMessage message = new MqttMessage(json.getBytes());
-                    message.setQos(1);
+                    message.setQos(config.getQos());
                     mqttClient.publish(topic, message);
+                    sentCount.incrementAndGet();
+                } else {
+                    failedCount.incrementAndGet();
                 }
             } catch (Exception e) {
+                failedCount.incrementAndGet();
                 log.error("发送消息失败: deviceId={}, topic={}", deviceId, topic, e);
             }
         }
@@ -63,5 +63,39 @@ public class SimulatorProperties {
      * 最大转速
      */
     private Integer rpmMax = 5000;
-}
 
+    /**
+     * 连接模式
+     */
+    private ConnectionMode connectionMode = ConnectionMode.PER_DEVICE;
+
+    /**
+     * SHARED模式下的共享连接数
+     */
+    private Integer sharedConnections = 16;
+
+    /**
+     * SHARED模式下每个连接允许的最大在途消息数
+     */
+    private Integer maxInflight = 1000;
+
+    /**
+     * 数据消息的QoS
+     */
+    private Integer qos = 1;
+
+    /**
+     * 连接模式
+     */
+    public enum ConnectionMode {
+        /**
+         * 每个设备一个MQTT连接（与真实设备一致，单机适合1000个以内）
+         */
+        PER_DEVICE,
+
+        /**
+         * 所有设备复用少量MQTT连接发布到各自的主题（用于数万设备的压测）
+         */
+        SHARED
+    }
+}
@@ -39,7 +39,7 @@ public class SimulatorController {
 
     @GetMapping("/status")
     public Map<String, Object> status() {
-        Map<String, Object> result = new HashMap<>();
+        Map<String, Object> result = new HashMap<>(deviceSimulator.status());
         result.put("status", "ok");
         return result;
     }
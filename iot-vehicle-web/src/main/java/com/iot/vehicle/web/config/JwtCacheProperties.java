@@ -0,0 +1,31 @@
+package com.iot.vehicle.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 已验证Token缓存配置属性
+ *
+ * @author dongxiang.wu
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jwt-cache")
+public class JwtCacheProperties {
+
+    /**
+     * 是否启用缓存，关闭后每次请求都校验签名
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 缓存的最大Token数（超过后按W-TinyLFU淘汰）
+     */
+    private Long maxSize = 10_000L;
+
+    /**
+     * 单个Token的最长缓存时间（分钟），Token先过期时以过期时间为准
+     */
+    private Long maxTtlMinutes = 30L;
+}
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.service.cache.DeviceDataRedisSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -51,5 +53,18 @@ public class RedisConfig {
         
         return template;
     }
+
+    /**
+     * 设备最新数据专用模板（device:latest:*），value使用紧凑二进制格式
+     */
+    @Bean
+    public RedisTemplate<String, DeviceData> deviceDataRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, DeviceData> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new DeviceDataRedisSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
 }
 
@@ -0,0 +1,69 @@
+package com.iot.vehicle.web.controller;
+
+import com.iot.vehicle.api.vo.ChangeFeedMessageVO;
+import com.iot.vehicle.common.core.annotation.RequirePermission;
+import com.iot.vehicle.common.core.result.Result;
+import com.iot.vehicle.service.service.ChangeFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 设备变更流接口
+ *
+ * 可以直接访问Redis的系统建议用XREADGROUP订阅流，本接口供无法访问Redis的集成方和本地模式使用
+ *
+ * @author dongxiang.wu
+ */
+@Tag(name = "设备变更流", description = "设备最新状态和上下线事件的订阅、确认和重放接口")
+@RestController
+@RequestMapping("/change-feed")
+@RequiredArgsConstructor
+public class ChangeFeedController {
+
+    private final ChangeFeedService changeFeedService;
+
+    @Operation(summary = "按ID重放消息", description = "不经过消费组，按消息ID顺序读取指定ID之后的消息")
+    @GetMapping("/messages")
+    @RequirePermission("device:view")
+    public Result<List<ChangeFeedMessageVO>> range(
+            @Parameter(description = "从该消息ID之后开始，不传时从最早的消息开始") @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "最多读取的条数，默认100") @RequestParam(value = "count", required = false) Integer count) {
+        return Result.success(changeFeedService.range(after, count));
+    }
+
+    @Operation(summary = "以消费组读取消息",
+            description = "消费组不存在时从当前末尾创建；读到的消息需要确认，未确认的消息可以用pending=true重新读取")
+    @PostMapping("/groups/{group}/read")
+    @RequirePermission("device:view")
+    public Result<List<ChangeFeedMessageVO>> read(
+            @Parameter(description = "消费组") @PathVariable("group") String group,
+            @Parameter(description = "消费者名称") @RequestParam("consumer") String consumer,
+            @Parameter(description = "最多读取的条数，默认100") @RequestParam(value = "count", required = false) Integer count,
+            @Parameter(description = "是否读取已投递未确认的消息") @RequestParam(value = "pending", defaultValue = "false") Boolean pending) {
+        return Result.success(changeFeedService.read(group, consumer, count, Boolean.TRUE.equals(pending)));
+    }
+
+    @Operation(summary = "确认消息", description = "确认后消息从该消费组的待确认列表中移除，影响该消费组的所有消费者")
+    @PostMapping("/groups/{group}/ack")
+    @RequirePermission("device:edit")
+    public Result<Long> ack(
+            @Parameter(description = "消费组") @PathVariable("group") String group,
+            @RequestBody List<String> ids) {
+        return Result.success(changeFeedService.ack(group, ids));
+    }
+
+    @Operation(summary = "重置消费组位置", description = "之后从该ID之后重新投递，0表示从最早的消息开始，$表示跳到末尾；影响该消费组的所有消费者")
+    @PutMapping("/groups/{group}/offset")
+    @RequirePermission("device:edit")
+    public Result<Void> resetOffset(
+            @Parameter(description = "消费组") @PathVariable("group") String group,
+            @Parameter(description = "消息ID") @RequestParam("id") String id) {
+        changeFeedService.resetOffset(group, id);
+        return Result.success();
+    }
+}
@@ -1,21 +1,37 @@
 package com.iot.vehicle.web.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iot.vehicle.api.dto.CreateDeviceDTO;
 import com.iot.vehicle.api.dto.UpdateDeviceDTO;
 import com.iot.vehicle.api.entity.Device;
+import com.iot.vehicle.api.vo.DeviceStatisticsVO;
 import com.iot.vehicle.api.vo.DeviceVO;
+import com.iot.vehicle.api.vo.GroupStatisticsVO;
 import com.iot.vehicle.common.core.annotation.RequirePermission;
 import com.iot.vehicle.common.core.result.Result;
+import com.iot.vehicle.common.core.result.ResultCode;
+import com.iot.vehicle.common.mybatis.result.CursorPageResult;
 import com.iot.vehicle.common.mybatis.result.PageResult;
+import com.iot.vehicle.service.service.DeviceDataService;
 import com.iot.vehicle.service.service.DeviceService;
+import com.iot.vehicle.service.track.TrackStream;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,6 +46,8 @@ import java.util.Map;
 public class DeviceController {
 
     private final DeviceService deviceService;
+    private final DeviceDataService deviceDataService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "注册设备", description = "注册新设备并生成设备ID和密钥")
     @PostMapping("/register")
@@ -57,6 +75,24 @@ public class DeviceController {
         return Result.success(pageResult);
     }
 
+    @Operation(summary = "游标分页查询设备列表",
+            description = "按创建时间倒序滚动加载，用上一页返回的nextCursor请求下一页，深翻页不变慢；总数可选，无筛选条件时为估算值")
+    @GetMapping("/scroll")
+    @RequirePermission("device:list")
+    public Result<CursorPageResult<DeviceVO>> getDeviceScroll(
+            @Parameter(description = "上一页返回的游标，第一页不传") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(value = "size", defaultValue = "20") Long size,
+            @Parameter(description = "设备名称/ID/序列号") @RequestParam(value = "deviceName", required = false) String deviceName,
+            @Parameter(description = "设备类型") @RequestParam(value = "deviceType", required = false) String deviceType,
+            @Parameter(description = "分组ID") @RequestParam(value = "groupId", required = false) Long groupId,
+            @Parameter(description = "设备状态") @RequestParam(value = "status", required = false) Integer status,
+            @Parameter(description = "在线状态") @RequestParam(value = "onlineStatus", required = false) Integer onlineStatus,
+            @Parameter(description = "是否返回总数") @RequestParam(value = "withTotal", defaultValue = "false") Boolean withTotal) {
+        CursorPageResult<DeviceVO> result = deviceService.getDeviceScroll(cursor, size, deviceName, deviceType,
+                groupId, status, onlineStatus, Boolean.TRUE.equals(withTotal));
+        return Result.success(result);
+    }
+
     @Operation(summary = "根据ID查询设备详情", description = "查询指定设备的详细信息")
     @GetMapping("/{id}")
     @RequirePermission("device:view")
@@ -139,5 +175,71 @@ public class DeviceController {
         Map<String, Object> statistics = deviceService.getDeviceStatistics();
         return Result.success(statistics);
     }
-}
 
+    @Operation(summary = "按分组统计设备", description = "各分组（不含子分组）的设备总数、在线数和各状态数量")
+    @GetMapping("/statistics/groups")
+    @RequirePermission("device:view")
+    public Result<List<DeviceStatisticsVO>> getGroupStatistics() {
+        List<DeviceStatisticsVO> statistics = deviceService.getGroupStatistics();
+        return Result.success(statistics);
+    }
+
+    @Operation(summary = "按所有者统计设备", description = "各所有者的设备总数、在线数和各状态数量")
+    @GetMapping("/statistics/owners")
+    @RequirePermission("device:view")
+    public Result<List<DeviceStatisticsVO>> getOwnerStatistics() {
+        List<DeviceStatisticsVO> statistics = deviceService.getOwnerStatistics();
+        return Result.success(statistics);
+    }
+
+    @Operation(summary = "按分组树统计设备",
+            description = "各分组及其全部子分组的设备总数、在线数、各状态数量和最新数据摘要，从内存汇总直接返回")
+    @GetMapping("/statistics/group-tree")
+    @RequirePermission("device:view")
+    public Result<List<GroupStatisticsVO>> getGroupTreeStatistics(
+            @Parameter(description = "分组ID，不传时返回全部顶级分组") @RequestParam(value = "groupId", required = false) Long groupId) {
+        List<GroupStatisticsVO> statistics = deviceService.getGroupTreeStatistics(groupId);
+        return Result.success(statistics);
+    }
+
+    @Operation(summary = "查询设备轨迹",
+            description = "按时间范围回放轨迹，服务端按容差做Douglas-Peucker简化，结果以与Result相同的结构流式输出")
+    @GetMapping(value = "/{deviceId}/track", produces = MediaType.APPLICATION_JSON_VALUE)
+    @RequirePermission("device:view")
+    public ResponseEntity<StreamingResponseBody> getTrack(
+            @Parameter(description = "设备业务ID") @PathVariable("deviceId") String deviceId,
+            @Parameter(description = "开始时间（yyyy-MM-dd HH:mm:ss）")
+            @RequestParam("from") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @Parameter(description = "结束时间（yyyy-MM-dd HH:mm:ss，不包含）")
+            @RequestParam("to") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @Parameter(description = "简化容差（米），默认5，0表示不简化")
+            @RequestParam(value = "tolerance", required = false) Double tolerance) {
+        // 参数错误在开始输出前抛出，仍由全局异常处理返回
+        TrackStream track = deviceDataService.openTrack(deviceId, from, to, tolerance);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeNumberField("code", ResultCode.SUCCESS.getCode());
+                generator.writeStringField("message", ResultCode.SUCCESS.getMessage());
+                generator.writeObjectFieldStart("data");
+                generator.writeStringField("deviceId", deviceId);
+                generator.writeArrayFieldStart("points");
+                track.forEach(point -> {
+                    try {
+                        generator.writeObject(point);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.writeNumberField("timestamp", System.currentTimeMillis());
+                generator.writeEndObject();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
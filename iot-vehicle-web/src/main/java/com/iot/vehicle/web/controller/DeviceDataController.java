@@ -0,0 +1,88 @@
+package com.iot.vehicle.web.controller;
+
+import com.iot.vehicle.api.entity.DeviceData;
+import com.iot.vehicle.api.vo.DeviceRecentPointVO;
+import com.iot.vehicle.api.vo.DeviceTrendVO;
+import com.iot.vehicle.common.core.annotation.RequirePermission;
+import com.iot.vehicle.common.core.result.Result;
+import com.iot.vehicle.common.mybatis.result.CursorPageResult;
+import com.iot.vehicle.service.service.DeviceDataService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 设备数据查询接口
+ *
+ * @author dongxiang.wu
+ */
+@Tag(name = "设备数据", description = "设备数据趋势、历史数据等查询接口")
+@RestController
+@RequestMapping("/device-data")
+@RequiredArgsConstructor
+public class DeviceDataController {
+
+    private final DeviceDataService deviceDataService;
+
+    @Operation(summary = "查询设备数据趋势",
+            description = "按时间范围和最大点数自动选择1分钟或1小时汇总，返回每个时间桶的速度、转速、油量和里程汇总")
+    @GetMapping("/{deviceId}/trend")
+    @RequirePermission("device:view")
+    public Result<DeviceTrendVO> getTrend(
+            @Parameter(description = "设备业务ID") @PathVariable("deviceId") String deviceId,
+            @Parameter(description = "开始时间（yyyy-MM-dd HH:mm:ss）")
+            @RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @Parameter(description = "结束时间（yyyy-MM-dd HH:mm:ss，不包含）")
+            @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @Parameter(description = "最大点数，默认500") @RequestParam(value = "maxPoints", required = false) Integer maxPoints) {
+        DeviceTrendVO trend = deviceDataService.getTrend(deviceId, start, end, maxPoints);
+        return Result.success(trend);
+    }
+
+    @Operation(summary = "查询设备历史数据",
+            description = "按时间升序返回原始数据，已归档的日期从归档文件读取，单次最多查询7天")
+    @GetMapping("/{deviceId}/history")
+    @RequirePermission("device:view")
+    public Result<List<DeviceData>> getHistory(
+            @Parameter(description = "设备业务ID") @PathVariable("deviceId") String deviceId,
+            @Parameter(description = "开始时间（yyyy-MM-dd HH:mm:ss）")
+            @RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @Parameter(description = "结束时间（yyyy-MM-dd HH:mm:ss，不包含）")
+            @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end) {
+        List<DeviceData> history = deviceDataService.getHistoryData(deviceId, start, end);
+        return Result.success(history);
+    }
+
+    @Operation(summary = "游标分页查询设备历史数据",
+            description = "按时间升序滚动加载原始数据，用上一页返回的nextCursor请求下一页，单次最多查询31天")
+    @GetMapping("/{deviceId}/history/scroll")
+    @RequirePermission("device:view")
+    public Result<CursorPageResult<DeviceData>> getHistoryScroll(
+            @Parameter(description = "设备业务ID") @PathVariable("deviceId") String deviceId,
+            @Parameter(description = "开始时间（yyyy-MM-dd HH:mm:ss）")
+            @RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @Parameter(description = "结束时间（yyyy-MM-dd HH:mm:ss，不包含）")
+            @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @Parameter(description = "上一页返回的游标，第一页不传") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(value = "size", defaultValue = "100") Long size) {
+        CursorPageResult<DeviceData> page = deviceDataService.getHistoryScroll(deviceId, start, end, cursor, size);
+        return Result.success(page);
+    }
+
+    @Operation(summary = "查询设备近期数据",
+            description = "从内存缓冲返回最近N分钟的位置、速度和转速，用于轨迹回放和实时曲线")
+    @GetMapping("/{deviceId}/recent")
+    @RequirePermission("device:view")
+    public Result<List<DeviceRecentPointVO>> getRecent(
+            @Parameter(description = "设备业务ID") @PathVariable("deviceId") String deviceId,
+            @Parameter(description = "最近的分钟数，默认30") @RequestParam(value = "minutes", defaultValue = "30") Integer minutes) {
+        List<DeviceRecentPointVO> points = deviceDataService.getRecentData(deviceId, minutes);
+        return Result.success(points);
+    }
+}
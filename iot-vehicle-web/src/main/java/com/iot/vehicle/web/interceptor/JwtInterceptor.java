@@ -1,28 +1,47 @@
 package com.iot.vehicle.web.interceptor;
 
 import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.iot.vehicle.common.core.exception.BusinessException;
 import com.iot.vehicle.common.core.result.ResultCode;
 import com.iot.vehicle.common.core.utils.JwtUtil;
+import com.iot.vehicle.web.config.JwtCacheProperties;
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
 /**
  * JWT拦截器
- * 
+ *
  * 功能：
  * 1. 从请求头中获取Token
  * 2. 验证Token的有效性
  * 3. 解析Token并将用户信息存入请求上下文
  *
+ * 验证通过的Token按SHA-256摘要缓存用户信息，缓存在Token过期时（最长maxTtlMinutes）失效；
+ * 大屏等客户端用同一Token轮询时只在首次请求校验签名。无效Token不缓存。
+ * 以后增加Token黑名单时，需要同时从缓存中移除对应的Token。
+ *
  * @author dongxiang.wu
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JwtInterceptor implements HandlerInterceptor {
 
     /**
@@ -45,30 +64,75 @@ public class JwtInterceptor implements HandlerInterceptor {
      */
     public static final String USERNAME_ATTR = "username";
 
+    /**
+     * MessageDigest不是线程安全的，每个线程复用一个
+     */
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final JwtCacheProperties jwtCacheProperties;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(jwtCacheProperties.getEnabled())) {
+            log.info("已验证Token缓存未启用");
+            return;
+        }
+        long maxTtlNanos = TimeUnit.MINUTES.toNanos(jwtCacheProperties.getMaxTtlMinutes());
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtCacheProperties.getMaxSize())
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long remaining = TimeUnit.MILLISECONDS.toNanos(value.expiresAt() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(remaining, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        // 命中率：cache.gets{cache=jwt-claims, result=hit|miss}
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt-claims");
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         // 获取Token
         String token = getTokenFromRequest(request);
-        
+
         if (StrUtil.isBlank(token)) {
             throw new BusinessException(ResultCode.UNAUTHORIZED, "请先登录");
         }
 
-        // 验证Token
-        if (!JwtUtil.validateToken(token)) {
+        // 验证并解析Token
+        VerifiedToken verified = verify(token);
+        if (verified == null) {
             throw new BusinessException(ResultCode.UNAUTHORIZED, "Token无效或已过期，请重新登录");
         }
 
-        // 解析Token
-        Claims claims = JwtUtil.parseToken(token);
-        if (claims == null) {
-            throw new BusinessException(ResultCode.UNAUTHORIZED, "Token解析失败");
-        }
-
         // 将用户信息存入请求属性
-        Object userId = claims.get(USER_ID_ATTR);
-        Object username = claims.get(USERNAME_ATTR);
-        
+        Object userId = verified.userId();
+        Object username = verified.username();
+
         if (userId != null) {
             request.setAttribute(USER_ID_ATTR, userId);
         }
@@ -81,6 +145,28 @@ public class JwtInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * 验证Token：先查缓存，未命中时校验签名和过期时间（只解析一次）并写入缓存
+     *
+     * @param token Token字符串
+     * @return 用户信息，Token无效或已过期时返回null
+     */
+    private VerifiedToken verify(String token) {
+        if (verifiedTokens == null) {
+            return VerifiedToken.of(JwtUtil.verifyToken(token));
+        }
+        String key = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        VerifiedToken verified = VerifiedToken.of(JwtUtil.verifyToken(token));
+        if (verified != null) {
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
+    }
+
     /**
      * 从请求中获取Token
      *
@@ -89,7 +175,7 @@ public class JwtInterceptor implements HandlerInterceptor {
      */
     private String getTokenFromRequest(HttpServletRequest request) {
         String header = request.getHeader(TOKEN_HEADER);
-        
+
         if (StrUtil.isBlank(header)) {
             return null;
         }
@@ -100,5 +186,27 @@ public class JwtInterceptor implements HandlerInterceptor {
 
         return header;
     }
-}
 
+    /**
+     * 缓存key：Token的SHA-256摘要，不在内存中保留完整Token
+     */
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    /**
+     * 验证通过的用户信息
+     *
+     * @param userId    用户ID
+     * @param username  用户名
+     * @param expiresAt Token过期时间（毫秒时间戳）
+     */
+    private record VerifiedToken(Object userId, Object username, long expiresAt) {
+
+        static VerifiedToken of(Claims claims) {
+            return claims == null ? null : new VerifiedToken(claims.get(USER_ID_ATTR), claims.get(USERNAME_ATTR),
+                    claims.getExpiration().getTime());
+        }
+    }
+}
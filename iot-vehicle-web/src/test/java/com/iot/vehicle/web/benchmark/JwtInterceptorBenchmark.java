@@ -0,0 +1,112 @@
+package com.iot.vehicle.web.benchmark;
+
+import com.iot.vehicle.common.core.utils.JwtUtil;
+import com.iot.vehicle.web.config.JwtCacheProperties;
+import com.iot.vehicle.web.interceptor.JwtInterceptor;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT拦截器基准测试：同一Token重复请求时的认证开销
+ *
+ * legacyPath为原有路径：validateToken和parseToken各自重新生成密钥、构建解析器并校验一次签名；
+ * singleParse为关闭缓存的拦截器（复用解析器，只解析一次）；cachedPath为开启缓存的拦截器，
+ * 只计算Token摘要并查缓存。
+ *
+ * @author dongxiang.wu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtInterceptorBenchmark {
+
+    private static final String LEGACY_SECRET = "iot-vehicle-benchmark-jwt-secret-key-at-least-256-bits";
+
+    private JwtInterceptor cachedInterceptor;
+    private JwtInterceptor uncachedInterceptor;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private String legacyToken;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", 10001L);
+        claims.put("username", "dashboard");
+        String token = JwtUtil.generateToken("10001", claims);
+        legacyToken = JwtUtil.generateToken("10001", claims, TimeUnit.DAYS.toMillis(7), LEGACY_SECRET);
+
+        cachedInterceptor = interceptor(true);
+        uncachedInterceptor = interceptor(false);
+        request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public boolean cachedPath() {
+        return cachedInterceptor.preHandle(request, response, null);
+    }
+
+    @Benchmark
+    public boolean singleParse() {
+        return uncachedInterceptor.preHandle(request, response, null);
+    }
+
+    @Benchmark
+    public Object legacyPath() {
+        // 原有JwtUtil.validateToken
+        Claims validated = legacyParse(legacyToken);
+        Date expiration = validated.getExpiration();
+        if (expiration == null || !expiration.after(new Date())) {
+            throw new IllegalStateException();
+        }
+        // 原有JwtUtil.parseToken
+        Claims claims = legacyParse(legacyToken);
+        request.setAttribute(JwtInterceptor.USER_ID_ATTR, claims.get(JwtInterceptor.USER_ID_ATTR));
+        request.setAttribute(JwtInterceptor.USERNAME_ATTR, claims.get(JwtInterceptor.USERNAME_ATTR));
+        return claims;
+    }
+
+    private static Claims legacyParse(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(LEGACY_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static JwtInterceptor interceptor(boolean enabled) {
+        JwtCacheProperties properties = new JwtCacheProperties();
+        properties.setEnabled(enabled);
+        JwtInterceptor interceptor = new JwtInterceptor(properties, new SimpleMeterRegistry());
+        interceptor.start();
+        return interceptor;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtInterceptorBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -5,6 +5,8 @@ import com.iot.vehicle.api.dto.LoginDTO;
 import com.iot.vehicle.api.vo.LoginVO;
 import com.iot.vehicle.api.vo.UserVO;
 import com.iot.vehicle.service.service.AuthService;
+import com.iot.vehicle.web.config.JwtCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,6 +41,15 @@ class AuthControllerTest {
     @MockBean
     private AuthService authService;
 
+    /**
+     * JwtInterceptor的依赖（切片测试不加载配置属性和指标，mock后Token缓存不启用）
+     */
+    @MockBean
+    private JwtCacheProperties jwtCacheProperties;
+
+    @MockBean
+    private MeterRegistry meterRegistry;
+
     @Test
     @DisplayName("测试用户登录接口")
     void testLogin() throws Exception {
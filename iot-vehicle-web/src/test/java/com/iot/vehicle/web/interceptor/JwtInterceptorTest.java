@@ -0,0 +1,84 @@
+package com.iot.vehicle.web.interceptor;
+
+import com.iot.vehicle.common.core.exception.BusinessException;
+import com.iot.vehicle.common.core.utils.JwtUtil;
+import com.iot.vehicle.web.config.JwtCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JWT拦截器已验证Token缓存测试
+ *
+ * @author dongxiang.wu
+ */
+class JwtInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JwtInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        JwtCacheProperties properties = new JwtCacheProperties();
+        properties.setEnabled(true);
+        interceptor = new JwtInterceptor(properties, meterRegistry);
+        interceptor.start();
+    }
+
+    @Test
+    @DisplayName("缓存的Token在exp时失效，不按maxTtlMinutes继续放行")
+    void testCachedTokenExpiresAtExp() {
+        String token = JwtUtil.generateToken("10001", Map.of("userId", 10001L, "username", "dashboard"), 1500L);
+        long expiresAt = JwtUtil.parseToken(token).getExpiration().getTime();
+
+        MockHttpServletRequest request = request(token);
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+        assertEquals("dashboard", request.getAttribute(JwtInterceptor.USERNAME_ATTR));
+        assertTrue(interceptor.preHandle(request(token), new MockHttpServletResponse(), null));
+        assertEquals(1.0, gets("hit"));
+
+        long waitMillis = expiresAt - System.currentTimeMillis() + 200;
+        if (waitMillis > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(waitMillis));
+        }
+        assertThrows(BusinessException.class,
+                () -> interceptor.preHandle(request(token), new MockHttpServletResponse(), null));
+        assertEquals(1.0, gets("hit"), "过期后不再命中缓存");
+    }
+
+    @Test
+    @DisplayName("无效Token不缓存，每次请求都重新校验并拒绝")
+    void testInvalidTokenNotCached() {
+        String token = JwtUtil.generateToken("10001", Map.of("userId", 10001L), TimeUnit.HOURS.toMillis(1),
+                "another-iot-vehicle-jwt-secret-key-at-least-256-bits");
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(BusinessException.class,
+                    () -> interceptor.preHandle(request(token), new MockHttpServletResponse(), null));
+        }
+        assertEquals(0.0, gets("hit"));
+        assertEquals(2.0, gets("miss"));
+        assertEquals(0.0, meterRegistry.get("cache.size").tag("cache", "jwt-claims").gauge().value());
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "jwt-claims").tag("result", result)
+                .functionCounter().count();
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}